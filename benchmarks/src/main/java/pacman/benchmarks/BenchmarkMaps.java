@@ -0,0 +1,56 @@
+package pacman.benchmarks;
+
+import java.awt.Point;
+import java.util.SplittableRandom;
+
+import pacman.model.ControllableObject;
+import pacman.model.Map;
+
+/**
+ *  Maps & positions for the benchmarks
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class BenchmarkMaps {
+	/* seed for the generated mazes & the random positions */
+	public static final long SEED = 42;
+
+	/**
+	 * Get a map by its name: "firstLevel" or "maze-N" (generated N x N maze)
+	 * @param name map name
+	 * @return map
+	 */
+	public static Map getMap(String name) {
+		if (name.equals("firstLevel"))
+			return Map.getFirstLevelMap();
+
+		if (name.startsWith("maze-")) {
+			int size = Integer.parseInt(name.substring("maze-".length()));
+			return Map.getGeneratedMap(size, size, SEED);
+		}
+
+		throw new IllegalArgumentException("Unknown map: " + name);
+	}
+
+	/**
+	 * Get random positions that the given object can move to
+	 * @param map game map
+	 * @param object moving object
+	 * @param count number of positions
+	 * @param seed random seed
+	 * @return random positions
+	 */
+	public static Point[] getRandomPositions(Map map, ControllableObject object, int count, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		Point[] positions = new Point[count];
+		for (int i = 0; i < count; i++) {
+			Point p;
+			do {
+				p = new Point(random.nextInt(map.getGameDimension().width), random.nextInt(map.getGameDimension().height));
+			} while (!map.canMove(object, p));
+			positions[i] = p;
+		}
+
+		return positions;
+	}
+}
@@ -0,0 +1,71 @@
+package pacman.benchmarks;
+
+import java.awt.Point;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.ai.CorridorGraph;
+import pacman.ai.Path;
+import pacman.model.GameClock;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+import pacman.model.StrongMonster;
+
+/**
+ *  CorridorGraph benchmark- the same queries as the PathFinder benchmark (unlimited depth), on the junctions graph:
+ *  whole paths, and distances only (without filling the cells)
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CorridorGraphBenchmark {
+	private static final int QUERIES = 1024;
+
+	@Param({ "firstLevel", "maze-101", "maze-301" })
+	public String map;
+
+	private CorridorGraph _graph;
+	private StrongMonster _monster;
+	private Point[] _sources;
+	private Point[] _targets;
+	private Path _path = new Path();
+	private int _query;
+
+	@Setup
+	public void setup() {
+		Map gameMap = BenchmarkMaps.getMap(map);
+		_graph = new CorridorGraph(gameMap);
+		_monster = new StrongMonster(gameMap, new GameClock(), new GameRandom(BenchmarkMaps.SEED));
+		_sources = BenchmarkMaps.getRandomPositions(gameMap, _monster, QUERIES, BenchmarkMaps.SEED);
+		_targets = BenchmarkMaps.getRandomPositions(gameMap, _monster, QUERIES, BenchmarkMaps.SEED + 1);
+	}
+
+	@Benchmark
+	public Path findPath() {
+		int i = _query++ & (QUERIES - 1);
+		_graph.findPath(_monster, _sources[i].x, _sources[i].y, _targets[i].x, _targets[i].y, _path);
+		return _path;
+	}
+
+	@Benchmark
+	public int getDistance() {
+		int i = _query++ & (QUERIES - 1);
+		return _graph.getDistance(_monster, _sources[i].x, _sources[i].y, _targets[i].x, _targets[i].y);
+	}
+}
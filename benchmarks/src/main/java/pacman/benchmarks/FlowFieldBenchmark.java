@@ -0,0 +1,72 @@
+package pacman.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.ai.PathFinder;
+import pacman.controllers.GameEngine;
+import pacman.model.Direction;
+import pacman.model.Map;
+
+/**
+ *  Flow field benchmark- a full headless game step with many monsters on a big maze,
+ *  "astar" plans a path for every monster (A* without a depth limit), "flowField" shares one distance field from pacman.
+ *  Pacman changes its direction randomly every half a second, so the field is computed again as it moves.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FlowFieldBenchmark {
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT };
+
+	@Param({ "maze-101" })
+	public String map;
+
+	@Param({ "64", "512" })
+	public int monsters;
+
+	@Param({ "astar", "flowField" })
+	public String planner;
+
+	private GameEngine _engine;
+	private SplittableRandom _random = new SplittableRandom(BenchmarkMaps.SEED);
+
+	@Setup
+	public void setup() {
+		Map gameMap = BenchmarkMaps.getMap(map);
+		_engine = new GameEngine(gameMap, BenchmarkMaps.SEED, new PathFinder(gameMap, Integer.MAX_VALUE));
+		_engine.setMonstersCount(monsters / 2, monsters - monsters / 2);
+		_engine.setFlowField(planner.equals("flowField"));
+		_engine.start();
+	}
+
+	@Benchmark
+	public long tick() {
+		// start a new game when the current game is over
+		if (_engine.isGameOver() || _engine.isLevelCleared())
+			_engine.start();
+
+		if (_engine.getTicks() % (GameEngine.FPS / 2) == 0)
+			_engine.getPacman().setDirection(DIRECTIONS[_random.nextInt(DIRECTIONS.length)]);
+
+		_engine.tick();
+		return _engine.getTicks();
+	}
+}
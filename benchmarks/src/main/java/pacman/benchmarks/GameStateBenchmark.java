@@ -0,0 +1,76 @@
+package pacman.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.ai.PathFinder;
+import pacman.controllers.GameEngine;
+import pacman.controllers.GameState;
+import pacman.model.Direction;
+import pacman.model.Map;
+
+/**
+ *  Game state benchmark- saving & restoring a headless game in the middle (for rollback and lookahead search),
+ *  "rollback" restores the saved state and plays one game step from it.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameStateBenchmark {
+	@Param({ "firstLevel", "maze-101" })
+	public String map;
+
+	private GameEngine _engine;
+	private GameState _state;
+	private GameState _other;
+
+	@Setup
+	public void setup() {
+		Map gameMap = BenchmarkMaps.getMap(map);
+		_engine = new GameEngine(gameMap, BenchmarkMaps.SEED, new PathFinder(gameMap, Integer.MAX_VALUE));
+		_engine.start();
+
+		// play a few seconds, so some pills were eaten and the monsters left the cage
+		_engine.getPacman().setDirection(Direction.LEFT);
+		for (int i = 0; i < 10 * GameEngine.FPS && !_engine.isGameOver(); i++) {
+			_engine.tick();
+		}
+
+		_state = _engine.snapshot(_engine.createState());
+		_other = _engine.createState();
+	}
+
+	@Benchmark
+	public GameState snapshot() {
+		return _engine.snapshot(_other);
+	}
+
+	@Benchmark
+	public long restore() {
+		_engine.restore(_state);
+		return _engine.getTicks();
+	}
+
+	@Benchmark
+	public long rollback() {
+		_engine.restore(_state);
+		_engine.tick();
+		return _engine.getTicks();
+	}
+}
@@ -0,0 +1,53 @@
+package pacman.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.controllers.GameEngine;
+import pacman.model.Map;
+
+/**
+ *  Game tick benchmark- a full headless game step (GameEngine.updateGame) with N monsters (half weak, half strong)
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameTickBenchmark {
+	@Param({ "4", "16", "64" })
+	public int monsters;
+
+	private GameEngine _engine;
+
+	@Setup
+	public void setup() {
+		_engine = new GameEngine(Map.getFirstLevelMap(), BenchmarkMaps.SEED);
+		_engine.setMonstersCount(monsters / 2, monsters - monsters / 2);
+		_engine.start();
+	}
+
+	@Benchmark
+	public long tick() {
+		// start a new game when the current game is over
+		if (_engine.isGameOver() || _engine.isLevelCleared())
+			_engine.start();
+
+		_engine.tick();
+		return _engine.getTicks();
+	}
+}
@@ -0,0 +1,119 @@
+package pacman.benchmarks;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.ai.PathTable;
+import pacman.gym.GymClient;
+import pacman.gym.GymEnvironment;
+import pacman.gym.GymServer;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+
+/**
+ *  Reinforcement learning environments benchmark- the throughput of environment steps, "environmentStep" steps a batch of
+ *  environments in this thread, "serverStep" steps the same batch through a server on the loopback (one request for the batch).
+ *  The scores are per environment step.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GymBenchmark {
+	private static final int BATCH = 64;
+
+	private GymEnvironment[] _environments;
+	private GymServer _server;
+	private Thread _serverThread;
+	private GymClient _client;
+	private int[] _batch = new int[BATCH];
+	private byte[] _actions = new byte[BATCH];
+	private long[] _seeds = new long[BATCH];
+	private int[] _done = new int[BATCH];
+	private GameRandom _random = new GameRandom(BenchmarkMaps.SEED);
+	private long _episodes;
+
+	@Setup
+	public void setup() throws IOException {
+		Map map = Map.getFirstLevelMap();
+		PathTable ai = new PathTable(map);
+		_environments = new GymEnvironment[BATCH];
+		for (int i = 0; i < BATCH; i++) {
+			_environments[i] = new GymEnvironment(map, ai, Long.MAX_VALUE);
+			_environments[i].reset(i);
+			_batch[i] = i;
+			_seeds[i] = i;
+		}
+
+		_server = new GymServer(map, 1);
+		SocketAddress address = _server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		_serverThread = new Thread(_server, "Gym Server");
+		_serverThread.start();
+		_client = new GymClient(address);
+		_client.open(BATCH);
+		_client.reset(_batch, _seeds, BATCH);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException, InterruptedException {
+		_client.close();
+		_server.stop();
+		_serverThread.join();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int environmentStep() {
+		int rewards = 0;
+		for (int i = 0; i < BATCH; i++) {
+			GymEnvironment environment = _environments[i];
+			rewards += environment.step((int)(_random.nextDouble() * GymEnvironment.ACTIONS));
+			if (environment.isDone())
+				environment.reset(++_episodes);
+		}
+
+		return rewards;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int serverStep() throws IOException {
+		for (int i = 0; i < BATCH; i++) {
+			_actions[i] = (byte)(_random.nextDouble() * GymEnvironment.ACTIONS);
+		}
+		_client.step(_batch, _actions, BATCH);
+
+		int rewards = 0, done = 0;
+		for (int i = 0; i < BATCH; i++) {
+			rewards += _client.getReward(i);
+			if (_client.isDone(i)) {
+				_done[done] = i;
+				_seeds[done++] = ++_episodes;
+			}
+		}
+		if (done > 0)
+			_client.reset(_done, _seeds, done);
+
+		return rewards;
+	}
+}
@@ -0,0 +1,74 @@
+package pacman.benchmarks;
+
+import java.awt.Point;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.ai.HierarchicalPlanner;
+import pacman.ai.Path;
+import pacman.model.GameClock;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+import pacman.model.StrongMonster;
+
+/**
+ *  HierarchicalPlanner (HPA*) benchmark- paths between random cells of big generated mazes: whole paths,
+ *  and abstract routes only (without refining their cells)
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Xmx2g" })
+public class HierarchicalPlannerBenchmark {
+	private static final int QUERIES = 1024;
+
+	@Param({ "maze-101", "maze-301", "maze-501" })
+	public String map;
+
+	@Param({ "16", "32" })
+	public int clusterSize;
+
+	private HierarchicalPlanner _planner;
+	private StrongMonster _monster;
+	private Point[] _sources;
+	private Point[] _targets;
+	private Path _path = new Path();
+	private int _query;
+
+	@Setup
+	public void setup() {
+		Map gameMap = BenchmarkMaps.getMap(map);
+		_planner = new HierarchicalPlanner(gameMap, clusterSize);
+		_monster = new StrongMonster(gameMap, new GameClock(), new GameRandom(BenchmarkMaps.SEED));
+		_sources = BenchmarkMaps.getRandomPositions(gameMap, _monster, QUERIES, BenchmarkMaps.SEED);
+		_targets = BenchmarkMaps.getRandomPositions(gameMap, _monster, QUERIES, BenchmarkMaps.SEED + 1);
+	}
+
+	@Benchmark
+	public Path findPath() {
+		int i = _query++ & (QUERIES - 1);
+		_planner.findPath(_monster, _sources[i].x, _sources[i].y, _targets[i].x, _targets[i].y, _path);
+		return _path;
+	}
+
+	@Benchmark
+	public boolean findRoute() {
+		int i = _query++ & (QUERIES - 1);
+		return _planner.findRoute(_monster, _sources[i].x, _sources[i].y, _targets[i].x, _targets[i].y);
+	}
+}
@@ -0,0 +1,77 @@
+package pacman.benchmarks;
+
+import java.awt.Point;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.model.Direction;
+import pacman.model.GameClock;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+import pacman.model.Pacman;
+import pacman.model.StrongMonster;
+
+/**
+ *  Movement benchmark- ControllableObject.move and Map.canMove
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MovementBenchmark {
+	private static final int QUERIES = 1024;
+
+	/* pacman that moves right forever, in a corridor that wraps around the board */
+	private Pacman _pacman;
+	/* first level map & random cells for canMove */
+	private Map _map;
+	private StrongMonster _monster;
+	private Point[] _cells;
+	private int _query;
+
+	@Setup
+	public void setup() {
+		int[][] corridor = new int[3][28];
+		for (int j = 0; j < 28; j++) {
+			corridor[0][j] = 1;
+			corridor[2][j] = 1;
+		}
+		_pacman = new Pacman(new Map(corridor, new Point(0, 1), new Point(0, 1)));
+		_pacman.setDirection(Direction.RIGHT);
+
+		_map = Map.getFirstLevelMap();
+		_monster = new StrongMonster(_map, new GameClock(), new GameRandom(BenchmarkMaps.SEED));
+		SplittableRandom random = new SplittableRandom(BenchmarkMaps.SEED);
+		_cells = new Point[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			_cells[i] = new Point(random.nextInt(_map.getGameDimension().width), random.nextInt(_map.getGameDimension().height));
+		}
+	}
+
+	@Benchmark
+	public int move() {
+		_pacman.move();
+		return _pacman.getPixelX();
+	}
+
+	@Benchmark
+	public boolean canMove() {
+		Point cell = _cells[_query++ & (QUERIES - 1)];
+		return _map.canMove(_monster, cell.x, cell.y);
+	}
+}
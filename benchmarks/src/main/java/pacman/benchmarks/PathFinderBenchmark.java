@@ -0,0 +1,66 @@
+package pacman.benchmarks;
+
+import java.awt.Point;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.ai.Path;
+import pacman.ai.PathFinder;
+import pacman.model.GameClock;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+import pacman.model.StrongMonster;
+
+/**
+ *  PathFinder (A*) benchmark- shortest paths between random cells of the first level map and of generated mazes
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PathFinderBenchmark {
+	private static final int QUERIES = 1024;
+
+	@Param({ "firstLevel", "maze-101", "maze-301" })
+	public String map;
+
+	/* 100 is the game's search depth, 1000000 is unlimited */
+	@Param({ "100", "1000000" })
+	public int maxSearchDistance;
+
+	private PathFinder _pathFinder;
+	private StrongMonster _monster;
+	private Point[] _sources;
+	private Point[] _targets;
+	private int _query;
+
+	@Setup
+	public void setup() {
+		Map gameMap = BenchmarkMaps.getMap(map);
+		_pathFinder = new PathFinder(gameMap, maxSearchDistance);
+		_monster = new StrongMonster(gameMap, new GameClock(), new GameRandom(BenchmarkMaps.SEED));
+		_sources = BenchmarkMaps.getRandomPositions(gameMap, _monster, QUERIES, BenchmarkMaps.SEED);
+		_targets = BenchmarkMaps.getRandomPositions(gameMap, _monster, QUERIES, BenchmarkMaps.SEED + 1);
+	}
+
+	@Benchmark
+	public Path findPath() {
+		int i = _query++ & (QUERIES - 1);
+		return _pathFinder.findPath(_monster, _sources[i], _targets[i]);
+	}
+}
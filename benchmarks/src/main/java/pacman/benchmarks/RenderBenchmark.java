@@ -0,0 +1,175 @@
+package pacman.benchmarks;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.controllers.GameAdapter;
+import pacman.controllers.GameEngine;
+import pacman.model.ControllableObject;
+import pacman.model.Map;
+import pacman.model.Monster;
+import pacman.model.Pacman;
+import pacman.model.StationaryObject;
+import pacman.views.BoardRenderer;
+import pacman.views.GameView;
+import pacman.views.utils.ImageUtils;
+
+/**
+ *  Render benchmark- a game step and drawing its frame into an offscreen image:
+ *  "components" paints the swing components view (clipped to the region of the moving sprites, like the repaint manager does),
+ *  "canvas" draws the dirty regions of the single canvas renderer.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+	@Param({ "firstLevel", "maze-61" })
+	public String map;
+
+	@Param({ "components", "canvas" })
+	public String renderer;
+
+	private GameEngine _engine;
+	private GameView _view;
+	private Component _viewLayers;
+	private BoardRenderer _boardRenderer;
+	private BufferedImage _target;
+	private Graphics _graphics;
+	private Rectangle _region = new Rectangle();
+	private Rectangle _previousRegion = new Rectangle();
+
+	@Setup
+	public void setup() {
+		_engine = new GameEngine(BenchmarkMaps.getMap(map), BenchmarkMaps.SEED);
+		_engine.setMonstersCount(8, 8);
+
+		if (renderer.equals("components")) {
+			_view = new GameView(_engine.getMap());
+			_engine.addGameListener(new GameAdapter() {
+				@Override
+				public void newGame(Map map, List<Monster> monsters) {
+					_view.newGame(map);
+					_view.setMonsters(monsters);
+				}
+
+				@Override
+				public void pacmanChanged(Pacman pacman) {
+					_view.setPacman(pacman);
+				}
+
+				@Override
+				public void stationaryObjectRemoved(StationaryObject object) {
+					_view.removeStationaryObject(object);
+				}
+			});
+		} else {
+			_boardRenderer = new BoardRenderer(_engine.getMap());
+			_engine.addGameListener(new GameAdapter() {
+				@Override
+				public void newGame(Map map, List<Monster> monsters) {
+					_boardRenderer.newGame(map);
+					_boardRenderer.setMonsters(monsters);
+				}
+
+				@Override
+				public void pacmanChanged(Pacman pacman) {
+					_boardRenderer.setPacman(pacman);
+				}
+
+				@Override
+				public void stationaryObjectRemoved(StationaryObject object) {
+					_boardRenderer.removeStationaryObject(object);
+				}
+			});
+		}
+
+		_engine.start();
+
+		int width = _engine.getMap().getGameDimension().width * BoardRenderer.BLOCK_SIZE;
+		int height = _engine.getMap().getGameDimension().height * BoardRenderer.BLOCK_SIZE;
+		_target = ImageUtils.createCompatibleImage(width, height);
+		_graphics = _target.createGraphics();
+
+		if (_view != null) {
+			// lay out the view (it isn't displayed in a window)
+			_view.setSize(width, height);
+			layout(_view);
+			_viewLayers = _view.getComponent(0);
+			_viewLayers.paint(_graphics);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		_graphics.dispose();
+	}
+
+	@Benchmark
+	public long frame() {
+		// start a new game when the current game is over
+		if (_engine.isGameOver() || _engine.isLevelCleared())
+			_engine.start();
+
+		if (_view != null) {
+			// the region to repaint: the previous & current bounds of all the sprites
+			spritesRegion(_previousRegion);
+			_engine.tick();
+			_view.updateView();
+			spritesRegion(_region);
+			_region.add(_previousRegion);
+
+			Graphics g = _graphics.create(_region.x, _region.y, _region.width, _region.height);
+			g.translate(-_region.x, -_region.y);
+			_viewLayers.paint(g);
+			g.dispose();
+		} else {
+			_engine.tick();
+			_boardRenderer.render(_graphics, _engine.getTicks() * 1000 / GameEngine.FPS);
+		}
+
+		return _engine.getTicks();
+	}
+
+	private void spritesRegion(Rectangle region) {
+		setSpriteBounds(region, _engine.getPacman());
+		for (int i = 0; i < _engine.getMonsters().size(); i++) {
+			Monster m = _engine.getMonsters().get(i);
+			region.add(new Rectangle(m.getPixelX(), m.getPixelY(), BoardRenderer.BLOCK_SIZE, BoardRenderer.BLOCK_SIZE));
+		}
+	}
+
+	private static void setSpriteBounds(Rectangle region, ControllableObject sprite) {
+		region.setBounds(sprite.getPixelX(), sprite.getPixelY(), BoardRenderer.BLOCK_SIZE, BoardRenderer.BLOCK_SIZE);
+	}
+
+	private static void layout(Container container) {
+		container.doLayout();
+		for (Component c : container.getComponents()) {
+			if (c instanceof Container)
+				layout((Container)c);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package pacman.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.views.fx.SoundBank;
+import pacman.views.fx.SoundMixer;
+import pacman.views.utils.AssetsManager;
+
+/**
+ *  Sound mixer benchmark- mixing a block of the game sounds in the silent mode (no audio line),
+ *  with a new sound played every few blocks (like eating pills & monsters in a row)
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SoundMixerBenchmark {
+	private static final String[] SOUNDS = { "eatPill.wav", "eatSuperPill.wav", "eatMonster.wav", "pacmanDie.wav", "specialStage.wav" };
+
+	@Param({ "4", "16" })
+	public int voices;
+
+	/* blocks between the played sounds */
+	@Param({ "1", "8" })
+	public int triggerInterval;
+
+	private SoundMixer _mixer;
+	private byte[] _block;
+	private int _blocks;
+
+	@Setup
+	public void setup() throws Exception {
+		SoundBank bank = new SoundBank(new AudioFormat(44100, 16, 2, true, false));
+		for (String sound : SOUNDS) {
+			bank.load(AssetsManager.getResource("sounds/" + sound));
+		}
+
+		_mixer = new SoundMixer(bank, voices, null);
+		_block = new byte[SoundMixer.BLOCK_FRAMES * bank.getFormat().getFrameSize()];
+	}
+
+	@Benchmark
+	public byte[] mixBlock() {
+		if (_blocks++ % triggerInterval == 0)
+			_mixer.play(_blocks % SOUNDS.length);
+
+		_mixer.mix(_block);
+		return _block;
+	}
+}
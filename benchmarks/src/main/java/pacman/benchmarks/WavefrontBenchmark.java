@@ -0,0 +1,86 @@
+package pacman.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pacman.ai.Wavefront;
+import pacman.model.Map;
+
+/**
+ *  Wavefront benchmark- BFS layers & whole floods over big boards (codes maps, a map of that size has too many components):
+ *  a generated maze (long narrow frontiers) and an open board with random walls (wide frontiers)
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class WavefrontBenchmark {
+	@Param({ "maze-1001", "open-1000" })
+	public String board;
+
+	private Wavefront _wavefront;
+	private int _sourceX;
+	private int _sourceY;
+
+	@Setup
+	public void setup() {
+		int[][] codes;
+		if (board.startsWith("maze-")) {
+			int size = Integer.parseInt(board.substring("maze-".length()));
+			codes = Map.getGeneratedCodes(size, size, BenchmarkMaps.SEED);
+			_sourceX = 1;
+			_sourceY = 1;
+		} else {
+			int size = Integer.parseInt(board.substring("open-".length()));
+			SplittableRandom random = new SplittableRandom(BenchmarkMaps.SEED);
+			codes = new int[size][size];
+			for (int y = 0; y < size; y++) {
+				for (int x = 0; x < size; x++) {
+					codes[y][x] = random.nextInt(4) == 0 ? 1 : 0;
+				}
+			}
+			_sourceX = size / 2;
+			_sourceY = size / 2;
+			codes[_sourceY][_sourceX] = 0;
+		}
+
+		_wavefront = new Wavefront(codes);
+		_wavefront.start(_sourceX, _sourceY);
+	}
+
+	/**
+	 * One BFS layer (the search starts again when it's done)
+	 */
+	@Benchmark
+	public int expand() {
+		int count = _wavefront.expand();
+		if (count == 0)
+			_wavefront.start(_sourceX, _sourceY);
+		return count;
+	}
+
+	/**
+	 * The whole flood from the source
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int countReachable() {
+		return _wavefront.countReachable(_sourceX, _sourceY);
+	}
+}
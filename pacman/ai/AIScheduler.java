@@ -0,0 +1,271 @@
+package pacman.ai;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import pacman.model.ControllableObject;
+import pacman.model.Map;
+
+/**
+ *  AI Scheduler- plans the path requests on the game thread within a fixed budget for every game step
+ *  (a number of expanded nodes, and optionally a time limit), so the AI time of a step doesn't grow with the number of monsters.
+ *  The searches are suspended when the budget is over and continue on the next step. One search runs at a time, and the
+ *  waiting requests are planned by the distance of their object from the focus (pacman) minus the steps they waited,
+ *  so the closest monsters are planned first and the others aren't starved.
+ *  A suspended search gives its object the best path so far (to the node closest to the target) once, so the monster
+ *  starts moving before its search is done.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class AIScheduler implements PlannerService {
+	/* expanded nodes between the time checks */
+	private static final int SLICE_EXPANSIONS = 64;
+	/* request states */
+	private static final int IDLE = 0;
+	private static final int WAITING = 1;
+	private static final int RUNNING = 2;
+	private static final int PARTIAL = 3;
+	private static final int DONE = 4;
+	private PathFinder _finder;
+	private int _expansionsPerStep;
+	private long _nanosPerStep;
+	/* the requests of every object, the waiting requests and the running one */
+	private IdentityHashMap<ControllableObject, Request> _requests = new IdentityHashMap<ControllableObject, Request>();
+	private List<Request> _waiting = new ArrayList<Request>();
+	private Request _running;
+	/* game steps counter (for the waiting time of the requests) */
+	private long _steps;
+	/* number of finished searches (for measuring) */
+	private long _searches;
+
+	/**
+	 * Creates a new scheduler
+	 * @param finder path finder for the searches
+	 * @param expansionsPerStep maximum nodes expanded on every game step
+	 * @param nanosPerStep maximum time of the searches on every game step in nanoseconds (0 for no time limit)
+	 */
+	public AIScheduler(PathFinder finder, int expansionsPerStep, long nanosPerStep) {
+		if (expansionsPerStep <= 0)
+			throw new IllegalArgumentException("The budget must be positive: " + expansionsPerStep);
+
+		_finder = finder;
+		_expansionsPerStep = expansionsPerStep;
+		_nanosPerStep = nanosPerStep;
+	}
+
+	@Override
+	public void request(ControllableObject object, int sx, int sy, int tx, int ty) {
+		Request request = _requests.get(object);
+		if (request == null) {
+			request = new Request(object);
+			_requests.put(object, request);
+		}
+
+		// the object already waits for a path to this target
+		if (request._state != IDLE && request._state != DONE && request._tx == tx && request._ty == ty)
+			return;
+
+		request._sx = sx;
+		request._sy = sy;
+		request._tx = tx;
+		request._ty = ty;
+
+		// a running search for the old coordinates is dropped
+		if (request == _running)
+			_running = null;
+
+		if (request._state == IDLE || request._state == DONE) {
+			request._since = _steps;
+			_waiting.add(request);
+		} else if (request._state != WAITING) {
+			_waiting.add(request);
+		}
+		request._state = WAITING;
+	}
+
+	@Override
+	public void update(int focusX, int focusY) {
+		_steps++;
+		int budget = _expansionsPerStep;
+		long deadline = System.nanoTime() + _nanosPerStep;
+
+		while (budget > 0) {
+			if (_running == null) {
+				_running = nextRequest(focusX, focusY);
+				if (_running == null)
+					break;
+
+				_running._state = RUNNING;
+				_running._partial = false;
+				_finder.startSearch(_running._object, _running._sx, _running._sy, _running._tx, _running._ty);
+			}
+
+			long expanded = _finder.getExpandedNodes();
+			int state = _finder.resumeSearch(Math.min(budget, SLICE_EXPANSIONS));
+			budget -= Math.max(1, (int)(_finder.getExpandedNodes() - expanded));
+
+			if (state != PathFinder.SEARCHING) {
+				Path path = _running._paths[_running._filled];
+				_running._found = _finder.getPath(path);
+				_running._state = DONE;
+				_running = null;
+				_searches++;
+			}
+
+			if (_nanosPerStep > 0 && System.nanoTime() - deadline >= 0)
+				break;
+		}
+
+		// the suspended search gives its object the best path so far (once)
+		if (_running != null && !_running._partial && _running._state == RUNNING) {
+			_running._partial = true;
+			if (_finder.getBestPath(_running._paths[_running._filled]))
+				_running._state = PARTIAL;
+		}
+	}
+
+	/**
+	 * Remove the next request to be planned from the waiting requests- the closest to the focus, less the steps it waited
+	 */
+	private Request nextRequest(int focusX, int focusY) {
+		int next = -1;
+		long nextPriority = Long.MAX_VALUE;
+		for (int i = 0; i < _waiting.size(); i++) {
+			Request request = _waiting.get(i);
+			long priority = Math.abs(request._object.getPosition().x - focusX) + Math.abs(request._object.getPosition().y - focusY)
+					- (_steps - request._since);
+			if (priority < nextPriority) {
+				next = i;
+				nextPriority = priority;
+			}
+		}
+
+		if (next < 0)
+			return null;
+
+		// the order of the waiting requests doesn't matter, the last request takes the place of the removed one
+		Request request = _waiting.get(next);
+		_waiting.set(next, _waiting.get(_waiting.size() - 1));
+		_waiting.remove(_waiting.size() - 1);
+		return request;
+	}
+
+	@Override
+	public boolean isPending(ControllableObject object) {
+		Request request = _requests.get(object);
+		return request != null && request._state != IDLE;
+	}
+
+	@Override
+	public boolean hasResult(ControllableObject object) {
+		Request request = _requests.get(object);
+		return request != null && (request._state == DONE || request._state == PARTIAL);
+	}
+
+	@Override
+	public Path takeResult(ControllableObject object) {
+		Request request = _requests.get(object);
+		if (request == null || (request._state != DONE && request._state != PARTIAL))
+			return null;
+
+		Path path = request._paths[request._filled];
+		request._filled = 1 - request._filled;
+
+		// after the best path so far, the object still waits for the whole path
+		if (request._state == PARTIAL) {
+			request._state = RUNNING;
+			return path;
+		}
+
+		request._state = IDLE;
+		return request._found ? path : null;
+	}
+
+	@Override
+	public void cancel(ControllableObject object) {
+		Request request = _requests.get(object);
+		if (request == null)
+			return;
+
+		if (request == _running)
+			_running = null;
+		if (request._state == WAITING)
+			_waiting.remove(request);
+		request._state = IDLE;
+	}
+
+	@Override
+	public void cancelAll() {
+		for (Request request : _requests.values()) {
+			request._state = IDLE;
+		}
+		_waiting.clear();
+		_running = null;
+	}
+
+	@Override
+	public void stop() {
+		cancelAll();
+	}
+
+	@Override
+	public AIScheduler copyFor(Map map) {
+		return new AIScheduler(_finder.copyFor(map), _expansionsPerStep, _nanosPerStep);
+	}
+
+	/**
+	 * Get the path finder of the searches
+	 * @return path finder
+	 */
+	public PathFinder getFinder() {
+		return _finder;
+	}
+
+	/**
+	 * Get the maximum nodes expanded on every game step
+	 * @return expansions budget
+	 */
+	public int getExpansionsPerStep() {
+		return _expansionsPerStep;
+	}
+
+	/**
+	 * Get the maximum time of the searches on every game step
+	 * @return time budget in nanoseconds (0 for no time limit)
+	 */
+	public long getNanosPerStep() {
+		return _nanosPerStep;
+	}
+
+	/**
+	 * Get the number of finished searches
+	 * @return searches
+	 */
+	public long getSearchesCount() {
+		return _searches;
+	}
+
+	/**
+	 *  Path request of an object
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class Request {
+		private ControllableObject _object;
+		private int _state = IDLE;
+		private int _sx, _sy, _tx, _ty;
+		/* the game step of the request */
+		private long _since;
+		/* the best path so far was given to the object */
+		private boolean _partial;
+		/* the paths are filled by turns- the other path may be followed by the object */
+		private Path[] _paths = { new Path(), new Path() };
+		private int _filled;
+		private boolean _found;
+
+		public Request(ControllableObject object) {
+			_object = object;
+		}
+	}
+}
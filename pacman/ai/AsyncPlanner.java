@@ -0,0 +1,300 @@
+package pacman.ai;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pacman.model.ControllableObject;
+import pacman.model.Map;
+
+/**
+ *  Async Planner- plans paths on a fixed pool of worker threads, so the game step never waits for a search.
+ *  Every worker has its own path planner (the planners' search state is confined to their worker), and every object
+ *  has one request at a time: a request for the target that the object already waits for is ignored, and a request for
+ *  another target replaces the waiting one. The paths are filled into two path objects of the request by turns,
+ *  so a worker never fills the path that the object follows. The passability layer of the object is captured with the request,
+ *  and the workers plan for a stand-in mover of that layer, so they never read the objects that the game moves.
+ *  The requests and the results are handled by the game thread only (the results are taken on the next game step).
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class AsyncPlanner implements PlannerService {
+	/* request states */
+	private static final int IDLE = 0;
+	private static final int QUEUED = 1;
+	private static final int RUNNING = 2;
+	private static final int DONE = 3;
+	/* the requests of every object (used by the game thread only) */
+	private IdentityHashMap<ControllableObject, Request> _requests = new IdentityHashMap<ControllableObject, Request>();
+	/* requests waiting for a worker */
+	private LinkedBlockingQueue<Request> _queue = new LinkedBlockingQueue<Request>();
+	/* the movers that the workers plan for, one for every passability layer */
+	private LayerMover[] _movers = { new LayerMover(Map.PACMAN_LAYER), new LayerMover(Map.MONSTER_LAYER),
+			new LayerMover(Map.TRAPPED_MONSTER_LAYER) };
+	private PathPlanner[] _planners;
+	private Thread[] _workers;
+	private volatile boolean _running;
+	/* number of searches (for measuring) */
+	private AtomicLong _searches = new AtomicLong();
+
+	/**
+	 * Creates a new async planner, with a worker thread for every given planner
+	 * @param planners path planners (one for every worker, a planner isn't used by two workers)
+	 */
+	public AsyncPlanner(PathPlanner... planners) {
+		if (planners.length == 0)
+			throw new IllegalArgumentException("No path planners for the workers");
+
+		_running = true;
+		_planners = planners.clone();
+		_workers = new Thread[planners.length];
+		for (int i = 0; i < planners.length; i++) {
+			_workers[i] = new Thread(new Worker(planners[i]), "Path Planner " + (i + 1));
+			_workers[i].setDaemon(true);
+			_workers[i].start();
+		}
+	}
+
+	@Override
+	public void request(ControllableObject object, int sx, int sy, int tx, int ty) {
+		Request request = _requests.get(object);
+		if (request == null) {
+			request = new Request();
+			_requests.put(object, request);
+		}
+
+		int layer = object.getPassabilityLayer();
+		synchronized (request) {
+			// the object already waits for a path to this target
+			if (request._wanted && request._state != IDLE && request._tx == tx && request._ty == ty && request._layer == layer)
+				return;
+
+			request._sx = sx;
+			request._sy = sy;
+			request._tx = tx;
+			request._ty = ty;
+			request._layer = layer;
+			request._version++;
+			request._wanted = true;
+
+			// a queued request is planned with the new coordinates, a running one is queued again when it ends
+			if (request._state == IDLE || request._state == DONE) {
+				request._state = QUEUED;
+				_queue.add(request);
+			}
+		}
+	}
+
+	@Override
+	public void update(int focusX, int focusY) {
+		// the workers plan the requests as soon as they arrive
+	}
+
+	@Override
+	public boolean isPending(ControllableObject object) {
+		Request request = _requests.get(object);
+		if (request == null)
+			return false;
+
+		synchronized (request) {
+			return request._wanted && request._state != IDLE;
+		}
+	}
+
+	@Override
+	public boolean hasResult(ControllableObject object) {
+		Request request = _requests.get(object);
+		if (request == null)
+			return false;
+
+		synchronized (request) {
+			return request._state == DONE;
+		}
+	}
+
+	@Override
+	public Path takeResult(ControllableObject object) {
+		Request request = _requests.get(object);
+		if (request == null)
+			return null;
+
+		synchronized (request) {
+			if (request._state != DONE)
+				return null;
+
+			request._state = IDLE;
+			request._wanted = false;
+			Path path = request._paths[request._filled];
+			request._filled = 1 - request._filled;
+			return request._found ? path : null;
+		}
+	}
+
+	@Override
+	public void cancel(ControllableObject object) {
+		Request request = _requests.get(object);
+		if (request != null)
+			cancel(request);
+	}
+
+	@Override
+	public void cancelAll() {
+		for (Request request : _requests.values()) {
+			cancel(request);
+		}
+	}
+
+	private void cancel(Request request) {
+		synchronized (request) {
+			request._wanted = false;
+			request._version++;
+			if (request._state == DONE)
+				request._state = IDLE;
+		}
+	}
+
+	@Override
+	public AsyncPlanner copyFor(Map map) {
+		PathPlanner[] planners = new PathPlanner[_planners.length];
+		for (int i = 0; i < planners.length; i++) {
+			planners[i] = _planners[i].copyFor(map);
+		}
+
+		return new AsyncPlanner(planners);
+	}
+
+	/**
+	 * Get the path planners of the workers
+	 * @return path planners (a copy of the array)
+	 */
+	public PathPlanner[] getPlanners() {
+		return _planners.clone();
+	}
+
+	/**
+	 * Get the number of searches the workers did
+	 * @return searches
+	 */
+	public long getSearchesCount() {
+		return _searches.get();
+	}
+
+	@Override
+	public void stop() {
+		_running = false;
+		for (int i = 0; i < _workers.length; i++) {
+			_workers[i].interrupt();
+		}
+
+		for (int i = 0; i < _workers.length; i++) {
+			try {
+				_workers[i].join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 *  Path request of an object. The fields are guarded by the request's lock
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class Request {
+		private int _state = IDLE;
+		/* false if the object doesn't wait for the path anymore (cancelled or taken) */
+		private boolean _wanted;
+		/* changed whenever the coordinates change, so a search for old coordinates is done again */
+		private int _version;
+		private int _sx, _sy, _tx, _ty;
+		/* the passability layer of the object when it requested the path */
+		private int _layer;
+		/* the paths are filled by turns- the other path may be followed by the object */
+		private Path[] _paths = { new Path(), new Path() };
+		private int _filled;
+		private boolean _found;
+	}
+
+	/**
+	 *  Layer Mover- a stand-in for the objects of a passability layer (the planners read only the layer of the moving object)
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class LayerMover extends ControllableObject {
+		private static final long serialVersionUID = 2851309724466731023L;
+		private int _layer;
+
+		public LayerMover(int layer) {
+			super(null);
+			_layer = layer;
+		}
+
+		@Override
+		public int getPassabilityLayer() {
+			return _layer;
+		}
+	}
+
+	/**
+	 *  Worker- plans the queued requests with its own path planner
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class Worker implements Runnable {
+		private PathPlanner _planner;
+
+		public Worker(PathPlanner planner) {
+			_planner = planner;
+		}
+
+		@Override
+		public void run() {
+			while (_running) {
+				Request request;
+				try {
+					request = _queue.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				int version, sx, sy, tx, ty, layer;
+				Path path;
+				synchronized (request) {
+					if (request._state != QUEUED)
+						continue;
+
+					if (!request._wanted) {
+						request._state = IDLE;
+						continue;
+					}
+
+					request._state = RUNNING;
+					version = request._version;
+					sx = request._sx;
+					sy = request._sy;
+					tx = request._tx;
+					ty = request._ty;
+					layer = request._layer;
+					path = request._paths[request._filled];
+				}
+
+				boolean found = _planner.findPath(_movers[layer], sx, sy, tx, ty, path);
+				_searches.incrementAndGet();
+
+				synchronized (request) {
+					if (request._version == version) {
+						request._found = found;
+						request._state = DONE;
+					} else if (request._wanted) {
+						// the request was changed during the search
+						request._state = QUEUED;
+						_queue.add(request);
+					} else {
+						request._state = IDLE;
+					}
+				}
+			}
+		}
+	}
+}
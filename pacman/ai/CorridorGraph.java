@@ -0,0 +1,704 @@
+package pacman.ai;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+import pacman.model.ControllableObject;
+import pacman.model.Direction;
+import pacman.model.Map;
+
+/**
+ *  CorridorGraph finds the shortest paths on a compressed graph of the map: the passable cells with exactly two exits are
+ *  corridor cells, and the other passable cells (crossings, dead ends) are junctions. Every corridor between two junctions
+ *  is a single weighted edge (a segment), and every corridor cell knows its segment and its offset on it, so A* expands the
+ *  junctions only. The cells of a path are filled only when the path is asked for, a distance query needs none of them.
+ *  The cage gates are passable for some objects only, so every passability layer has its own graph, built on its first query.
+ *  When cells of the map change (portals), only the segments around them are traced again.
+ *  A corridor graph isn't thread safe.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class CorridorGraph implements PathPlanner {
+	/* directions by their index in the map's exits masks */
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT };
+	/* the sides of a segment: its 'from' junction and its 'to' junction */
+	private static final int FROM = 0;
+	private static final int TO = 1;
+	/* the target of a search is a junction, or it's on a corridor and reached from one of its sides, or directly on the source's corridor */
+	private static final int AT = 2;
+	private static final int DIRECT = 3;
+	/* The map for searching */
+	private Map _map;
+	private int _width;
+	private int _height;
+	/* the graph of every passability layer (null until its first query) */
+	private Layer[] _layers = new Layer[Map.TRAPPED_MONSTER_LAYER + 1];
+	/* search state of every junction: cost from the source, heuristic, the junction & segment it was reached from
+	   (no junction for the source's junctions- the segment is the side of the source's corridor), generation stamps & heap index */
+	private int[] _cost = new int[0];
+	private int[] _heuristic = new int[0];
+	private int[] _parentJunction = new int[0];
+	private int[] _parentSegment = new int[0];
+	private int[] _seenGeneration = new int[0];
+	private int[] _closedGeneration = new int[0];
+	private int[] _heapIndex = new int[0];
+	/* open junctions (binary min-heap ordered by f, then by h) */
+	private int[] _open = new int[0];
+	private int _openSize;
+	private int _generation;
+	/* number of expanded junctions (for measuring) */
+	private long _expandedNodes;
+	/* the last search: its graph, source & target cells, the junction the target was reached from & the side, and its length */
+	private Layer _searchLayer;
+	private int _source;
+	private int _target;
+	private int _goalJunction;
+	private int _goalSide;
+	private int _distance;
+
+	/**
+	 * Creates a corridor graph for the given map
+	 * @param map The map to be searched
+	 */
+	public CorridorGraph(Map map) {
+		_map = map;
+		_width = map.getGameDimension().width;
+		_height = map.getGameDimension().height;
+	}
+
+	@Override
+	public CorridorGraph copyFor(Map map) {
+		return new CorridorGraph(map);
+	}
+
+	@Override
+	public Path findPath(ControllableObject object, Point source, Point target) {
+		Path path = new Path();
+		return findPath(object, source.x, source.y, target.x, target.y, path) ? path : null;
+	}
+
+	@Override
+	public boolean findPath(ControllableObject object, int sx, int sy, int tx, int ty, Path path) {
+		path.clear();
+		if (!search(object, sx, sy, tx, ty))
+			return false;
+
+		fillPath(path);
+		return true;
+	}
+
+	/**
+	 * Get the length of the shortest path between two cells, without filling its cells
+	 * @param object The object that will be moving along the path.
+	 * @param sx source x coordinate
+	 * @param sy source y coordinate
+	 * @param tx target x coordinate
+	 * @param ty target y coordinate
+	 * @return number of steps, -1 if no path can be found
+	 */
+	public int getDistance(ControllableObject object, int sx, int sy, int tx, int ty) {
+		return search(object, sx, sy, tx, ty) ? _distance : -1;
+	}
+
+	/**
+	 * Get the number of junctions that were expanded since the corridor graph was created
+	 * @return expanded nodes
+	 */
+	public long getExpandedNodes() {
+		return _expandedNodes;
+	}
+
+	/**
+	 * Get the number of junctions in the graph of a passability layer
+	 * @param layer passability layer (see {@link Map#PACMAN_LAYER})
+	 * @return junctions count
+	 */
+	public int getJunctionsCount(int layer) {
+		return getLayer(layer)._liveJunctions;
+	}
+
+	/**
+	 * Get the number of segments (corridors between junctions) in the graph of a passability layer
+	 * @param layer passability layer (see {@link Map#PACMAN_LAYER})
+	 * @return segments count
+	 */
+	public int getSegmentsCount(int layer) {
+		return getLayer(layer)._liveSegments;
+	}
+
+	/**
+	 * Get the graph of a passability layer, updated by the map changes since it was built
+	 */
+	private Layer getLayer(int layer) {
+		if (_layers[layer] == null)
+			_layers[layer] = new Layer(layer);
+		else
+			_layers[layer].update();
+
+		return _layers[layer];
+	}
+
+	/**
+	 * Search the shortest path between two cells on the graph (A* over the junctions)
+	 * @return true if a path was found
+	 */
+	private boolean search(ControllableObject object, int sx, int sy, int tx, int ty) {
+		// coordinates out of the board are wrapped, like the map does
+		sx = Math.floorMod(sx, _width);
+		sy = Math.floorMod(sy, _height);
+		tx = Math.floorMod(tx, _width);
+		ty = Math.floorMod(ty, _height);
+
+		// a path must start & end on cells that the object can enter
+		_searchLayer = null;
+		int layerIndex = object.getPassabilityLayer();
+		_source = sy * _width + sx;
+		_target = ty * _width + tx;
+		if (!_map.isPassable(layerIndex, _source) || !_map.isPassable(layerIndex, _target))
+			return false;
+
+		Layer layer = getLayer(layerIndex);
+		_searchLayer = layer;
+		_goalSide = DIRECT;
+		_distance = 0;
+		if (_source == _target)
+			return true;
+
+		ensureCapacity(layer._junctions);
+		nextGeneration();
+
+		// the target is a junction, or it's reached from the junctions on both sides of its corridor
+		int best = Integer.MAX_VALUE;
+		int targetJunction = layer._junctionOf[_target], targetSegment = layer._segmentOf[_target];
+		int targetFrom = -1, targetTo = -1, targetFromCost = 0, targetToCost = 0;
+		if (targetSegment >= 0) {
+			targetFrom = layer._from[targetSegment];
+			targetTo = layer._to[targetSegment];
+			targetFromCost = layer._offsetOf[_target] + 1;
+			targetToCost = layer._cells[targetSegment].length - layer._offsetOf[_target];
+		}
+
+		// the source is a junction, or it reaches the junctions on both sides of its corridor (and the target, if it's on the same corridor)
+		int sourceSegment = layer._segmentOf[_source];
+		if (sourceSegment < 0) {
+			reach(layer._junctionOf[_source], 0, -1, FROM);
+		} else {
+			int offset = layer._offsetOf[_source];
+			if (sourceSegment == targetSegment)
+				best = Math.abs(offset - layer._offsetOf[_target]);
+
+			reach(layer._from[sourceSegment], offset + 1, -1, FROM);
+			reach(layer._to[sourceSegment], layer._cells[sourceSegment].length - offset, -1, TO);
+		}
+
+		while (_openSize > 0) {
+			int junction = _open[0];
+			int cost = _cost[junction];
+
+			// no open junction can lead to a shorter path (the heuristic never overestimates)
+			if (cost + _heuristic[junction] >= best)
+				break;
+
+			removeFirst();
+			_closedGeneration[junction] = _generation;
+			_expandedNodes++;
+
+			if (junction == targetJunction) {
+				best = cost;
+				_goalJunction = junction;
+				_goalSide = AT;
+				break;
+			}
+
+			if (junction == targetFrom && cost + targetFromCost < best) {
+				best = cost + targetFromCost;
+				_goalJunction = junction;
+				_goalSide = FROM;
+			}
+
+			if (junction == targetTo && cost + targetToCost < best) {
+				best = cost + targetToCost;
+				_goalJunction = junction;
+				_goalSide = TO;
+			}
+
+			// the corridors that leave the junction lead to the junctions on their other side
+			for (int i = 0; i < DIRECTIONS.length; i++) {
+				int segment = layer._links[junction * 4 + i];
+				if (segment < 0)
+					continue;
+
+				// a dead end leads nowhere else, it's entered only if the target is there or on its corridor
+				int next = layer._from[segment] == junction ? layer._to[segment] : layer._from[segment];
+				if (layer.isDeadEnd(next) && next != targetJunction && segment != targetSegment)
+					continue;
+
+				if (_closedGeneration[next] != _generation)
+					reach(next, cost + layer._cells[segment].length + 1, junction, segment);
+			}
+		}
+
+		if (best == Integer.MAX_VALUE)
+			return false;
+
+		_distance = best;
+		return true;
+	}
+
+	/**
+	 * Reach a junction with the given cost, if it's lower than its current cost
+	 */
+	private void reach(int junction, int cost, int parentJunction, int parentSegment) {
+		if (_seenGeneration[junction] == _generation) {
+			if (cost >= _cost[junction])
+				return;
+
+			_cost[junction] = cost;
+			_parentJunction[junction] = parentJunction;
+			_parentSegment[junction] = parentSegment;
+			siftUp(_heapIndex[junction]);
+			return;
+		}
+
+		int cell = _searchLayer._junctionCells[junction];
+		_seenGeneration[junction] = _generation;
+		_cost[junction] = cost;
+		_heuristic[junction] = heuristic(cell % _width, cell / _width, _target % _width, _target / _width);
+		_parentJunction[junction] = parentJunction;
+		_parentSegment[junction] = parentSegment;
+		_heapIndex[junction] = _openSize;
+		_open[_openSize++] = junction;
+		siftUp(_openSize - 1);
+	}
+
+	/**
+	 * Fill the cells of the last search's path: the target's part of its corridor, the corridors between the junctions
+	 * and the source's part of its corridor (back from the target, since the path prepends its steps)
+	 */
+	private void fillPath(Path path) {
+		Layer layer = _searchLayer;
+		if (_goalSide == DIRECT) {
+			if (_source != _target) {
+				int[] cells = layer._cells[layer._segmentOf[_target]];
+				int from = layer._offsetOf[_source], step = from <= layer._offsetOf[_target] ? -1 : 1;
+				for (int i = layer._offsetOf[_target]; i != from; i += step) {
+					prependCell(path, cells[i]);
+				}
+			}
+			prependCell(path, _source);
+			return;
+		}
+
+		int junction = _goalJunction;
+		if (_goalSide != AT) {
+			int[] cells = layer._cells[layer._segmentOf[_target]];
+			int offset = layer._offsetOf[_target];
+			if (_goalSide == FROM) {
+				for (int i = offset; i >= 0; i--) {
+					prependCell(path, cells[i]);
+				}
+			} else {
+				for (int i = offset; i < cells.length; i++) {
+					prependCell(path, cells[i]);
+				}
+			}
+		}
+
+		while (true) {
+			prependCell(path, layer._junctionCells[junction]);
+			int parent = _parentJunction[junction];
+			if (parent < 0)
+				break;
+
+			int[] cells = layer._cells[_parentSegment[junction]];
+			if (layer._from[_parentSegment[junction]] == parent) {
+				for (int i = cells.length - 1; i >= 0; i--) {
+					prependCell(path, cells[i]);
+				}
+			} else {
+				for (int i = 0; i < cells.length; i++) {
+					prependCell(path, cells[i]);
+				}
+			}
+			junction = parent;
+		}
+
+		int sourceSegment = layer._segmentOf[_source];
+		if (sourceSegment >= 0) {
+			int[] cells = layer._cells[sourceSegment];
+			int offset = layer._offsetOf[_source];
+			if (_parentSegment[junction] == FROM) {
+				for (int i = 0; i <= offset; i++) {
+					prependCell(path, cells[i]);
+				}
+			} else {
+				for (int i = cells.length - 1; i >= offset; i--) {
+					prependCell(path, cells[i]);
+				}
+			}
+		}
+	}
+
+	private void prependCell(Path path, int cell) {
+		path.prependStep(cell % _width, cell / _width);
+	}
+
+	/**
+	 * The heuristic distance between two cells- the minimal number of steps on the wrapped board,
+	 * or through one of the map's portals (the same as the path finder's)
+	 */
+	private int heuristic(int x, int y, int tx, int ty) {
+		int distance = wrapDistance(x, y, tx, ty);
+		for (int i = 0; i < _map.getPortalsCount(); i++) {
+			int entry = _map.getPortalEntry(i), exit = _map.getPortalExit(i);
+			distance = Math.min(distance, wrapDistance(x, y, entry % _width, entry / _width) + 1 + wrapDistance(exit % _width, exit / _width, tx, ty));
+		}
+
+		return distance;
+	}
+
+	/**
+	 * The manhattan distance on the wrapped board (the edges of the board are connected)
+	 */
+	private int wrapDistance(int x, int y, int tx, int ty) {
+		int dx = Math.abs(x - tx), dy = Math.abs(y - ty);
+		return Math.min(dx, _width - dx) + Math.min(dy, _height - dy);
+	}
+
+	/**
+	 * Grow the search state for the given number of junctions
+	 */
+	private void ensureCapacity(int junctions) {
+		if (_cost.length >= junctions)
+			return;
+
+		int capacity = Math.max(junctions, _cost.length * 2);
+		_cost = Arrays.copyOf(_cost, capacity);
+		_heuristic = Arrays.copyOf(_heuristic, capacity);
+		_parentJunction = Arrays.copyOf(_parentJunction, capacity);
+		_parentSegment = Arrays.copyOf(_parentSegment, capacity);
+		_seenGeneration = Arrays.copyOf(_seenGeneration, capacity);
+		_closedGeneration = Arrays.copyOf(_closedGeneration, capacity);
+		_heapIndex = Arrays.copyOf(_heapIndex, capacity);
+		_open = Arrays.copyOf(_open, capacity);
+	}
+
+	/**
+	 * Start a new search generation. Every junction stamped with an older generation is neither seen nor closed,
+	 * so there is no need to clear the search state between searches.
+	 */
+	private void nextGeneration() {
+		_openSize = 0;
+		if (++_generation == Integer.MAX_VALUE) {
+			// the stamps are about to overflow- reset all of them
+			Arrays.fill(_seenGeneration, 0);
+			Arrays.fill(_closedGeneration, 0);
+			_generation = 1;
+		}
+	}
+
+	/**
+	 * Remove the first junction from the open heap
+	 */
+	private void removeFirst() {
+		int last = _open[--_openSize];
+		if (_openSize > 0) {
+			_open[0] = last;
+			_heapIndex[last] = 0;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Determines if junction a is ordered before junction b in the open heap (lower f, then closer to the target)
+	 */
+	private boolean isBefore(int a, int b) {
+		int fa = _cost[a] + _heuristic[a], fb = _cost[b] + _heuristic[b];
+		if (fa != fb)
+			return fa < fb;
+
+		return _heuristic[a] < _heuristic[b];
+	}
+
+	private void siftUp(int index) {
+		int junction = _open[index];
+		while (index > 0) {
+			int parentIndex = (index - 1) >>> 1;
+			int parent = _open[parentIndex];
+			if (!isBefore(junction, parent))
+				break;
+
+			_open[index] = parent;
+			_heapIndex[parent] = index;
+			index = parentIndex;
+		}
+		_open[index] = junction;
+		_heapIndex[junction] = index;
+	}
+
+	private void siftDown(int index) {
+		int junction = _open[index];
+		int half = _openSize >>> 1;
+		while (index < half) {
+			int childIndex = 2 * index + 1;
+			int child = _open[childIndex];
+			int rightIndex = childIndex + 1;
+			if (rightIndex < _openSize && isBefore(_open[rightIndex], child)) {
+				childIndex = rightIndex;
+				child = _open[rightIndex];
+			}
+			if (!isBefore(child, junction))
+				break;
+
+			_open[index] = child;
+			_heapIndex[child] = index;
+			index = childIndex;
+		}
+		_open[index] = junction;
+		_heapIndex[junction] = index;
+	}
+
+	/**
+	 *  The corridors graph of a passability layer. The ids of removed junctions & segments aren't used again
+	 *  (the map changes rarely), their cells are -1 / null.
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class Layer {
+		private int _layer;
+		/* the junction & segment of every cell (-1 if none), and the offset of a corridor cell on its segment */
+		private int[] _junctionOf;
+		private int[] _segmentOf;
+		private int[] _offsetOf;
+		/* junctions: cell, and the segment that leaves it in every direction (junction * 4 + direction index, -1 if none) */
+		private int[] _junctionCells = new int[64];
+		private int[] _links = new int[64 * 4];
+		private int _junctions;
+		private int _liveJunctions;
+		/* segments: the junctions on their sides, and their corridor cells in the order from the 'from' junction to the 'to' junction */
+		private int[] _from = new int[64];
+		private int[] _to = new int[64];
+		private int[][] _cells = new int[64][];
+		private int _segments;
+		private int _liveSegments;
+		/* the map changes that the graph follows */
+		private int _changes;
+		/* cells of a traced corridor */
+		private int[] _trace;
+		/* the cells that an update touched (each of them once) */
+		private int[] _touched;
+		private int _touchedCount;
+		private int[] _touchedStamp;
+		private int _stamp;
+
+		/**
+		 * Build the graph of a passability layer
+		 * @param layer passability layer
+		 */
+		public Layer(int layer) {
+			_layer = layer;
+			_changes = _map.getChangesCount();
+
+			int cells = _width * _height;
+			_junctionOf = new int[cells];
+			_segmentOf = new int[cells];
+			_offsetOf = new int[cells];
+			_trace = new int[cells];
+			_touched = new int[cells];
+			_touchedStamp = new int[cells];
+			Arrays.fill(_junctionOf, -1);
+			Arrays.fill(_segmentOf, -1);
+
+			for (int cell = 0; cell < cells; cell++) {
+				if (isJunctionCell(cell))
+					addJunction(cell);
+			}
+
+			for (int junction = 0; junction < _junctions; junction++) {
+				traceLinks(junction);
+			}
+
+			// a circular corridor has no junctions- one of its cells becomes a junction
+			for (int cell = 0; cell < cells; cell++) {
+				if (_map.isPassable(_layer, cell) && _junctionOf[cell] < 0 && _segmentOf[cell] < 0)
+					traceLinks(addJunction(cell));
+			}
+		}
+
+		/**
+		 * Update the graph by the map changes: the segments of the changed cells are removed with their junctions, and the
+		 * junctions around them trace their corridors again
+		 */
+		public void update() {
+			int changes = _map.getChangesCount();
+			if (changes == _changes)
+				return;
+
+			_stamp++;
+			_touchedCount = 0;
+			for (int i = _changes; i < changes; i++) {
+				int cell = _map.getChangedCell(i);
+				touch(cell);
+				if (_junctionOf[cell] >= 0)
+					removeJunction(_junctionOf[cell]);
+				if (_segmentOf[cell] >= 0)
+					removeSegment(_segmentOf[cell]);
+			}
+			_changes = changes;
+
+			// the touched cells are the changed cells, the cells of the removed segments and the junctions on their sides.
+			// (the list grows while it's scanned- a junction that became a corridor cell removes its segments too)
+			for (int i = 0; i < _touchedCount; i++) {
+				int cell = _touched[i];
+				boolean junction = isJunctionCell(cell);
+				if (_junctionOf[cell] >= 0 && !junction)
+					removeJunction(_junctionOf[cell]);
+				else if (_junctionOf[cell] < 0 && junction)
+					addJunction(cell);
+			}
+
+			for (int i = 0; i < _touchedCount; i++) {
+				if (_junctionOf[_touched[i]] >= 0)
+					traceLinks(_junctionOf[_touched[i]]);
+			}
+
+			for (int i = 0; i < _touchedCount; i++) {
+				int cell = _touched[i];
+				if (_map.isPassable(_layer, cell) && _junctionOf[cell] < 0 && _segmentOf[cell] < 0)
+					traceLinks(addJunction(cell));
+			}
+		}
+
+		/**
+		 * Determines if a junction is a dead end- it has a single corridor
+		 */
+		public boolean isDeadEnd(int junction) {
+			int links = 0;
+			for (int i = 0; i < 4; i++) {
+				if (_links[junction * 4 + i] >= 0)
+					links++;
+			}
+
+			return links == 1;
+		}
+
+		/**
+		 * Determines if a cell is a junction- a passable cell that doesn't have exactly two exits
+		 */
+		private boolean isJunctionCell(int cell) {
+			return _map.isPassable(_layer, cell) && Integer.bitCount(_map.getExits(_layer, cell)) != 2;
+		}
+
+		private void touch(int cell) {
+			if (_touchedStamp[cell] != _stamp) {
+				_touchedStamp[cell] = _stamp;
+				_touched[_touchedCount++] = cell;
+			}
+		}
+
+		private int addJunction(int cell) {
+			if (_junctions == _junctionCells.length) {
+				_junctionCells = Arrays.copyOf(_junctionCells, _junctions * 2);
+				_links = Arrays.copyOf(_links, _junctions * 2 * 4);
+			}
+
+			int junction = _junctions++;
+			_junctionCells[junction] = cell;
+			Arrays.fill(_links, junction * 4, junction * 4 + 4, -1);
+			_junctionOf[cell] = junction;
+			_liveJunctions++;
+			return junction;
+		}
+
+		private void removeJunction(int junction) {
+			for (int i = 0; i < 4; i++) {
+				if (_links[junction * 4 + i] >= 0)
+					removeSegment(_links[junction * 4 + i]);
+			}
+
+			_junctionOf[_junctionCells[junction]] = -1;
+			_junctionCells[junction] = -1;
+			_liveJunctions--;
+		}
+
+		private int addSegment(int from, int to, int[] cells) {
+			if (_segments == _cells.length) {
+				_from = Arrays.copyOf(_from, _segments * 2);
+				_to = Arrays.copyOf(_to, _segments * 2);
+				_cells = Arrays.copyOf(_cells, _segments * 2);
+			}
+
+			int segment = _segments++;
+			_from[segment] = from;
+			_to[segment] = to;
+			_cells[segment] = cells;
+			for (int i = 0; i < cells.length; i++) {
+				_segmentOf[cells[i]] = segment;
+				_offsetOf[cells[i]] = i;
+			}
+			_liveSegments++;
+			return segment;
+		}
+
+		/**
+		 * Remove a segment- its cells and the junctions on its sides are touched (to be traced again)
+		 */
+		private void removeSegment(int segment) {
+			int[] cells = _cells[segment];
+			for (int i = 0; i < cells.length; i++) {
+				_segmentOf[cells[i]] = -1;
+				touch(cells[i]);
+			}
+
+			int[] sides = { _from[segment], _to[segment] };
+			for (int side : sides) {
+				for (int i = 0; i < 4; i++) {
+					if (_links[side * 4 + i] == segment)
+						_links[side * 4 + i] = -1;
+				}
+				touch(_junctionCells[side]);
+			}
+
+			_cells[segment] = null;
+			_liveSegments--;
+		}
+
+		/**
+		 * Trace the corridors that leave a junction in the directions that have no segment yet
+		 */
+		private void traceLinks(int junction) {
+			for (int i = 0; i < DIRECTIONS.length; i++) {
+				trace(junction, i);
+			}
+		}
+
+		/**
+		 * Trace the corridor that leaves a junction in the given direction, up to the junction on its other side
+		 * (through the board edges & portals, the corridor may lead back to the same junction)
+		 */
+		private void trace(int junction, int direction) {
+			int cell = _junctionCells[junction];
+			if (_links[junction * 4 + direction] >= 0 || (_map.getExits(_layer, cell) & (1 << direction)) == 0)
+				return;
+
+			int first = direction, length = 0;
+			int next = _map.getNeighbour(cell % _width, cell / _width, DIRECTIONS[direction]);
+			while (_junctionOf[next] < 0) {
+				if (length == _trace.length)
+					throw new IllegalStateException("A corridor without an end: " + cell);
+
+				_trace[length++] = next;
+
+				// a corridor cell has two exits- the corridor continues through the one that doesn't lead back
+				int exits = _map.getExits(_layer, next) & ~(1 << ((direction + 2) & 3));
+				direction = Integer.numberOfTrailingZeros(exits);
+				next = _map.getNeighbour(next % _width, next / _width, DIRECTIONS[direction]);
+			}
+
+			int end = _junctionOf[next];
+			int segment = addSegment(junction, end, Arrays.copyOf(_trace, length));
+			_links[junction * 4 + first] = segment;
+			_links[end * 4 + ((direction + 2) & 3)] = segment;
+		}
+	}
+}
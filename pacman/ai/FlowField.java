@@ -0,0 +1,377 @@
+package pacman.ai;
+
+import java.awt.Point;
+import java.util.HashMap;
+
+import pacman.model.ControllableObject;
+import pacman.model.Direction;
+import pacman.model.Map;
+
+/**
+ *  FlowField plans the paths of all the monsters that chase the same target (pacman) using one shared distance field.
+ *  The field is the BFS distance of every cell from the target (through the board edges & portals),
+ *  computed once each time the target moves to another cell,
+ *  so a path towards the target is found by walking down the field from the monster's cell, without any search.
+ *  The inverted field (the flee field) leads away from the target: it's the distance multiplied by a negative factor,
+ *  relaxed again from the lowest cells (Dijkstra), so a fleeing monster prefers escape routes over dead ends that are
+ *  only a bit further from the target.
+ *  Paths to any other target are planned by the fallback planner.
+ *  Like PathTable, the field keeps a separate layer for every combination of cage gates states.
+ *  A flow field belongs to a single game engine, it's not thread safe.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class FlowField implements PathPlanner {
+	/* cost of a step in the flee field, and the flee factor (the distance from the target is multiplied by -1.2) */
+	private static final int STEP_COST = 10;
+	private static final int FLEE_COST = -12;
+	/* maximum steps of a flee path (the monster plans again soon, as the target moves) */
+	public static final int MAX_FLEE_STEPS = 8;
+	private static final int UNREACHABLE = -1;
+	/* neighbours order, the same as the path table */
+	private static final Direction[] NEIGHBOURS = { Direction.LEFT, Direction.UP, Direction.DOWN, Direction.RIGHT };
+	/* The map for searching */
+	private Map _map;
+	private int _width;
+	private int _height;
+	/* planner for paths to other targets */
+	private PathPlanner _fallback;
+	/* cells which their passability depends on the moving object (cage gates) */
+	private int[] _gateCells;
+	/* layers for each combination of gates states */
+	private HashMap<Long, Layer> _layers = new HashMap<Long, Layer>();
+	/* the current target cell (-1 if there's no target) */
+	private int _targetX = -1;
+	private int _targetY = -1;
+	private int _targetVersion;
+	/* number of computed fields (for measuring) */
+	private long _builds;
+
+	/**
+	 * Creates a new flow field for the given map
+	 * @param map The map to be searched
+	 * @param fallback planner for paths to targets other than the field's target
+	 */
+	public FlowField(Map map, PathPlanner fallback) {
+		_map = map;
+		_fallback = fallback;
+		_width = map.getGameDimension().width;
+		_height = map.getGameDimension().height;
+
+		// find the gates (code -1 in the collision map)
+		int gates = 0;
+		int[][] codes = map.getCollisionMap();
+		for (int i = 0; i < _height; i++) {
+			for (int j = 0; j < _width; j++) {
+				if (codes[i][j] == -1)
+					gates++;
+			}
+		}
+
+		if (gates > Long.SIZE)
+			throw new IllegalArgumentException("Too many cage gates in the map: " + gates);
+
+		_gateCells = new int[gates];
+		gates = 0;
+		for (int i = 0; i < _height; i++) {
+			for (int j = 0; j < _width; j++) {
+				if (codes[i][j] == -1)
+					_gateCells[gates++] = i * _width + j;
+			}
+		}
+	}
+
+	/**
+	 * Set the target of the field. The field is computed again (on the next query) only if the target moved to another cell.
+	 * @param x target x coordinate
+	 * @param y target y coordinate
+	 */
+	public void setTarget(int x, int y) {
+		if (x == _targetX && y == _targetY)
+			return;
+
+		_targetX = x;
+		_targetY = y;
+		_targetVersion++;
+	}
+
+	@Override
+	public FlowField copyFor(Map map) {
+		return new FlowField(map, _fallback.copyFor(map));
+	}
+
+	@Override
+	public Path findPath(ControllableObject object, Point source, Point target) {
+		Path path = new Path();
+		return findPath(object, source.x, source.y, target.x, target.y, path) ? path : null;
+	}
+
+	@Override
+	public boolean findPath(ControllableObject object, int sx, int sy, int tx, int ty, Path path) {
+		if (tx != _targetX || ty != _targetY)
+			return _fallback.findPath(object, sx, sy, tx, ty, path);
+
+		path.clear();
+		Layer layer = getLayer(object);
+		int distance = layer.getDistance(cell(sx, sy));
+
+		// unreachable target, or already there
+		if (distance <= 0)
+			return false;
+
+		// walk down the field- every step is a neighbour that is one step closer to the target
+		int x = sx, y = sy;
+		path.appendStep(x, y);
+		for (int d = distance - 1; d >= 0; d--) {
+			for (int n = 0; n < NEIGHBOURS.length; n++) {
+				int next = _map.getNeighbour(x, y, NEIGHBOURS[n]);
+				if (layer.getDistance(next) == d) {
+					x = next % _width;
+					y = next / _width;
+					break;
+				}
+			}
+			path.appendStep(x, y);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Find a path away from the field's target (walking down the flee field), and store it in the given path
+	 * @param object The object that will be moving along the path.
+	 * @param sx source x coordinate
+	 * @param sy source y coordinate
+	 * @param path The path to be filled (its previous steps are removed)
+	 * @return true if a path was found, false if the source is unreachable from the target or there's no safer cell around it
+	 */
+	public boolean findFleePath(ControllableObject object, int sx, int sy, Path path) {
+		path.clear();
+		if (_targetX < 0)
+			return false;
+
+		Layer layer = getLayer(object);
+		layer.buildFleeField();
+		int value = layer.getFleeValue(cell(sx, sy));
+		if (value == Integer.MAX_VALUE)
+			return false;
+
+		int x = sx, y = sy;
+		path.appendStep(x, y);
+		for (int i = 0; i < MAX_FLEE_STEPS; i++) {
+			// the lowest neighbour, if it's lower than the current cell
+			int next = -1;
+			for (int n = 0; n < NEIGHBOURS.length; n++) {
+				int neighbour = _map.getNeighbour(x, y, NEIGHBOURS[n]);
+				int neighbourValue = layer.getFleeValue(neighbour);
+				if (neighbourValue < value) {
+					value = neighbourValue;
+					next = neighbour;
+				}
+			}
+
+			if (next < 0)
+				break;
+
+			x = next % _width;
+			y = next / _width;
+			path.appendStep(x, y);
+		}
+
+		return path.getLength() > 1;
+	}
+
+	/**
+	 * Get the distance (in steps) from the given cell to the field's target
+	 * @param object The object that will be moving
+	 * @param x cell x coordinate
+	 * @param y cell y coordinate
+	 * @return the distance, or -1 if the target cannot be reached (or there's no target)
+	 */
+	public int getDistance(ControllableObject object, int x, int y) {
+		if (_targetX < 0)
+			return UNREACHABLE;
+
+		return getLayer(object).getDistance(cell(x, y));
+	}
+
+	/**
+	 * Get the index of a cell (-1 if it's out of the map)
+	 */
+	private int cell(int x, int y) {
+		if (x < 0 || x >= _width || y < 0 || y >= _height)
+			return -1;
+
+		return y * _width + x;
+	}
+
+	/**
+	 * Get the number of fields that were computed since the flow field was created
+	 * @return computed fields
+	 */
+	public long getBuildsCount() {
+		return _builds;
+	}
+
+	/**
+	 * Get the layer that matches the gates passability of the given object, with the field of the current target
+	 * @param object moving object
+	 * @return field layer
+	 */
+	private Layer getLayer(ControllableObject object) {
+		long key = 0;
+		for (int i = 0; i < _gateCells.length; i++) {
+			if (_map.canMove(object, _gateCells[i] % _width, _gateCells[i] / _width))
+				key |= 1L << i;
+		}
+
+		Layer layer = _layers.get(key);
+		if (layer == null) {
+			layer = new Layer();
+			_layers.put(key, layer);
+		}
+
+		if (layer._version != _targetVersion)
+			layer.buildField(object);
+
+		return layer;
+	}
+
+	/**
+	 *  The fields of the current target, for one passability configuration
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class Layer {
+		/* target version of the fields */
+		private int _version = -1;
+		private boolean _fleeBuilt;
+		/* distance of each cell from the target (-1 if unreachable or blocked) */
+		private int[] _distance = new int[_width * _height];
+		private int _maxDistance;
+		/* flee value of each cell (Integer.MAX_VALUE if unreachable, blocked or the target) */
+		private int[] _flee = new int[_width * _height];
+		/* BFS queue, and the bucket queue of the flee field (a linked list of cells for each value) */
+		private int[] _queue = new int[_width * _height];
+		private int[] _buckets = new int[0];
+		private int[] _nodeCell = new int[_width * _height * (NEIGHBOURS.length + 1)];
+		private int[] _nodeNext = new int[_width * _height * (NEIGHBOURS.length + 1)];
+
+		/**
+		 * Compute the distance field of the current target (BFS)
+		 * @param object moving object, determines the passability of each cell
+		 */
+		public void buildField(ControllableObject object) {
+			for (int i = 0; i < _distance.length; i++) {
+				_distance[i] = UNREACHABLE;
+			}
+
+			_version = _targetVersion;
+			_fleeBuilt = false;
+			_maxDistance = 0;
+			_builds++;
+
+			if (_targetX < 0 || _targetX >= _width || _targetY < 0 || _targetY >= _height || !_map.canMove(object, _targetX, _targetY))
+				return;
+
+			int head = 0, tail = 0;
+			_queue[tail++] = _targetY * _width + _targetX;
+			_distance[_targetY * _width + _targetX] = 0;
+
+			while (head < tail) {
+				int current = _queue[head++];
+				int x = current % _width, y = current / _width;
+				int distance = _distance[current] + 1;
+
+				for (int n = 0; n < NEIGHBOURS.length; n++) {
+					int neighbour = _map.getNeighbour(x, y, NEIGHBOURS[n]);
+					if (neighbour < 0 || _distance[neighbour] != UNREACHABLE || !_map.canMove(object, neighbour % _width, neighbour / _width))
+						continue;
+
+					_distance[neighbour] = distance;
+					_maxDistance = distance;
+					_queue[tail++] = neighbour;
+				}
+			}
+		}
+
+		/**
+		 * Compute the flee field of the current target (once per distance field).
+		 * Every cell starts with its distance multiplied by the flee factor, and then gets the lowest value that
+		 * it can reach through its neighbours (Dijkstra with a bucket queue, the values are integers in a known range).
+		 */
+		public void buildFleeField() {
+			if (_fleeBuilt)
+				return;
+
+			_fleeBuilt = true;
+			int minValue = FLEE_COST * _maxDistance;
+			if (_buckets.length < -minValue + 1)
+				_buckets = new int[-minValue + 1];
+			for (int i = 0; i <= -minValue; i++) {
+				_buckets[i] = -1;
+			}
+
+			int nodes = 0;
+			for (int i = 0; i < _flee.length; i++) {
+				// the target itself is blocked, a fleeing monster never runs through it
+				if (_distance[i] == UNREACHABLE || _distance[i] == 0) {
+					_flee[i] = Integer.MAX_VALUE;
+					continue;
+				}
+
+				_flee[i] = FLEE_COST * _distance[i];
+				nodes = addNode(nodes, i, _flee[i] - minValue);
+			}
+
+			// relax the cells from the lowest value. a relaxed value is always higher than the current bucket,
+			// and lower than the initial value of the cell, so it stays in the buckets range
+			for (int bucket = 0; bucket <= -minValue; bucket++) {
+				for (int node = _buckets[bucket]; node >= 0; node = _nodeNext[node]) {
+					int current = _nodeCell[node];
+					if (_flee[current] - minValue != bucket)
+						continue;	// a stale entry, the cell was relaxed to a lower value
+
+					int x = current % _width, y = current / _width;
+					int value = _flee[current] + STEP_COST;
+					for (int n = 0; n < NEIGHBOURS.length; n++) {
+						int neighbour = _map.getNeighbour(x, y, NEIGHBOURS[n]);
+						if (neighbour >= 0 && _flee[neighbour] != Integer.MAX_VALUE && value < _flee[neighbour]) {
+							_flee[neighbour] = value;
+							nodes = addNode(nodes, neighbour, value - minValue);
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Add a cell to a bucket of the bucket queue
+		 * @return the new number of nodes
+		 */
+		private int addNode(int nodes, int cell, int bucket) {
+			_nodeCell[nodes] = cell;
+			_nodeNext[nodes] = _buckets[bucket];
+			_buckets[bucket] = nodes;
+			return nodes + 1;
+		}
+
+		/**
+		 * Get the distance of a cell from the target
+		 * @param cell cell index (-1 for no cell)
+		 * @return the distance, or -1 if there's no cell, or it's blocked or unreachable
+		 */
+		public int getDistance(int cell) {
+			return cell < 0 ? UNREACHABLE : _distance[cell];
+		}
+
+		/**
+		 * Get the flee value of a cell
+		 * @param cell cell index (-1 for no cell)
+		 * @return the value, or Integer.MAX_VALUE if there's no cell, or it's blocked, unreachable or the target
+		 */
+		public int getFleeValue(int cell) {
+			return cell < 0 ? Integer.MAX_VALUE : _flee[cell];
+		}
+	}
+}
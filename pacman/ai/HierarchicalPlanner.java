@@ -0,0 +1,635 @@
+package pacman.ai;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+import pacman.model.ControllableObject;
+import pacman.model.Direction;
+import pacman.model.Map;
+
+/**
+ *  HierarchicalPlanner plans paths on big maps using HPA*: the map is split into square clusters, the cells where the
+ *  passable cells of two clusters meet are entrances (one transition for every run of meeting cells), and the distances
+ *  between the transitions of every cluster are precomputed. A query connects its source & target to the transitions of
+ *  their clusters, searches the abstract graph of the transitions, and refines the route into cells lazily, one leg
+ *  (inside one cluster) at a time. No state is kept for every cell of the map, and a query searches cells of its source &
+ *  target clusters only (and of the clusters it refines).
+ *  The paths are near optimal- a route passes through the transitions only.
+ *  Every passability layer has its own abstract graph, built on its first query, and built again when the map changes (portals).
+ *  A hierarchical planner isn't thread safe.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class HierarchicalPlanner implements PathPlanner {
+	/* directions by their index in the map's exits masks */
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT };
+	/* runs of entrance cells longer than this get a transition on both of their ends (instead of one in their middle) */
+	private static final int LONG_ENTRANCE = 6;
+	/* The map for searching */
+	private Map _map;
+	private int _width;
+	private int _height;
+	/* clusters size, and the number of clusters in a row */
+	private int _clusterSize;
+	private int _clustersX;
+	/* the abstract graph of every passability layer (null until its first query) */
+	private Layer[] _layers = new Layer[Map.TRAPPED_MONSTER_LAYER + 1];
+	/* cluster search buffers: distance & the next step (towards the search source) of every local cell, the search that
+	   reached every local cell (the distances of the other cells are unknown), and the BFS queue */
+	private int[] _localDistance;
+	private int[] _localNext;
+	private int[] _localSearch;
+	private int _localSearches;
+	private int[] _queue;
+	/* search state of every abstract node: cost from the source, heuristic, parent, generation stamps & heap index */
+	private int[] _cost = new int[0];
+	private int[] _heuristic = new int[0];
+	private int[] _parent = new int[0];
+	private int[] _seenGeneration = new int[0];
+	private int[] _closedGeneration = new int[0];
+	private int[] _heapIndex = new int[0];
+	/* open nodes (binary min-heap ordered by f, then by h) */
+	private int[] _open = new int[0];
+	private int _openSize;
+	private int _generation;
+	/* the distance of every transition of the target's cluster to the target (-1 if it can't reach it) */
+	private int[] _targetDistance = new int[0];
+	/* number of expanded abstract nodes (for measuring) */
+	private long _expandedNodes;
+	/* the route of the last search: its graph, source & target cells, its transitions, length and the next leg to be refined */
+	private Layer _routeLayer;
+	private int _source;
+	private int _target;
+	private int[] _route = new int[16];
+	private int _routeLength;
+	private int _distance;
+	private int _nextLeg;
+
+	/**
+	 * Creates a hierarchical planner for the given map
+	 * @param map The map to be searched
+	 * @param clusterSize the width & height of the clusters in cells
+	 */
+	public HierarchicalPlanner(Map map, int clusterSize) {
+		if (clusterSize < 2)
+			throw new IllegalArgumentException("The clusters are too small: " + clusterSize);
+
+		_map = map;
+		_width = map.getGameDimension().width;
+		_height = map.getGameDimension().height;
+		_clusterSize = clusterSize;
+		_clustersX = (_width + clusterSize - 1) / clusterSize;
+		_localDistance = new int[clusterSize * clusterSize];
+		_localNext = new int[clusterSize * clusterSize];
+		_localSearch = new int[clusterSize * clusterSize];
+		_queue = new int[clusterSize * clusterSize];
+	}
+
+	@Override
+	public HierarchicalPlanner copyFor(Map map) {
+		return new HierarchicalPlanner(map, _clusterSize);
+	}
+
+	@Override
+	public Path findPath(ControllableObject object, Point source, Point target) {
+		Path path = new Path();
+		return findPath(object, source.x, source.y, target.x, target.y, path) ? path : null;
+	}
+
+	@Override
+	public boolean findPath(ControllableObject object, int sx, int sy, int tx, int ty, Path path) {
+		path.clear();
+		if (!findRoute(object, sx, sy, tx, ty))
+			return false;
+
+		while (refineNext(path)) {
+			// every leg of the route is refined
+		}
+		return true;
+	}
+
+	/**
+	 * Find the route between two cells on the abstract graph. The route's cells are filled later, by {@link #refineNext(Path)}.
+	 * @param object The object that will be moving along the path.
+	 * @param sx source x coordinate
+	 * @param sy source y coordinate
+	 * @param tx target x coordinate
+	 * @param ty target y coordinate
+	 * @return true if a route was found
+	 */
+	public boolean findRoute(ControllableObject object, int sx, int sy, int tx, int ty) {
+		_routeLayer = null;
+
+		// coordinates out of the board are wrapped, like the map does
+		sx = Math.floorMod(sx, _width);
+		sy = Math.floorMod(sy, _height);
+		tx = Math.floorMod(tx, _width);
+		ty = Math.floorMod(ty, _height);
+
+		// a route must start & end on cells that the object can enter
+		int layerIndex = object.getPassabilityLayer();
+		_source = sy * _width + sx;
+		_target = ty * _width + tx;
+		if (!_map.isPassable(layerIndex, _source) || !_map.isPassable(layerIndex, _target))
+			return false;
+
+		Layer layer = getLayer(layerIndex);
+		ensureCapacity(layer._nodes);
+		nextGeneration();
+
+		// the distances of the target's cluster transitions to the target (the moves are symmetric)
+		int targetCluster = clusterOf(_target);
+		int[] targetNodes = layer._clusterNodes[targetCluster];
+		searchCluster(layer, targetCluster, _target, -1);
+		if (_targetDistance.length < targetNodes.length)
+			_targetDistance = new int[targetNodes.length];
+		for (int i = 0; i < targetNodes.length; i++) {
+			_targetDistance[i] = localDistance(layer._nodeCells[targetNodes[i]]);
+		}
+
+		// the source reaches the transitions of its cluster (and the target, if it's in the same cluster)
+		int best = Integer.MAX_VALUE, goal = -1;
+		int sourceCluster = clusterOf(_source);
+		searchCluster(layer, sourceCluster, _source, -1);
+		if (sourceCluster == targetCluster && localDistance(_target) >= 0)
+			best = localDistance(_target);
+
+		int[] sourceNodes = layer._clusterNodes[sourceCluster];
+		for (int i = 0; i < sourceNodes.length; i++) {
+			int distance = localDistance(layer._nodeCells[sourceNodes[i]]);
+			if (distance >= 0)
+				reach(layer, sourceNodes[i], distance, -1);
+		}
+
+		while (_openSize > 0) {
+			int node = _open[0];
+			int cost = _cost[node];
+
+			// no open node can lead to a shorter route (the heuristic never overestimates)
+			if (cost + _heuristic[node] >= best)
+				break;
+
+			removeFirst();
+			_closedGeneration[node] = _generation;
+			_expandedNodes++;
+
+			// a transition of the target's cluster reaches the target
+			if (layer._nodeClusters[node] == targetCluster) {
+				for (int i = 0; i < targetNodes.length; i++) {
+					if (targetNodes[i] == node && _targetDistance[i] >= 0 && cost + _targetDistance[i] < best) {
+						best = cost + _targetDistance[i];
+						goal = node;
+					}
+				}
+			}
+
+			int[] edges = layer._edges[node];
+			for (int i = 0; i < layer._edgesCount[node]; i += 2) {
+				if (_closedGeneration[edges[i]] != _generation)
+					reach(layer, edges[i], cost + edges[i + 1], node);
+			}
+		}
+
+		if (best == Integer.MAX_VALUE)
+			return false;
+
+		// the route's transitions, from the source to the target (none if the source goes directly to the target)
+		_routeLength = 0;
+		for (int node = goal; node >= 0; node = _parent[node]) {
+			_routeLength++;
+		}
+		if (_route.length < _routeLength)
+			_route = new int[Math.max(_routeLength, _route.length * 2)];
+		int index = _routeLength;
+		for (int node = goal; node >= 0; node = _parent[node]) {
+			_route[--index] = node;
+		}
+
+		_routeLayer = layer;
+		_distance = best;
+		_nextLeg = 0;
+		return true;
+	}
+
+	/**
+	 * Refine the next leg of the last route into cells- from one transition to the next one, inside one cluster
+	 * (or across the border to the next cluster). The first leg starts the path at the source.
+	 * @param path The path to be filled, the cells of the leg are appended to it
+	 * @return true if a leg was refined, false if the whole route was refined already (or there's no route)
+	 */
+	public boolean refineNext(Path path) {
+		if (_routeLayer == null || _nextLeg > _routeLength)
+			return false;
+
+		int from = _nextLeg == 0 ? _source : _routeLayer._nodeCells[_route[_nextLeg - 1]];
+		int to = _nextLeg == _routeLength ? _target : _routeLayer._nodeCells[_route[_nextLeg]];
+		if (_nextLeg == 0)
+			path.appendStep(_source % _width, _source / _width);
+		_nextLeg++;
+
+		if (from == to)
+			return true;
+
+		// a leg between two clusters is a single step across their border
+		int cluster = clusterOf(from);
+		if (clusterOf(to) != cluster) {
+			path.appendStep(to % _width, to / _width);
+			return true;
+		}
+
+		// a leg inside a cluster follows the next steps towards its end (the search stops when it reaches the leg's start)
+		searchCluster(_routeLayer, cluster, to, from);
+		for (int cell = _localNext[localIndex(from)]; cell != to; cell = _localNext[localIndex(cell)]) {
+			path.appendStep(cell % _width, cell / _width);
+		}
+		path.appendStep(to % _width, to / _width);
+		return true;
+	}
+
+	/**
+	 * Get the width & height of the clusters
+	 * @return cluster size in cells
+	 */
+	public int getClusterSize() {
+		return _clusterSize;
+	}
+
+	/**
+	 * Get the length of the last route (the number of steps of its path)
+	 * @return route length
+	 */
+	public int getRouteLength() {
+		return _distance;
+	}
+
+	/**
+	 * Get the number of abstract nodes that were expanded since the planner was created
+	 * @return expanded nodes
+	 */
+	public long getExpandedNodes() {
+		return _expandedNodes;
+	}
+
+	/**
+	 * Get the number of transitions in the abstract graph of a passability layer
+	 * @param layer passability layer (see {@link Map#PACMAN_LAYER})
+	 * @return abstract nodes count
+	 */
+	public int getNodesCount(int layer) {
+		return getLayer(layer)._nodes;
+	}
+
+	/**
+	 * Get the abstract graph of a passability layer, built again if the map changed since it was built
+	 */
+	private Layer getLayer(int layer) {
+		if (_layers[layer] == null || _layers[layer]._changes != _map.getChangesCount())
+			_layers[layer] = new Layer(layer);
+
+		return _layers[layer];
+	}
+
+	private int clusterOf(int cell) {
+		return (cell / _width / _clusterSize) * _clustersX + (cell % _width) / _clusterSize;
+	}
+
+	/**
+	 * Get the index of a cell inside its cluster
+	 */
+	private int localIndex(int cell) {
+		return ((cell / _width) % _clusterSize) * _clusterSize + (cell % _width) % _clusterSize;
+	}
+
+	/**
+	 * BFS inside a cluster from the given cell (the moves that leave the cluster are ignored): the distance of every
+	 * local cell from it, and the next step from every local cell towards it
+	 * @param stop the search stops when it reaches this cell (-1 for searching the whole cluster)
+	 */
+	private void searchCluster(Layer layer, int cluster, int source, int stop) {
+		if (++_localSearches == Integer.MAX_VALUE) {
+			Arrays.fill(_localSearch, 0);
+			_localSearches = 1;
+		}
+
+		int head = 0, tail = 0;
+		_queue[tail++] = source;
+		_localSearch[localIndex(source)] = _localSearches;
+		_localDistance[localIndex(source)] = 0;
+		_localNext[localIndex(source)] = source;
+
+		while (head < tail) {
+			int cell = _queue[head++];
+			if (cell == stop)
+				return;
+
+			int distance = _localDistance[localIndex(cell)];
+			int exits = _map.getExits(layer._layer, cell);
+			for (int i = 0; i < DIRECTIONS.length; i++) {
+				if ((exits & (1 << i)) == 0)
+					continue;
+
+				int next = _map.getNeighbour(cell % _width, cell / _width, DIRECTIONS[i]);
+				int local = localIndex(next);
+				if (clusterOf(next) != cluster || _localSearch[local] == _localSearches)
+					continue;
+
+				_localSearch[local] = _localSearches;
+				_localDistance[local] = distance + 1;
+				_localNext[local] = cell;
+				_queue[tail++] = next;
+			}
+		}
+	}
+
+	/**
+	 * Get the distance of a local cell from the last cluster search's source
+	 * @return distance, -1 if the search didn't reach the cell
+	 */
+	private int localDistance(int cell) {
+		int local = localIndex(cell);
+		return _localSearch[local] == _localSearches ? _localDistance[local] : -1;
+	}
+
+	/**
+	 * Reach an abstract node with the given cost, if it's lower than its current cost
+	 */
+	private void reach(Layer layer, int node, int cost, int parent) {
+		if (_seenGeneration[node] == _generation) {
+			if (cost >= _cost[node])
+				return;
+
+			_cost[node] = cost;
+			_parent[node] = parent;
+			siftUp(_heapIndex[node]);
+			return;
+		}
+
+		int cell = layer._nodeCells[node];
+		_seenGeneration[node] = _generation;
+		_cost[node] = cost;
+		_heuristic[node] = heuristic(cell % _width, cell / _width, _target % _width, _target / _width);
+		_parent[node] = parent;
+		_heapIndex[node] = _openSize;
+		_open[_openSize++] = node;
+		siftUp(_openSize - 1);
+	}
+
+	/**
+	 * The heuristic distance between two cells- the minimal number of steps on the wrapped board,
+	 * or through one of the map's portals (the same as the path finder's)
+	 */
+	private int heuristic(int x, int y, int tx, int ty) {
+		int distance = wrapDistance(x, y, tx, ty);
+		for (int i = 0; i < _map.getPortalsCount(); i++) {
+			int entry = _map.getPortalEntry(i), exit = _map.getPortalExit(i);
+			distance = Math.min(distance, wrapDistance(x, y, entry % _width, entry / _width) + 1 + wrapDistance(exit % _width, exit / _width, tx, ty));
+		}
+
+		return distance;
+	}
+
+	/**
+	 * The manhattan distance on the wrapped board (the edges of the board are connected)
+	 */
+	private int wrapDistance(int x, int y, int tx, int ty) {
+		int dx = Math.abs(x - tx), dy = Math.abs(y - ty);
+		return Math.min(dx, _width - dx) + Math.min(dy, _height - dy);
+	}
+
+	/**
+	 * Grow the search state for the given number of abstract nodes
+	 */
+	private void ensureCapacity(int nodes) {
+		if (_cost.length >= nodes)
+			return;
+
+		_cost = Arrays.copyOf(_cost, nodes);
+		_heuristic = Arrays.copyOf(_heuristic, nodes);
+		_parent = Arrays.copyOf(_parent, nodes);
+		_seenGeneration = Arrays.copyOf(_seenGeneration, nodes);
+		_closedGeneration = Arrays.copyOf(_closedGeneration, nodes);
+		_heapIndex = Arrays.copyOf(_heapIndex, nodes);
+		_open = Arrays.copyOf(_open, nodes);
+	}
+
+	/**
+	 * Start a new search generation. Every node stamped with an older generation is neither seen nor closed,
+	 * so there is no need to clear the search state between searches.
+	 */
+	private void nextGeneration() {
+		_openSize = 0;
+		if (++_generation == Integer.MAX_VALUE) {
+			// the stamps are about to overflow- reset all of them
+			Arrays.fill(_seenGeneration, 0);
+			Arrays.fill(_closedGeneration, 0);
+			_generation = 1;
+		}
+	}
+
+	/**
+	 * Remove the first node from the open heap
+	 */
+	private void removeFirst() {
+		int last = _open[--_openSize];
+		if (_openSize > 0) {
+			_open[0] = last;
+			_heapIndex[last] = 0;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Determines if node a is ordered before node b in the open heap (lower f, then closer to the target)
+	 */
+	private boolean isBefore(int a, int b) {
+		int fa = _cost[a] + _heuristic[a], fb = _cost[b] + _heuristic[b];
+		if (fa != fb)
+			return fa < fb;
+
+		return _heuristic[a] < _heuristic[b];
+	}
+
+	private void siftUp(int index) {
+		int node = _open[index];
+		while (index > 0) {
+			int parentIndex = (index - 1) >>> 1;
+			int parent = _open[parentIndex];
+			if (!isBefore(node, parent))
+				break;
+
+			_open[index] = parent;
+			_heapIndex[parent] = index;
+			index = parentIndex;
+		}
+		_open[index] = node;
+		_heapIndex[node] = index;
+	}
+
+	private void siftDown(int index) {
+		int node = _open[index];
+		int half = _openSize >>> 1;
+		while (index < half) {
+			int childIndex = 2 * index + 1;
+			int child = _open[childIndex];
+			int rightIndex = childIndex + 1;
+			if (rightIndex < _openSize && isBefore(_open[rightIndex], child)) {
+				childIndex = rightIndex;
+				child = _open[rightIndex];
+			}
+			if (!isBefore(child, node))
+				break;
+
+			_open[index] = child;
+			_heapIndex[child] = index;
+			index = childIndex;
+		}
+		_open[index] = node;
+		_heapIndex[node] = index;
+	}
+
+	/**
+	 *  The abstract graph of a passability layer: the transitions of every cluster, and their edges- a step across the
+	 *  border to the transition on the other side, and the distances to the other transitions of the cluster
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class Layer {
+		private int _layer;
+		/* the map changes that the graph was built for */
+		private int _changes;
+		/* nodes: cell and cluster */
+		private int[] _nodeCells = new int[64];
+		private int[] _nodeClusters = new int[64];
+		private int _nodes;
+		/* the edges of every node (target node, cost pairs) */
+		private int[][] _edges = new int[64][];
+		private int[] _edgesCount = new int[64];
+		/* the nodes of every cluster */
+		private int[][] _clusterNodes;
+
+		/**
+		 * Build the abstract graph of a passability layer
+		 * @param layer passability layer
+		 */
+		public Layer(int layer) {
+			_layer = layer;
+			_changes = _map.getChangesCount();
+
+			int clustersY = (_height + _clusterSize - 1) / _clusterSize;
+			_clusterNodes = new int[_clustersX * clustersY][0];
+
+			// the entrances on the right & bottom sides of every cluster (every link has one side that leaves to the right or down,
+			// through the board edges & portals too)
+			for (int cy = 0; cy < clustersY; cy++) {
+				for (int cx = 0; cx < _clustersX; cx++) {
+					int left = cx * _clusterSize, top = cy * _clusterSize;
+					int right = Math.min(_width, left + _clusterSize) - 1, bottom = Math.min(_height, top + _clusterSize) - 1;
+					addEntrances(left, bottom, 1, 0, right - left + 1, 2);
+					addEntrances(right, top, 0, 1, bottom - top + 1, 1);
+				}
+			}
+
+			// the distances between the transitions of every cluster
+			for (int cluster = 0; cluster < _clusterNodes.length; cluster++) {
+				int[] nodes = _clusterNodes[cluster];
+				for (int i = 0; i < nodes.length; i++) {
+					searchCluster(this, cluster, _nodeCells[nodes[i]], -1);
+					for (int j = 0; j < nodes.length; j++) {
+						int distance = localDistance(_nodeCells[nodes[j]]);
+						if (i != j && distance > 0)
+							addEdge(nodes[i], nodes[j], distance);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Add the transitions of the cells along a cluster side that leave it in the given direction: every run of cells
+		 * that lead to a run of cells in another cluster is an entrance, with a transition in its middle (or on both ends, if it's long)
+		 * @param x first cell x coordinate
+		 * @param y first cell y coordinate
+		 * @param dx step along the side (x)
+		 * @param dy step along the side (y)
+		 * @param length side length
+		 * @param direction direction index that leaves the cluster
+		 */
+		private void addEntrances(int x, int y, int dx, int dy, int length, int direction) {
+			int runStart = -1, previous = -1;
+			for (int i = 0; i <= length; i++) {
+				int cell = -1, next = -1;
+				if (i < length) {
+					cell = (y + i * dy) * _width + x + i * dx;
+					if ((_map.getExits(_layer, cell) & (1 << direction)) != 0 && _map.isPassable(_layer, cell)) {
+						next = _map.getNeighbour(cell % _width, cell / _width, DIRECTIONS[direction]);
+						if (clusterOf(next) == clusterOf(cell))
+							next = -1;
+					}
+				}
+
+				// the run continues while the cells on the other side are neighbours in the same cluster
+				boolean continues = next >= 0 && previous >= 0 && clusterOf(next) == clusterOf(previous)
+						&& Math.abs(next % _width - previous % _width) + Math.abs(next / _width - previous / _width) == 1;
+				if (!continues && runStart >= 0) {
+					int runLength = i - runStart;
+					if (runLength > LONG_ENTRANCE) {
+						addTransition(x + runStart * dx, y + runStart * dy, direction);
+						addTransition(x + (i - 1) * dx, y + (i - 1) * dy, direction);
+					} else {
+						addTransition(x + (runStart + runLength / 2) * dx, y + (runStart + runLength / 2) * dy, direction);
+					}
+					runStart = -1;
+				}
+
+				if (next >= 0 && runStart < 0)
+					runStart = i;
+				previous = next;
+			}
+		}
+
+		/**
+		 * Add a transition: the nodes of a cell and of its neighbour in the given direction (in another cluster), linked by a step
+		 */
+		private void addTransition(int x, int y, int direction) {
+			int cell = y * _width + x;
+			int next = _map.getNeighbour(x, y, DIRECTIONS[direction]);
+			int a = getNode(cell), b = getNode(next);
+			addEdge(a, b, 1);
+			addEdge(b, a, 1);
+		}
+
+		/**
+		 * Get the node of a cell, a new node if it has none
+		 */
+		private int getNode(int cell) {
+			int cluster = clusterOf(cell);
+			int[] nodes = _clusterNodes[cluster];
+			for (int i = 0; i < nodes.length; i++) {
+				if (_nodeCells[nodes[i]] == cell)
+					return nodes[i];
+			}
+
+			if (_nodes == _nodeCells.length) {
+				_nodeCells = Arrays.copyOf(_nodeCells, _nodes * 2);
+				_nodeClusters = Arrays.copyOf(_nodeClusters, _nodes * 2);
+				_edges = Arrays.copyOf(_edges, _nodes * 2);
+				_edgesCount = Arrays.copyOf(_edgesCount, _nodes * 2);
+			}
+
+			int node = _nodes++;
+			_nodeCells[node] = cell;
+			_nodeClusters[node] = cluster;
+			_edges[node] = new int[8];
+			_clusterNodes[cluster] = Arrays.copyOf(nodes, nodes.length + 1);
+			_clusterNodes[cluster][nodes.length] = node;
+			return node;
+		}
+
+		private void addEdge(int from, int to, int cost) {
+			if (_edgesCount[from] == _edges[from].length)
+				_edges[from] = Arrays.copyOf(_edges[from], _edges[from].length * 2);
+
+			_edges[from][_edgesCount[from]++] = to;
+			_edges[from][_edgesCount[from]++] = cost;
+		}
+	}
+}
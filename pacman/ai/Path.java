@@ -1,64 +1,431 @@
 package pacman.ai;
 
 import java.awt.Point;
-import java.util.ArrayList;
-import java.util.List;
+
+import pacman.model.Direction;
 
 /**
  *  A path determined by PathFinder object (using A* Algorithm for AI).
- *  A path is represented by series of points (=Steps).
+ *  A path is represented by series of points (=Steps), but it stores only the direction of every step (2 bits):
+ *  the coordinates of a step are decoded from the nearest checkpoint (the coordinates of the first step in every block of 32 steps).
+ *  A step that isn't next to the previous step on the board (through a tunnel or a portal) is a jump, and its coordinates are kept aside.
+ *  The steps are stored in a buffer that grows in both directions, so the path can be filled back to front
+ *  (from the target to the source) or front to back, without moving the steps. The same path object can be filled again
+ *  without any allocation.
  *  @author     Lidan Hifi
  *  @version    1.0
  */
 public class Path {
-	/* list of steps */
-	private List<Point> _steps;
-	
+	private static final int BLOCK_BITS = 5;
+	private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+	private static final int INITIAL_BLOCKS = 2;
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT };
+	/* the direction from the previous step to every step (2 bits each, 32 steps in every long) */
+	private long[] _directions;
+	/* jump steps (1 bit each), and the coordinates of the jumps (packed x, y), ordered by the step's place in the buffer */
+	private long[] _jumps;
+	private int[] _jumpPlaces = new int[0];
+	private int[] _jumpSteps = new int[0];
+	private int _jumpsCount;
+	/* coordinates of the first step in every block (packed x, y) */
+	private int[] _checkpoints;
+	/* the steps place in the buffer: [head, tail) */
+	private int _head;
+	private int _tail;
+	/* coordinates of the last step */
+	private int _last;
+	/* the last decoded step (sequential access decodes one step) */
+	private int _cursorPlace = -1;
+	private int _cursorStep;
+	/* steps bitset on the bounding box of the path (built on the first contains after the path changed) */
+	private long[] _stepsSet = new long[0];
+	private int _setX, _setY, _setWidth, _setHeight;
+	private boolean _setValid;
+
 	/**
 	 * Create an empty path
 	 */
 	public Path() {
-		_steps = new ArrayList<Point>();
+		allocate(INITIAL_BLOCKS);
+		clear();
 	}
 
 	/**
 	 * Get the length of the path
-	 * 
+	 *
 	 * @return The number of steps in this path
 	 */
 	public int getLength() {
-		return _steps.size();
+		return _tail - _head;
 	}
-	
+
 	/**
 	 * Get the step at a given index in the path
-	 * 
+	 *
 	 * @param index The index of the step to retrieve
 	 * @return The step information, the position on the map
 	 */
 	public Point getStep(int index) {
-		return _steps.get(index);
+		int step = decode(place(index));
+		return new Point(unpackX(step), unpackY(step));
+	}
+
+	/**
+	 * Get the x coordinate of the step at a given index in the path
+	 *
+	 * @param index The index of the step
+	 * @return The x coordinate of the step
+	 */
+	public int getX(int index) {
+		return unpackX(decode(place(index)));
+	}
+
+	/**
+	 * Get the y coordinate of the step at a given index in the path
+	 *
+	 * @param index The index of the step
+	 * @return The y coordinate of the step
+	 */
+	public int getY(int index) {
+		return unpackY(decode(place(index)));
+	}
+
+	/**
+	 * Get the direction from the previous step to the step at a given index.
+	 * For a jump it's the direction that leaves the board towards the step (the one that a tunnel uses).
+	 *
+	 * @param index The index of the step (1 or more)
+	 * @return The direction of the step
+	 */
+	public Direction getDirection(int index) {
+		if (index == 0)
+			throw new IndexOutOfBoundsException("The first step has no direction");
+
+		return DIRECTIONS[direction(place(index))];
+	}
+
+	/**
+	 * Determines if the step at a given index isn't next to the previous step on the board (a tunnel or a portal)
+	 *
+	 * @param index The index of the step (1 or more)
+	 * @return true if the step is a jump
+	 */
+	public boolean isJump(int index) {
+		int place = place(index);
+		return index > 0 && (_jumps[place >> 6] & (1L << place)) != 0;
 	}
 
 	/**
-	 * Prepend a step to the path.  
-	 * 
+	 * Get the index of the next turn after a given step- the first step with a different direction (or a jump),
+	 * so an object that follows the path keeps its direction until that step.
+	 *
+	 * @param index The index of the step (1 or more)
+	 * @return The index of the next turn, or the length of the path if the path doesn't turn again
+	 */
+	public int getNextTurn(int index) {
+		int place = place(index);
+		int direction = direction(place);
+		for (int next = place + 1; next < _tail; next++) {
+			if (direction(next) != direction || (_jumps[next >> 6] & (1L << next)) != 0)
+				return next - _head;
+		}
+
+		return getLength();
+	}
+
+	/**
+	 * Remove all the steps from the path (for filling it again)
+	 */
+	public void clear() {
+		_head = _tail = (_checkpoints.length / 2) * BLOCK_SIZE;
+		_jumpsCount = 0;
+		_cursorPlace = -1;
+		_setValid = false;
+	}
+
+	/**
+	 * Make this path a copy of the given path. The buffers are reused, so a path that was already as long doesn't allocate.
+	 *
+	 * @param path The path to copy
+	 */
+	public void copyFrom(Path path) {
+		if (_checkpoints.length < path._checkpoints.length)
+			allocate(path._checkpoints.length);
+		if (_jumpPlaces.length < path._jumpsCount) {
+			_jumpPlaces = new int[path._jumpPlaces.length];
+			_jumpSteps = new int[path._jumpSteps.length];
+		}
+
+		// the steps keep their places in the buffer (a larger buffer has room for them too)
+		System.arraycopy(path._directions, 0, _directions, 0, path._directions.length);
+		System.arraycopy(path._jumps, 0, _jumps, 0, path._jumps.length);
+		System.arraycopy(path._checkpoints, 0, _checkpoints, 0, path._checkpoints.length);
+		System.arraycopy(path._jumpPlaces, 0, _jumpPlaces, 0, path._jumpsCount);
+		System.arraycopy(path._jumpSteps, 0, _jumpSteps, 0, path._jumpsCount);
+		_jumpsCount = path._jumpsCount;
+		_head = path._head;
+		_tail = path._tail;
+		_last = path._last;
+		_cursorPlace = -1;
+		_setValid = false;
+	}
+
+	/**
+	 * Prepend a step to the path.
+	 *
+	 * @param point The new step
+	 */
+	public void prependStep(Point point) {
+		prependStep(point.x, point.y);
+	}
+
+	/**
+	 * Prepend a step to the path.
+	 *
 	 * @param x The x coordinate of the new step
 	 * @param y The y coordinate of the new step
 	 */
-	public void prependStep(Point point) {
-		_steps.add(0, point);
+	public void prependStep(int x, int y) {
+		if (_head == 0)
+			grow();
+
+		int step = pack(x, y);
+		if (_head == _tail) {
+			_last = step;
+		} else {
+			// the previous first step gets the direction from the new step
+			int first = _checkpoints[_head >> BLOCK_BITS];
+			setDirection(_head, step, first);
+			if (isJumpPlace(_head))
+				insertJump(0, _head, first);
+		}
+
+		_head--;
+		_checkpoints[_head >> BLOCK_BITS] = step;
+		_setValid = false;
+	}
+
+	/**
+	 * Append a step to the path.
+	 *
+	 * @param x The x coordinate of the new step
+	 * @param y The y coordinate of the new step
+	 */
+	public void appendStep(int x, int y) {
+		if (_tail == _checkpoints.length * BLOCK_SIZE)
+			grow();
+
+		int step = pack(x, y);
+		if (_head != _tail) {
+			setDirection(_tail, _last, step);
+			if (isJumpPlace(_tail))
+				insertJump(_jumpsCount, _tail, step);
+		}
+
+		if (_head == _tail || (_tail & (BLOCK_SIZE - 1)) == 0)
+			_checkpoints[_tail >> BLOCK_BITS] = step;
+
+		_tail++;
+		_last = step;
+		_setValid = false;
 	}
-	
+
 	/**
 	 * Check if this path contains the given step
-	 * 
+	 *
 	 * @param x The x coordinate of the step to check for
 	 * @param y The y coordinate of the step to check for
 	 * @return True if the path contains the given step
 	 */
 	public boolean contains(int x, int y) {
-		return _steps.contains(new Point(x, y));
+		if (!_setValid)
+			buildStepsSet();
+
+		x -= _setX;
+		y -= _setY;
+		if (x < 0 || x >= _setWidth || y < 0 || y >= _setHeight)
+			return false;
+
+		int bit = y * _setWidth + x;
+		return (_stepsSet[bit >> 6] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * Get the place of the step at a given index in the buffer
+	 */
+	private int place(int index) {
+		if (index < 0 || index >= getLength())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + getLength());
+		return _head + index;
+	}
+
+	/**
+	 * Decode the coordinates of the step at the given place, from the last decoded step or from the checkpoint of its block
+	 * @return packed coordinates
+	 */
+	private int decode(int place) {
+		int from = Math.max(_head, place & ~(BLOCK_SIZE - 1));
+		int step = _checkpoints[place >> BLOCK_BITS];
+		if (_cursorPlace >= from && _cursorPlace <= place) {
+			from = _cursorPlace;
+			step = _cursorStep;
+		}
+
+		for (int next = from + 1; next <= place; next++) {
+			if ((_jumps[next >> 6] & (1L << next)) != 0)
+				step = jumpStep(next);
+			else
+				step = move(step, direction(next));
+		}
+
+		_cursorPlace = place;
+		_cursorStep = step;
+		return step;
+	}
+
+	private int direction(int place) {
+		return (int)(_directions[place >> 5] >>> ((place & 31) << 1)) & 3;
+	}
+
+	/**
+	 * Store the direction from one step to the next one (at the given place), and mark it as a jump if they aren't neighbours
+	 */
+	private void setDirection(int place, int from, int to) {
+		int dx = unpackX(to) - unpackX(from), dy = unpackY(to) - unpackY(from);
+		int direction;
+		boolean jump = Math.abs(dx) + Math.abs(dy) != 1;
+		if (dy != 0 && (dx == 0 || Math.abs(dy) >= Math.abs(dx)))
+			direction = (dy > 0) != (Math.abs(dy) > 1) ? 2 : 0;	// down, or up through the top edge
+		else
+			direction = (dx > 0) != (Math.abs(dx) > 1) ? 1 : 3;	// right, or left through the left edge
+
+		int shift = (place & 31) << 1;
+		_directions[place >> 5] = (_directions[place >> 5] & ~(3L << shift)) | ((long)direction << shift);
+		if (jump)
+			_jumps[place >> 6] |= 1L << place;
+		else
+			_jumps[place >> 6] &= ~(1L << place);
+	}
+
+	private boolean isJumpPlace(int place) {
+		return (_jumps[place >> 6] & (1L << place)) != 0;
+	}
+
+	private void insertJump(int index, int place, int step) {
+		if (_jumpsCount == _jumpPlaces.length) {
+			int[] places = new int[Math.max(4, _jumpsCount * 2)];
+			int[] steps = new int[places.length];
+			System.arraycopy(_jumpPlaces, 0, places, 0, _jumpsCount);
+			System.arraycopy(_jumpSteps, 0, steps, 0, _jumpsCount);
+			_jumpPlaces = places;
+			_jumpSteps = steps;
+		}
+
+		System.arraycopy(_jumpPlaces, index, _jumpPlaces, index + 1, _jumpsCount - index);
+		System.arraycopy(_jumpSteps, index, _jumpSteps, index + 1, _jumpsCount - index);
+		_jumpPlaces[index] = place;
+		_jumpSteps[index] = step;
+		_jumpsCount++;
 	}
-}
 
+	private int jumpStep(int place) {
+		for (int i = 0; i < _jumpsCount; i++) {
+			if (_jumpPlaces[i] == place)
+				return _jumpSteps[i];
+		}
+
+		throw new IllegalStateException("Missing jump at " + place);
+	}
+
+	private void buildStepsSet() {
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+		for (int i = 0; i < getLength(); i++) {
+			int step = decode(_head + i);
+			minX = Math.min(minX, unpackX(step));
+			minY = Math.min(minY, unpackY(step));
+			maxX = Math.max(maxX, unpackX(step));
+			maxY = Math.max(maxY, unpackY(step));
+		}
+
+		_setX = minX;
+		_setY = minY;
+		_setWidth = maxX - minX + 1;
+		_setHeight = maxY - minY + 1;
+		if (maxX < 0)
+			_setWidth = _setHeight = 0;
+
+		int words = (_setWidth * _setHeight + 63) >> 6;
+		if (_stepsSet.length < words)
+			_stepsSet = new long[words];
+		for (int i = 0; i < words; i++) {
+			_stepsSet[i] = 0;
+		}
+
+		for (int i = 0; i < getLength(); i++) {
+			int step = decode(_head + i);
+			int bit = (unpackY(step) - _setY) * _setWidth + unpackX(step) - _setX;
+			_stepsSet[bit >> 6] |= 1L << bit;
+		}
+
+		_setValid = true;
+	}
+
+	/**
+	 * Double the buffer, and keep the steps in its middle
+	 */
+	private void grow() {
+		int blocks = _checkpoints.length;
+		long[] directions = _directions, jumps = _jumps;
+		int[] checkpoints = _checkpoints;
+		allocate(blocks * 2);
+
+		// move the steps by a whole number of blocks (so the checkpoints stay in their blocks)
+		int shift = (blocks / 2) * BLOCK_SIZE;
+		for (int place = _head; place < _tail; place++) {
+			int direction = (int)(directions[place >> 5] >>> ((place & 31) << 1)) & 3;
+			int target = place + shift;
+			_directions[target >> 5] |= (long)direction << ((target & 31) << 1);
+			if ((jumps[place >> 6] & (1L << place)) != 0)
+				_jumps[target >> 6] |= 1L << target;
+		}
+		System.arraycopy(checkpoints, 0, _checkpoints, blocks / 2, blocks);
+		for (int i = 0; i < _jumpsCount; i++) {
+			_jumpPlaces[i] += shift;
+		}
+
+		_head += shift;
+		_tail += shift;
+		_cursorPlace = -1;
+	}
+
+	private void allocate(int blocks) {
+		_directions = new long[blocks];
+		_jumps = new long[(blocks + 1) / 2];
+		_checkpoints = new int[blocks];
+	}
+
+	private static int move(int step, int direction) {
+		switch (direction) {
+		case 0:
+			return step - (1 << 16);
+		case 1:
+			return step + 1;
+		case 2:
+			return step + (1 << 16);
+		default:
+			return step - 1;
+		}
+	}
+
+	private static int pack(int x, int y) {
+		return (y << 16) | x;
+	}
+
+	private static int unpackX(int step) {
+		return step & 0xffff;
+	}
+
+	private static int unpackY(int step) {
+		return step >>> 16;
+	}
+}
@@ -1,29 +1,48 @@
 package pacman.ai;
 
 import java.awt.Point;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 
 import pacman.model.ControllableObject;
+import pacman.model.Direction;
 import pacman.model.Map;
 
 /**
- *  PathFinder finds the shortest path between a given source point and target point, using A* Algorithm
+ *  PathFinder finds the shortest path between a given source point and target point, using A* Algorithm.
+ *  The search follows the map's topology (the board edges wrap around, and the portals link their cells),
+ *  and the heuristic is the distance on the wrapped board, or through a portal if it's shorter.
+ *  A search can also be suspended after a number of expanded nodes and continued later (see {@link #startSearch}).
  *  @author     Lidan Hifi
  *  @version    1.0
  */
-public class PathFinder {
-	/* The set of nodes that have been searched through */
-	private List<Node> _closed;
-	/* The set of nodes that we don't yet consider fully searched */
-	private List<Node> _open = new ArrayList<Node>();
+public class PathFinder implements PathPlanner {
+	/* search states */
+	public static final int SEARCHING = 0;
+	public static final int FOUND = 1;
+	public static final int NOT_FOUND = 2;
+	/* neighbours order */
+	private static final Direction[] NEIGHBOURS = { Direction.LEFT, Direction.UP, Direction.DOWN, Direction.RIGHT };
+	/* The set of nodes that we don't yet consider fully searched (binary min-heap ordered by f, then by h, then by insertion order) */
+	private Node[] _open;
+	private int _openSize;
+	/* The current search generation- a node is open/closed only if its stamp equals to this value */
+	private int _generation;
+	/* insertion counter, keeps the open list order stable for nodes with equal f */
+	private long _insertions;
 	/* The map for searching */
 	private Map _map;
 	/* The maximum depth of search */
 	private int _maxSearchDistance;
 	/* The set of nodes across the map */
 	private Node[][] _nodes;
+	/* number of expanded nodes (for measuring) */
+	private long _expandedNodes;
+	/* the current search- the moving object, source & target nodes, the node closest to the target, depth and state */
+	private ControllableObject _searchObject;
+	private Node _source;
+	private Node _target;
+	private Node _best;
+	private int _currentDepth;
+	private int _searchState = NOT_FOUND;
 
 	/**
 	 * Create a path finder object
@@ -35,8 +54,8 @@ public class PathFinder {
 		_map = map;
 		_maxSearchDistance = maxSearchDistance;
 
-		_closed = new ArrayList<Node>();
 		_nodes = new Node[map.getGameDimension().height][map.getGameDimension().width];
+		_open = new Node[map.getGameDimension().height * map.getGameDimension().width];
 
 		// initialize the nodes array
 		for (int i = 0; i < map.getGameDimension().height; i++) {
@@ -55,106 +74,358 @@ public class PathFinder {
 	 * @param target The target coordinates
 	 * @return The shortest path found from start to end, or null if no path can be found.
 	 */
+	@Override
+	public PathFinder copyFor(Map map) {
+		return new PathFinder(map, _maxSearchDistance);
+	}
 
+	@Override
 	public Path findPath(ControllableObject object, Point source, Point target) {
+		Path path = new Path();
+		return findPath(object, source.x, source.y, target.x, target.y, path) ? path : null;
+	}
+
+	/**
+	 * Find the shortest path from the source location to the target location (avoiding blockages),
+	 * and store it in the given path.
+	 *
+	 * @param object The object that will be moving along the path.
+	 * @param sx source x coordinate
+	 * @param sy source y coordinate
+	 * @param tx target x coordinate
+	 * @param ty target y coordinate
+	 * @param path The path to be filled
+	 * @return true if a path was found, false if no path can be found.
+	 */
+	@Override
+	public boolean findPath(ControllableObject object, int sx, int sy, int tx, int ty, Path path) {
+		startSearch(object, sx, sy, tx, ty);
+		resumeSearch(Integer.MAX_VALUE);
+		return getPath(path);
+	}
+
+	/**
+	 * Start a search that can be suspended: the search advances by {@link #resumeSearch(int)}, and the path is taken by
+	 * {@link #getPath(Path)} when it's done (or the best path so far by {@link #getBestPath(Path)}).
+	 * The path finder has one search at a time- a new search drops the current one.
+	 *
+	 * @param object The object that will be moving along the path.
+	 * @param sx source x coordinate
+	 * @param sy source y coordinate
+	 * @param tx target x coordinate
+	 * @param ty target y coordinate
+	 * @return false if the search is already done, since the target is blocked
+	 */
+	public boolean startSearch(ControllableObject object, int sx, int sy, int tx, int ty) {
+		// coordinates out of the board are wrapped, like the map does
+		int width = _map.getGameDimension().width, height = _map.getGameDimension().height;
+		sx = Math.floorMod(sx, width);
+		sy = Math.floorMod(sy, height);
+		tx = Math.floorMod(tx, width);
+		ty = Math.floorMod(ty, height);
+
+		_searchObject = object;
+		_source = _nodes[sy][sx];
+		_target = _nodes[ty][tx];
+		_best = _source;
+		_currentDepth = 0;
+
+		// initialization for A* algorithm.
+		// A new generation empties both of the open and closed sets. Only the starting node is in the open list.
+		nextGeneration();
+		_target.setParent(null);
+
 		// check the destination. if is blocked, we can't get there
-		if (!_map.canMove(object, target))
-			return null;
+		if (!_map.canMove(object, tx, ty)) {
+			_searchState = NOT_FOUND;
+			return false;
+		}
+
+		_source.resetNode();
+		_source.setHeuristic(heuristic(sx, sy, tx, ty));
+		addToOpen(_source);
 
-		// initialization for A* algorithm. 
-		// The closed group is empty. Only the starting node is in the open list.
-		_nodes[source.y][source.x].resetNode();
-		_closed.clear();
-		_open.clear();
-		addToOpen(_nodes[source.y][source.x]);
+		_searchState = SEARCHING;
+		return true;
+	}
 
-		_nodes[target.y][target.x].setParent(null);
+	/**
+	 * Continue the current search
+	 *
+	 * @param maxExpansions maximum nodes to expand before the search is suspended
+	 * @return the state of the search: {@link #SEARCHING} if it was suspended, {@link #FOUND} or {@link #NOT_FOUND} if it's done
+	 */
+	public int resumeSearch(int maxExpansions) {
+		if (_searchState != SEARCHING)
+			return _searchState;
 
-		int currentDepth = 0;
+		int width = _map.getGameDimension().width;
+		int tx = _target.getPosition().x, ty = _target.getPosition().y;
+		int layer = _searchObject.getPassabilityLayer();
+		int expansions = 0;
 
 		// while we haven't exceeded the max search depth
-		while(currentDepth < _maxSearchDistance && _open.size() > 0) {
-			// pull out the first node in the open list, 
-			// this is determined to be the most likely to be the next step based on the heuristic function (the list is being sorted each insertion).
-			Node current = _open.get(0);
-			if (current == _nodes[target.y][target.x])
+		while(_currentDepth < _maxSearchDistance && _openSize > 0) {
+			// pull out the first node in the open list,
+			// this is determined to be the most likely to be the next step based on the heuristic function (the head of the heap).
+			Node current = _open[0];
+			if (current == _target)
 				break; // reached the target!
 
+			// the search is suspended, it continues from the same node
+			if (expansions == maxExpansions)
+				return SEARCHING;
+
 			// remove the first node from open and add it to closed list
-			_closed.add(_open.remove(0)); 
+			removeFromOpen(current);
+			current._closedGeneration = _generation;
+			_expandedNodes++;
+			expansions++;
+
+			// search through all the neighbors of the current node (through the board edges & portals), evaluating them as next steps
+			// (the exits of the cell are the passable neighbours for the moving object)
+			int exits = _map.getExits(layer, current.getPosition().y * width + current.getPosition().x);
+			for (int i = 0; i < NEIGHBOURS.length; i++) {
+				if ((exits & (1 << (NEIGHBOURS[i].ordinal() - 1))) != 0) {
+					// determine the location of the neighbor and evaluate it
+					int next = _map.getNeighbour(current.getPosition().x, current.getPosition().y, NEIGHBOURS[i]);
+					int nx = next % width;
+					int ny = next / width;
 
-			// search through all the neighbors of the current node, evaluating them as next steps
-			for (int dx = -1; dx <= 1; dx++) {
-				for (int dy = -1; dy <= 1; dy++) {
-					if ((dx == 0 && dy == 0) || (dx != 0 && dy != 0)) // not the current position, nor the diagonals
-						continue;
+					// the cost to get to this node is cost the current plus the movement
+					// cost to reach this node Note that the heuristic value is only used in the sorted open list
+					float nextStepCost = current.getCost() + 1;
+					Node neighbour = _nodes[ny][nx];
 
-					// determine the location of the neighbor and evaluate it
-					int tx = current.getPosition().x + dx;
-					int ty = current.getPosition().y + dy;
-
-					if (tx >= 0 && tx < _map.getGameDimension().width && ty >= 0 && ty < _map.getGameDimension().height && _map.canMove(object, tx, ty)) {
-						// the cost to get to this node is cost the current plus the movement
-						// cost to reach this node Note that the heuristic value is only used in the sorted open list
-						float nextStepCost = current.getCost() + 1;
-						Node neighbour = _nodes[ty][tx];
-
-						// if the new cost wev'e determined for this node is lower,
-						// than it has been previously makes sure the node hasen't determined that there might have been a better path to get to this node 
-						// so it needs to be re-evaluated
-
-						if (nextStepCost < neighbour.getCost()) {
-							if (_open.contains(neighbour))
-								_open.remove(neighbour);
-
-							if (_closed.contains(neighbour))
-								_closed.remove(neighbour);
-						}
-
-						// if the node hasn't already been processed and discarded 
-						// then reset its cost to our current cost and add it as a next possible step (to the open list)
-						if (!_open.contains(neighbour) && !_closed.contains(neighbour)) {
-							neighbour.setCost(nextStepCost);
-
-							// set heuristic value to the distance using distance formula (pythagoras)
-							float deltaX = target.x - source.x;
-							float deltaY = target.y - source.y;
-							neighbour.setHeuristic((float)(Math.sqrt((deltaX*deltaX)+(deltaY*deltaY))));
-
-							currentDepth = Math.max(currentDepth, neighbour.setParent(current));
-							addToOpen(neighbour);
-						}
+					// if the new cost wev'e determined for this node is lower,
+					// than it has been previously makes sure the node hasen't determined that there might have been a better path to get to this node
+					// so it needs to be re-evaluated
+
+					if (nextStepCost < neighbour.getCost()) {
+						if (neighbour.isOpen())
+							removeFromOpen(neighbour);
+
+						if (neighbour.isClosed())
+							neighbour._closedGeneration = 0;
+					}
+
+					// if the node hasn't already been processed and discarded
+					// then reset its cost to our current cost and add it as a next possible step (to the open list)
+					if (!neighbour.isOpen() && !neighbour.isClosed()) {
+						neighbour.setCost(nextStepCost);
+
+						// set heuristic value to the distance from the neighbour to the target
+						neighbour.setHeuristic(heuristic(nx, ny, tx, ty));
+
+						_currentDepth = Math.max(_currentDepth, neighbour.setParent(current));
+						addToOpen(neighbour);
+
+						// the node closest to the target is the end of the best path so far
+						if (neighbour._heuristic < _best._heuristic || (neighbour._heuristic == _best._heuristic && neighbour._cost < _best._cost))
+							_best = neighbour;
 					}
 				}
 			}
 		}
 
-		// there was no path found. just return null
-		if (_nodes[target.y][target.x].getParent() == null)
-			return null;
+		// there was no path found if the target has no parent
+		_searchState = _target.getParent() != null ? FOUND : NOT_FOUND;
+		return _searchState;
+	}
+
+	/**
+	 * Get the path of the current search, if it's done
+	 *
+	 * @param path The path to be filled (its previous steps are removed)
+	 * @return true if a path was found, false if no path can be found (or the search isn't done).
+	 */
+	public boolean getPath(Path path) {
+		path.clear();
+		if (_searchState != FOUND)
+			return false;
 
 		// at this point it definitely found a path so we can uses the parent references
 		// of the nodes to find out way from the target location back
 		// to the start recording the nodes on the way
-		Path path = new Path();
-		Node currNode = _nodes[target.y][target.x];
-		while (currNode != _nodes[source.y][source.x]) { // until reach the source node
-			path.prependStep(currNode.getPosition());
+		fillPath(_target, path);
+
+		// HALLELUJAH! We've got the shortest path!!!
+		return true;
+	}
+
+	/**
+	 * Get the best path of the current search so far- the path to the node closest to the target (anytime search).
+	 * When the search is done it's the path to the target, if one was found.
+	 *
+	 * @param path The path to be filled (its previous steps are removed)
+	 * @return true if there's a path with at least one step, false if not
+	 */
+	public boolean getBestPath(Path path) {
+		if (_searchState == FOUND)
+			return getPath(path);
+
+		path.clear();
+		if (_source == null || _best == _source)
+			return false;
+
+		fillPath(_best, path);
+		return true;
+	}
+
+	/**
+	 * Fill the path from the search source to the given node (using the parent references, back from the node)
+	 */
+	private void fillPath(Node node, Path path) {
+		Node currNode = node;
+		while (currNode != _source) { // until reach the source node
+			path.prependStep(currNode.getPosition().x, currNode.getPosition().y);
 			currNode = currNode.getParent();
 		}
-		path.prependStep(source);
+		path.prependStep(_source.getPosition().x, _source.getPosition().y);
+	}
 
-		// HALLELUJAH! We've got the shortest path!!!
-		return path;
+	/**
+	 * Get the number of nodes that were expanded (moved to the closed list) since the path finder was created
+	 * @return expanded nodes
+	 */
+	public long getExpandedNodes() {
+		return _expandedNodes;
 	}
 
 	/**
-	 * Add node to the open list and sort the list
+	 * Get the maximum depth of the searches
+	 * @return maximum search distance
+	 */
+	public int getMaxSearchDistance() {
+		return _maxSearchDistance;
+	}
+
+	/**
+	 * The heuristic distance between two cells- the minimal number of steps on the wrapped board,
+	 * or through one of the map's portals. It never overestimates the real distance (admissible).
+	 * @param x cell x coordinate
+	 * @param y cell y coordinate
+	 * @param tx target x coordinate
+	 * @param ty target y coordinate
+	 * @return heuristic distance
+	 */
+	private float heuristic(int x, int y, int tx, int ty) {
+		int width = _map.getGameDimension().width;
+		int distance = wrapDistance(x, y, tx, ty);
+
+		for (int i = 0; i < _map.getPortalsCount(); i++) {
+			int entry = _map.getPortalEntry(i), exit = _map.getPortalExit(i);
+			distance = Math.min(distance, wrapDistance(x, y, entry % width, entry / width) + 1 + wrapDistance(exit % width, exit / width, tx, ty));
+		}
+
+		return distance;
+	}
+
+	/**
+	 * The manhattan distance on the wrapped board (the edges of the board are connected)
+	 */
+	private int wrapDistance(int x, int y, int tx, int ty) {
+		int dx = Math.abs(x - tx), dy = Math.abs(y - ty);
+		return Math.min(dx, _map.getGameDimension().width - dx) + Math.min(dy, _map.getGameDimension().height - dy);
+	}
+
+	/**
+	 * Start a new search generation. Every node stamped with an older generation is neither open nor closed,
+	 * so there is no need to clear the sets between searches.
+	 */
+	private void nextGeneration() {
+		for (int i = 0; i < _openSize; i++) {
+			_open[i] = null;
+		}
+		_openSize = 0;
+		_insertions = 0;
+
+		if (++_generation == Integer.MAX_VALUE) {
+			// the stamps are about to overflow- reset all of them
+			for (Node[] row : _nodes) {
+				for (Node node : row) {
+					node._openGeneration = 0;
+					node._closedGeneration = 0;
+				}
+			}
+			_generation = 1;
+		}
+	}
+
+	/**
+	 * Add node to the open list (the node is placed after any other node with the same f value)
 	 * @param node
 	 */
 	private void addToOpen(Node node) {
-		_open.add(node);
-		Collections.sort(_open);
+		node._openGeneration = _generation;
+		node._insertion = _insertions++;
+		node._heapIndex = _openSize++;
+		_open[node._heapIndex] = node;
+		siftUp(node._heapIndex);
+	}
+
+	/**
+	 * Remove the given node from the open list
+	 * @param node node in the open list
+	 */
+	private void removeFromOpen(Node node) {
+		int index = node._heapIndex;
+		Node last = _open[--_openSize];
+		_open[_openSize] = null;
+		node._openGeneration = 0;
+
+		if (last != node) {
+			_open[index] = last;
+			last._heapIndex = index;
+			siftDown(index);
+			siftUp(last._heapIndex);
+		}
+	}
+
+	/**
+	 * Move the node at the given heap index up, until its parent is ordered before it
+	 * @param index heap index
+	 */
+	private void siftUp(int index) {
+		Node node = _open[index];
+		while (index > 0) {
+			int parentIndex = (index - 1) >>> 1;
+			Node parent = _open[parentIndex];
+			if (parent.compareTo(node) <= 0)
+				break;
+
+			_open[index] = parent;
+			parent._heapIndex = index;
+			index = parentIndex;
+		}
+		_open[index] = node;
+		node._heapIndex = index;
+	}
+
+	/**
+	 * Move the node at the given heap index down, until both of its children are ordered after it
+	 * @param index heap index
+	 */
+	private void siftDown(int index) {
+		Node node = _open[index];
+		int half = _openSize >>> 1;
+		while (index < half) {
+			int childIndex = 2 * index + 1;
+			Node child = _open[childIndex];
+			int rightIndex = childIndex + 1;
+			if (rightIndex < _openSize && _open[rightIndex].compareTo(child) < 0) {
+				childIndex = rightIndex;
+				child = _open[rightIndex];
+			}
+			if (node.compareTo(child) <= 0)
+				break;
+
+			_open[index] = child;
+			child._heapIndex = index;
+			index = childIndex;
+		}
+		_open[index] = node;
+		node._heapIndex = index;
 	}
 
 	/**
@@ -173,6 +444,12 @@ public class PathFinder {
 		private float _heuristic;
 		/* The search depth of this node */
 		private int _depth;
+		/* open list bookkeeping: position in the heap and insertion order */
+		private int _heapIndex;
+		private long _insertion;
+		/* the search generation in which this node was opened / closed */
+		private int _openGeneration;
+		private int _closedGeneration;
 
 		/**
 		 * Creates a new node
@@ -206,6 +483,22 @@ public class PathFinder {
 			return _parent;
 		}
 
+		/**
+		 * Determines if the node is in the open list of the current search
+		 * @return true if open, false if not
+		 */
+		public boolean isOpen() {
+			return _openGeneration == _generation;
+		}
+
+		/**
+		 * Determines if the node is in the closed list of the current search
+		 * @return true if closed, false if not
+		 */
+		public boolean isClosed() {
+			return _closedGeneration == _generation;
+		}
+
 		/**
 		 * @see Comparable#compareTo(Object)
 		 */
@@ -218,8 +511,11 @@ public class PathFinder {
 				return -1;
 			} else if (f > of) {
 				return 1;
+			} else if (_heuristic != other._heuristic) {
+				// the node that is closer to the target (deeper in the search) first
+				return _heuristic < other._heuristic ? -1 : 1;
 			} else {
-				return 0;
+				return Long.compare(_insertion, other._insertion);
 			}
 		}
 
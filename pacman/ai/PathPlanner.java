@@ -0,0 +1,43 @@
+package pacman.ai;
+
+import java.awt.Point;
+
+import pacman.model.ControllableObject;
+import pacman.model.Map;
+
+/**
+ *  Represents an AI module that plans paths for controllable objects (i.e. monsters) on the game map
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public interface PathPlanner {
+	/**
+	 * Find the shortest path from the source location to the target location (avoiding blockages).
+	 * @param object The object that will be moving along the path.
+	 * @param source The source coordinates
+	 * @param target The target coordinates
+	 * @return The shortest path found from start to end, or null if no path can be found.
+	 */
+	public Path findPath(ControllableObject object, Point source, Point target);
+
+	/**
+	 * Find the shortest path from the source location to the target location, and store it in the given path.
+	 * This version doesn't allocate, so it can be used on every game tick.
+	 * @param object The object that will be moving along the path.
+	 * @param sx source x coordinate
+	 * @param sy source y coordinate
+	 * @param tx target x coordinate
+	 * @param ty target y coordinate
+	 * @param path The path to be filled (its previous steps are removed)
+	 * @return true if a path was found, false if no path can be found (the path is left empty).
+	 */
+	public boolean findPath(ControllableObject object, int sx, int sy, int tx, int ty, Path path);
+
+	/**
+	 * Create a path planner of the same kind and settings for the given map (i.e. the map of a game's simulation).
+	 * The planner has its own search state, unless this planner is thread safe (then it may be returned itself).
+	 * @param map The map to be searched (a copy of this planner's map)
+	 * @return path planner
+	 */
+	public PathPlanner copyFor(Map map);
+}
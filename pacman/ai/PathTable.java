@@ -0,0 +1,298 @@
+package pacman.ai;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import pacman.model.ControllableObject;
+import pacman.model.Direction;
+import pacman.model.Map;
+
+/**
+ *  PathTable answers path queries without any search, using all-pairs next step tables.
+ *  The table runs BFS from every walkable cell once (per map, through the board edges & portals), and stores for each pair of cells
+ *  the distance between them and the direction of the first step, packed in one short.
+ *  Only the cage gates are passable for some objects and blocked for others, so the table keeps
+ *  a separate layer for every combination of gates states, built on the first query that needs it.
+ *  A layer is built again on the first query after the map's neighbours changed (see {@link Map#getChangesCount()}).
+ *  The table is thread safe, so game engines that play on the same map can share it.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class PathTable implements PathPlanner {
+	/* maximum walkable cells in a single layer (the distance must fit in the packed entry) */
+	public static final int MAX_CELLS = 4096;
+	/* packed entry: distance << DIRECTION_BITS | direction ordinal */
+	private static final int DIRECTION_BITS = 3;
+	private static final int DIRECTION_MASK = (1 << DIRECTION_BITS) - 1;
+	private static final short UNREACHABLE = -1;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	/* The map for searching */
+	private Map _map;
+	private int _width;
+	private int _height;
+	/* cells which their passability depends on the moving object (cage gates) */
+	private int[] _gateCells;
+	/* layers for each combination of gates states */
+	private ConcurrentHashMap<Long, Layer> _layers = new ConcurrentHashMap<Long, Layer>();
+
+	/**
+	 * Creates a new path table for the given map
+	 * @param map The map to be searched
+	 * @throws IllegalArgumentException if the map has too many walkable cells (see {@link #fits(Map)})
+	 */
+	public PathTable(Map map) {
+		if (!fits(map))
+			throw new IllegalArgumentException("Too many walkable cells for a path table: " + getWalkableCells(map));
+
+		_map = map;
+		_width = map.getGameDimension().width;
+		_height = map.getGameDimension().height;
+
+		// find the gates (code -1 in the collision map)
+		int gates = 0;
+		int[][] codes = map.getCollisionMap();
+		for (int i = 0; i < _height; i++) {
+			for (int j = 0; j < _width; j++) {
+				if (codes[i][j] == -1)
+					gates++;
+			}
+		}
+
+		if (gates > Long.SIZE)
+			throw new IllegalArgumentException("Too many cage gates in the map: " + gates);
+
+		_gateCells = new int[gates];
+		gates = 0;
+		for (int i = 0; i < _height; i++) {
+			for (int j = 0; j < _width; j++) {
+				if (codes[i][j] == -1)
+					_gateCells[gates++] = i * _width + j;
+			}
+		}
+	}
+
+	/**
+	 * Determines if a path table can be built for the given map (every layer has at most {@link #MAX_CELLS} walkable cells)
+	 * @param map game map
+	 * @return true if it fits
+	 */
+	public static boolean fits(Map map) {
+		return getWalkableCells(map) <= MAX_CELLS;
+	}
+
+	/**
+	 * Get the walkable cells of the biggest layer- the cells that the free monsters can enter (every cell but the walls)
+	 */
+	private static int getWalkableCells(Map map) {
+		int cells = map.getGameDimension().width * map.getGameDimension().height, walkable = 0;
+		for (int cell = 0; cell < cells; cell++) {
+			if (map.isPassable(Map.MONSTER_LAYER, cell))
+				walkable++;
+		}
+
+		return walkable;
+	}
+
+	/**
+	 * A path table is thread safe, so it's shared with the maps of the same layout
+	 */
+	@Override
+	public PathPlanner copyFor(Map map) {
+		return map.getLayoutHash() == _map.getLayoutHash() ? this : new PathTable(map);
+	}
+
+	@Override
+	public Path findPath(ControllableObject object, Point source, Point target) {
+		Path path = new Path();
+		return findPath(object, source.x, source.y, target.x, target.y, path) ? path : null;
+	}
+
+	@Override
+	public boolean findPath(ControllableObject object, int sx, int sy, int tx, int ty, Path path) {
+		path.clear();
+		Layer layer = getLayer(object);
+		int distance = layer.getDistance(sx, sy, tx, ty);
+
+		// blocked/unreachable target, or already there
+		if (distance <= 0)
+			return false;
+
+		// walk from the target back to the source (the next step from the target towards the source)
+		// and prepend every step, so the path is ordered from the source to the target
+		int x = tx, y = ty;
+		for (int i = 0; i < distance; i++) {
+			path.prependStep(x, y);
+			int next = _map.getNeighbour(x, y, layer.getNextDirection(x, y, sx, sy));
+			x = next % _width;
+			y = next / _width;
+		}
+		path.prependStep(sx, sy);
+
+		return true;
+	}
+
+	/**
+	 * Get the direction of the first step in the shortest path from the source to the target
+	 * @param object The object that will be moving
+	 * @param sx source x coordinate
+	 * @param sy source y coordinate
+	 * @param tx target x coordinate
+	 * @param ty target y coordinate
+	 * @return the next direction, or NONE if the target cannot be reached (or already there)
+	 */
+	public Direction getNextDirection(ControllableObject object, int sx, int sy, int tx, int ty) {
+		return getLayer(object).getNextDirection(sx, sy, tx, ty);
+	}
+
+	/**
+	 * Get the distance (in steps) of the shortest path between the source and the target
+	 * @param object The object that will be moving
+	 * @param sx source x coordinate
+	 * @param sy source y coordinate
+	 * @param tx target x coordinate
+	 * @param ty target y coordinate
+	 * @return the distance, or -1 if the target cannot be reached
+	 */
+	public int getDistance(ControllableObject object, int sx, int sy, int tx, int ty) {
+		return getLayer(object).getDistance(sx, sy, tx, ty);
+	}
+
+	/**
+	 * Get the layer that matches the gates passability of the given object (builds it on the first use, and after the map changed)
+	 * @param object moving object
+	 * @return table layer
+	 */
+	private Layer getLayer(ControllableObject object) {
+		long key = 0;
+		for (int i = 0; i < _gateCells.length; i++) {
+			if (_map.canMove(object, _gateCells[i] % _width, _gateCells[i] / _width))
+				key |= 1L << i;
+		}
+
+		int changes = _map.getChangesCount();
+		Layer layer = _layers.get(key);
+		if (layer == null || layer._changes != changes) {
+			synchronized (this) {
+				layer = _layers.get(key);
+				if (layer == null || layer._changes != changes) {
+					layer = new Layer(object, changes);
+					_layers.put(key, layer);
+				}
+			}
+		}
+
+		return layer;
+	}
+
+	/**
+	 *  All-pairs table for one passability configuration
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class Layer {
+		/* index of each map cell in the table (-1 if the cell is blocked) */
+		private int[] _cellIndex;
+		private int _cells;
+		/* packed entries, the row is the target and the column is the source */
+		private short[] _entries;
+		/* the map changes count when the layer was built */
+		private int _changes;
+
+		/**
+		 * Build the layer using BFS from every walkable cell
+		 * @param object moving object, determines the passability of each cell
+		 * @param changes the current map changes count
+		 */
+		public Layer(ControllableObject object, int changes) {
+			_changes = changes;
+			_cellIndex = new int[_width * _height];
+			int[] cellPosition = new int[_width * _height];
+
+			for (int i = 0; i < _height; i++) {
+				for (int j = 0; j < _width; j++) {
+					if (_map.canMove(object, j, i)) {
+						cellPosition[_cells] = i * _width + j;
+						_cellIndex[i * _width + j] = _cells++;
+					} else {
+						_cellIndex[i * _width + j] = -1;
+					}
+				}
+			}
+
+			if (_cells > MAX_CELLS)
+				throw new IllegalArgumentException("Too many walkable cells for a path table: " + _cells);
+
+			_entries = new short[_cells * _cells];
+			Arrays.fill(_entries, UNREACHABLE);
+
+			// BFS from each target. every discovered source gets the direction towards the cell it was discovered from
+			int[] queue = new int[_cells];
+			for (int target = 0; target < _cells; target++) {
+				int row = target * _cells;
+				int head = 0, tail = 0;
+				queue[tail++] = cellPosition[target];
+				_entries[row + target] = (short)Direction.NONE.ordinal();
+
+				while (head < tail) {
+					int current = queue[head++];
+					int x = current % _width, y = current / _width;
+					int distance = (_entries[row + _cellIndex[current]] >> DIRECTION_BITS) + 1;
+
+					// the neighbours through the board edges & portals, a neighbour steps back in the opposite direction
+					tail = visit(row, queue, tail, _map.getNeighbour(x, y, Direction.LEFT), Direction.RIGHT, distance);
+					tail = visit(row, queue, tail, _map.getNeighbour(x, y, Direction.UP), Direction.DOWN, distance);
+					tail = visit(row, queue, tail, _map.getNeighbour(x, y, Direction.DOWN), Direction.UP, distance);
+					tail = visit(row, queue, tail, _map.getNeighbour(x, y, Direction.RIGHT), Direction.LEFT, distance);
+				}
+			}
+		}
+
+		/**
+		 * Visit a neighbour during the BFS, and add it to the queue if it wasn't discovered yet
+		 * @return the new tail of the queue
+		 */
+		private int visit(int row, int[] queue, int tail, int cell, Direction towards, int distance) {
+			if (cell < 0)
+				return tail;
+
+			int index = _cellIndex[cell];
+			if (index < 0 || _entries[row + index] != UNREACHABLE)
+				return tail;
+
+			_entries[row + index] = (short)((distance << DIRECTION_BITS) | towards.ordinal());
+			queue[tail] = cell;
+			return tail + 1;
+		}
+
+		/**
+		 * Get the distance between two cells
+		 * @return the distance, or -1 if the target cannot be reached
+		 */
+		public int getDistance(int sx, int sy, int tx, int ty) {
+			short entry = getEntry(sx, sy, tx, ty);
+			return entry == UNREACHABLE ? -1 : entry >> DIRECTION_BITS;
+		}
+
+		/**
+		 * Get the direction of the first step from the source towards the target
+		 * @return the direction, or NONE if the target cannot be reached (or already there)
+		 */
+		public Direction getNextDirection(int sx, int sy, int tx, int ty) {
+			short entry = getEntry(sx, sy, tx, ty);
+			return entry == UNREACHABLE ? Direction.NONE : DIRECTIONS[entry & DIRECTION_MASK];
+		}
+
+		private short getEntry(int sx, int sy, int tx, int ty) {
+			if (sx < 0 || sx >= _width || sy < 0 || sy >= _height || tx < 0 || tx >= _width || ty < 0 || ty >= _height)
+				return UNREACHABLE;
+
+			int source = _cellIndex[sy * _width + sx];
+			int target = _cellIndex[ty * _width + tx];
+			if (source < 0 || target < 0)
+				return UNREACHABLE;
+
+			return _entries[target * _cells + source];
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package pacman.ai;
+
+import pacman.model.ControllableObject;
+import pacman.model.Map;
+
+/**
+ *  Represents an AI module that takes path requests and plans them later (in the background, or a bit on every game step),
+ *  so the game step never waits for a whole search. Every object has one request at a time, and its path is taken
+ *  on one of the next game steps.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public interface PlannerService {
+	/**
+	 * Request a path for the given object (doesn't wait for the search).
+	 * A request for the target that the object already waits for is ignored, and a request for another target replaces it.
+	 * @param object the object that will be moving along the path
+	 * @param sx source x coordinate
+	 * @param sy source y coordinate
+	 * @param tx target x coordinate
+	 * @param ty target y coordinate
+	 */
+	public void request(ControllableObject object, int sx, int sy, int tx, int ty);
+
+	/**
+	 * Plan the requests on the game step (called once on every game step, before the paths are taken)
+	 * @param focusX x coordinate of the most important place in the game (i.e. pacman), the requests of the closest objects are planned first
+	 * @param focusY y coordinate of the most important place in the game
+	 */
+	public void update(int focusX, int focusY);
+
+	/**
+	 * Determines if the object waits for a path
+	 * @param object controllable object
+	 * @return true if there's a request for the object that wasn't taken yet
+	 */
+	public boolean isPending(ControllableObject object);
+
+	/**
+	 * Determines if a path of the object is ready
+	 * @param object controllable object
+	 * @return true if the path can be taken
+	 */
+	public boolean hasResult(ControllableObject object);
+
+	/**
+	 * Take the planned path of the object. The path belongs to the service, and it stays valid until the path after the next one
+	 * is taken (the object can follow it until then).
+	 * @param object controllable object
+	 * @return the planned path, or null if no path can be found
+	 */
+	public Path takeResult(ControllableObject object);
+
+	/**
+	 * Cancel the request of the object (its path won't be taken)
+	 * @param object controllable object
+	 */
+	public void cancel(ControllableObject object);
+
+	/**
+	 * Cancel all the requests
+	 */
+	public void cancelAll();
+
+	/**
+	 * Stop planning (and release the service's threads, if any)
+	 */
+	public void stop();
+
+	/**
+	 * Create a planner service of the same kind and settings for the given map (i.e. the map of a game's simulation),
+	 * with path planners of its own (see {@link PathPlanner#copyFor(Map)}) and without any request
+	 * @param map game map (a copy of this service's map)
+	 * @return planner service
+	 */
+	public PlannerService copyFor(Map map);
+}
@@ -0,0 +1,335 @@
+package pacman.ai;
+
+import java.util.Arrays;
+
+import pacman.model.Direction;
+import pacman.model.Map;
+
+/**
+ *  Wavefront- a bit-parallel BFS over the passable cells of a map.
+ *  Every row of the board is a run of longs (a bit for every cell), and a BFS layer is expanded for 64 cells at once:
+ *  the frontier is shifted left & right inside its row, and or-ed with the rows above and below it, then masked by
+ *  the passable cells that weren't visited yet. The cells on the board edges lead to the other side of the board
+ *  (or through the map's portals), so they're expanded one by one.
+ *  Used for reachability, distance layers & region queries (for the AI and for validating maps).
+ *  A wavefront isn't thread safe.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class Wavefront {
+	/* map for the neighbours of the board edges (null for the wrapped board) */
+	private Map _map;
+	private int _width;
+	private int _height;
+	private int _rowWords;
+	/* bitboards: passable cells, visited cells, the current frontier and the next one (zero outside of its rows) */
+	private long[] _passable;
+	private long[] _visited;
+	private long[] _frontier;
+	private long[] _next;
+	/* rows of the current frontier (first > last if the frontier is empty) */
+	private int _firstRow;
+	private int _lastRow;
+	/* rows of the next frontier, while it's expanded */
+	private int _nextFirstRow;
+	private int _nextLastRow;
+	/* the current layer (the distance of the frontier from the source) */
+	private int _layer;
+
+	/**
+	 * Creates a wavefront for the cells that the movers of the given layer can enter
+	 * @param map game map
+	 * @param layer passability layer (see {@link Map#PACMAN_LAYER})
+	 */
+	public Wavefront(Map map, int layer) {
+		this(map.getGameDimension().width, map.getGameDimension().height);
+		_map = map;
+		for (int y = 0; y < _height; y++) {
+			for (int x = 0; x < _width; x++) {
+				if (map.isPassable(layer, y * _width + x))
+					_passable[y * _rowWords + (x >> 6)] |= 1L << x;
+			}
+		}
+	}
+
+	/**
+	 * Creates a wavefront for a codes map (i.e. for validating a map before it's created), the walls (code 1) are blocked
+	 * and the board edges wrap around
+	 * @param codes codes map, as given to the map
+	 */
+	public Wavefront(int[][] codes) {
+		this(codes[0].length, codes.length);
+		for (int y = 0; y < _height; y++) {
+			for (int x = 0; x < _width; x++) {
+				if (codes[y][x] != 1)
+					_passable[y * _rowWords + (x >> 6)] |= 1L << x;
+			}
+		}
+	}
+
+	private Wavefront(int width, int height) {
+		_width = width;
+		_height = height;
+		_rowWords = (width + 63) >> 6;
+		_passable = new long[height * _rowWords];
+		_visited = new long[_passable.length];
+		_frontier = new long[_passable.length];
+		_next = new long[_passable.length];
+		_firstRow = Integer.MAX_VALUE;
+		_lastRow = -1;
+	}
+
+	/**
+	 * Start a new search from the given cell (the frontier is the cell itself, in layer 0)
+	 * @param x source x coordinate
+	 * @param y source y coordinate
+	 * @return false if the cell isn't passable (the frontier is empty)
+	 */
+	public boolean start(int x, int y) {
+		Arrays.fill(_visited, 0);
+		clearFrontier();
+		_layer = 0;
+		return addSource(x, y);
+	}
+
+	/**
+	 * Add a cell to the current frontier (for a search from many sources)
+	 * @param x cell x coordinate
+	 * @param y cell y coordinate
+	 * @return false if the cell isn't passable or was already visited
+	 */
+	public boolean addSource(int x, int y) {
+		int word = y * _rowWords + (x >> 6);
+		long bit = 1L << x;
+		if ((_passable[word] & bit) == 0 || (_visited[word] & bit) != 0)
+			return false;
+
+		_visited[word] |= bit;
+		_frontier[word] |= bit;
+		_firstRow = Math.min(_firstRow, y);
+		_lastRow = Math.max(_lastRow, y);
+		return true;
+	}
+
+	/**
+	 * Expand the frontier by one BFS layer- the frontier becomes the passable cells next to it that weren't visited yet
+	 * @return the number of cells in the new frontier (0 when the search is done)
+	 */
+	public int expand() {
+		if (_firstRow > _lastRow)
+			return 0;
+
+		long[] frontier = _frontier, next = _next, passable = _passable, visited = _visited;
+		int words = _rowWords;
+		int firstRow = Math.max(0, _firstRow - 1), lastRow = Math.min(_height - 1, _lastRow + 1);
+		_nextFirstRow = Integer.MAX_VALUE;
+		_nextLastRow = -1;
+
+		// the cells inside the board: 64 cells at once
+		for (int y = firstRow; y <= lastRow; y++) {
+			int row = y * words;
+			boolean any = false;
+			for (int k = 0; k < words; k++) {
+				int i = row + k;
+				long f = frontier[i];
+				long spread = (f << 1) | (f >>> 1);
+				if (k > 0)
+					spread |= frontier[i - 1] >>> 63;
+				if (k < words - 1)
+					spread |= frontier[i + 1] << 63;
+				if (y > 0)
+					spread |= frontier[i - words];
+				if (y < _height - 1)
+					spread |= frontier[i + words];
+
+				long cells = spread & passable[i] & ~visited[i];
+				next[i] = cells;
+				any |= cells != 0;
+			}
+
+			if (any) {
+				_nextFirstRow = Math.min(_nextFirstRow, y);
+				_nextLastRow = y;
+			}
+		}
+
+		// the cells on the board edges lead to the other side of the board (or through a portal)
+		int lastWord = (_width - 1) >> 6;
+		long lastBit = 1L << (_width - 1);
+		for (int y = _firstRow; y <= _lastRow; y++) {
+			int row = y * words;
+			if ((frontier[row] & 1L) != 0)
+				expandEdge(0, y, Direction.LEFT);
+			if ((frontier[row + lastWord] & lastBit) != 0)
+				expandEdge(_width - 1, y, Direction.RIGHT);
+		}
+		expandEdgeRow(0, Direction.UP);
+		expandEdgeRow(_height - 1, Direction.DOWN);
+
+		// the new cells are visited, the old frontier is cleared and becomes the next one
+		int count = 0;
+		if (_nextFirstRow <= _nextLastRow) {
+			for (int i = _nextFirstRow * words; i < (_nextLastRow + 1) * words; i++) {
+				visited[i] |= next[i];
+				count += Long.bitCount(next[i]);
+			}
+		}
+
+		Arrays.fill(frontier, _firstRow * words, (_lastRow + 1) * words, 0);
+		_frontier = next;
+		_next = frontier;
+		_firstRow = count > 0 ? _nextFirstRow : Integer.MAX_VALUE;
+		_lastRow = count > 0 ? _nextLastRow : -1;
+		_layer++;
+		return count;
+	}
+
+	/**
+	 * Expand the frontier cells of an edge row (the first or the last row) through the board edge
+	 */
+	private void expandEdgeRow(int y, Direction exit) {
+		if (y < _firstRow || y > _lastRow)
+			return;
+
+		int row = y * _rowWords;
+		for (int k = 0; k < _rowWords; k++) {
+			long f = _frontier[row + k];
+			while (f != 0) {
+				int x = (k << 6) + Long.numberOfTrailingZeros(f);
+				f &= f - 1;
+				expandEdge(x, y, exit);
+			}
+		}
+	}
+
+	/**
+	 * Add the neighbour of an edge cell in the direction that leaves the board to the next frontier
+	 */
+	private void expandEdge(int x, int y, Direction exit) {
+		int neighbour;
+		if (_map != null) {
+			neighbour = _map.getNeighbour(x, y, exit);
+			if (neighbour < 0)
+				return;
+		} else {
+			int nx = exit == Direction.LEFT ? _width - 1 : exit == Direction.RIGHT ? 0 : x;
+			int ny = exit == Direction.UP ? _height - 1 : exit == Direction.DOWN ? 0 : y;
+			neighbour = ny * _width + nx;
+		}
+
+		int nx = neighbour % _width, ny = neighbour / _width;
+		int word = ny * _rowWords + (nx >> 6);
+		long bit = 1L << nx;
+		if ((_passable[word] & bit) == 0 || (_visited[word] & bit) != 0)
+			return;
+
+		_next[word] |= bit;
+		_nextFirstRow = Math.min(_nextFirstRow, ny);
+		_nextLastRow = Math.max(_nextLastRow, ny);
+	}
+
+	private void clearFrontier() {
+		if (_firstRow <= _lastRow)
+			Arrays.fill(_frontier, _firstRow * _rowWords, (_lastRow + 1) * _rowWords, 0);
+		_firstRow = Integer.MAX_VALUE;
+		_lastRow = -1;
+	}
+
+	/**
+	 * Get the current layer- the distance of the current frontier from the sources
+	 * @return layer
+	 */
+	public int getLayer() {
+		return _layer;
+	}
+
+	/**
+	 * Determines if a cell was reached by the current search
+	 * @param x cell x coordinate
+	 * @param y cell y coordinate
+	 * @return true if the cell was visited
+	 */
+	public boolean isReached(int x, int y) {
+		return (_visited[y * _rowWords + (x >> 6)] & (1L << x)) != 0;
+	}
+
+	/**
+	 * Determines if a cell is in the current frontier
+	 * @param x cell x coordinate
+	 * @param y cell y coordinate
+	 * @return true if the cell is in the frontier
+	 */
+	public boolean isFrontier(int x, int y) {
+		return (_frontier[y * _rowWords + (x >> 6)] & (1L << x)) != 0;
+	}
+
+	/**
+	 * Count the cells that can be reached from the given cell
+	 * @param x source x coordinate
+	 * @param y source y coordinate
+	 * @return reachable cells (including the source), 0 if the source isn't passable
+	 */
+	public int countReachable(int x, int y) {
+		if (!start(x, y))
+			return 0;
+
+		int count = 1;
+		for (int layer = expand(); layer > 0; layer = expand()) {
+			count += layer;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Compute the BFS distance of every cell from the given cell
+	 * @param x source x coordinate
+	 * @param y source y coordinate
+	 * @param distances distance of every cell (y * width + x) to be filled, -1 for the cells that can't be reached
+	 * @return the number of reachable cells
+	 */
+	public int fillDistances(int x, int y, int[] distances) {
+		Arrays.fill(distances, 0, _width * _height, -1);
+		if (!start(x, y))
+			return 0;
+
+		distances[y * _width + x] = 0;
+		int count = 1;
+		for (int layer = expand(); layer > 0; layer = expand()) {
+			count += layer;
+			for (int row = _firstRow; row <= _lastRow; row++) {
+				for (int k = 0; k < _rowWords; k++) {
+					long f = _frontier[row * _rowWords + k];
+					while (f != 0) {
+						distances[row * _width + (k << 6) + Long.numberOfTrailingZeros(f)] = _layer;
+						f &= f - 1;
+					}
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Count the connected regions of passable cells
+	 * @return number of regions
+	 */
+	public int countRegions() {
+		long[] assigned = new long[_passable.length];
+		int regions = 0;
+		for (int i = 0; i < _passable.length; i++) {
+			long free;
+			while ((free = _passable[i] & ~assigned[i]) != 0) {
+				int y = i / _rowWords, x = ((i % _rowWords) << 6) + Long.numberOfTrailingZeros(free);
+				countReachable(x, y);
+				for (int j = 0; j < _visited.length; j++) {
+					assigned[j] |= _visited[j];
+				}
+				regions++;
+			}
+		}
+
+		return regions;
+	}
+}
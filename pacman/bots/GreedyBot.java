@@ -0,0 +1,115 @@
+package pacman.bots;
+
+import pacman.controllers.GameInfo;
+import pacman.controllers.PacmanController;
+import pacman.model.Direction;
+
+/**
+ *  Greedy bot- goes to the nearest pill (or monster in fear) along the shortest path that keeps away from the monsters:
+ *  the cells near the monsters that aren't in fear are avoided, and if there is no safe path pacman runs to the neighbour cell
+ *  farthest from them. Every decision is one BFS from the monsters (within the danger distance) and one BFS from pacman,
+ *  without any allocation after the first decision.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GreedyBot implements PacmanController {
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT };
+	/* cells within this distance from a monster are avoided */
+	private static final int DANGER_DISTANCE = 3;
+	private int _cells;
+	/* search stamps- a cell was reached by the current search if its stamp is the search number */
+	private int _search;
+	private int[] _dangerStamp = new int[0];
+	private int[] _dangerDistance = new int[0];
+	private int[] _preyStamp = new int[0];
+	private int[] _visitedStamp = new int[0];
+	/* the first direction (index) from pacman towards every reached cell */
+	private int[] _first = new int[0];
+	private int[] _queue = new int[0];
+
+	@Override
+	public Direction decide(GameInfo game, long nanos) {
+		allocate(game.getWidth() * game.getHeight());
+		_search++;
+		int pacman = game.getPacmanCell();
+
+		// the cells near the dangerous monsters, and the monsters that pacman can eat
+		int head = 0, tail = 0;
+		for (int i = 0; i < game.getMonstersCount(); i++) {
+			int cell = game.getMonsterCell(i);
+			if (game.isMonsterInFear(i)) {
+				_preyStamp[cell] = _search;
+			} else if (!game.isMonsterTrapped(i) && _dangerStamp[cell] != _search) {
+				_dangerStamp[cell] = _search;
+				_dangerDistance[cell] = 0;
+				_queue[tail++] = cell;
+			}
+		}
+		while (head < tail) {
+			int cell = _queue[head++];
+			if (_dangerDistance[cell] == DANGER_DISTANCE)
+				continue;
+
+			for (int d = 0; d < DIRECTIONS.length; d++) {
+				int next = (game.getExits(cell) & (1 << d)) != 0 ? game.getNeighbour(cell, DIRECTIONS[d]) : -1;
+				if (next >= 0 && _dangerStamp[next] != _search) {
+					_dangerStamp[next] = _search;
+					_dangerDistance[next] = _dangerDistance[cell] + 1;
+					_queue[tail++] = next;
+				}
+			}
+		}
+
+		// BFS from pacman over the safe cells, to the nearest pill or prey
+		head = tail = 0;
+		_visitedStamp[pacman] = _search;
+		_queue[tail++] = pacman;
+		while (head < tail) {
+			int cell = _queue[head++];
+			if (cell != pacman && (game.hasPill(cell) || _preyStamp[cell] == _search))
+				return DIRECTIONS[_first[cell]];
+
+			for (int d = 0; d < DIRECTIONS.length; d++) {
+				int next = (game.getExits(cell) & (1 << d)) != 0 ? game.getNeighbour(cell, DIRECTIONS[d]) : -1;
+				if (next >= 0 && _visitedStamp[next] != _search && _dangerStamp[next] != _search) {
+					_visitedStamp[next] = _search;
+					_first[next] = cell == pacman ? d : _first[cell];
+					_queue[tail++] = next;
+				}
+			}
+		}
+
+		// no safe target- run to the neighbour farthest from the monsters
+		int best = -1, bestDistance = -1;
+		for (int d = 0; d < DIRECTIONS.length; d++) {
+			int next = (game.getExits(pacman) & (1 << d)) != 0 ? game.getNeighbour(pacman, DIRECTIONS[d]) : -1;
+			if (next < 0)
+				continue;
+
+			int distance = _dangerStamp[next] == _search ? _dangerDistance[next] : DANGER_DISTANCE + 1;
+			if (distance > bestDistance) {
+				best = d;
+				bestDistance = distance;
+			}
+		}
+
+		return best >= 0 ? DIRECTIONS[best] : Direction.NONE;
+	}
+
+	/**
+	 * Allocate the search arrays for the given number of cells (only when the board is larger than the previous one)
+	 */
+	private void allocate(int cells) {
+		if (cells <= _cells)
+			return;
+
+		_cells = cells;
+		_search = 0;
+		_dangerStamp = new int[cells];
+		_dangerDistance = new int[cells];
+		_preyStamp = new int[cells];
+		_visitedStamp = new int[cells];
+		_first = new int[cells];
+		_queue = new int[cells];
+	}
+}
@@ -0,0 +1,484 @@
+package pacman.bots;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import pacman.controllers.GameEngine;
+import pacman.controllers.GameInfo;
+import pacman.controllers.GameState;
+import pacman.controllers.PacmanController;
+import pacman.model.Direction;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+import pacman.model.Pacman;
+
+/**
+ *  Monte Carlo Tree Search bot- simulates the possible futures of the game on headless engines that are restored to the current
+ *  game state (see {@link GameEngine#restore(GameState)}), and goes in the direction that the most simulations chose.
+ *  Every move of the tree is pacman's direction for its next cell (UCT selection), and a simulation that leaves the tree plays
+ *  random moves (mostly forward) for a few more cells. A simulation is worth 0 if pacman died, and more the more points it gained.
+ *  The simulations use their own random numbers (the monsters' random choices aren't known in advance).
+ *  The positions are found in a transposition table by their Zobrist hash (the eaten pills, pacman & the monsters cells),
+ *  so a position that is reached by different moves has one node.
+ *  The search is root parallel: every thread builds its own tree (and has its own engine), and the visits of the root moves
+ *  of all the trees are added up. The trees are kept in preallocated arrays, so a search doesn't allocate any node.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class MctsBot implements PacmanController {
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT };
+	/* UCT exploration constant */
+	private static final double EXPLORATION = 0.7;
+	/* nodes of every tree, and the slots of its transposition table */
+	private static final int MAX_NODES = 1 << 15;
+	private static final int TABLE_SLOTS = MAX_NODES * 2;
+	/* depth of the tree moves, and the random moves after them (in cells) */
+	private static final int MAX_DEPTH = 32;
+	private static final int ROLLOUT_CELLS = 12;
+	/* maximum ticks of one move (pacman reaches the next cell within a few ticks, unless it's dead and waits for the next match) */
+	private static final int MOVE_TICKS = 2 * GameEngine.FPS;
+	/* the points that make a simulation worth the most */
+	private static final double REWARD_SCALE = 30;
+	private static final long ZOBRIST_SEED = 0x5eed;
+	private int _threads;
+	private long _searchNanos;
+	/* simulations of every thread in a decision */
+	private int _maxRollouts = Integer.MAX_VALUE;
+	/* the searches (one for every thread), and the threads that run them (null for one thread) */
+	private Search[] _searches;
+	private List<Search> _tasks;
+	private ExecutorService _executor;
+	/* the current game state, restored by every simulation */
+	private GameState _root;
+	private ZobristKeys _keys;
+	/* decides when the search didn't finish any simulation in time */
+	private GreedyBot _fallback = new GreedyBot();
+	private GameRandom _random;
+	/* measuring */
+	private long _decisions;
+	private long _rollouts;
+	private long _searchTime;
+
+	/**
+	 * Creates a new bot
+	 * @param threads number of search threads
+	 * @param searchNanos search time of every decision in nanoseconds (less if the decision has a smaller budget)
+	 */
+	public MctsBot(int threads, long searchNanos) {
+		this(threads, searchNanos, System.nanoTime());
+	}
+
+	/**
+	 * Creates a new bot with a seed for the random numbers of its simulations
+	 * @param threads number of search threads
+	 * @param searchNanos search time of every decision in nanoseconds (less if the decision has a smaller budget)
+	 * @param seed seed of the simulations random numbers
+	 */
+	public MctsBot(int threads, long searchNanos, long seed) {
+		if (threads <= 0)
+			throw new IllegalArgumentException("The bot needs a thread at least: " + threads);
+
+		_threads = threads;
+		_searchNanos = searchNanos;
+		_random = new GameRandom(seed);
+	}
+
+	/**
+	 * Limit the simulations of every thread in a decision. A bot with one thread whose searches end by this limit (before
+	 * their time is over) decides the same in the same game, for the same seed.
+	 * @param rollouts maximum simulations of every thread in a decision
+	 */
+	public void setMaxRollouts(int rollouts) {
+		if (rollouts > 0)
+			_maxRollouts = rollouts;
+	}
+
+	@Override
+	public Direction decide(GameInfo game, long nanos) {
+		long start = System.nanoTime();
+		prepare(game);
+
+		// leave a quarter of the budget for everything but the simulations
+		long deadline = start + (nanos == Long.MAX_VALUE ? _searchNanos : Math.min(_searchNanos, nanos - nanos / 4));
+		game.snapshot(_root);
+		for (int i = 0; i < _searches.length; i++) {
+			_searches[i].prepare(deadline, _random.nextLong());
+		}
+
+		if (_executor == null) {
+			_searches[0].call();
+		} else {
+			try {
+				List<Future<Integer>> results = _executor.invokeAll(_tasks);
+				for (int i = 0; i < results.size(); i++) {
+					results.get(i).get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				e.printStackTrace();
+			}
+		}
+
+		// the root move that the simulations of all the trees visited the most
+		int best = -1;
+		long bestVisits = 0;
+		double bestValue = 0;
+		for (int action = 0; action < DIRECTIONS.length; action++) {
+			long visits = 0;
+			double value = 0;
+			for (int i = 0; i < _searches.length; i++) {
+				visits += _searches[i].getRootVisits(action);
+				value += _searches[i].getRootValue(action);
+			}
+
+			if (visits > bestVisits || (visits == bestVisits && visits > 0 && value > bestValue)) {
+				best = action;
+				bestVisits = visits;
+				bestValue = value;
+			}
+		}
+
+		for (int i = 0; i < _searches.length; i++) {
+			_rollouts += _searches[i].getRollouts();
+		}
+		_decisions++;
+		_searchTime += System.nanoTime() - start;
+		return best >= 0 ? DIRECTIONS[best] : _fallback.decide(game, nanos);
+	}
+
+	/**
+	 * Create the search threads & their engines (done by the first decision if it wasn't called before, but it takes
+	 * tens of milliseconds, so a game with a time budget for every decision should prepare the bot before it starts)
+	 * @param game the game that the bot will play
+	 */
+	public void prepare(GameInfo game) {
+		if (_searches != null)
+			return;
+
+		_keys = new ZobristKeys(game.getWidth() * game.getHeight(), ZOBRIST_SEED);
+		_searches = new Search[_threads];
+		_tasks = new ArrayList<Search>();
+		for (int i = 0; i < _threads; i++) {
+			_searches[i] = new Search(game.createSimulation());
+			_tasks.add(_searches[i]);
+		}
+		_root = _searches[0]._engine.createState();
+
+		if (_threads > 1) {
+			_executor = Executors.newFixedThreadPool(_threads, new ThreadFactory() {
+				private int _count;
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "MCTS Search " + (++_count));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stop the search threads
+	 */
+	public void stop() {
+		if (_executor != null)
+			_executor.shutdownNow();
+	}
+
+	/**
+	 * Get the number of decisions
+	 * @return decisions
+	 */
+	public long getDecisionsCount() {
+		return _decisions;
+	}
+
+	/**
+	 * Get the number of simulations of all the decisions (of all the threads)
+	 * @return simulations
+	 */
+	public long getRolloutsCount() {
+		return _rollouts;
+	}
+
+	/**
+	 * Get the number of simulations per second of decision time
+	 * @return simulations per second
+	 */
+	public double getRolloutsPerSecond() {
+		return _searchTime == 0 ? 0 : _rollouts * 1e9 / _searchTime;
+	}
+
+	/**
+	 *  The search tree of one thread, and the engine of its simulations
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class Search implements Callable<Integer> {
+		private GameEngine _engine;
+		private Map _map;
+		private int _width;
+		private GameRandom _random = new GameRandom(0);
+		private long _deadline;
+		private int _rollouts;
+		/* the tree: the legal moves of every node (a bit for every direction index), its visits, and the visits & value of its moves */
+		private int[] _moves = new int[MAX_NODES];
+		private int[] _visits = new int[MAX_NODES];
+		private int[] _moveVisits = new int[MAX_NODES * DIRECTIONS.length];
+		private double[] _moveValue = new double[MAX_NODES * DIRECTIONS.length];
+		private int _nodes;
+		/* transposition table (open addressing): the hash & node of every slot, a slot is used if its stamp is the current search */
+		private long[] _slotHash = new long[TABLE_SLOTS];
+		private int[] _slotNode = new int[TABLE_SLOTS];
+		private int[] _slotStamp = new int[TABLE_SLOTS];
+		private int _stamp;
+		/* the nodes & moves of the current simulation */
+		private int[] _pathNodes = new int[MAX_DEPTH];
+		private int[] _pathMoves = new int[MAX_DEPTH];
+		private long[] _removedObjects;
+
+		public Search(GameEngine engine) {
+			_engine = engine;
+			_map = engine.getMap();
+			_width = _map.getGameDimension().width;
+			_removedObjects = new long[_map.getRemovedObjectsLength()];
+		}
+
+		/**
+		 * Prepare a new search (a new tree) from the root state
+		 */
+		public void prepare(long deadline, long seed) {
+			_deadline = deadline;
+			_random.setState(seed);
+			_rollouts = 0;
+			_nodes = 0;
+			_stamp++;
+			_engine.restore(_root);
+			addNode(hash());
+		}
+
+		@Override
+		public Integer call() {
+			do {
+				simulate();
+				_rollouts++;
+			} while (System.nanoTime() - _deadline < 0 && _nodes < MAX_NODES && _rollouts < _maxRollouts);
+
+			return _rollouts;
+		}
+
+		/**
+		 * One simulation: select the moves down the tree, add a node, play random moves and update the moves on the way
+		 */
+		private void simulate() {
+			_engine.restore(_root);
+			_engine.reseed(_random.nextLong());
+			int points = _engine.getPoints();
+
+			int node = 0, depth = 0;
+			boolean alive = true;
+			while (depth < MAX_DEPTH) {
+				int move = select(node);
+				if (move < 0)
+					break;
+
+				_pathNodes[depth] = node;
+				_pathMoves[depth] = move;
+				depth++;
+				alive = move(move);
+				if (!alive || _engine.isLevelCleared())
+					break;
+
+				long hash = hash();
+				int child = findNode(hash);
+				if (child < 0) {
+					if (_nodes < MAX_NODES)
+						addNode(hash);
+					break;
+				}
+				node = child;
+			}
+
+			// random moves after the tree
+			for (int i = 0; alive && i < ROLLOUT_CELLS && !_engine.isLevelCleared(); i++) {
+				alive = move(randomMove());
+			}
+
+			double value = 0;
+			if (alive)
+				value = _engine.isLevelCleared() ? 1 : 0.5 + 0.5 * Math.min(1, (_engine.getPoints() - points) / REWARD_SCALE);
+
+			for (int i = 0; i < depth; i++) {
+				int edge = _pathNodes[i] * DIRECTIONS.length + _pathMoves[i];
+				_visits[_pathNodes[i]]++;
+				_moveVisits[edge]++;
+				_moveValue[edge] += value;
+			}
+		}
+
+		/**
+		 * Select the move of a node: a random move that wasn't tried yet, otherwise the move with the best upper confidence bound
+		 * @return direction index, -1 if the node has no legal moves
+		 */
+		private int select(int node) {
+			int moves = _moves[node], base = node * DIRECTIONS.length;
+			int untried = 0;
+			for (int d = 0; d < DIRECTIONS.length; d++) {
+				if ((moves & (1 << d)) != 0 && _moveVisits[base + d] == 0)
+					untried |= 1 << d;
+			}
+			if (untried != 0)
+				return randomBit(untried);
+
+			int best = -1;
+			double bestBound = Double.NEGATIVE_INFINITY, logVisits = Math.log(_visits[node]);
+			for (int d = 0; d < DIRECTIONS.length; d++) {
+				if ((moves & (1 << d)) == 0)
+					continue;
+
+				double bound = _moveValue[base + d] / _moveVisits[base + d] + EXPLORATION * Math.sqrt(logVisits / _moveVisits[base + d]);
+				if (bound > bestBound) {
+					best = d;
+					bestBound = bound;
+				}
+			}
+
+			return best;
+		}
+
+		/**
+		 * A random legal move, forward more often than back
+		 */
+		private int randomMove() {
+			int moves = legalMoves();
+			Direction direction = _engine.getPacman().getDirection();
+			if (direction != Direction.NONE) {
+				int back = 1 << ((direction.ordinal() + 1) & 3);
+				if ((moves & ~back) != 0 && _random.nextDouble() < 0.9)
+					moves &= ~back;
+			}
+
+			return moves != 0 ? randomBit(moves) : 0;
+		}
+
+		private int randomBit(int bits) {
+			int n = (int)(_random.nextDouble() * Integer.bitCount(bits));
+			for (int d = 0; d < DIRECTIONS.length; d++) {
+				if ((bits & (1 << d)) != 0 && n-- == 0)
+					return d;
+			}
+
+			return Integer.numberOfTrailingZeros(bits);
+		}
+
+		/**
+		 * Get the legal moves of pacman: the exits of the cell that the next direction applies to-
+		 * the next cell if pacman moves (the direction changes on a cell), or its cell if it stands
+		 */
+		private int legalMoves() {
+			Pacman pacman = _engine.getPacman();
+			int x = pacman.getPosition().x, y = pacman.getPosition().y;
+			int cell = y * _width + x;
+			Direction direction = pacman.getDirection();
+			if (direction != Direction.NONE && _map.canExit(pacman, x, y, direction))
+				cell = _map.getNeighbour(x, y, direction);
+
+			return _map.getExits(Map.PACMAN_LAYER, cell);
+		}
+
+		/**
+		 * Play one move- turn pacman to the given direction, and play until it reaches another cell (or stops)
+		 * @return false if pacman died
+		 */
+		private boolean move(int move) {
+			Pacman pacman = _engine.getPacman();
+			int lives = _engine.getRemainingLives();
+			int cell = pacman.getPosition().y * _width + pacman.getPosition().x;
+			pacman.setDirection(DIRECTIONS[move]);
+
+			for (int t = 0; t < MOVE_TICKS; t++) {
+				_engine.tick();
+				if (_engine.getRemainingLives() < lives || _engine.isGameOver())
+					return false;
+
+				pacman = _engine.getPacman();
+				if (_engine.isLevelCleared() || (pacman.isStep() && (pacman.getPosition().y * _width + pacman.getPosition().x != cell
+						|| pacman.getDirection() == Direction.NONE)))
+					return true;
+			}
+
+			return true;
+		}
+
+		/**
+		 * Zobrist hash of the current position
+		 */
+		private long hash() {
+			Pacman pacman = _engine.getPacman();
+			long hash = _keys.pacman(pacman.getPosition().y * _width + pacman.getPosition().x) ^ _keys.direction(pacman.getDirection().ordinal());
+
+			_map.saveRemovedObjects(_removedObjects);
+			for (int i = 0; i < _removedObjects.length; i++) {
+				for (long removed = _removedObjects[i]; removed != 0; removed &= removed - 1) {
+					hash ^= _keys.pill((i << 6) + Long.numberOfTrailingZeros(removed));
+				}
+			}
+
+			for (int i = 0; i < _engine.getMonsters().size(); i++) {
+				hash ^= _keys.monster(i, _engine.getMonsters().get(i).getPosition().y * _width + _engine.getMonsters().get(i).getPosition().x);
+			}
+
+			return hash;
+		}
+
+		private int findNode(long hash) {
+			for (int slot = (int)(hash & (TABLE_SLOTS - 1)); _slotStamp[slot] == _stamp; slot = (slot + 1) & (TABLE_SLOTS - 1)) {
+				if (_slotHash[slot] == hash)
+					return _slotNode[slot];
+			}
+
+			return -1;
+		}
+
+		/**
+		 * Add a node for the current position
+		 */
+		private void addNode(long hash) {
+			int node = _nodes++;
+			_moves[node] = legalMoves();
+			_visits[node] = 0;
+			for (int d = 0; d < DIRECTIONS.length; d++) {
+				_moveVisits[node * DIRECTIONS.length + d] = 0;
+				_moveValue[node * DIRECTIONS.length + d] = 0;
+			}
+
+			int slot = (int)(hash & (TABLE_SLOTS - 1));
+			while (_slotStamp[slot] == _stamp) {
+				slot = (slot + 1) & (TABLE_SLOTS - 1);
+			}
+			_slotStamp[slot] = _stamp;
+			_slotHash[slot] = hash;
+			_slotNode[slot] = node;
+		}
+
+		public int getRootVisits(int move) {
+			return _moveVisits[move];
+		}
+
+		public double getRootValue(int move) {
+			return _moveValue[move];
+		}
+
+		public int getRollouts() {
+			return _rollouts;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package pacman.bots;
+
+import pacman.model.GameRandom;
+
+/**
+ *  Zobrist keys of a board- a random key for every (cell, feature) pair, so the hash of a game position is the xor of the keys
+ *  of its features (the eaten pills, pacman's cell & direction and the monsters cells), and a transposition table can find
+ *  the positions that were reached by different moves. The keys of the monsters are derived from the keys of their cells,
+ *  so a board with many monsters doesn't need a table for every monster. The keys are never changed, so they can be shared.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ZobristKeys {
+	private static final long MONSTER_GAMMA = 0x9e3779b97f4a7c15L;
+	private long[] _pills;
+	private long[] _pacman;
+	private long[] _monsters;
+	private long[] _directions;
+
+	/**
+	 * Creates the keys of a board
+	 * @param cells number of cells on the board
+	 * @param seed seed of the keys
+	 */
+	public ZobristKeys(int cells, long seed) {
+		GameRandom random = new GameRandom(seed);
+		_pills = new long[cells];
+		_pacman = new long[cells];
+		_monsters = new long[cells];
+		for (int i = 0; i < cells; i++) {
+			_pills[i] = random.nextLong();
+			_pacman[i] = random.nextLong();
+			_monsters[i] = random.nextLong();
+		}
+
+		_directions = new long[5];
+		for (int i = 0; i < _directions.length; i++) {
+			_directions[i] = random.nextLong();
+		}
+	}
+
+	/**
+	 * Get the key of an eaten pill
+	 * @param cell cell index
+	 * @return key
+	 */
+	public long pill(int cell) {
+		return _pills[cell];
+	}
+
+	/**
+	 * Get the key of pacman on a cell
+	 * @param cell cell index
+	 * @return key
+	 */
+	public long pacman(int cell) {
+		return _pacman[cell];
+	}
+
+	/**
+	 * Get the key of pacman's direction
+	 * @param ordinal direction ordinal
+	 * @return key
+	 */
+	public long direction(int ordinal) {
+		return _directions[ordinal];
+	}
+
+	/**
+	 * Get the key of a monster on a cell
+	 * @param monster monster index
+	 * @param cell cell index
+	 * @return key
+	 */
+	public long monster(int monster, int cell) {
+		// a different key for every monster on the same cell (so two monsters on a cell don't cancel each other)
+		long z = _monsters[cell] + (monster + 1) * MONSTER_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
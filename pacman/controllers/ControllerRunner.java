@@ -0,0 +1,196 @@
+package pacman.controllers;
+
+import java.util.concurrent.locks.LockSupport;
+
+import pacman.model.Direction;
+
+/**
+ *  Runs the decisions of a pacman controller within a time budget for every decision.
+ *  Without a budget the controller is called on the game thread. With a budget it's called on its own worker thread,
+ *  and the game thread waits for the decision until the budget is over: a decision that overruns the budget is dropped
+ *  (pacman keeps the previous decision), and the next decisions are dropped too until the slow decision ends,
+ *  so a slow controller never stalls the game step. The worker never reads the running game (a decision may outlive its step):
+ *  the game thread saves the game state for every decision, and the worker decides on a private copy of the game that is
+ *  restored to that state. The decisions within a budget depend on the time, so a game
+ *  with a budget isn't reproducible by its seed (unless the controller always decides in time).
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ControllerRunner {
+	private PacmanController _controller;
+	private GameInfo _game;
+	/* the worker's copy of the game, and the state of the game for the next decision (written only while the worker is idle) */
+	private GameEngine _copy;
+	private GameState _state;
+	/* time budget of every decision in nanoseconds (0 for no budget) */
+	private long _nanosPerDecision;
+	/* the worker thread (null without a budget), and the thread that waits for the decision */
+	private Thread _worker;
+	private volatile Thread _waiter;
+	private volatile boolean _running;
+	/* a decision was requested and didn't end yet, and its result */
+	private volatile boolean _busy;
+	private volatile Direction _result;
+	/* the last decision that was made in time */
+	private Direction _previous;
+	/* measuring */
+	private long _decisions;
+	private long _overruns;
+	private Histogram _decisionTimes = new Histogram();
+
+	/**
+	 * Creates a new runner
+	 * @param controller pacman controller
+	 * @param game read-only view of the game
+	 * @param nanosPerDecision time budget of every decision in nanoseconds (0 for no budget)
+	 */
+	public ControllerRunner(PacmanController controller, GameInfo game, long nanosPerDecision) {
+		if (nanosPerDecision < 0)
+			throw new IllegalArgumentException("The budget can't be negative: " + nanosPerDecision);
+
+		_controller = controller;
+		_game = game;
+		_nanosPerDecision = nanosPerDecision;
+		if (nanosPerDecision > 0) {
+			_running = true;
+			_worker = new Thread(new Worker(), "Pacman Controller");
+			_worker.setDaemon(true);
+			_worker.start();
+		}
+	}
+
+	/**
+	 * Get the decision of the controller (called by the game thread)
+	 * @return the new direction, null for no change. if the decision overran the budget- the previous decision
+	 */
+	public Direction decide() {
+		long start = System.nanoTime();
+		_decisions++;
+		if (_worker == null) {
+			_previous = _controller.decide(_game, Long.MAX_VALUE);
+			_decisionTimes.record(System.nanoTime() - start);
+			return _previous;
+		}
+
+		// the previous decision is still running
+		if (_busy) {
+			_overruns++;
+			_decisionTimes.record(System.nanoTime() - start);
+			return _previous;
+		}
+
+		// the game as it is now, for the worker's copy (the copy is created once, by the first decision).
+		// a game that can't be copied drops the decision like an overrun (and the copy is created again on the next decision)
+		try {
+			if (_copy == null) {
+				_copy = _game.createSimulation();
+				_state = _copy.createState();
+			}
+			_game.snapshot(_state);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			_copy = null;
+			_overruns++;
+			_decisionTimes.record(System.nanoTime() - start);
+			return _previous;
+		}
+
+		_result = null;
+		_waiter = Thread.currentThread();
+		_busy = true;
+		LockSupport.unpark(_worker);
+
+		long deadline = start + _nanosPerDecision;
+		for (long left = _nanosPerDecision; _busy && left > 0; left = deadline - System.nanoTime()) {
+			LockSupport.parkNanos(this, left);
+		}
+
+		_decisionTimes.record(System.nanoTime() - start);
+		if (_busy) {
+			_overruns++;
+			return _previous;
+		}
+
+		_previous = _result;
+		return _previous;
+	}
+
+	/**
+	 * Stop the worker thread (a running decision ends first)
+	 */
+	public void stop() {
+		_running = false;
+		if (_worker != null)
+			LockSupport.unpark(_worker);
+	}
+
+	/**
+	 * Get the controller
+	 * @return pacman controller
+	 */
+	public PacmanController getController() {
+		return _controller;
+	}
+
+	/**
+	 * Get the time budget of every decision
+	 * @return budget in nanoseconds (0 for no budget)
+	 */
+	public long getNanosPerDecision() {
+		return _nanosPerDecision;
+	}
+
+	/**
+	 * Get the number of decisions that were requested
+	 * @return decisions
+	 */
+	public long getDecisionsCount() {
+		return _decisions;
+	}
+
+	/**
+	 * Get the number of decisions that were dropped, because they (or the previous decision) overran the budget,
+	 * or the game couldn't be copied for them
+	 * @return dropped decisions
+	 */
+	public long getOverrunsCount() {
+		return _overruns;
+	}
+
+	/**
+	 * Get the time that the game thread spent on every decision (waiting for it, with a budget)
+	 * @return decision times
+	 */
+	public Histogram getDecisionTimes() {
+		return _decisionTimes;
+	}
+
+	/**
+	 *  Decides on the worker thread whenever the game thread requests a decision
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class Worker implements Runnable {
+		@Override
+		public void run() {
+			while (_running) {
+				if (!_busy) {
+					LockSupport.park(this);
+					continue;
+				}
+
+				Direction direction = null;
+				try {
+					_copy.restore(_state);
+					direction = _controller.decide(_copy.getGameInfo(), _nanosPerDecision);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+
+				_result = direction;
+				_busy = false;
+				LockSupport.unpark(_waiter);
+			}
+		}
+	}
+}
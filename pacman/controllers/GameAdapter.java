@@ -0,0 +1,44 @@
+package pacman.controllers;
+
+import java.util.List;
+
+import pacman.model.Map;
+import pacman.model.Monster;
+import pacman.model.Pacman;
+import pacman.model.StationaryObject;
+
+/**
+ *  An abstract adapter class for receiving game events.
+ *  The methods in this class are empty, so you can override only the events you need.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public abstract class GameAdapter implements GameListener {
+
+	@Override
+	public void newGame(Map map, List<Monster> monsters) { }
+
+	@Override
+	public void pacmanChanged(Pacman pacman) { }
+
+	@Override
+	public void stationaryObjectRemoved(StationaryObject object) { }
+
+	@Override
+	public void superPillEaten() { }
+
+	@Override
+	public void specialStageStarted() { }
+
+	@Override
+	public void monsterEaten(Monster monster) { }
+
+	@Override
+	public void pacmanDied() { }
+
+	@Override
+	public void gameUpdated() { }
+
+	@Override
+	public void stateRestored() { }
+}
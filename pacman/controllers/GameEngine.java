@@ -1,6 +1,5 @@
 package pacman.controllers;
 
-import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
@@ -10,13 +9,20 @@ import java.awt.event.MouseListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-import javax.swing.Timer;
-
+import pacman.ai.AIScheduler;
+import pacman.ai.AsyncPlanner;
+import pacman.ai.FlowField;
+import pacman.ai.Path;
 import pacman.ai.PathFinder;
+import pacman.ai.PathPlanner;
+import pacman.ai.PathTable;
+import pacman.ai.PlannerService;
 import pacman.model.Direction;
+import pacman.model.GameClock;
+import pacman.model.GameRandom;
 import pacman.model.Map;
 import pacman.model.MightyPacman;
 import pacman.model.MightyPill;
@@ -28,81 +34,320 @@ import pacman.model.StrongMonster;
 import pacman.model.SuperPacman;
 import pacman.model.SuperPill;
 import pacman.model.WeakMonster;
+import pacman.replay.ReplayRecorder;
 import pacman.views.AppWindow;
+import pacman.views.BoardView;
+import pacman.views.CanvasGameView;
 import pacman.views.GameView;
 import pacman.views.fx.SoundPlayer;
 
 
 /**
  *  Pacman Game Engine- Manages the game logic
+ *  The engine advances the game in fixed steps (see {@link #tick()}), and notifies its listeners about the game events.
+ *  The Swing UI (window, view & sounds) is only one of the listeners, so the engine can also run without any display.
  *  @author     Lidan Hifi
  *  @version    1.0
  */
 public class GameEngine implements Runnable {
 	/* Game constants */
+	public static final int FPS = 60;
 	private static final int SPECIAL_STAGE_TIME = 10;
 	private static final int MONSTERS_DELAY = 3000;
+	private static final int PACMAN_DEATH_DELAY = 2000;
 	private static final int PACMAN_LIVES = 2;
 	private static final int POINTS_EATING_PILL = 1;
 	private static final int POINTS_EATING_SUPER_PILL = 10;
 	private static final int POINTS_EATING_MONSTER = 100;
 	private static final int MAX_CHEAT_USE = 2;
-	/* Game timers */
-	private Timer _gameTimer;
-	private static final int FPS = 60;
-	private Timer _specialStageTimer;
+	/* the cheat progress that a saved game state keeps: "", "O", "OO", or any text that isn't the start of "OOP" */
+	private static final String[] CHEAT_STATES = { "", "O", "OO", "P" };
+	/* Game loop (only if the game is displayed), read by other threads to stop the game */
+	private volatile GameLoop _gameLoop;
+	/* Game timers (in game ticks) */
+	private GameClock _clock = new GameClock();
+	private long _specialStageEndTime = -1;
+	private long _respawnTime = -1;
+	/* Game random numbers generator */
+	private long _seed;
+	private GameRandom _random;
 	/* Game map */
-	private Map _levelMap = Map.getFirstLevelMap();
-	/* UI Components */
+	private Map _levelMap;
+	/* UI Components (null if the game runs without display) */
 	private AppWindow _window;
-	private GameView _gameView = new GameView(_levelMap);
+	private BoardView _gameView;
+	/* the current pacman, one of the pacman objects (which are reused in every match) */
 	private Pacman _pacman;
-	/* Path Finder- AI Manager */
-	private PathFinder _ai;
+	private Pacman _regularPacman;
+	private Pacman _superPacman;
+	private Pacman _mightyPacman;
+	/* Game listeners */
+	private List<GameListener> _listeners = new ArrayList<GameListener>();
+	/* Path Planner- AI Manager */
+	private PathPlanner _ai;
+	/* shared field for the monsters that chase pacman (null if every monster plans its own path) */
+	private FlowField _flowField;
+	/* plans the monsters paths later- in the background or within a budget on every game step (null if every path is planned immediately) */
+	private PlannerService _plannerService;
 	/* Game Object & information */
 	private int _remainingLives;
 	private List<Monster> _monsters = new ArrayList<Monster>();
+	private int _weakMonsters = 2;
+	private int _strongMonsters = 2;
 	private int _points;
 	private int _remainingPills;
 	private String _cheat = ""; // if types OOP - enter to the special stage
 	private int _cheatUse = 0;
+	/* keys pressed since the last game step (the keyboard events arrive on another thread) */
+	private ConcurrentLinkedQueue<Integer> _pressedKeys = new ConcurrentLinkedQueue<Integer>();
+	/* game steps since the engine was created (the time of the input), and the recorder of the input (null if the game isn't recorded) */
+	private long _steps;
+	private ReplayRecorder _recorder;
+	/* drives pacman instead of the direction keys (null if pacman is driven by the keys), and the game view that it reads */
+	private ControllerRunner _controllerRunner;
+	private GameInfo _gameInfo = new ReadOnlyGame();
+	/* Game state */
+	private boolean _running;
+	private boolean _autoRestart;
+	private boolean _respawnDelay;
+	private boolean _gameOver;
+	private boolean _levelCleared;
 
 	/**
-	 * Creates a new Game Engine
+	 * Creates a new Game Engine with the Swing UI
 	 */
 	public GameEngine() {
+		this(false);
+	}
+
+	/**
+	 * Creates a new Game Engine with the Swing UI
+	 * @param activeRendering true for drawing the whole board on a single canvas, false for a swing component for every object
+	 */
+	public GameEngine(boolean activeRendering) {
+		this(activeRendering, null);
+	}
+
+	/**
+	 * Creates a new Game Engine with the Swing UI, and records its input for a replay
+	 * @param activeRendering true for drawing the whole board on a single canvas, false for a swing component for every object
+	 * @param recorder replay recorder (null if the game isn't recorded)
+	 */
+	public GameEngine(boolean activeRendering, ReplayRecorder recorder) {
+		this(Map.getFirstLevelMap(), System.nanoTime());
+
 		// initialize base UI Components
 		_window = new AppWindow();
+		_gameView = activeRendering ? new CanvasGameView(_levelMap) : new GameView(_levelMap);
 		_window.showView(_gameView);
 		_window.setWindowInScreenCenter();
 		_gameView.addKeyListener(new MovePacmanListener());
 		_gameView.setFocusable(true);
+		addGameListener(new SwingGameListener());
 
-		// initialize the path finder object with the current map
-		_ai = new PathFinder(_levelMap, 100);
+		// a game with display starts a new game when it's over, and waits before the next match when pacman dies
+		_autoRestart = true;
+		_respawnDelay = true;
 
-		// initialize the game timer
-		_gameTimer = new Timer(1000 / FPS, new ActionListener() {
-			@Override
-			public void actionPerformed(ActionEvent e) {
-				updateGame();
-			}
-		});
-
-		// initialize the special stage timer
-		_specialStageTimer = new Timer(SPECIAL_STAGE_TIME * 1000, new ActionListener() {
-			@Override
-			public void actionPerformed(ActionEvent e) {
-				// stop the special stage, back to the normal pacman and stop the special stage timer
-				_pacman = new Pacman(_levelMap);
-				_gameView.setPacman(_pacman);
-				for (Monster m : _monsters) {
-					m.setNormalMode();
-				}
-				_specialStageTimer.stop();
-			}
-		});
+		// the recording starts before the first game step
+		if (recorder != null)
+			setReplayRecorder(recorder);
+
+		// initialize the game loop, the game runs on its own thread from now on
+		_gameLoop = new GameLoop(this, _gameView);
+		start();
+		_gameLoop.start();
+	}
+
+	/**
+	 * Creates a new Game Engine without any display (headless), for the given map.
+	 * The game is played by calling {@link #start()} and then {@link #tick()} for each game step,
+	 * and it ends when pacman has no remaining lives or when it ate all the pills.
+	 * @param map game map (the engine plays on its own copy of the map)
+	 */
+	public GameEngine(Map map) {
+		this(map, System.nanoTime());
+	}
+
+	/**
+	 * Creates a new Game Engine without any display (headless), for the given map and random seed.
+	 * Engines with the same seed and the same input play exactly the same game.
+	 * @param map game map (the engine plays on its own copy of the map)
+	 * @param seed seed for the game random numbers generator
+	 */
+	public GameEngine(Map map, long seed) {
+		this(map, seed, null);
+	}
+
+	/**
+	 * Creates a new Game Engine without any display (headless), for the given map, random seed and path planner.
+	 * @param map game map (the engine plays on its own copy of the map)
+	 * @param seed seed for the game random numbers generator
+	 * @param ai path planner for the monsters (can be shared between engines that play on the same map, if it's thread safe),
+	 * 			null for a planner of the engine's own map (a path table, or a path finder if the map is too big for a table)
+	 */
+	public GameEngine(Map map, long seed, PathPlanner ai) {
+		_levelMap = map.copy();
+		_seed = seed;
+		_random = new GameRandom(seed);
 
+		// the default planner precomputes the paths between all the cells of the engine's map
+		// (so it follows the portals that are added to the engine's map), a map that is too big is searched on every query
+		if (ai == null)
+			ai = PathTable.fits(_levelMap) ? new PathTable(_levelMap) : new PathFinder(_levelMap, Integer.MAX_VALUE);
+		_ai = ai;
+
+		_regularPacman = new Pacman(_levelMap);
+		_superPacman = new SuperPacman(_levelMap);
+		_mightyPacman = new MightyPacman(_levelMap);
+	}
+
+	/**
+	 * Add a listener for the game events
+	 * @param listener game listener
+	 */
+	public void addGameListener(GameListener listener) {
+		_listeners.add(listener);
+	}
+
+	/**
+	 * Remove a listener of the game events
+	 * @param listener game listener
+	 */
+	public void removeGameListener(GameListener listener) {
+		_listeners.remove(listener);
+	}
+
+	/**
+	 * Set the number of monsters in the game (must be called before the first game starts)
+	 * @param weakMonsters number of weak monsters
+	 * @param strongMonsters number of strong monsters
+	 */
+	public void setMonstersCount(int weakMonsters, int strongMonsters) {
+		if (_monsters.size() > 0)
+			throw new IllegalStateException("The monsters were already created");
+
+		_weakMonsters = weakMonsters;
+		_strongMonsters = strongMonsters;
+	}
+
+	/**
+	 * Plan the monsters paths using a flow field: one distance field from pacman is shared by all the monsters that chase it
+	 * (instead of a search for every monster), and the monsters in fear flee from pacman along the inverted field.
+	 * @param enabled true for the flow field, false for planning a path for every monster
+	 */
+	public void setFlowField(boolean enabled) {
+		_flowField = enabled ? new FlowField(_levelMap, _ai) : null;
+	}
+
+	/**
+	 * Plan the monsters paths in the background, on a worker thread for every given planner, so the game step never waits for a search.
+	 * A monster that waits for its path keeps moving in its direction, and it continues from its current position on the path when it's ready.
+	 * The paths are taken on the game step after they are ready, so a game with background planning isn't reproducible by its seed.
+	 * The paths to pacman are still taken from the flow field, if it's used.
+	 * @param planners path planners (one for every worker, not shared with other workers or engines unless they're thread safe),
+	 * no planners for planning every path immediately
+	 */
+	public void setAsyncPlanning(PathPlanner... planners) {
+		setPlannerService(planners.length > 0 ? new AsyncPlanner(planners) : null);
+	}
+
+	/**
+	 * Plan the monsters paths on the game thread within a fixed AI budget for every game step, so the step time doesn't grow with
+	 * the number of monsters. A search that doesn't fit in the budget continues on the next step, and meanwhile its monster
+	 * follows the best path so far. The monsters closest to pacman are planned first.
+	 * The paths to pacman are still taken from the flow field, if it's used.
+	 * @param finder path finder for the searches (not shared with other engines)
+	 * @param expansionsPerStep maximum nodes expanded on every game step
+	 * @param nanosPerStep maximum time of the searches on every game step in nanoseconds (0 for no time limit)
+	 */
+	public void setAIBudget(PathFinder finder, int expansionsPerStep, long nanosPerStep) {
+		setPlannerService(new AIScheduler(finder, expansionsPerStep, nanosPerStep));
+	}
+
+	/**
+	 * Start a new game when the game is over (or when pacman cleared the level)
+	 * @param autoRestart true for restarting, false for stopping the game
+	 */
+	public void setAutoRestart(boolean autoRestart) {
+		_autoRestart = autoRestart;
+	}
+
+	/**
+	 * Wait before the next match when pacman dies (nothing moves until then), like the displayed game
+	 * @param respawnDelay true for waiting, false for starting the next match immediately
+	 */
+	public void setRespawnDelay(boolean respawnDelay) {
+		_respawnDelay = respawnDelay;
+	}
+
+	/**
+	 * Record the game input for a replay: the keys, with the game step they were handled on.
+	 * The recording must start before the first game step, so the replay starts from the same state.
+	 * @param recorder replay recorder
+	 */
+	public void setReplayRecorder(ReplayRecorder recorder) {
+		if (_steps > 0)
+			throw new IllegalStateException("The game already started");
+
+		_recorder = recorder;
+		_recorder.begin(this);
+	}
+
+	/**
+	 * Drive pacman by a controller instead of the direction keys: the controller decides on every game step that pacman is on a cell,
+	 * within the given time budget for every decision- a decision that overruns the budget is dropped, and pacman keeps the previous
+	 * decision (see {@link ControllerRunner}). The decisions are handled (and recorded for a replay) like key presses of their directions,
+	 * and the direction keys are ignored meanwhile.
+	 * @param controller pacman controller, null for the direction keys
+	 * @param nanosPerDecision time budget of every decision in nanoseconds (0 for no budget- the game waits for every decision)
+	 */
+	public void setPacmanController(PacmanController controller, long nanosPerDecision) {
+		if (_controllerRunner != null)
+			_controllerRunner.stop();
+
+		_controllerRunner = controller != null ? new ControllerRunner(controller, _gameInfo, nanosPerDecision) : null;
+	}
+
+	/**
+	 * Get the runner of the pacman controller (for its measures)
+	 * @return controller runner, null if pacman is driven by the direction keys
+	 */
+	public ControllerRunner getControllerRunner() {
+		return _controllerRunner;
+	}
+
+	/**
+	 * Get a read-only view of the game (the view of the pacman controllers)
+	 * @return game view
+	 */
+	public GameInfo getGameInfo() {
+		return _gameInfo;
+	}
+
+	/**
+	 * Press a key- handled on the next game step, like the keyboard keys
+	 * @param keyCode key code (see {@link KeyEvent})
+	 */
+	public void pressKey(int keyCode) {
+		_pressedKeys.add(keyCode);
+	}
+
+	/**
+	 * Replace the service that plans the monsters paths later (the previous service is stopped)
+	 * @param service planner service, null for planning every path immediately
+	 */
+	private void setPlannerService(PlannerService service) {
+		if (_plannerService != null)
+			_plannerService.stop();
+
+		_plannerService = service;
+	}
+
+	/**
+	 * Start a new game
+	 */
+	public void start() {
 		initializeNewGame();
 		gameRestart();
 	}
@@ -111,41 +356,45 @@ public class GameEngine implements Runnable {
 	 * Initialize new pacman game
 	 */
 	public void initializeNewGame() {
-		// stop any timer (if running)
-		_gameTimer.stop();
-		_specialStageTimer.stop();
+		// stop the game (if running)
+		_running = false;
+		_specialStageEndTime = -1;
+		_respawnTime = -1;
 
 		// Set game variables to their default values
 		// and reset the map
 		_remainingLives = PACMAN_LIVES;
-		_levelMap = Map.getFirstLevelMap();
+		_levelMap.reset();
 		_remainingPills = _levelMap.getTotalPills();
-		_gameView.newGame(_levelMap);
+		_points = 0;
+		_clock.reset();
+		_gameOver = false;
+		_levelCleared = false;
 		_cheatUse = MAX_CHEAT_USE;
 		_cheat = "";
 
 		// initialize monsters
 		if (_monsters.size() == 0) {
-			for (int i = 0; i < 2; i++) {
+			for (int i = 0; i < _weakMonsters; i++) {
 				// Weak monsters
-				WeakMonster w = new WeakMonster(_levelMap);
+				WeakMonster w = new WeakMonster(_levelMap, _clock, _random);
 				_monsters.add(w);
 			}
 
-			for (int i = 0; i < 2; i++) {
+			for (int i = 0; i < _strongMonsters; i++) {
 				// Strong monsters
-				StrongMonster s = new StrongMonster(_levelMap);
+				StrongMonster s = new StrongMonster(_levelMap, _clock, _random);
 				_monsters.add(s);
 			}
-			_gameView.setMonsters(_monsters);
 		} else {
-			for (Monster m : _monsters) {
-				m.initializeMonster();
+			for (int i = 0; i < _monsters.size(); i++) {
+				_monsters.get(i).initializeMonster();
 			}
 		}
 
-		// play new game sound
-		SoundPlayer.playNewGameSound();
+		for (int i = 0; i < _listeners.size(); i++) {
+			_listeners.get(i).newGame(_levelMap, _monsters);
+		}
 	}
 
 	/*
@@ -153,85 +402,315 @@ public class GameEngine implements Runnable {
 	 */
 	public void gameRestart() {
 		// initialize new pacman and set its position to the initial position
-		_pacman = new Pacman(_levelMap);
-		_gameView.setPacman(_pacman);
+		setPacman(_regularPacman);
 		_pacman.setPosition(_levelMap.getPacmanInitialPosition().x, _levelMap.getPacmanInitialPosition().y);
 
 		// set monsters position and release them in different delays
-		int delay = MONSTERS_DELAY;
-		for (Monster m : _monsters) {
+		int delay = toTicks(MONSTERS_DELAY);
+		for (int i = 0; i < _monsters.size(); i++) {
+			Monster m = _monsters.get(i);
 			m.setNormalMode();
 			m.setPosition(_levelMap.getCagePosition().x, _levelMap.getCagePosition().y);
 			m.setReleaseTime(delay);
-			delay += MONSTERS_DELAY;
+			delay += toTicks(MONSTERS_DELAY);
+		}
+
+		// the paths that were planned for the previous match are dropped
+		if (_plannerService != null)
+			_plannerService.cancelAll();
+
+		// starts the game
+		_running = true;
+	}
+
+	/**
+	 * Advance the game in one fixed step
+	 */
+	public void tick() {
+		// handle the keys that were pressed since the last step
+		for (Integer key = _pressedKeys.poll(); key != null; key = _pressedKeys.poll()) {
+			// a controller drives pacman instead of the direction keys
+			if (_controllerRunner != null && isDirectionKey(key))
+				continue;
+
+			if (_recorder != null)
+				_recorder.record(_steps, key);
+			keyPressed(key);
+		}
+
+		// the controller decides when pacman is on a cell (and the match is on), the decision is handled like a key of this step
+		if (_controllerRunner != null && _running && _respawnTime < 0 && _pacman.isStep()) {
+			Direction direction = _controllerRunner.decide();
+			if (direction != null) {
+				int key = keyOf(direction);
+				if (_recorder != null)
+					_recorder.record(_steps, key);
+				keyPressed(key);
+			}
+		}
+
+		_steps++;
+		if (!_running)
+			return;
+
+		// remember the positions before the step (a view can draw the objects between the steps)
+		_pacman.rememberPosition();
+		for (int i = 0; i < _monsters.size(); i++) {
+			_monsters.get(i).rememberPosition();
+		}
+
+		_clock.tick();
+		updateGame();
+
+		for (int i = 0; i < _listeners.size(); i++) {
+			_listeners.get(i).gameUpdated();
+		}
+	}
+
+	/**
+	 * Play the game without any delay between the game steps, until the game is over
+	 * @param maxTicks maximum game ticks to play
+	 * @return the number of played ticks
+	 */
+	public long runHeadless(long maxTicks) {
+		long played = 0;
+		while (_running && played < maxTicks) {
+			tick();
+			played++;
 		}
 
-		// starts the game timer
-		_gameTimer.start();
+		return played;
+	}
+
+	/**
+	 * Create an empty game state for this game (see {@link #snapshot(GameState)}), a pool reuses the states (see {@link GameStatePool})
+	 * @return game state
+	 */
+	public GameState createState() {
+		if (_monsters.size() == 0)
+			throw new IllegalStateException("The game didn't start");
+
+		int objectsSize = _pacman.getStateSize();
+		for (int i = 0; i < _monsters.size(); i++) {
+			objectsSize += _monsters.get(i).getStateSize();
+		}
+
+		return new GameState(_levelMap.getRemovedObjectsLength(), objectsSize, _monsters.size());
+	}
+
+	/**
+	 * Save the current game state (without any allocation, once the monsters paths in the state are as long as the current ones).
+	 * The keys that were pressed and weren't handled yet aren't a part of the state.
+	 * @param state game state of this game (see {@link #createState()})
+	 * @return the given state
+	 */
+	public GameState snapshot(GameState state) {
+		checkState(state);
+		state._steps = _steps;
+		state._ticks = _clock.getTicks();
+		state._specialStageEndTime = _specialStageEndTime;
+		state._respawnTime = _respawnTime;
+		state._random = _random.getState();
+		state._points = _points;
+		state._remainingLives = _remainingLives;
+		state._remainingPills = _remainingPills;
+		state._cheat = _cheat.length() < 3 && "OOP".startsWith(_cheat) ? _cheat.length() : 3;
+		state._cheatUse = _cheatUse;
+		state._pacman = _pacman == _superPacman ? 1 : _pacman == _mightyPacman ? 2 : 0;
+		state._running = _running;
+		state._gameOver = _gameOver;
+		state._levelCleared = _levelCleared;
+		_levelMap.saveRemovedObjects(state._removedObjects);
+
+		// the objects state, and the paths that the monsters follow
+		int offset = _pacman.saveState(state._objects, 0);
+		for (int i = 0; i < _monsters.size(); i++) {
+			Monster m = _monsters.get(i);
+			offset = m.saveState(state._objects, offset);
+			if (m.getPath() != null)
+				state._paths[i].copyFrom(m.getPath());
+		}
+
+		return state;
+	}
+
+	/**
+	 * Restore a saved game state. The game continues exactly as it continued after the snapshot (with the same input),
+	 * and the listeners redraw the game (see {@link GameListener#stateRestored()}).
+	 * The paths that are planned in the background are dropped. A recorded game can't be restored (its replay would be wrong).
+	 * @param state game state of this game
+	 */
+	public void restore(GameState state) {
+		checkState(state);
+		if (_recorder != null)
+			throw new IllegalStateException("A recorded game can't be restored");
+
+		_steps = state._steps;
+		_clock.setTicks(state._ticks);
+		_specialStageEndTime = state._specialStageEndTime;
+		_respawnTime = state._respawnTime;
+		_random.setState(state._random);
+		_points = state._points;
+		_remainingLives = state._remainingLives;
+		_remainingPills = state._remainingPills;
+		_cheat = CHEAT_STATES[state._cheat];
+		_cheatUse = state._cheatUse;
+		_running = state._running;
+		_gameOver = state._gameOver;
+		_levelCleared = state._levelCleared;
+		_levelMap.restoreRemovedObjects(state._removedObjects);
+
+		Pacman previous = _pacman;
+		_pacman = state._pacman == 1 ? _superPacman : state._pacman == 2 ? _mightyPacman : _regularPacman;
+		int offset = _pacman.restoreState(state._objects, 0);
+		for (int i = 0; i < _monsters.size(); i++) {
+			Monster m = _monsters.get(i);
+			offset = m.restoreState(state._objects, offset);
+			if (m.getPath() != null)
+				m.getPathBuffer().copyFrom(state._paths[i]);
+		}
+
+		// the paths that were requested before the restore lead from other positions
+		if (_plannerService != null)
+			_plannerService.cancelAll();
+
+		for (int i = 0; i < _listeners.size(); i++) {
+			if (_pacman != previous)
+				_listeners.get(i).pacmanChanged(_pacman);
+			_listeners.get(i).stateRestored();
+		}
+	}
+
+	/**
+	 * Continue the game with another sequence of random numbers (for simulating other possible futures of a restored state)
+	 * @param seed random seed
+	 */
+	public void reseed(long seed) {
+		_random.setState(seed);
+	}
+
+	/**
+	 * Check that a game state fits this game
+	 */
+	private void checkState(GameState state) {
+		int objectsSize = _pacman != null ? _pacman.getStateSize() : 0;
+		for (int i = 0; i < _monsters.size(); i++) {
+			objectsSize += _monsters.get(i).getStateSize();
+		}
+
+		if (!state.fits(_levelMap.getRemovedObjectsLength(), objectsSize, _monsters.size()))
+			throw new IllegalArgumentException("The state belongs to another game");
 	}
 
 	/**
 	 * Timer tick- updating the game
 	 */
 	public void updateGame() {
+		// pacman is dead, wait for the next match
+		if (_respawnTime >= 0) {
+			if (_clock.getTicks() >= _respawnTime)
+				respawn();
+			return;
+		}
+
+		// special stage timer
+		if (_specialStageEndTime >= 0 && _clock.getTicks() >= _specialStageEndTime) {
+			_specialStageEndTime = -1;
+			exitSpecialStage();
+		}
+
 		// move the pacman
 		_pacman.move();
 
-		// move the monsters
-		for(Iterator<Monster> it = _monsters.iterator(); it.hasNext(); ) {
+		// the flow field leads to pacman's current cell (computed again only when pacman moved to another cell)
+		PathPlanner planner = _ai;
+		if (_flowField != null) {
+			_flowField.setTarget(_pacman.getPosition().x, _pacman.getPosition().y);
+			planner = _flowField;
+		}
+
+		// plan the paths that were requested on the previous steps (they're taken by the monsters below)
+		if (_plannerService != null)
+			_plannerService.update(_pacman.getPosition().x, _pacman.getPosition().y);
+
+		// move the monsters (indexed loop- the game step doesn't allocate any object)
+		for (int i = 0; i < _monsters.size(); i++) {
 			// check if a monster requests a new path
-			Monster m = it.next();
+			Monster m = _monsters.get(i);
+
+			// take the path that was planned in the background
+			if (_plannerService != null && _plannerService.hasResult(m))
+				m.joinPath(_plannerService.takeResult(m));
 
 			if (m.requestNewPath()) {
-				// the initial target of each monster is the pacman.
-				// if the game is in the special stage (the monster is "IN FEAR")
-				// or based on the monsters's probability for getting a random path
-				// we choose a random target for the new path
-				Point target = _pacman.getPosition();
-				if (m.isInFear() || Math.random() < m.getRandomPathProbability()) {
-					target = new Point((int)(Math.random() * _levelMap.getGameDimension().width), (int)(Math.random() * _levelMap.getGameDimension().height));
-				}
+				// the path is stored in the monster's own path object
+				Path path = m.getPathBuffer();
 
-				// find the path to the chosen target using AI Manager (A* algorithm)
-				m.setPath(_ai.findPath(m, m.getPosition(), target));
+				// with the flow field, a monster in fear flees from pacman
+				if (_flowField != null && m.isInFear() && _flowField.findFleePath(m, m.getPosition().x, m.getPosition().y, path)) {
+					m.setPath(path);
+				} else if (_plannerService != null && _plannerService.isPending(m)) {
+					// the monster keeps moving in its direction until its path is ready
+				} else {
+					// the initial target of each monster is the pacman.
+					// if the game is in the special stage (the monster is "IN FEAR")
+					// or based on the monsters's probability for getting a random path
+					// we choose a random target for the new path
+					int targetX = _pacman.getPosition().x;
+					int targetY = _pacman.getPosition().y;
+					if (m.isInFear() || _random.nextDouble() < m.getRandomPathProbability()) {
+						targetX = (int)(_random.nextDouble() * _levelMap.getGameDimension().width);
+						targetY = (int)(_random.nextDouble() * _levelMap.getGameDimension().height);
+					}
+
+					// find the path to the chosen target using AI Manager (precomputed shortest paths, or the flow field),
+					// or request it from the background planner (the flow field paths to pacman are only a lookup)
+					if (_plannerService != null && !(_flowField != null && targetX == _pacman.getPosition().x && targetY == _pacman.getPosition().y))
+						_plannerService.request(m, m.getPosition().x, m.getPosition().y, targetX, targetY);
+					else
+						m.setPath(planner.findPath(m, m.getPosition().x, m.getPosition().y, targetX, targetY, path) ? path : null);
+				}
 			}
 
 			// move the monster
 			m.move();
 
 			// pacman collision with monster
-			if (_pacman.getBounds().intersects(m.getBounds())) {
+			if (_pacman.intersects(m)) {
 				// check if pacman can eat the monster using Visitor pattern
 				if (_pacman.eats(m)) {
 					// get the monster back to the cage
-					m.setPosition(_levelMap.getCagePosition().x, _levelMap.getCagePosition().y); 
-					m.setReleaseTime(SPECIAL_STAGE_TIME * 1000);
+					m.setPosition(_levelMap.getCagePosition().x, _levelMap.getCagePosition().y);
+					m.setReleaseTime(toTicks(SPECIAL_STAGE_TIME * 1000));
 					_points += POINTS_EATING_MONSTER;
-					SoundPlayer.playEatMonsterSound();
+					for (int j = 0; j < _listeners.size(); j++) {
+						_listeners.get(j).monsterEaten(m);
+					}
 				} else {
 					// monster beats pacman.
-					// stop the game. 
-					// pacman is die for 2 seconds, and start another match (or game over if there is no remaining lives)
+					// pacman is dead for 2 seconds, and start another match (or game over if there is no remaining lives)
 					_pacman.die();
-					_gameTimer.stop();
-					_specialStageTimer.stop();
+					_specialStageEndTime = -1;
 					_remainingLives--;
-					SoundPlayer.playPacmanDieSound();
-
-					// delay 2 seconds and start another match
-					try {
-						Thread.sleep(2000);
-						if (_remainingLives < 0) {
-							// Game Over
-							// initialize a new game
-							initializeNewGame();
-						}
-
-						// start another match
-						gameRestart();
-					} catch (InterruptedException e) {
-						e.printStackTrace();
+					for (int j = 0; j < _listeners.size(); j++) {
+						_listeners.get(j).pacmanDied();
 					}
+
+					if (_remainingLives < 0 && !_autoRestart) {
+						// Game Over
+						_running = false;
+						_gameOver = true;
+						return;
+					}
+
+					if (_respawnDelay) {
+						// the game keeps running (nothing moves) until the respawn time
+						_respawnTime = _clock.getTicks() + toTicks(PACMAN_DEATH_DELAY);
+						return;
+					}
+
+					// start another match immediately
+					respawn();
 				}
 			}
 		}
@@ -247,12 +726,95 @@ public class GameEngine implements Runnable {
 		// determines if pacman ate all the pills
 		if (_remainingPills == 0) {
 			// FINISH GAME & WIN!
-			_gameTimer.stop();
-			initializeNewGame();
-			gameRestart();
+			_running = false;
+			_levelCleared = true;
+
+			if (_autoRestart) {
+				initializeNewGame();
+				gameRestart();
+			}
+		}
+	}
+
+
+	/*
+	 * Set pacman direction
+	 * Space = stop the pacman
+	 */
+	private void keyPressed(int keyCode) {
+		if (keyCode == KeyEvent.VK_UP) {
+			_pacman.setDirection(Direction.UP);
+		}
+		if (keyCode == KeyEvent.VK_DOWN) {
+			_pacman.setDirection(Direction.DOWN);
+		}
+		if (keyCode == KeyEvent.VK_RIGHT) {
+			_pacman.setDirection(Direction.RIGHT);
+		}
+		if (keyCode == KeyEvent.VK_LEFT) {
+			_pacman.setDirection(Direction.LEFT);
+		}
+		if (keyCode == KeyEvent.VK_SPACE) {
+			_pacman.setDirection(Direction.NONE);
+		}
+
+		/* Game Cheat */
+		// if you type "OOP" during the game, you'll switch to the special stage!
+		// you can use this cheat only 2 times in each game
+		if (_cheatUse > 0) {
+			if (keyCode == KeyEvent.VK_O) {
+				_cheat += "O";
+			} else if (keyCode == KeyEvent.VK_P) {
+				_cheat += "P";
+			} else {
+				_cheat = "";
+			}
+
+			if (_cheat.equals("OOP")) {
+				enterSpecialStage(_superPacman);
+				_cheat = "";
+				_cheatUse--;
+			}
 		}
 	}
 
+	private static boolean isDirectionKey(int keyCode) {
+		return keyCode == KeyEvent.VK_UP || keyCode == KeyEvent.VK_DOWN || keyCode == KeyEvent.VK_RIGHT || keyCode == KeyEvent.VK_LEFT
+				|| keyCode == KeyEvent.VK_SPACE;
+	}
+
+	/**
+	 * Get the key that turns pacman to the given direction (space stops it)
+	 */
+	private static int keyOf(Direction direction) {
+		switch (direction) {
+		case UP:
+			return KeyEvent.VK_UP;
+		case DOWN:
+			return KeyEvent.VK_DOWN;
+		case RIGHT:
+			return KeyEvent.VK_RIGHT;
+		case LEFT:
+			return KeyEvent.VK_LEFT;
+		default:
+			return KeyEvent.VK_SPACE;
+		}
+	}
+
+	/**
+	 * Start another match after pacman died (or a new game if there are no remaining lives)
+	 */
+	private void respawn() {
+		_respawnTime = -1;
+		if (_remainingLives < 0) {
+			// Game Over
+			// initialize a new game
+			initializeNewGame();
+		}
+
+		// start another match
+		gameRestart();
+	}
 
 	/**
 	 * eat a pill (uses the visitor pattern)
@@ -260,24 +822,47 @@ public class GameEngine implements Runnable {
 	 * @param pill pill to be eaten
 	 */
 	public void eatPill(Pacman pacman, Pill pill) {
-		pill.getParent().remove(pill);
-		_levelMap.getStationaryObjectsMap()[pacman.getPosition().y][pacman.getPosition().x] = null;
+		removeStationaryObjectFromBoard(pacman, pill);
 		_points += POINTS_EATING_PILL;
 		_remainingPills--;
 	}
 
+	/**
+	 * Set the current pacman. the new pacman starts as a new one, and continues from the position & direction of the previous one
+	 * @param pacman the new pacman (can be the current pacman)
+	 */
+	private void setPacman(Pacman pacman) {
+		Pacman previous = _pacman;
+		int x = previous != null ? previous.getPosition().x : 0;
+		int y = previous != null ? previous.getPosition().y : 0;
+		Direction direction = previous != null ? previous.getDirection() : Direction.NONE;
+
+		pacman.reset();
+		if (previous != null) {
+			pacman.setPosition(x, y);
+			pacman.setDirection(direction);
+		}
+
+		_pacman = pacman;
+		for (int i = 0; i < _listeners.size(); i++) {
+			_listeners.get(i).pacmanChanged(_pacman);
+		}
+	}
+
 	/**
 	 * Enter to the special stage (set the monster to be in fear, play music, change the pacman)
 	 * @param pacman pacman to change for the special stage
 	 */
 	private void enterSpecialStage(Pacman pacman) {
 		// set the current pacman to the special stage's pacman
-		_pacman = pacman;
-		_gameView.setPacman(_pacman);
+		setPacman(pacman);
 
 		// set monsters to be in fear from the current pacman
-		for (Monster m : _monsters) {
+		for (int i = 0; i < _monsters.size(); i++) {
+			Monster m = _monsters.get(i);
 			m.setPath(null);
+			if (_plannerService != null)
+				_plannerService.cancel(m);
 			m.setNormalMode();
 			if (_pacman instanceof SuperPacman)
 				m.fearFromSuperPacman();
@@ -285,9 +870,21 @@ public class GameEngine implements Runnable {
 				m.fearFromMightyPacman();
 		}
 
-		SoundPlayer.playSpecialStageSound();
+		for (int i = 0; i < _listeners.size(); i++) {
+			_listeners.get(i).specialStageStarted();
+		}
+
+		_specialStageEndTime = _clock.getTicks() + toTicks(SPECIAL_STAGE_TIME * 1000);
+	}
 
-		_specialStageTimer.restart();
+	/**
+	 * Stop the special stage, back to the normal pacman
+	 */
+	private void exitSpecialStage() {
+		setPacman(_regularPacman);
+		for (int i = 0; i < _monsters.size(); i++) {
+			_monsters.get(i).setNormalMode();
+		}
 	}
 
 	/**
@@ -299,9 +896,11 @@ public class GameEngine implements Runnable {
 		removeStationaryObjectFromBoard(pacman, pill);
 		_points += POINTS_EATING_SUPER_PILL;
 		_remainingPills--;
-		SoundPlayer.playEatSuperPillSound();
+		for (int i = 0; i < _listeners.size(); i++) {
+			_listeners.get(i).superPillEaten();
+		}
 
-		enterSpecialStage(new SuperPacman(_levelMap));
+		enterSpecialStage(_superPacman);
 	}
 
 	/**
@@ -313,9 +912,11 @@ public class GameEngine implements Runnable {
 		removeStationaryObjectFromBoard(pacman, pill);
 		_points += POINTS_EATING_SUPER_PILL;
 		_remainingPills--;
-		SoundPlayer.playEatSuperPillSound();
+		for (int i = 0; i < _listeners.size(); i++) {
+			_listeners.get(i).superPillEaten();
+		}
 
-		enterSpecialStage(new MightyPacman(_levelMap));
+		enterSpecialStage(_mightyPacman);
 	}
 
 	/**
@@ -324,65 +925,375 @@ public class GameEngine implements Runnable {
 	 * @param object stationary object for removal
 	 */
 	private void removeStationaryObjectFromBoard(Pacman pacman, StationaryObject object) {
-		object.getParent().remove(object);
-		_levelMap.getStationaryObjectsMap()[pacman.getPosition().y][pacman.getPosition().x] = null;
+		_levelMap.removeStationaryObject(pacman.getPosition().x, pacman.getPosition().y);
+		for (int i = 0; i < _listeners.size(); i++) {
+			_listeners.get(i).stationaryObjectRemoved(object);
+		}
+	}
+
+	/**
+	 * Convert milliseconds to game ticks
+	 * @param millis time in milliseconds
+	 * @return time in game ticks
+	 */
+	private static int toTicks(int millis) {
+		return millis * FPS / 1000;
+	}
+
+	/**
+	 * Get the current pacman
+	 * @return pacman
+	 */
+	public Pacman getPacman() {
+		return _pacman;
+	}
+
+	/**
+	 * Get the game monsters
+	 * @return monsters
+	 */
+	public List<Monster> getMonsters() {
+		return _monsters;
+	}
+
+	/**
+	 * Get the current game map
+	 * @return game map
+	 */
+	public Map getMap() {
+		return _levelMap;
+	}
+
+	/**
+	 * Get the game points
+	 * @return points
+	 */
+	public int getPoints() {
+		return _points;
+	}
+
+	/**
+	 * Get pacman's remaining lives
+	 * @return remaining lives
+	 */
+	public int getRemainingLives() {
+		return _remainingLives;
+	}
+
+	/**
+	 * Get the number of lives pacman lost in the current game
+	 * @return lost lives
+	 */
+	public int getLivesLost() {
+		return PACMAN_LIVES - _remainingLives;
+	}
+
+	/**
+	 * Get the remaining pills on the map
+	 * @return remaining pills
+	 */
+	public int getRemainingPills() {
+		return _remainingPills;
+	}
+
+	/**
+	 * Get the number of ticks played in the current game
+	 * @return game ticks
+	 */
+	public long getTicks() {
+		return _clock.getTicks();
+	}
+
+	/**
+	 * Get the number of game steps since the engine was created (including the steps of the previous games)
+	 * @return game steps
+	 */
+	public long getSteps() {
+		return _steps;
+	}
+
+	/**
+	 * Get the number of weak monsters
+	 * @return weak monsters
+	 */
+	public int getWeakMonstersCount() {
+		return _weakMonsters;
+	}
+
+	/**
+	 * Get the number of strong monsters
+	 * @return strong monsters
+	 */
+	public int getStrongMonstersCount() {
+		return _strongMonsters;
+	}
+
+	/**
+	 * Determines if the monsters paths are planned using a flow field
+	 * @return true if yes, false if not
+	 */
+	public boolean isFlowField() {
+		return _flowField != null;
+	}
+
+	/**
+	 * Determines if a new game starts when the game is over
+	 * @return true if yes, false if not
+	 */
+	public boolean isAutoRestart() {
+		return _autoRestart;
+	}
+
+	/**
+	 * Determines if the game waits before the next match when pacman dies
+	 * @return true if yes, false if not
+	 */
+	public boolean hasRespawnDelay() {
+		return _respawnDelay;
+	}
+
+	/**
+	 * Get the seed of the game random numbers generator
+	 * @return random seed
+	 */
+	public long getSeed() {
+		return _seed;
+	}
+
+	/**
+	 * Get the game loop (null if the game isn't displayed)
+	 * @return game loop
+	 */
+	public GameLoop getGameLoop() {
+		return _gameLoop;
+	}
+
+	/**
+	 * Determines if pacman is dead and the next match didn't start yet
+	 * @return true if pacman is dead, false if not
+	 */
+	public boolean isPacmanDead() {
+		return _respawnTime >= 0;
+	}
+
+	/**
+	 * Determines if the game is over (pacman has no remaining lives)
+	 * @return true if the game is over, false if not
+	 */
+	public boolean isGameOver() {
+		return _gameOver;
+	}
+
+	/**
+	 * Determines if pacman ate all the pills
+	 * @return true if yes, false if not
+	 */
+	public boolean isLevelCleared() {
+		return _levelCleared;
 	}
 
 	@Override
 	/**
-	 * Run the application
+	 * Run the application (or play the whole game, if there is no display)
 	 */
 	public void run() {
-		_window.setVisible(true);
+		if (_window != null) {
+			_window.setVisible(true);
+		} else {
+			start();
+			runHeadless(Long.MAX_VALUE);
+		}
 	}
 
 	/**
-	 *  Change Pacman direction- Keyboard Listener
+	 *  Displays the game events- the game view & sounds (the game loop draws the frames)
 	 *  @author     Lidan Hifi
 	 *  @version    1.0
 	 */
-	class MovePacmanListener extends KeyAdapter {
-		/*
-		 * Set pacman direction
-		 * Space = stop the pacman
-		 * @see java.awt.event.KeyAdapter#keyPressed(java.awt.event.KeyEvent)
-		 */
+	class SwingGameListener extends GameAdapter {
+
 		@Override
-		public void keyPressed(KeyEvent e) {
-			if (e.getKeyCode() == KeyEvent.VK_UP) {
-				_pacman.setDirection(Direction.UP);
-			}
-			if (e.getKeyCode() == KeyEvent.VK_DOWN) {
-				_pacman.setDirection(Direction.DOWN);
-			}
-			if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
-				_pacman.setDirection(Direction.RIGHT);
-			}
-			if (e.getKeyCode() == KeyEvent.VK_LEFT) {
-				_pacman.setDirection(Direction.LEFT);
-			}
-			if (e.getKeyCode() == KeyEvent.VK_SPACE) {
-				_pacman.setDirection(Direction.NONE);
-			}
+		public void newGame(final Map map, final List<Monster> monsters) {
+			_gameView.runOnViewThread(new Runnable() {
+				@Override
+				public void run() {
+					_gameView.newGame(map);
+					_gameView.setMonsters(monsters);
+				}
+			});
 
-			/* Game Cheat */
-			// if you type "OOP" during the game, you'll switch to the special stage!
-			// you can use this cheat only 2 times in each game
-			if (_cheatUse > 0) {
-				if (e.getKeyCode() == KeyEvent.VK_O) {
-					_cheat += "O";
-				} else if (e.getKeyCode() == KeyEvent.VK_P) {
-					_cheat += "P";
-				} else {
-					_cheat = "";
+			// play new game sound
+			SoundPlayer.playNewGameSound();
+		}
+
+		@Override
+		public void pacmanChanged(final Pacman pacman) {
+			_gameView.runOnViewThread(new Runnable() {
+				@Override
+				public void run() {
+					_gameView.setPacman(pacman);
+				}
+			});
+		}
+
+		@Override
+		public void stationaryObjectRemoved(final StationaryObject object) {
+			_gameView.runOnViewThread(new Runnable() {
+				@Override
+				public void run() {
+					_gameView.removeStationaryObject(object);
 				}
+			});
+		}
 
-				if (_cheat.equals("OOP")) {
-					enterSpecialStage(new SuperPacman(_levelMap));
-					_cheat = "";
-					_cheatUse--;
+		@Override
+		public void stateRestored() {
+			_gameView.runOnViewThread(new Runnable() {
+				@Override
+				public void run() {
+					_gameView.newGame(_levelMap);
+					_gameView.setMonsters(_monsters);
 				}
-			}
+			});
+		}
+
+		@Override
+		public void superPillEaten() {
+			SoundPlayer.playEatSuperPillSound();
+		}
+
+		@Override
+		public void specialStageStarted() {
+			SoundPlayer.playSpecialStageSound();
+		}
+
+		@Override
+		public void monsterEaten(Monster monster) {
+			SoundPlayer.playEatMonsterSound();
+		}
+
+		@Override
+		public void pacmanDied() {
+			SoundPlayer.playPacmanDieSound();
+		}
+	}
+
+	/**
+	 *  Read-only view of the game for the pacman controllers
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	class ReadOnlyGame implements GameInfo {
+
+		@Override
+		public int getWidth() {
+			return _levelMap.getGameDimension().width;
+		}
+
+		@Override
+		public int getHeight() {
+			return _levelMap.getGameDimension().height;
+		}
+
+		@Override
+		public int getExits(int cell) {
+			return _levelMap.getExits(Map.PACMAN_LAYER, cell);
+		}
+
+		@Override
+		public int getNeighbour(int cell, Direction direction) {
+			return _levelMap.getNeighbour(cell % getWidth(), cell / getWidth(), direction);
+		}
+
+		@Override
+		public boolean hasPill(int cell) {
+			return _levelMap.getStationaryObjectsMap()[cell / getWidth()][cell % getWidth()] instanceof Pill;
+		}
+
+		@Override
+		public int getPacmanCell() {
+			return _pacman.getPosition().y * getWidth() + _pacman.getPosition().x;
+		}
+
+		@Override
+		public Direction getPacmanDirection() {
+			return _pacman.getDirection();
+		}
+
+		@Override
+		public int getMonstersCount() {
+			return _monsters.size();
+		}
+
+		@Override
+		public int getMonsterCell(int index) {
+			Monster m = _monsters.get(index);
+			return m.getPosition().y * getWidth() + m.getPosition().x;
+		}
+
+		@Override
+		public boolean isMonsterInFear(int index) {
+			return _monsters.get(index).isInFear();
+		}
+
+		@Override
+		public boolean isMonsterTrapped(int index) {
+			return _monsters.get(index).isTrapped();
+		}
+
+		@Override
+		public long getTicks() {
+			return _clock.getTicks();
+		}
+
+		@Override
+		public int getPoints() {
+			return _points;
+		}
+
+		@Override
+		public int getRemainingLives() {
+			return _remainingLives;
+		}
+
+		@Override
+		public int getRemainingPills() {
+			return _remainingPills;
+		}
+
+		@Override
+		public GameState snapshot(GameState state) {
+			return GameEngine.this.snapshot(state);
+		}
+
+		@Override
+		public GameEngine createSimulation() {
+			// the planners search the simulation's own copy of the map
+			GameEngine engine = new GameEngine(_levelMap, _seed, _ai);
+			engine._ai = _ai.copyFor(engine._levelMap);
+			engine.setMonstersCount(_weakMonsters, _strongMonsters);
+			engine.setFlowField(_flowField != null);
+			engine.setRespawnDelay(_respawnDelay);
+
+			// the same planning mode, with planners of its own
+			if (_plannerService != null)
+				engine.setPlannerService(_plannerService.copyFor(engine._levelMap));
+
+			engine.start();
+			return engine;
+		}
+	}
+
+	/**
+	 *  Change Pacman direction- Keyboard Listener
+	 *  The keys are handled by the game loop on the next game step
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	class MovePacmanListener extends KeyAdapter {
+		@Override
+		public void keyPressed(KeyEvent e) {
+			pressKey(e.getKeyCode());
 		}
 	}
 
@@ -0,0 +1,129 @@
+package pacman.controllers;
+
+import pacman.ai.PathFinder;
+import pacman.ai.PathPlanner;
+import pacman.ai.PathTable;
+import pacman.model.Direction;
+import pacman.model.Map;
+
+/**
+ *  A read-only view of a running game, for the pacman controllers (see {@link PacmanController}).
+ *  The cells are indexed by y * width + x.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public interface GameInfo {
+
+	/**
+	 * Get the board width
+	 * @return width in cells
+	 */
+	public int getWidth();
+
+	/**
+	 * Get the board height
+	 * @return height in cells
+	 */
+	public int getHeight();
+
+	/**
+	 * Get the directions that pacman can leave a cell to
+	 * @param cell cell index
+	 * @return exits mask, a bit for every direction (1 &lt;&lt; (direction.ordinal() - 1))
+	 */
+	public int getExits(int cell);
+
+	/**
+	 * Get the neighbour of a cell (on the other side of the board, or through a portal, for the board edges)
+	 * @param cell cell index
+	 * @param direction direction
+	 * @return neighbour cell index, -1 if there is no neighbour
+	 */
+	public int getNeighbour(int cell, Direction direction);
+
+	/**
+	 * Determines if there is a pill (of any kind) on a cell
+	 * @param cell cell index
+	 * @return true if yes, false if not
+	 */
+	public boolean hasPill(int cell);
+
+	/**
+	 * Get pacman's cell
+	 * @return cell index
+	 */
+	public int getPacmanCell();
+
+	/**
+	 * Get pacman's current direction
+	 * @return direction
+	 */
+	public Direction getPacmanDirection();
+
+	/**
+	 * Get the number of monsters
+	 * @return monsters
+	 */
+	public int getMonstersCount();
+
+	/**
+	 * Get the cell of a monster
+	 * @param index monster index
+	 * @return cell index
+	 */
+	public int getMonsterCell(int index);
+
+	/**
+	 * Determines if a monster is in fear (pacman can eat it)
+	 * @param index monster index
+	 * @return true if yes, false if not
+	 */
+	public boolean isMonsterInFear(int index);
+
+	/**
+	 * Determines if a monster is trapped in the cage
+	 * @param index monster index
+	 * @return true if yes, false if not
+	 */
+	public boolean isMonsterTrapped(int index);
+
+	/**
+	 * Get the number of ticks played in the current game
+	 * @return game ticks
+	 */
+	public long getTicks();
+
+	/**
+	 * Get the game points
+	 * @return points
+	 */
+	public int getPoints();
+
+	/**
+	 * Get pacman's remaining lives
+	 * @return remaining lives
+	 */
+	public int getRemainingLives();
+
+	/**
+	 * Get the remaining pills on the map
+	 * @return remaining pills
+	 */
+	public int getRemainingPills();
+
+	/**
+	 * Save the current game state (for simulating the game from it, see {@link #createSimulation()})
+	 * @param state game state of this game, or of one of its simulations
+	 * @return the given state
+	 */
+	public GameState snapshot(GameState state);
+
+	/**
+	 * Create a headless engine with the same map, monsters & settings as this game, that can be restored to the states of this game
+	 * (for simulating its possible futures). The simulation has a copy of the game's path planner (see {@link PathPlanner#copyFor(Map)},
+	 * a thread safe {@link PathTable} is shared), and it plans the paths in the same mode (immediately, in the background or within
+	 * an AI budget, with planners of its own).
+	 * @return a started game engine
+	 */
+	public GameEngine createSimulation();
+}
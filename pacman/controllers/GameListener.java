@@ -0,0 +1,66 @@
+package pacman.controllers;
+
+import java.util.List;
+
+import pacman.model.Map;
+import pacman.model.Monster;
+import pacman.model.Pacman;
+import pacman.model.StationaryObject;
+
+/**
+ *  [Observer Pattern]
+ *  Listens to the game engine events (for example the game view and the sound effects)
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public interface GameListener {
+	/**
+	 * a new game has been initialized
+	 * @param map the game map
+	 * @param monsters the game monsters
+	 */
+	public void newGame(Map map, List<Monster> monsters);
+
+	/**
+	 * the game pacman has been replaced (new match, or special stage started/ended)
+	 * @param pacman the current pacman
+	 */
+	public void pacmanChanged(Pacman pacman);
+
+	/**
+	 * a stationary object has been removed from the board (for example an eaten pill)
+	 * @param object the removed object
+	 */
+	public void stationaryObjectRemoved(StationaryObject object);
+
+	/**
+	 * pacman ate a super pill or a mighty pill
+	 */
+	public void superPillEaten();
+
+	/**
+	 * the special stage has been started
+	 */
+	public void specialStageStarted();
+
+	/**
+	 * pacman ate a monster
+	 * @param monster the eaten monster
+	 */
+	public void monsterEaten(Monster monster);
+
+	/**
+	 * a monster beats pacman
+	 */
+	public void pacmanDied();
+
+	/**
+	 * the game has been updated (one game tick)
+	 */
+	public void gameUpdated();
+
+	/**
+	 * the game has been restored to a saved state (the pills, pacman & the monsters may have changed)
+	 */
+	public void stateRestored();
+}
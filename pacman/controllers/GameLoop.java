@@ -0,0 +1,160 @@
+package pacman.controllers;
+
+import java.util.concurrent.locks.LockSupport;
+
+import pacman.views.BoardView;
+
+/**
+ *  Game Loop- runs the game on its own thread, with a fixed logic step (1/FPS second, exactly) and rendering between the steps.
+ *  The game steps are driven by the elapsed time: if the loop falls behind it plays the missing steps before the next frame
+ *  (up to a limit, so the game never tries to catch up forever), and every frame is drawn with the fraction of the step
+ *  that passed since the last game step, so the view can interpolate the objects positions.
+ *  The loop measures the duration of every game step and the time between the frames.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GameLoop implements Runnable {
+	/* the fixed game step */
+	public static final long STEP_NANOS = 1000000000L / GameEngine.FPS;
+	/* maximum game steps played before drawing a frame */
+	private static final int MAX_STEPS_PER_FRAME = 5;
+	private GameEngine _engine;
+	private BoardView _view;
+	private Thread _thread;
+	private volatile boolean _running;
+	/* time between frames */
+	private long _frameNanos = STEP_NANOS;
+	/* metrics */
+	private Histogram _tickTimes = new Histogram();
+	private Histogram _frameTimes = new Histogram();
+	private volatile long _droppedSteps;
+
+	/**
+	 * Creates a new game loop
+	 * @param engine game engine to be played
+	 * @param view game view to be rendered (can be null)
+	 */
+	public GameLoop(GameEngine engine, BoardView view) {
+		_engine = engine;
+		_view = view;
+	}
+
+	/**
+	 * Start the game loop thread
+	 */
+	public synchronized void start() {
+		if (_thread != null)
+			return;
+
+		_running = true;
+		_thread = new Thread(this, "Game Loop");
+		_thread.start();
+	}
+
+	/**
+	 * Stop the game loop thread (and wait until it ends)
+	 */
+	public void stop() {
+		Thread thread;
+		synchronized (this) {
+			thread = _thread;
+			_running = false;
+			_thread = null;
+		}
+
+		if (thread != null && thread != Thread.currentThread()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Set the frames rate (the game steps rate is always {@link GameEngine#FPS})
+	 * @param framesPerSecond frames per second
+	 */
+	public void setFrameRate(int framesPerSecond) {
+		if (framesPerSecond > 0)
+			_frameNanos = 1000000000L / framesPerSecond;
+	}
+
+	@Override
+	public void run() {
+		long previous = System.nanoTime();
+		long lag = 0;
+		long nextFrame = previous;
+		long lastFrame = previous;
+
+		while (_running) {
+			long now = System.nanoTime();
+			lag += now - previous;
+			previous = now;
+
+			// don't try to catch up more than a few steps (for example after the computer was suspended)
+			if (lag > MAX_STEPS_PER_FRAME * STEP_NANOS) {
+				_droppedSteps += lag / STEP_NANOS - MAX_STEPS_PER_FRAME;
+				lag = MAX_STEPS_PER_FRAME * STEP_NANOS;
+			}
+
+			// play the game steps
+			while (lag >= STEP_NANOS) {
+				long start = System.nanoTime();
+				_engine.tick();
+				_tickTimes.record(System.nanoTime() - start);
+				lag -= STEP_NANOS;
+			}
+
+			// draw a frame
+			if (now >= nextFrame) {
+				if (_view != null)
+					_view.renderFrame((float)lag / STEP_NANOS);
+
+				long frameTime = System.nanoTime();
+				_frameTimes.record(frameTime - lastFrame);
+				lastFrame = frameTime;
+				nextFrame += _frameNanos;
+				if (nextFrame < frameTime)
+					nextFrame = frameTime + _frameNanos; // too late, skip the missed frames
+			}
+
+			// wait for the next step or the next frame
+			long wait = Math.min(STEP_NANOS - lag, nextFrame - System.nanoTime());
+			if (wait > 0)
+				LockSupport.parkNanos(wait);
+		}
+	}
+
+	/**
+	 * Get the histogram of the game steps durations
+	 * @return tick times histogram
+	 */
+	public Histogram getTickTimes() {
+		return _tickTimes;
+	}
+
+	/**
+	 * Get the histogram of the time between frames
+	 * @return frame times histogram
+	 */
+	public Histogram getFrameTimes() {
+		return _frameTimes;
+	}
+
+	/**
+	 * Get the number of game steps that were skipped because the loop fell too far behind
+	 * @return dropped steps
+	 */
+	public long getDroppedSteps() {
+		return _droppedSteps;
+	}
+
+	/**
+	 * Determines if the loop is running
+	 * @return true if running, false if not
+	 */
+	public boolean isRunning() {
+		return _running;
+	}
+}
@@ -0,0 +1,233 @@
+package pacman.controllers;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import pacman.ai.Path;
+
+/**
+ *  A saved game state: everything that a game step depends on, in primitive arrays- the removed pills (a bit for every cell),
+ *  the state of pacman & the monsters (pixel positions, directions, paths, cage timers), the game timers, score, lives
+ *  and the random numbers generator. A state is filled by {@link GameEngine#snapshot(GameState)} and is put back by
+ *  {@link GameEngine#restore(GameState)}, both without any allocation, so the same state objects are reused
+ *  (see {@link GameStatePool}). An engine that is restored to a state plays from there exactly as it played after the snapshot.
+ *  A state fits only the engine that created it (or an engine with the same map & monsters).
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GameState {
+	private static final int MAGIC = 0x504d5353;
+	/* game steps, clock ticks, timers & the random generator state */
+	long _steps;
+	long _ticks;
+	long _specialStageEndTime;
+	long _respawnTime;
+	long _random;
+	/* score & game information */
+	int _points;
+	int _remainingLives;
+	int _remainingPills;
+	/* cheat progress (see GameEngine) and remaining cheat uses */
+	int _cheat;
+	int _cheatUse;
+	/* the current pacman (0- regular, 1- super, 2- mighty) */
+	int _pacman;
+	boolean _running;
+	boolean _gameOver;
+	boolean _levelCleared;
+	/* the cells which their stationary object was removed (see Map#saveRemovedObjects) */
+	long[] _removedObjects;
+	/* the state of pacman, then the state of every monster */
+	int[] _objects;
+	/* the path of every monster */
+	Path[] _paths;
+
+	/**
+	 * Creates an empty state for a game
+	 * @param cellWords length of the removed objects bitset
+	 * @param objectsSize number of values in the objects state
+	 * @param monsters number of monsters
+	 */
+	GameState(int cellWords, int objectsSize, int monsters) {
+		_removedObjects = new long[cellWords];
+		_objects = new int[objectsSize];
+		_paths = new Path[monsters];
+		for (int i = 0; i < monsters; i++) {
+			_paths[i] = new Path();
+		}
+	}
+
+	/**
+	 * Determines if this state fits a game with the given sizes
+	 */
+	boolean fits(int cellWords, int objectsSize, int monsters) {
+		return _removedObjects.length == cellWords && _objects.length == objectsSize && _paths.length == monsters;
+	}
+
+	/**
+	 * Get the game steps since the engine was created
+	 * @return game steps
+	 */
+	public long getSteps() {
+		return _steps;
+	}
+
+	/**
+	 * Get the number of ticks played in the game
+	 * @return game ticks
+	 */
+	public long getTicks() {
+		return _ticks;
+	}
+
+	/**
+	 * Get the game points
+	 * @return points
+	 */
+	public int getPoints() {
+		return _points;
+	}
+
+	/**
+	 * Get pacman's remaining lives
+	 * @return remaining lives
+	 */
+	public int getRemainingLives() {
+		return _remainingLives;
+	}
+
+	/**
+	 * Get the remaining pills on the map
+	 * @return remaining pills
+	 */
+	public int getRemainingPills() {
+		return _remainingPills;
+	}
+
+	/**
+	 * Determines if the game is over (pacman has no remaining lives)
+	 * @return true if the game is over, false if not
+	 */
+	public boolean isGameOver() {
+		return _gameOver;
+	}
+
+	/**
+	 * Determines if pacman ate all the pills
+	 * @return true if yes, false if not
+	 */
+	public boolean isLevelCleared() {
+		return _levelCleared;
+	}
+
+	/**
+	 * Copy another state of the same game into this state
+	 * @param state game state
+	 */
+	public void copyFrom(GameState state) {
+		if (!fits(state._removedObjects.length, state._objects.length, state._paths.length))
+			throw new IllegalArgumentException("The state belongs to another game");
+
+		_steps = state._steps;
+		_ticks = state._ticks;
+		_specialStageEndTime = state._specialStageEndTime;
+		_respawnTime = state._respawnTime;
+		_random = state._random;
+		_points = state._points;
+		_remainingLives = state._remainingLives;
+		_remainingPills = state._remainingPills;
+		_cheat = state._cheat;
+		_cheatUse = state._cheatUse;
+		_pacman = state._pacman;
+		_running = state._running;
+		_gameOver = state._gameOver;
+		_levelCleared = state._levelCleared;
+		System.arraycopy(state._removedObjects, 0, _removedObjects, 0, _removedObjects.length);
+		System.arraycopy(state._objects, 0, _objects, 0, _objects.length);
+		for (int i = 0; i < _paths.length; i++) {
+			_paths[i].copyFrom(state._paths[i]);
+		}
+	}
+
+	/**
+	 * Get the number of bytes that {@link #write(ByteBuffer)} writes
+	 * @return state size in bytes
+	 */
+	public int getSize() {
+		int size = 4 + 5 * 8 + 6 * 4 + 3 + 8 * _removedObjects.length + 4 * _objects.length;
+		for (int i = 0; i < _paths.length; i++) {
+			size += 4 + 4 * _paths[i].getLength();
+		}
+
+		return size;
+	}
+
+	/**
+	 * Write the state into a buffer (for saving the game, for example for recovering it after a crash)
+	 * @param buffer byte buffer, with at least {@link #getSize()} remaining bytes
+	 */
+	public void write(ByteBuffer buffer) {
+		buffer.putInt(MAGIC);
+		buffer.putLong(_steps).putLong(_ticks).putLong(_specialStageEndTime).putLong(_respawnTime).putLong(_random);
+		buffer.putInt(_points).putInt(_remainingLives).putInt(_remainingPills).putInt(_cheat).putInt(_cheatUse).putInt(_pacman);
+		buffer.put((byte)(_running ? 1 : 0)).put((byte)(_gameOver ? 1 : 0)).put((byte)(_levelCleared ? 1 : 0));
+		for (int i = 0; i < _removedObjects.length; i++) {
+			buffer.putLong(_removedObjects[i]);
+		}
+		for (int i = 0; i < _objects.length; i++) {
+			buffer.putInt(_objects[i]);
+		}
+
+		// the steps of the paths (packed x, y)
+		for (int i = 0; i < _paths.length; i++) {
+			Path path = _paths[i];
+			buffer.putInt(path.getLength());
+			for (int j = 0; j < path.getLength(); j++) {
+				buffer.putShort((short)path.getX(j)).putShort((short)path.getY(j));
+			}
+		}
+	}
+
+	/**
+	 * Read a state that was written by {@link #write(ByteBuffer)} into this state
+	 * @param buffer byte buffer
+	 * @throws IllegalArgumentException if the buffer doesn't contain a state of this game
+	 */
+	public void read(ByteBuffer buffer) {
+		try {
+			if (buffer.getInt() != MAGIC)
+				throw new IllegalArgumentException("Not a game state");
+
+			_steps = buffer.getLong();
+			_ticks = buffer.getLong();
+			_specialStageEndTime = buffer.getLong();
+			_respawnTime = buffer.getLong();
+			_random = buffer.getLong();
+			_points = buffer.getInt();
+			_remainingLives = buffer.getInt();
+			_remainingPills = buffer.getInt();
+			_cheat = buffer.getInt();
+			_cheatUse = buffer.getInt();
+			_pacman = buffer.getInt();
+			_running = buffer.get() != 0;
+			_gameOver = buffer.get() != 0;
+			_levelCleared = buffer.get() != 0;
+			for (int i = 0; i < _removedObjects.length; i++) {
+				_removedObjects[i] = buffer.getLong();
+			}
+			for (int i = 0; i < _objects.length; i++) {
+				_objects[i] = buffer.getInt();
+			}
+
+			for (int i = 0; i < _paths.length; i++) {
+				Path path = _paths[i];
+				path.clear();
+				for (int j = buffer.getInt(); j > 0; j--) {
+					path.appendStep(buffer.getShort() & 0xffff, buffer.getShort() & 0xffff);
+				}
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("The game state is truncated", e);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package pacman.controllers;
+
+import java.util.ArrayDeque;
+
+/**
+ *  A pool of reusable game states for one engine (for rollback and lookahead search, that take many snapshots)-
+ *  the states are created only when the pool is empty, so a search that releases its states doesn't allocate after the first snapshots.
+ *  A pool isn't thread safe.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GameStatePool {
+	private GameEngine _engine;
+	/* the released states */
+	private ArrayDeque<GameState> _free = new ArrayDeque<GameState>();
+	/* number of states that were created by the pool */
+	private int _created;
+
+	/**
+	 * Creates a new pool for the given engine (the monsters must already exist, see {@link GameEngine#start()})
+	 * @param engine game engine
+	 */
+	public GameStatePool(GameEngine engine) {
+		_engine = engine;
+	}
+
+	/**
+	 * Take a state from the pool, and fill it with the current state of the engine
+	 * @return game state (returned to the pool by {@link #release(GameState)})
+	 */
+	public GameState snapshot() {
+		GameState state = _free.pollLast();
+		if (state == null) {
+			state = _engine.createState();
+			_created++;
+		}
+
+		return _engine.snapshot(state);
+	}
+
+	/**
+	 * Return a state to the pool (the state mustn't be used after that)
+	 * @param state game state taken from this pool
+	 */
+	public void release(GameState state) {
+		_free.addLast(state);
+	}
+
+	/**
+	 * Get the number of states that were created by the pool
+	 * @return created states
+	 */
+	public int getCreatedCount() {
+		return _created;
+	}
+
+	/**
+	 * Get the number of states in the pool
+	 * @return free states
+	 */
+	public int getFreeCount() {
+		return _free.size();
+	}
+}
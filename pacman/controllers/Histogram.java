@@ -0,0 +1,123 @@
+package pacman.controllers;
+
+/**
+ *  Histogram of durations (in nanoseconds), for measuring the game loop (tick times & frame times).
+ *  The buckets are log-linear: 16 buckets for every power of two, so every value is recorded with an error of 6.25% at most,
+ *  and recording a value doesn't allocate.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class Histogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	private long[] _counts = new long[BUCKETS];
+	private long _count;
+	private long _total;
+	private long _min = Long.MAX_VALUE;
+	private long _max;
+
+	/**
+	 * Record a duration
+	 * @param nanos duration in nanoseconds
+	 */
+	public synchronized void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+
+		_counts[bucket(nanos)]++;
+		_count++;
+		_total += nanos;
+		_min = Math.min(_min, nanos);
+		_max = Math.max(_max, nanos);
+	}
+
+	/**
+	 * Remove all the recorded values
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			_counts[i] = 0;
+		}
+		_count = 0;
+		_total = 0;
+		_min = Long.MAX_VALUE;
+		_max = 0;
+	}
+
+	/**
+	 * Get the number of recorded values
+	 * @return values count
+	 */
+	public synchronized long getCount() {
+		return _count;
+	}
+
+	/**
+	 * Get the mean of the recorded values
+	 * @return mean in nanoseconds (0 if there are no values)
+	 */
+	public synchronized double getMean() {
+		return _count == 0 ? 0 : (double)_total / _count;
+	}
+
+	/**
+	 * Get the minimal recorded value
+	 * @return minimum in nanoseconds (0 if there are no values)
+	 */
+	public synchronized long getMin() {
+		return _count == 0 ? 0 : _min;
+	}
+
+	/**
+	 * Get the maximal recorded value
+	 * @return maximum in nanoseconds
+	 */
+	public synchronized long getMax() {
+		return _max;
+	}
+
+	/**
+	 * Get the value that the given percent of the recorded values are lower than or equal to
+	 * @param percent percentile (0 - 100)
+	 * @return the percentile value in nanoseconds (the upper bound of its bucket), 0 if there are no values
+	 */
+	public synchronized long getPercentile(double percent) {
+		if (_count == 0)
+			return 0;
+
+		long rank = Math.max(1, (long)Math.ceil(_count * Math.min(100, Math.max(0, percent)) / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += _counts[i];
+			if (seen >= rank)
+				return Math.max(_min, Math.min(_max, upperBound(i)));
+		}
+
+		return _max;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+				_count, getMean() / 1e6, getPercentile(50) / 1e6, getPercentile(90) / 1e6, getPercentile(99) / 1e6, _max / 1e6);
+	}
+
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS)
+			return (int)value;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + (int)(value >>> shift) - SUB_BUCKETS;
+	}
+
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long subBucket = SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
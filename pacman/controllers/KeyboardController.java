@@ -0,0 +1,41 @@
+package pacman.controllers;
+
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+
+import pacman.model.Direction;
+
+/**
+ *  Keyboard pacman controller- the arrow keys turn pacman and the space stops it, like the game's own keyboard handling.
+ *  Listens to the keys of the component that it's added to (the engine ignores its own direction keys while a controller drives pacman).
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class KeyboardController extends KeyAdapter implements PacmanController {
+	/* the direction of the last key pressed since the last decision (null if no key was pressed) */
+	private volatile Direction _pressed;
+
+	@Override
+	public void keyPressed(KeyEvent e) {
+		if (e.getKeyCode() == KeyEvent.VK_UP)
+			_pressed = Direction.UP;
+		else if (e.getKeyCode() == KeyEvent.VK_DOWN)
+			_pressed = Direction.DOWN;
+		else if (e.getKeyCode() == KeyEvent.VK_RIGHT)
+			_pressed = Direction.RIGHT;
+		else if (e.getKeyCode() == KeyEvent.VK_LEFT)
+			_pressed = Direction.LEFT;
+		else if (e.getKeyCode() == KeyEvent.VK_SPACE)
+			_pressed = Direction.NONE;
+	}
+
+	/**
+	 * Every key press is decided once
+	 */
+	@Override
+	public Direction decide(GameInfo game, long nanos) {
+		Direction direction = _pressed;
+		_pressed = null;
+		return direction;
+	}
+}
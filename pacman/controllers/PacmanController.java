@@ -0,0 +1,22 @@
+package pacman.controllers;
+
+import pacman.model.Direction;
+
+/**
+ *  Drives pacman instead of the keyboard: the engine asks the controller for a decision whenever pacman is on a cell
+ *  (see {@link GameEngine#setPacmanController(PacmanController, long)}). A decision is handled like a key press of its direction,
+ *  so pacman turns on the next cell that allows it.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public interface PacmanController {
+
+	/**
+	 * Decide pacman's direction
+	 * @param game read-only view of the game (valid only during the call)
+	 * @param nanos the time budget of the decision in nanoseconds (Long.MAX_VALUE if there is no budget),
+	 * a decision that takes longer is dropped
+	 * @return the new direction (NONE for stopping), null for no change
+	 */
+	public Direction decide(GameInfo game, long nanos);
+}
@@ -0,0 +1,50 @@
+package pacman.controllers;
+
+import pacman.model.Direction;
+
+/**
+ *  Scripted pacman controller- turns pacman to the given directions at the given game ticks (for tests and benchmarks).
+ *  Every direction is decided once, on the first decision at or after its tick, and the script starts again when a new game starts.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ScriptedController implements PacmanController {
+	private long[] _ticks;
+	private Direction[] _directions;
+	/* the next direction of the script, and the ticks of the last decision */
+	private int _next;
+	private long _lastTicks = -1;
+
+	/**
+	 * Creates a new scripted controller
+	 * @param ticks the game ticks of the directions, in ascending order
+	 * @param directions the directions
+	 */
+	public ScriptedController(long[] ticks, Direction[] directions) {
+		if (ticks.length != directions.length)
+			throw new IllegalArgumentException("A direction is needed for every tick");
+		for (int i = 1; i < ticks.length; i++) {
+			if (ticks[i] < ticks[i - 1])
+				throw new IllegalArgumentException("The ticks must be in ascending order");
+		}
+
+		_ticks = ticks.clone();
+		_directions = directions.clone();
+	}
+
+	@Override
+	public Direction decide(GameInfo game, long nanos) {
+		// the game clock went back- a new game
+		if (game.getTicks() < _lastTicks)
+			_next = 0;
+		_lastTicks = game.getTicks();
+
+		// the last direction that its tick passed (the directions that were skipped meanwhile don't matter)
+		Direction direction = null;
+		while (_next < _ticks.length && _ticks[_next] <= game.getTicks()) {
+			direction = _directions[_next++];
+		}
+
+		return direction;
+	}
+}
@@ -0,0 +1,218 @@
+package pacman.gym;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *  A blocking client of a {@link GymServer}- opens environments on the server, and resets or steps batches of them.
+ *  The results of the last batch are read from the response buffer (the observations aren't copied out of it),
+ *  so they are valid until the next request.
+ *  A client isn't thread safe.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GymClient implements AutoCloseable {
+	private SocketChannel _channel;
+	private ByteBuffer _request = ByteBuffer.allocateDirect(4 + GymServer.MAX_REQUEST);
+	private ByteBuffer _response = ByteBuffer.allocateDirect(256);
+	/* the environments information (from the open response) */
+	private int _environments;
+	private int _width;
+	private int _height;
+	private int _planes;
+	private int _observationSize;
+	/* the environments count of the last response */
+	private int _count;
+
+	/**
+	 * Connect to a server
+	 * @param address the server address (a loopback socket address or a Unix domain socket address)
+	 * @throws IOException if the client can't connect
+	 */
+	public GymClient(SocketAddress address) throws IOException {
+		_channel = address instanceof UnixDomainSocketAddress ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+		_channel.connect(address);
+		if (!(address instanceof UnixDomainSocketAddress))
+			_channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+	}
+
+	/**
+	 * Open the environments of this client
+	 * @param count number of environments
+	 * @throws IOException if the server can't open them
+	 */
+	public void open(int count) throws IOException {
+		_request.clear();
+		_request.putInt(5).put(GymServer.OPEN).putInt(count);
+		call();
+
+		_environments = _response.getInt();
+		_width = _response.getInt();
+		_height = _response.getInt();
+		_planes = _response.getInt();
+		_response.getInt();
+		_observationSize = _planes * _width * _height;
+	}
+
+	/**
+	 * Start new episodes in a batch of environments
+	 * @param environments environment indexes
+	 * @param seeds games seeds
+	 * @param count batch size
+	 * @throws IOException if the server can't reset them
+	 */
+	public void reset(int[] environments, long[] seeds, int count) throws IOException {
+		_request.clear();
+		_request.putInt(1 + 4 + count * 12).put(GymServer.RESET).putInt(count);
+		for (int i = 0; i < count; i++) {
+			_request.putInt(environments[i]).putLong(seeds[i]);
+		}
+		call();
+		_count = _response.getInt();
+	}
+
+	/**
+	 * Play a move in a batch of environments
+	 * @param environments environment indexes
+	 * @param actions actions (see {@link GymEnvironment#step(int)})
+	 * @param count batch size
+	 * @throws IOException if the server can't step them
+	 */
+	public void step(int[] environments, byte[] actions, int count) throws IOException {
+		_request.clear();
+		_request.putInt(1 + 4 + count * 5).put(GymServer.STEP).putInt(count);
+		for (int i = 0; i < count; i++) {
+			_request.putInt(environments[i]).put(actions[i]);
+		}
+		call();
+		_count = _response.getInt();
+	}
+
+	/**
+	 * Send the request and read the whole response
+	 */
+	private void call() throws IOException {
+		_request.flip();
+		while (_request.hasRemaining()) {
+			_channel.write(_request);
+		}
+
+		_response.clear().limit(4);
+		readFully();
+		int length = _response.getInt(0);
+		if (_response.capacity() < 4 + length)
+			_response = ByteBuffer.allocateDirect(4 + length);
+		_response.clear().limit(4 + length).position(4);
+		readFully();
+		_response.position(4);
+
+		if (_response.get() != GymServer.OK) {
+			byte[] message = new byte[length - 1];
+			_response.get(message);
+			throw new IOException("The server failed: " + new String(message, StandardCharsets.UTF_8));
+		}
+	}
+
+	private void readFully() throws IOException {
+		while (_response.hasRemaining()) {
+			if (_channel.read(_response) < 0)
+				throw new EOFException("The server closed the connection");
+		}
+	}
+
+	/**
+	 * Get the offset of an environment's result in the response
+	 */
+	private int offset(int index) {
+		if (index < 0 || index >= _count)
+			throw new IndexOutOfBoundsException("No such result: " + index);
+
+		return 4 + 1 + 4 + index * (GymServer.ENVIRONMENT_HEADER + _observationSize);
+	}
+
+	/**
+	 * Get the environment of a result of the last batch
+	 * @param index result index (the order of the batch)
+	 * @return environment index
+	 */
+	public int getEnvironment(int index) {
+		return _response.getInt(offset(index));
+	}
+
+	/**
+	 * Get the reward of a result of the last batch
+	 * @param index result index
+	 * @return points gained
+	 */
+	public int getReward(int index) {
+		return _response.getInt(offset(index) + 4);
+	}
+
+	/**
+	 * Determines if the episode of a result of the last batch is done
+	 * @param index result index
+	 * @return true if done
+	 */
+	public boolean isDone(int index) {
+		return _response.get(offset(index) + 8) != 0;
+	}
+
+	/**
+	 * Get the observation of a result of the last batch (a view of the response, valid until the next request)
+	 * @param index result index
+	 * @return observation, planes of a byte for every cell (see {@link GymEnvironment})
+	 */
+	public ByteBuffer getObservation(int index) {
+		int offset = offset(index) + GymServer.ENVIRONMENT_HEADER;
+		ByteBuffer observation = _response.duplicate();
+		observation.limit(offset + _observationSize).position(offset);
+		return observation.slice();
+	}
+
+	/**
+	 * Get the number of environments that were opened
+	 * @return environments count
+	 */
+	public int getEnvironmentsCount() {
+		return _environments;
+	}
+
+	/**
+	 * Get the board width
+	 * @return width in cells
+	 */
+	public int getWidth() {
+		return _width;
+	}
+
+	/**
+	 * Get the board height
+	 * @return height in cells
+	 */
+	public int getHeight() {
+		return _height;
+	}
+
+	/**
+	 * Get the number of planes of an observation
+	 * @return planes count
+	 */
+	public int getPlanesCount() {
+		return _planes;
+	}
+
+	/**
+	 * Disconnect from the server (its environments are closed)
+	 */
+	@Override
+	public void close() throws IOException {
+		_channel.close();
+	}
+}
@@ -0,0 +1,268 @@
+package pacman.gym;
+
+import java.nio.ByteBuffer;
+
+import pacman.ai.PathPlanner;
+import pacman.controllers.GameEngine;
+import pacman.controllers.GameState;
+import pacman.model.Direction;
+import pacman.model.Map;
+import pacman.model.MightyPacman;
+import pacman.model.MightyPill;
+import pacman.model.Monster;
+import pacman.model.Pacman;
+import pacman.model.Pill;
+import pacman.model.StationaryObject;
+import pacman.model.StrongMonster;
+import pacman.model.SuperPacman;
+import pacman.model.SuperPill;
+
+/**
+ *  A reinforcement learning environment- a headless game that is played one pacman move at a time.
+ *  A step turns pacman to the action's direction and plays until pacman reaches the next cell (or stops, dies, or the game ends),
+ *  its reward is the points that were gained in the step.
+ *  The observation is kept in a direct byte buffer, as planes of a byte for every cell (y * width + x), in the order of the
+ *  plane constants: walls, pills, super pills, mighty pills, pacman (1- regular, 2- super, 3- mighty), the number of
+ *  weak & strong monsters on the cell, and the number of monsters in fear on the cell.
+ *  Only the cells that changed in a step are written, so a step doesn't allocate and doesn't rewrite the whole board.
+ *  An environment isn't thread safe.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GymEnvironment {
+	/* observation planes */
+	public static final int WALLS_PLANE = 0;
+	public static final int PILLS_PLANE = 1;
+	public static final int SUPER_PILLS_PLANE = 2;
+	public static final int MIGHTY_PILLS_PLANE = 3;
+	public static final int PACMAN_PLANE = 4;
+	public static final int WEAK_MONSTERS_PLANE = 5;
+	public static final int STRONG_MONSTERS_PLANE = 6;
+	public static final int FEAR_PLANE = 7;
+	public static final int PLANES = 8;
+	/* actions: keep the current direction, or the ordinal of a direction */
+	public static final int ACTIONS = 5;
+	/* maximum ticks of a step (pacman reaches the next cell within a few ticks) */
+	private static final int MAX_STEP_TICKS = GameEngine.FPS;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private GameEngine _engine;
+	/* the game state before any episode (every episode starts from it) */
+	private GameState _initialState;
+	private Map _map;
+	private int _width;
+	private int _cells;
+	/* maximum ticks of an episode (a longer episode is done) */
+	private long _maxTicks;
+	private ByteBuffer _observation;
+	/* the removed objects when the pills planes were written, and a buffer for the current ones */
+	private long[] _removedObjects;
+	private long[] _currentRemovedObjects;
+	/* the cells of the objects in the observation (to clear them in the next step) */
+	private int _pacmanCell;
+	private int[] _monsterCells;
+	/* the last step */
+	private int _reward;
+	private boolean _done;
+
+	/**
+	 * Creates a new environment
+	 * @param map game map (the environment plays on its own copy of the map)
+	 * @param ai path planner for the monsters (can be shared between environments, if it's thread safe), null for a planner of its own
+	 * @param maxTicks maximum ticks of an episode
+	 */
+	public GymEnvironment(Map map, PathPlanner ai, long maxTicks) {
+		_engine = new GameEngine(map, 0, ai);
+		_engine.start();
+		_initialState = _engine.snapshot(_engine.createState());
+		_map = _engine.getMap();
+		_width = _map.getGameDimension().width;
+		_cells = _width * _map.getGameDimension().height;
+		_maxTicks = maxTicks;
+		_observation = ByteBuffer.allocateDirect(PLANES * _cells);
+		_removedObjects = new long[_map.getRemovedObjectsLength()];
+		_currentRemovedObjects = new long[_map.getRemovedObjectsLength()];
+
+		// the walls never change
+		for (int cell = 0; cell < _cells; cell++) {
+			_observation.put(WALLS_PLANE * _cells + cell, (byte)(_map.isPassable(Map.PACMAN_LAYER, cell) ? 0 : 1));
+		}
+	}
+
+	/**
+	 * Start a new episode. The whole game is restored to its state before any episode (the objects of the previous episode
+	 * keep nothing of it), and then a new game starts with the seed.
+	 * @param seed game seed (the same seed and actions play the same episode, in a new or a reused environment)
+	 */
+	public void reset(long seed) {
+		_engine.restore(_initialState);
+		_engine.reseed(seed);
+		_engine.start();
+		_reward = 0;
+		_done = false;
+
+		// the whole observation but the walls
+		for (int i = PILLS_PLANE * _cells; i < PLANES * _cells; i++) {
+			_observation.put(i, (byte)0);
+		}
+
+		StationaryObject[][] objects = _map.getStationaryObjectsMap();
+		for (int cell = 0; cell < _cells; cell++) {
+			int plane = getPillPlane(objects[cell / _width][cell % _width]);
+			if (plane >= 0)
+				_observation.put(plane * _cells + cell, (byte)1);
+		}
+		_map.saveRemovedObjects(_removedObjects);
+
+		if (_monsterCells == null)
+			_monsterCells = new int[_engine.getMonsters().size()];
+		writeObjects();
+	}
+
+	/**
+	 * Play one pacman move
+	 * @param action 0 to keep the current direction, or a direction ordinal (see {@link Direction})
+	 * @return the points that were gained in the move
+	 */
+	public int step(int action) {
+		if (action < 0 || action >= ACTIONS)
+			throw new IllegalArgumentException("Unknown action: " + action);
+		if (_monsterCells == null)
+			throw new IllegalStateException("The environment wasn't reset");
+
+		if (_done) {
+			_reward = 0;
+			return 0;
+		}
+
+		int points = _engine.getPoints();
+		Pacman pacman = _engine.getPacman();
+		int cell = pacman.getPosition().y * _width + pacman.getPosition().x;
+		if (action != 0)
+			pacman.setDirection(DIRECTIONS[action]);
+
+		int lives = _engine.getRemainingLives();
+		for (int t = 0; t < MAX_STEP_TICKS && !_engine.isGameOver() && !_engine.isLevelCleared(); t++) {
+			_engine.tick();
+			if (_engine.getRemainingLives() < lives)
+				break;
+
+			pacman = _engine.getPacman();
+			if (pacman.isStep() && (pacman.getPosition().y * _width + pacman.getPosition().x != cell || pacman.getDirection() == Direction.NONE))
+				break;
+		}
+
+		_reward = _engine.getPoints() - points;
+		_done = _engine.isGameOver() || _engine.isLevelCleared() || _engine.getTicks() >= _maxTicks;
+		writePills();
+		writeObjects();
+		return _reward;
+	}
+
+	/**
+	 * Clear the pills that were eaten since the pills were written
+	 */
+	private void writePills() {
+		_map.saveRemovedObjects(_currentRemovedObjects);
+		for (int i = 0; i < _removedObjects.length; i++) {
+			for (long eaten = _currentRemovedObjects[i] & ~_removedObjects[i]; eaten != 0; eaten &= eaten - 1) {
+				int cell = (i << 6) + Long.numberOfTrailingZeros(eaten);
+				_observation.put(PILLS_PLANE * _cells + cell, (byte)0);
+				_observation.put(SUPER_PILLS_PLANE * _cells + cell, (byte)0);
+				_observation.put(MIGHTY_PILLS_PLANE * _cells + cell, (byte)0);
+			}
+			_removedObjects[i] = _currentRemovedObjects[i];
+		}
+	}
+
+	/**
+	 * Move pacman & the monsters in the observation
+	 */
+	private void writeObjects() {
+		_observation.put(PACMAN_PLANE * _cells + _pacmanCell, (byte)0);
+		for (int i = 0; i < _monsterCells.length; i++) {
+			_observation.put(WEAK_MONSTERS_PLANE * _cells + _monsterCells[i], (byte)0);
+			_observation.put(STRONG_MONSTERS_PLANE * _cells + _monsterCells[i], (byte)0);
+			_observation.put(FEAR_PLANE * _cells + _monsterCells[i], (byte)0);
+		}
+
+		Pacman pacman = _engine.getPacman();
+		_pacmanCell = pacman.getPosition().y * _width + pacman.getPosition().x;
+		_observation.put(PACMAN_PLANE * _cells + _pacmanCell, (byte)(pacman instanceof MightyPacman ? 3 : pacman instanceof SuperPacman ? 2 : 1));
+
+		for (int i = 0; i < _monsterCells.length; i++) {
+			Monster monster = _engine.getMonsters().get(i);
+			int cell = monster.getPosition().y * _width + monster.getPosition().x;
+			_monsterCells[i] = cell;
+			increment((monster instanceof StrongMonster ? STRONG_MONSTERS_PLANE : WEAK_MONSTERS_PLANE) * _cells + cell);
+			if (monster.isInFear())
+				increment(FEAR_PLANE * _cells + cell);
+		}
+	}
+
+	private void increment(int index) {
+		_observation.put(index, (byte)(_observation.get(index) + 1));
+	}
+
+	/**
+	 * Get the plane of a pill
+	 * @return pill plane, -1 if the object isn't a pill
+	 */
+	private static int getPillPlane(StationaryObject object) {
+		if (object instanceof MightyPill)
+			return MIGHTY_PILLS_PLANE;
+		if (object instanceof SuperPill)
+			return SUPER_PILLS_PLANE;
+		if (object instanceof Pill)
+			return PILLS_PLANE;
+
+		return -1;
+	}
+
+	/**
+	 * Get the observation (read only, its position & limit are not used by the environment)
+	 * @return observation buffer, {@link #PLANES} planes of a byte for every cell
+	 */
+	public ByteBuffer getObservation() {
+		return _observation;
+	}
+
+	/**
+	 * Get the reward of the last step
+	 * @return points gained
+	 */
+	public int getReward() {
+		return _reward;
+	}
+
+	/**
+	 * Determines if the episode is done (the game is over, the level was cleared or the episode reached the ticks limit)
+	 * @return true if done
+	 */
+	public boolean isDone() {
+		return _done;
+	}
+
+	/**
+	 * Get the game engine of the environment
+	 * @return game engine
+	 */
+	public GameEngine getEngine() {
+		return _engine;
+	}
+
+	/**
+	 * Get the board width
+	 * @return width in cells
+	 */
+	public int getWidth() {
+		return _width;
+	}
+
+	/**
+	 * Get the board height
+	 * @return height in cells
+	 */
+	public int getHeight() {
+		return _cells / _width;
+	}
+}
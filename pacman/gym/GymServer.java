@@ -0,0 +1,445 @@
+package pacman.gym;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import pacman.ai.PathPlanner;
+import pacman.ai.PathTable;
+import pacman.model.Map;
+import pacman.sim.BatchRunner;
+
+/**
+ *  Reinforcement learning environments server- hosts headless games (see {@link GymEnvironment}) for clients that connect
+ *  over a local socket (TCP on the loopback, or a Unix domain socket), on a single selector thread.
+ *  Every client opens its own environments, and resets or steps a batch of them in every request, the batch is
+ *  played on a fork-join pool.
+ *  The protocol is binary (big endian), every message is an int length (of the rest of the message) and then the message:
+ *  <pre>
+ *  request                                   response
+ *  OPEN   count                              OK count width height planes actions
+ *  RESET  k, k * (env:int seed:long)         OK k, k * (env:int reward:int done:byte observation)
+ *  STEP   k, k * (env:int action:byte)       OK k, k * (env:int reward:int done:byte observation)
+ *                                            ERROR message (UTF-8) for a request that can't be handled
+ *  </pre>
+ *  The operations & the status are a byte, and the counts are ints. An observation is planes * width * height bytes
+ *  (see {@link GymEnvironment}), written to the socket right from the environment's direct buffer (a gathering write),
+ *  so the observations are never copied by the server, and the buffers of a client are reused for all of its requests.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GymServer implements Runnable {
+	/* operations */
+	public static final byte OPEN = 1;
+	public static final byte RESET = 2;
+	public static final byte STEP = 3;
+	/* response status */
+	public static final byte OK = 0;
+	public static final byte ERROR = 1;
+	/* maximum length of a request, and maximum environments of a client */
+	public static final int MAX_REQUEST = 1 << 16;
+	public static final int MAX_ENVIRONMENTS = 4096;
+	/* size of the header of every environment in a response (env, reward, done) */
+	public static final int ENVIRONMENT_HEADER = 9;
+	/* the smallest batch that is split between the threads */
+	private static final int SPLIT_SIZE = 8;
+	private Map _map;
+	private PathPlanner _ai;
+	/* maximum ticks of an episode */
+	private long _maxTicks = BatchRunner.DEFAULT_MAX_TICKS;
+	/* plays the batches (null for playing them on the selector thread) */
+	private ForkJoinPool _pool;
+	private ServerSocketChannel _server;
+	private Selector _selector;
+	private volatile boolean _running;
+
+	/**
+	 * Creates a new server for the given map
+	 * @param map games map
+	 * @param parallelism number of threads that play the batches
+	 */
+	public GymServer(Map map, int parallelism) {
+		this(map, PathTable.fits(map) ? new PathTable(map) : null, parallelism);
+	}
+
+	/**
+	 * Creates a new server for the given map and path planner
+	 * @param map games map
+	 * @param ai path planner shared by all the environments (must be thread safe), null for a planner of every environment
+	 * @param parallelism number of threads that play the batches
+	 */
+	public GymServer(Map map, PathPlanner ai, int parallelism) {
+		_map = map;
+		_ai = ai;
+		if (parallelism > 1)
+			_pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Set the maximum ticks of an episode (an episode that reaches it is done)
+	 * @param maxTicks maximum ticks
+	 */
+	public void setMaxTicks(long maxTicks) {
+		_maxTicks = maxTicks;
+	}
+
+	/**
+	 * Listen on the given address
+	 * @param address a loopback socket address (port 0 for any free port), or a Unix domain socket address
+	 * @return the address that the server listens on
+	 * @throws IOException if the server can't listen on the address
+	 */
+	public SocketAddress bind(SocketAddress address) throws IOException {
+		_server = address instanceof UnixDomainSocketAddress ? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open();
+		_server.bind(address);
+		_server.configureBlocking(false);
+		_selector = Selector.open();
+		_server.register(_selector, SelectionKey.OP_ACCEPT);
+		_running = true;
+
+		return _server.getLocalAddress();
+	}
+
+	/**
+	 * Serve the clients until the server is stopped (call {@link #bind(SocketAddress)} first)
+	 */
+	@Override
+	public void run() {
+		try {
+			while (_running) {
+				_selector.select();
+				Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid())
+						continue;
+
+					if (key.isAcceptable()) {
+						SocketChannel channel = _server.accept();
+						if (channel != null) {
+							channel.configureBlocking(false);
+							if (!(channel.getLocalAddress() instanceof UnixDomainSocketAddress))
+								channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+							channel.register(_selector, SelectionKey.OP_READ, new Client(channel));
+						}
+						continue;
+					}
+
+					Client client = (Client)key.attachment();
+					try {
+						if (key.isWritable())
+							client.write(key);
+						if (key.isValid() && key.isReadable())
+							client.read(key);
+					} catch (IOException e) {
+						client.close(key);
+					}
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Stop the server (the clients are disconnected)
+	 */
+	public void stop() {
+		_running = false;
+		if (_selector != null)
+			_selector.wakeup();
+	}
+
+	private void close() {
+		try {
+			for (SelectionKey key : _selector.keys()) {
+				key.channel().close();
+			}
+			_selector.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		if (_pool != null)
+			_pool.shutdown();
+	}
+
+	/**
+	 *  A connected client- its environments, the request that is read and the response that is written
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class Client {
+		private SocketChannel _channel;
+		private ByteBuffer _request = ByteBuffer.allocateDirect(4 + MAX_REQUEST);
+		/* the environments of the client (null until they are opened) */
+		private GymEnvironment[] _environments;
+		/* a header & an observation view for every environment, so a response is gathered without copying */
+		private ByteBuffer[] _headers;
+		private ByteBuffer[] _observations;
+		/* the response: its header and then the buffers of the environments */
+		private ByteBuffer _responseHeader = ByteBuffer.allocateDirect(256);
+		private ByteBuffer[] _response;
+		private int _responseLength;
+		private long _remaining;
+		/* the current batch: environments, their actions or seeds, and a stamp for finding an environment twice in a batch */
+		private int[] _batch;
+		private int[] _actions;
+		private long[] _seeds;
+		private int[] _stamps;
+		private int _stamp;
+
+		public Client(SocketChannel channel) {
+			_channel = channel;
+			_response = new ByteBuffer[1];
+			_response[0] = _responseHeader;
+		}
+
+		/**
+		 * Read requests, and handle the complete ones
+		 */
+		public void read(SelectionKey key) throws IOException {
+			if (_channel.read(_request) < 0) {
+				close(key);
+				return;
+			}
+
+			handleRequests(key);
+		}
+
+		/**
+		 * Write the rest of the response, and handle the next requests when it's written
+		 */
+		public void write(SelectionKey key) throws IOException {
+			flush();
+			if (_remaining == 0)
+				handleRequests(key);
+		}
+
+		/**
+		 * Handle the complete requests that were read, one at a time- the next request is handled after the response
+		 * of the previous one was written (until then nothing is read, so a client that doesn't read its responses waits)
+		 */
+		private void handleRequests(SelectionKey key) throws IOException {
+			_request.flip();
+			while (_remaining == 0 && _request.remaining() >= 4) {
+				int length = _request.getInt(_request.position());
+				if (length <= 0 || length > MAX_REQUEST)
+					throw new IOException("Bad request length: " + length);
+				if (_request.remaining() < 4 + length)
+					break;
+
+				int end = _request.position() + 4 + length;
+				_request.position(_request.position() + 4);
+				ByteBuffer request = _request.duplicate();
+				request.limit(end);
+				handle(request);
+				_request.position(end);
+				flush();
+			}
+			_request.compact();
+
+			key.interestOps(_remaining > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+		}
+
+		private void flush() throws IOException {
+			if (_remaining > 0)
+				_remaining -= _channel.write(_response, 0, _responseLength);
+		}
+
+		public void close(SelectionKey key) {
+			key.cancel();
+			try {
+				_channel.close();
+			} catch (IOException e) {
+				// closed anyway
+			}
+		}
+
+		/**
+		 * Handle a request, and prepare its response
+		 */
+		private void handle(ByteBuffer request) {
+			_responseHeader.clear();
+			_responseLength = 1;
+			try {
+				byte operation = request.get();
+				if (operation == OPEN) {
+					open(request.getInt());
+				} else if (operation == RESET || operation == STEP) {
+					if (_environments == null)
+						throw new IllegalArgumentException("No environments were opened");
+
+					play(request, operation);
+				} else {
+					throw new IllegalArgumentException("Unknown operation: " + operation);
+				}
+			} catch (BufferUnderflowException e) {
+				error("The request is truncated");
+			} catch (RuntimeException e) {
+				// an environment that doesn't exist, an unknown action...
+				error(String.valueOf(e.getMessage()));
+			}
+
+			_responseHeader.flip();
+			_remaining = 0;
+			for (int i = 0; i < _responseLength; i++) {
+				_remaining += _response[i].remaining();
+			}
+		}
+
+		/**
+		 * Respond with an error instead of the response that was prepared
+		 */
+		private void error(String text) {
+			byte[] message = text.getBytes(StandardCharsets.UTF_8);
+			int length = Math.min(message.length, _responseHeader.capacity() - 5);
+			_responseHeader.clear();
+			_responseHeader.putInt(1 + length).put(ERROR).put(message, 0, length);
+			_responseLength = 1;
+		}
+
+		/**
+		 * Open the environments of the client
+		 */
+		private void open(int count) {
+			if (_environments != null)
+				throw new IllegalArgumentException("The environments were already opened");
+			if (count <= 0 || count > MAX_ENVIRONMENTS)
+				throw new IllegalArgumentException("Bad environments count: " + count);
+
+			_environments = new GymEnvironment[count];
+			_headers = new ByteBuffer[count];
+			_observations = new ByteBuffer[count];
+			ByteBuffer headers = ByteBuffer.allocateDirect(count * ENVIRONMENT_HEADER);
+			for (int i = 0; i < count; i++) {
+				_environments[i] = new GymEnvironment(_map, _ai, _maxTicks);
+				_observations[i] = _environments[i].getObservation().duplicate();
+				headers.limit((i + 1) * ENVIRONMENT_HEADER).position(i * ENVIRONMENT_HEADER);
+				_headers[i] = headers.slice();
+			}
+
+			_response = new ByteBuffer[1 + 2 * count];
+			_response[0] = _responseHeader;
+			_batch = new int[count];
+			_actions = new int[count];
+			_seeds = new long[count];
+			_stamps = new int[count];
+
+			GymEnvironment environment = _environments[0];
+			_responseHeader.putInt(1 + 5 * 4).put(OK).putInt(count).putInt(environment.getWidth()).putInt(environment.getHeight())
+					.putInt(GymEnvironment.PLANES).putInt(GymEnvironment.ACTIONS);
+		}
+
+		/**
+		 * Reset or step a batch of environments
+		 */
+		private void play(ByteBuffer request, byte operation) {
+			int count = request.getInt();
+			if (count < 0 || count > _environments.length)
+				throw new IllegalArgumentException("Bad batch size: " + count);
+
+			// check the whole batch before it's played
+			_stamp++;
+			for (int i = 0; i < count; i++) {
+				int environment = request.getInt();
+				if (environment < 0 || environment >= _environments.length)
+					throw new IllegalArgumentException("No such environment: " + environment);
+				if (_stamps[environment] == _stamp)
+					throw new IllegalArgumentException("The environment is twice in the batch: " + environment);
+				_stamps[environment] = _stamp;
+				_batch[i] = environment;
+
+				if (operation == RESET) {
+					_seeds[i] = request.getLong();
+				} else {
+					_actions[i] = request.get();
+					if (_actions[i] < 0 || _actions[i] >= GymEnvironment.ACTIONS)
+						throw new IllegalArgumentException("Unknown action: " + _actions[i]);
+				}
+			}
+
+			PlayTask task = new PlayTask(this, operation == RESET, 0, count);
+			if (_pool == null || count < 2 * SPLIT_SIZE)
+				task.compute();
+			else
+				_pool.invoke(task);
+
+			// the response: the header, then the header & the observation of every environment
+			int length = 1 + 4;
+			for (int i = 0; i < count; i++) {
+				GymEnvironment environment = _environments[_batch[i]];
+				ByteBuffer header = _headers[_batch[i]];
+				header.clear();
+				header.putInt(_batch[i]).putInt(environment.getReward()).put((byte)(environment.isDone() ? 1 : 0)).flip();
+				ByteBuffer observation = _observations[_batch[i]];
+				observation.clear();
+				_response[1 + 2 * i] = header;
+				_response[2 + 2 * i] = observation;
+				length += ENVIRONMENT_HEADER + observation.remaining();
+			}
+
+			_responseHeader.putInt(length).put(OK).putInt(count);
+			_responseLength = 1 + 2 * count;
+		}
+	}
+
+	/**
+	 *  Plays a range of a batch- splits the range until it's small enough
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class PlayTask extends RecursiveAction {
+		private static final long serialVersionUID = -2870439114738722906L;
+		private Client _client;
+		private boolean _reset;
+		private int _from;
+		private int _to;
+
+		/**
+		 * Creates a new task for the environments in the given range of the batch
+		 * @param client the client of the batch
+		 * @param reset true for resetting the environments, false for stepping them
+		 * @param from first environment in the batch (inclusive)
+		 * @param to last environment in the batch (exclusive)
+		 */
+		public PlayTask(Client client, boolean reset, int from, int to) {
+			_client = client;
+			_reset = reset;
+			_from = from;
+			_to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (_to - _from > SPLIT_SIZE && getPool() != null) {
+				int middle = (_from + _to) >>> 1;
+				invokeAll(new PlayTask(_client, _reset, _from, middle), new PlayTask(_client, _reset, middle, _to));
+				return;
+			}
+
+			for (int i = _from; i < _to; i++) {
+				GymEnvironment environment = _client._environments[_client._batch[i]];
+				if (_reset)
+					environment.reset(_client._seeds[i]);
+				else
+					environment.step(_client._actions[i]);
+			}
+		}
+	}
+}
@@ -1,8 +1,27 @@
 package pacman.main;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
 import javax.swing.SwingUtilities;
 
+import pacman.bots.GreedyBot;
+import pacman.bots.MctsBot;
+import pacman.controllers.ControllerRunner;
 import pacman.controllers.GameEngine;
+import pacman.controllers.GameLoop;
+import pacman.gym.GymServer;
+import pacman.model.Map;
+import pacman.replay.Replay;
+import pacman.replay.ReplayPlayer;
+import pacman.replay.ReplayRecorder;
+import pacman.sim.BatchResult;
+import pacman.sim.BatchRunner;
 
 /**
  *  Pacman Game
@@ -13,11 +32,144 @@ import pacman.controllers.GameEngine;
 public class PacmanMain {
 
 	/**
-	 * @param args
+	 * @param args "-headless [ticks]" plays one game without any display, as fast as possible (driven by the greedy bot, up to the given ticks)
+	 * 				"-batch [games]" plays many games without any display, on all the cores
+	 * 				"-bot [micros]" plays one game without any display, driven by the greedy bot (within the given time for every decision)
+	 * 				"-mcts [millis] [threads]" plays one game without any display, driven by the tree search bot (searching for the given time on every decision)
+	 * 				"-gym [port | socket file] [threads]" serves reinforcement learning environments on the loopback or on a Unix domain socket
+	 * 				"-canvas" displays the game on a single canvas (active rendering) instead of swing components
+	 * 				"-record [file]" records the displayed game's input into a replay file
+	 * 				"-replay [files]" plays recorded games without any display, as fast as possible, and checks their results
+	 * @throws IOException if a replay file can't be written or read
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && args[0].equals("-batch")) {
+			// play many games in parallel, without any display
+			System.setProperty("java.awt.headless", "true");
+			int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+			long start = System.nanoTime();
+			BatchResult result = new BatchRunner().run(games, 0);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(result);
+			System.out.printf("%.2f seconds, %.0f games/s, %.0f ticks/s%n", seconds, games / seconds, result.getTotalTicks() / seconds);
+			return;
+		}
+
+
+		if (args.length > 0 && args[0].equals("-headless")) {
+			// play the game without any display, driven by the greedy bot (nobody presses the keys), for a limited game time
+			System.setProperty("java.awt.headless", "true");
+			GameEngine engine = new GameEngine(Map.getFirstLevelMap());
+			engine.setPacmanController(new GreedyBot(), 0);
+			engine.start();
+			engine.runHeadless(args.length > 1 ? Long.parseLong(args[1]) : BatchRunner.DEFAULT_MAX_TICKS);
+			System.out.println("points: " + engine.getPoints() + ", ticks: " + engine.getTicks() + ", remaining pills: " + engine.getRemainingPills());
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("-bot")) {
+			// a bot plays the game without any display
+			System.setProperty("java.awt.headless", "true");
+			GameEngine engine = new GameEngine(Map.getFirstLevelMap());
+			engine.setPacmanController(new GreedyBot(), args.length > 1 ? Long.parseLong(args[1]) * 1000 : 0);
+			engine.run();
+			ControllerRunner runner = engine.getControllerRunner();
+			System.out.println("points: " + engine.getPoints() + ", ticks: " + engine.getTicks() + ", remaining pills: " + engine.getRemainingPills());
+			System.out.println("decisions: " + runner.getDecisionsCount() + ", overruns: " + runner.getOverrunsCount() + ", " + runner.getDecisionTimes());
+			runner.stop();
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("-mcts")) {
+			// the tree search bot plays the game without any display (the search takes as long as the bot was given)
+			System.setProperty("java.awt.headless", "true");
+			GameEngine engine = new GameEngine(Map.getFirstLevelMap());
+			MctsBot bot = new MctsBot(args.length > 2 ? Integer.parseInt(args[2]) : 1, (args.length > 1 ? Long.parseLong(args[1]) : 10) * 1000000);
+			engine.setPacmanController(bot, 0);
+			engine.run();
+			System.out.println("points: " + engine.getPoints() + ", ticks: " + engine.getTicks() + ", remaining pills: " + engine.getRemainingPills());
+			System.out.printf("decisions: %d, rollouts: %d (%.0f rollouts/s)%n", bot.getDecisionsCount(), bot.getRolloutsCount(), bot.getRolloutsPerSecond());
+			bot.stop();
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("-gym")) {
+			// serve headless games to learning agents until the process is killed
+			System.setProperty("java.awt.headless", "true");
+			SocketAddress address;
+			if (args.length > 1 && !args[1].matches("\\d+")) {
+				Files.deleteIfExists(Paths.get(args[1]));
+				address = UnixDomainSocketAddress.of(args[1]);
+			} else {
+				address = new InetSocketAddress(InetAddress.getLoopbackAddress(), args.length > 1 ? Integer.parseInt(args[1]) : 5555);
+			}
+
+			GymServer server = new GymServer(Map.getFirstLevelMap(), args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors());
+			System.out.println("serving on " + server.bind(address));
+			server.run();
+			return;
+		}
+
+		if (args.length > 1 && args[0].equals("-replay")) {
+			// play the recorded games without any display
+			System.setProperty("java.awt.headless", "true");
+			Replay[] replays = new Replay[args.length - 1];
+			for (int i = 1; i < args.length; i++) {
+				replays[i - 1] = Replay.read(Paths.get(args[i]));
+			}
+
+			ReplayPlayer player = new ReplayPlayer();
+			if (replays.length == 1) {
+				GameEngine engine = player.play(replays[0], false);
+				System.out.println("points: " + engine.getPoints() + ", ticks: " + engine.getTicks() + ", remaining pills: " + engine.getRemainingPills()
+						+ (ReplayPlayer.matches(replays[0], engine) ? " (as recorded)" : " (NOT as recorded)"));
+				return;
+			}
+
+			long start = System.nanoTime();
+			boolean[] matched = new boolean[replays.length];
+			BatchResult result = player.playAll(replays, matched);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(result);
+			System.out.printf("%.2f seconds, %.0f replays/s%n", seconds, replays.length / seconds);
+
+			int mismatches = 0;
+			for (int i = 0; i < replays.length; i++) {
+				if (!matched[i]) {
+					System.out.println(args[i + 1] + " NOT as recorded");
+					mismatches++;
+				}
+			}
+			System.out.println(mismatches == 0 ? "all the replays as recorded" : mismatches + " of " + replays.length + " replays NOT as recorded");
+			return;
+		}
+
+		if (args.length > 1 && args[0].equals("-record")) {
+			// record the displayed game until the application exits
+			final ReplayRecorder recorder = new ReplayRecorder(Paths.get(args[1]));
+			final GameEngine engine = new GameEngine(false, recorder);
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					// stop the game steps first, so the end of the replay has the result of one step
+					GameLoop loop = engine.getGameLoop();
+					if (loop != null)
+						loop.stop();
+
+					try {
+						recorder.close();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+
+			SwingUtilities.invokeLater(engine);
+			return;
+		}
+
 		// run the game application using the game engine object
-		SwingUtilities.invokeLater(new GameEngine());
+		SwingUtilities.invokeLater(new GameEngine(args.length > 0 && args[0].equals("-canvas")));
 	}
 
 }
@@ -14,8 +14,15 @@ public abstract class ControllableObject extends Sprite {
 	private static final long serialVersionUID = -786478397202315877L;
 	protected static final Color TEXT_COLOR = Color.white;
 	private static final int BLOCK_SIZE =  24;
+	private static final Direction[] DIRECTIONS = Direction.values();
 	/* Default values */
 	private Point _position = new Point(0, 0);
+	/* pixel position on the game board (the view only reflects it) */
+	private int _pixelX;
+	private int _pixelY;
+	/* pixel position before the last game step (a view can draw the object between the steps) */
+	private int _previousPixelX;
+	private int _previousPixelY;
 	private Direction _direction = Direction.NONE;
 	private Direction _temporaryDirection = null;
 	private int _velocity = 3; // the velocity MUST be multipliers of 24 (block size): 2,3,4,6,8,12
@@ -38,37 +45,45 @@ public abstract class ControllableObject extends Sprite {
 
 		// Check direction and if the object can be moved there
 		if (_direction == Direction.UP) {
-			if (getCollisionMap().canMove(this, getPosition().x, getPosition().y - 1))
+			if (canMoveTowards(Direction.UP))
 				dy -= _velocity;
 			else
 				setDirection(Direction.NONE);
 			
 		} else if (_direction == Direction.DOWN) {
-			if (getCollisionMap().canMove(this, getPosition().x, getPosition().y + 1))
+			if (canMoveTowards(Direction.DOWN))
 				dy += _velocity;
 			else
 				setDirection(Direction.NONE);
 			
 		} else if (_direction == Direction.RIGHT) {
-			if (getCollisionMap().canMove(this, getPosition().x + 1, getPosition().y))
+			if (canMoveTowards(Direction.RIGHT))
 				dx += _velocity;
 			else
 				setDirection(Direction.NONE);
 			
 		} else if (_direction == Direction.LEFT) {
-			if (getCollisionMap().canMove(this, getPosition().x - 1, getPosition().y))
+			if (canMoveTowards(Direction.LEFT))
 				dx -= _velocity;
 			else
 				setDirection(Direction.NONE);
 		}
 		
-		// set the object to the position
-		setBounds((getBounds().x + dx) % getParent().getSize().width, (getBounds().y + dy) % getParent().getSize().height, BLOCK_SIZE, BLOCK_SIZE);
+		// set the object to the position.
+		// an object that leaves the board enters the neighbour cell from the other side of the board (or the portal's exit)
+		int x = _pixelX + dx, y = _pixelY + dy;
+		if (x < 0 || y < 0 || x + BLOCK_SIZE > getBoardWidth() || y + BLOCK_SIZE > getBoardHeight()) {
+			int next = _gameMap.getNeighbour(_position.x, _position.y, _direction);
+			x = (next % _gameMap.getGameDimension().width) * BLOCK_SIZE;
+			y = (next / _gameMap.getGameDimension().width) * BLOCK_SIZE;
+		}
+		setPixelPosition(x, y);
 
 		// make step of one block
 		if (isStep()) {
 			// update the current position
-			setPosition((getBounds().x) / BLOCK_SIZE, (getBounds().y) / BLOCK_SIZE);
+			if (_gameMap.canMove(this, _pixelX / BLOCK_SIZE, _pixelY / BLOCK_SIZE))
+				_position.move(_pixelX / BLOCK_SIZE, _pixelY / BLOCK_SIZE);
 			
 			// change direction on step
 			if (_temporaryDirection != null && !_temporaryDirection.equals(_direction)) {
@@ -78,12 +93,29 @@ public abstract class ControllableObject extends Sprite {
 		}
 	}
 
+	/**
+	 * Determines if the object can move from its position to the neighbour cell in the given direction
+	 * @param direction direction
+	 * @return true if can move, false if not
+	 */
+	private boolean canMoveTowards(Direction direction) {
+		return _gameMap.canExit(this, _position.x, _position.y, direction);
+	}
+
+	/**
+	 * Get the passability layer of the map that this object moves on (which cells it can enter)
+	 * @return passability layer
+	 */
+	public int getPassabilityLayer() {
+		return Map.PACMAN_LAYER;
+	}
+
 	/**
 	 * Determines if object moved a one step (24 px)
 	 * @return true if is in step, false otherwise
 	 */
-	protected boolean isStep() {
-		return (getBounds().x % BLOCK_SIZE == 0 && getBounds().y % BLOCK_SIZE == 0);
+	public boolean isStep() {
+		return (_pixelX % BLOCK_SIZE == 0 && _pixelY % BLOCK_SIZE == 0);
 	}
 	
 	/**
@@ -112,23 +144,113 @@ public abstract class ControllableObject extends Sprite {
 			_position.move(x, y);
 		}
 		
-		if (getParent() != null)
-			setBounds(x * 24, y * 24, getHeight(), getWidth());
+		setPixelPosition(x * BLOCK_SIZE, y * BLOCK_SIZE);
+
+		// the object jumped to the new position, there is nothing to draw between the positions
+		rememberPosition();
 	}
-	
-	@Override
-	public void setBounds(int x, int y, int width, int height) {
-		if (y + height > getParent().getHeight())
+
+	/**
+	 * Remember the current position as the position before the next game step
+	 */
+	public void rememberPosition() {
+		_previousPixelX = _pixelX;
+		_previousPixelY = _pixelY;
+	}
+
+	/**
+	 * Set object position in pixels, objects that leave the board enter from the other side
+	 * @param x pixel x position
+	 * @param y pixel y position
+	 */
+	private void setPixelPosition(int x, int y) {
+		if (y + BLOCK_SIZE > getBoardHeight())
 			y = 0;
 		else if (y < 0)
-			y = getParent().getHeight() - getHeight();
+			y = getBoardHeight() - BLOCK_SIZE;
 
-		if (x + width > getParent().getWidth())
+		if (x + BLOCK_SIZE > getBoardWidth())
 			x = 0;
 		else if (x < 0)
-			x = getParent().getWidth() - getWidth();
+			x = getBoardWidth() - BLOCK_SIZE;
+
+		_pixelX = x;
+		_pixelY = y;
+	}
 
-		super.setBounds(x, y, width, height);
+	/**
+	 * Get object x position in pixels
+	 * @return pixel x position
+	 */
+	public int getPixelX() {
+		return _pixelX;
+	}
+
+	/**
+	 * Get object y position in pixels
+	 * @return pixel y position
+	 */
+	public int getPixelY() {
+		return _pixelY;
+	}
+
+	/**
+	 * Determines if this object overlaps the given object on the game board
+	 * @param other controllable object
+	 * @return true if the objects overlap, false if not
+	 */
+	public boolean intersects(ControllableObject other) {
+		return _pixelX < other._pixelX + BLOCK_SIZE && other._pixelX < _pixelX + BLOCK_SIZE
+				&& _pixelY < other._pixelY + BLOCK_SIZE && other._pixelY < _pixelY + BLOCK_SIZE;
+	}
+
+	/**
+	 * Get object x position in pixels between the previous game step and the current one
+	 * @param interpolation the fraction of the game step (0 = previous position, 1 = current position)
+	 * @return pixel x position
+	 */
+	public int getInterpolatedX(float interpolation) {
+		return interpolate(_previousPixelX, _pixelX, interpolation);
+	}
+
+	/**
+	 * Get object y position in pixels between the previous game step and the current one
+	 * @param interpolation the fraction of the game step (0 = previous position, 1 = current position)
+	 * @return pixel y position
+	 */
+	public int getInterpolatedY(float interpolation) {
+		return interpolate(_previousPixelY, _pixelY, interpolation);
+	}
+
+	private static int interpolate(int previous, int current, float interpolation) {
+		// an object that passed through the board's edge is drawn at its current position
+		if (Math.abs(current - previous) > BLOCK_SIZE)
+			return current;
+
+		return previous + Math.round((current - previous) * interpolation);
+	}
+
+	/**
+	 * Update the component bounds to the object position (for displaying the object in a view)
+	 */
+	public void updateBounds() {
+		updateBounds(1);
+	}
+
+	/**
+	 * Update the component bounds to the object position between the previous game step and the current one
+	 * @param interpolation the fraction of the game step (0 = previous position, 1 = current position)
+	 */
+	public void updateBounds(float interpolation) {
+		setBounds(getInterpolatedX(interpolation), getInterpolatedY(interpolation), BLOCK_SIZE, BLOCK_SIZE);
+	}
+
+	private int getBoardWidth() {
+		return _gameMap.getGameDimension().width * BLOCK_SIZE;
+	}
+
+	private int getBoardHeight() {
+		return _gameMap.getGameDimension().height * BLOCK_SIZE;
 	}
 
 	/**
@@ -148,6 +270,49 @@ public abstract class ControllableObject extends Sprite {
 		this._temporaryDirection = direction;
 	}
 
+	/**
+	 * Stop the object immediately, and cancel any pending direction change
+	 */
+	protected void resetDirection() {
+		_direction = Direction.NONE;
+		_temporaryDirection = null;
+	}
+
+	@Override
+	public int getStateSize() {
+		return super.getStateSize() + 8;
+	}
+
+	/**
+	 * Save the object state: position, pixel position & direction (and the sprite state)
+	 */
+	@Override
+	public int saveState(int[] state, int offset) {
+		offset = super.saveState(state, offset);
+		state[offset] = _position.x;
+		state[offset + 1] = _position.y;
+		state[offset + 2] = _pixelX;
+		state[offset + 3] = _pixelY;
+		state[offset + 4] = _previousPixelX;
+		state[offset + 5] = _previousPixelY;
+		state[offset + 6] = _direction.ordinal();
+		state[offset + 7] = _temporaryDirection != null ? _temporaryDirection.ordinal() : -1;
+		return offset + 8;
+	}
+
+	@Override
+	public int restoreState(int[] state, int offset) {
+		offset = super.restoreState(state, offset);
+		_position.move(state[offset], state[offset + 1]);
+		_pixelX = state[offset + 2];
+		_pixelY = state[offset + 3];
+		_previousPixelX = state[offset + 4];
+		_previousPixelY = state[offset + 5];
+		_direction = DIRECTIONS[state[offset + 6]];
+		_temporaryDirection = state[offset + 7] >= 0 ? DIRECTIONS[state[offset + 7]] : null;
+		return offset + 8;
+	}
+
 	/**
 	 * Get object's velocity
 	 * @return
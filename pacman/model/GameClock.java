@@ -0,0 +1,42 @@
+package pacman.model;
+
+/**
+ *  Logical game clock, counts game ticks (instead of the wall clock time)
+ *  so the game runs the same at any speed
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GameClock {
+	/* elapsed ticks */
+	private long _ticks;
+
+	/**
+	 * Get the elapsed game ticks
+	 * @return elapsed ticks
+	 */
+	public long getTicks() {
+		return _ticks;
+	}
+
+	/**
+	 * Advance the clock in one tick
+	 */
+	public void tick() {
+		_ticks++;
+	}
+
+	/**
+	 * Set the elapsed game ticks (for restoring a saved game)
+	 * @param ticks elapsed ticks
+	 */
+	public void setTicks(long ticks) {
+		_ticks = ticks;
+	}
+
+	/**
+	 * Reset the clock to zero (on new game)
+	 */
+	public void reset() {
+		_ticks = 0;
+	}
+}
@@ -0,0 +1,59 @@
+package pacman.model;
+
+/**
+ *  Game random numbers generator- SplitMix64, the generator of {@link java.util.SplittableRandom}
+ *  (a generator created with the same seed gives the same numbers), but its whole state is one long that can be
+ *  read & set, so a game can be saved and restored in the middle.
+ *  A generator isn't thread safe.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GameRandom {
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+	/* generator state */
+	private long _seed;
+
+	/**
+	 * Creates a new generator
+	 * @param seed initial seed
+	 */
+	public GameRandom(long seed) {
+		_seed = seed;
+	}
+
+	/**
+	 * Get the next random long
+	 * @return random long
+	 */
+	public long nextLong() {
+		long z = (_seed += GOLDEN_GAMMA);
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Get the next random double
+	 * @return random double between 0 (inclusive) and 1 (exclusive)
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	 * Get the generator state (the generator continues the same sequence after the state is set back)
+	 * @return state
+	 */
+	public long getState() {
+		return _seed;
+	}
+
+	/**
+	 * Set the generator state
+	 * @param state state, as returned by {@link #getState()}
+	 */
+	public void setState(long state) {
+		_seed = state;
+	}
+}
@@ -2,6 +2,8 @@ package pacman.model;
 
 import java.awt.Dimension;
 import java.awt.Point;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
  *  Game map
@@ -9,10 +11,19 @@ import java.awt.Point;
  *  @version    1.0
  */
 public class Map {
+	/* passability layers- the kinds of movers (see {@link ControllableObject#getPassabilityLayer()}) */
+	public static final int PACMAN_LAYER = 0;
+	public static final int MONSTER_LAYER = 1;
+	public static final int TRAPPED_MONSTER_LAYER = 2;
+	private static final int LAYERS = 3;
 	/* codes map */
 	private int[][] _collisionMap;
 	/* stationary objects map ("Real" objects: JLabels / JPanels) */
 	private StationaryObject[][] _objectsMap;
+	/* the stationary objects when the map was created (for restoring eaten pills), shared with the copies of the map */
+	private StationaryObject[][] _initialObjectsMap;
+	/* the cells which their stationary object was removed since the last reset (a bit for every cell, y * width + x) */
+	private long[] _removedObjects;
 	/* map dimensions */
 	private Dimension _gameDimension;
 	/* cage position (initial position for the monsters) */
@@ -21,6 +32,18 @@ public class Map {
 	private Point _pacmanInitialPosition;
 	/* total pills in the current map */
 	private int _totalPills;
+	/* neighbour cell (y * width + x) of every cell in every direction (cell * 4 + direction),
+	   the board edges wrap around unless a portal links them elsewhere. -1 if there is no neighbour */
+	private int[] _neighbours;
+	/* portals that don't follow the wrapped board (entry cell, exit cell pairs) */
+	private int[] _portals = new int[0];
+	/* the cells that every layer's movers can enter (a bit for every cell, y * width + x). the walls & cage gates never move,
+	   so the layers are built once (the pills are in the stationary objects map, and they never block) */
+	private long[][] _passable;
+	/* the directions that every layer's movers can leave every cell to (a bit for every direction index, through the board edges & portals) */
+	private byte[][] _exits;
+	/* the cells which their neighbours changed since the map was created, in the order of the changes (for updating the map analyses) */
+	private int[] _changedCells = new int[0];
 	
 	/**
 	 * Creates a new map
@@ -28,7 +51,7 @@ public class Map {
 	 * @param cagePosition cage position (initial position for monsters)
 	 * @param pacmanInitialPosition pacman initial position
 	 */
-	protected Map(int[][] map, Point cagePosition, Point pacmanInitialPosition) {
+	public Map(int[][] map, Point cagePosition, Point pacmanInitialPosition) {
 		_collisionMap = map;
 		_gameDimension = new Dimension(_collisionMap[0].length, _collisionMap.length);
 		_cagePosition = cagePosition;
@@ -66,7 +89,42 @@ public class Map {
 				}
 			}
 		}
-		
+
+		_initialObjectsMap = new StationaryObject[_gameDimension.height][];
+		for (int i = 0; i < _gameDimension.height; i++) {
+			_initialObjectsMap[i] = _objectsMap[i].clone();
+		}
+		_removedObjects = new long[(_gameDimension.width * _gameDimension.height + 63) >> 6];
+
+		// the neighbours on the wrapped board
+		int width = _gameDimension.width, height = _gameDimension.height;
+		_neighbours = new int[width * height * 4];
+		for (int i = 0; i < height; i++) {
+			for (int j = 0; j < width; j++) {
+				int cell = (i * width + j) * 4;
+				_neighbours[cell + directionIndex(Direction.UP)] = ((i + height - 1) % height) * width + j;
+				_neighbours[cell + directionIndex(Direction.RIGHT)] = i * width + (j + 1) % width;
+				_neighbours[cell + directionIndex(Direction.DOWN)] = ((i + 1) % height) * width + j;
+				_neighbours[cell + directionIndex(Direction.LEFT)] = i * width + (j + width - 1) % width;
+			}
+		}
+
+		// passability layers: walls block every mover, and the cage gates block everyone but the free monsters
+		_passable = new long[LAYERS][(width * height + 63) >> 6];
+		for (int i = 0; i < height; i++) {
+			for (int j = 0; j < width; j++) {
+				int cell = i * width + j;
+				if (_collisionMap[i][j] == 1)
+					continue;
+
+				_passable[MONSTER_LAYER][cell >> 6] |= 1L << cell;
+				if (_collisionMap[i][j] != -1) {
+					_passable[PACMAN_LAYER][cell >> 6] |= 1L << cell;
+					_passable[TRAPPED_MONSTER_LAYER][cell >> 6] |= 1L << cell;
+				}
+			}
+		}
+		updateExits();
 	}
 	
 	/**
@@ -77,6 +135,30 @@ public class Map {
 		return _totalPills;
 	}
 	
+	/**
+	 * Get a hash of the map's layout: the codes, the initial positions & the portals (FNV-1a, 64 bits).
+	 * Maps with the same layout have the same hash, so it identifies the map of a recorded game
+	 * @return layout hash
+	 */
+	public long getLayoutHash() {
+		long hash = 0xcbf29ce484222325L;
+		int[] values = { _gameDimension.width, _gameDimension.height, _cagePosition.x, _cagePosition.y,
+				_pacmanInitialPosition.x, _pacmanInitialPosition.y };
+		for (int i = 0; i < values.length; i++) {
+			hash = (hash ^ values[i]) * 0x100000001b3L;
+		}
+		for (int i = 0; i < _gameDimension.height; i++) {
+			for (int j = 0; j < _gameDimension.width; j++) {
+				hash = (hash ^ _collisionMap[i][j]) * 0x100000001b3L;
+			}
+		}
+		for (int i = 0; i < _portals.length; i++) {
+			hash = (hash ^ _portals[i]) * 0x100000001b3L;
+		}
+
+		return hash;
+	}
+	
 	/**
 	 * Get cage position
 	 * @return cage position
@@ -116,17 +198,336 @@ public class Map {
 	public StationaryObject[][] getStationaryObjectsMap() {
 		return _objectsMap;
 	}
+
+	/**
+	 * Remove the stationary object of a cell from the board (for example an eaten pill), until the map is reset
+	 * @param x cell x coordinate
+	 * @param y cell y coordinate
+	 */
+	public void removeStationaryObject(int x, int y) {
+		int cell = y * _gameDimension.width + x;
+		_objectsMap[y][x] = null;
+		_removedObjects[cell >> 6] |= 1L << cell;
+	}
+
+	/**
+	 * Get the number of longs in the removed objects bitset (see {@link #saveRemovedObjects(long[])})
+	 * @return bitset length
+	 */
+	public int getRemovedObjectsLength() {
+		return _removedObjects.length;
+	}
+
+	/**
+	 * Copy the cells which their stationary object was removed (a bit for every cell, y * width + x)
+	 * @param removed bitset to fill, at least {@link #getRemovedObjectsLength()} longs
+	 */
+	public void saveRemovedObjects(long[] removed) {
+		System.arraycopy(_removedObjects, 0, removed, 0, _removedObjects.length);
+	}
+
+	/**
+	 * Remove the stationary objects of the given cells and put back all the others, as they were when the bitset was saved.
+	 * Only the cells that changed since then are visited.
+	 * @param removed bitset of the removed objects (see {@link #saveRemovedObjects(long[])})
+	 * @return true if any object was removed or put back
+	 */
+	public boolean restoreRemovedObjects(long[] removed) {
+		boolean changed = false;
+		for (int i = 0; i < _removedObjects.length; i++) {
+			long diff = _removedObjects[i] ^ removed[i];
+			while (diff != 0) {
+				int cell = (i << 6) + Long.numberOfTrailingZeros(diff);
+				int x = cell % _gameDimension.width, y = cell / _gameDimension.width;
+				_objectsMap[y][x] = (removed[i] & (1L << cell)) != 0 ? null : _initialObjectsMap[y][x];
+				diff &= diff - 1;
+			}
+
+			changed |= _removedObjects[i] != removed[i];
+			_removedObjects[i] = removed[i];
+		}
+
+		return changed;
+	}
 	
-	public boolean canMove(ControllableObject object, Point position) {
-		return canMove(object, position.x, position.y);
+	/**
+	 * Creates a copy of a map (see {@link #copy()})
+	 * @param map the copied map
+	 */
+	private Map(Map map) {
+		_collisionMap = map._collisionMap;
+		_gameDimension = map._gameDimension;
+		_cagePosition = map._cagePosition;
+		_pacmanInitialPosition = map._pacmanInitialPosition;
+		_totalPills = map._totalPills;
+		_initialObjectsMap = map._initialObjectsMap;
+		_objectsMap = new StationaryObject[_gameDimension.height][];
+		for (int i = 0; i < _gameDimension.height; i++) {
+			_objectsMap[i] = _initialObjectsMap[i].clone();
+		}
+		_removedObjects = new long[map._removedObjects.length];
+		_passable = map._passable;
+		_neighbours = map._neighbours.clone();
+		_portals = map._portals.clone();
+		updateExits();
+	}
+
+	/**
+	 * Creates a new map with the same layout (and all of its pills).
+	 * The game never changes the stationary objects (an eaten pill is only removed from the map), so the copy shares them
+	 * with this map instead of creating a swing component for every cell- only one of the maps can be displayed at a time.
+	 * @return new map
+	 */
+	public Map copy() {
+		return new Map(this);
+	}
+
+	/**
+	 * Link two cells on the board edges with a portal: an object that leaves the first cell in the given direction
+	 * enters the second cell, and an object that leaves the second cell in the opposite direction enters the first one.
+	 * Without portals, an object that leaves the board enters from the other side.
+	 * @param x x coordinate of the first cell
+	 * @param y y coordinate of the first cell
+	 * @param exit the direction that leaves the board from the first cell
+	 * @param targetX x coordinate of the second cell
+	 * @param targetY y coordinate of the second cell
+	 */
+	public void addPortal(int x, int y, Direction exit, int targetX, int targetY) {
+		Direction back = opposite(exit);
+		if (!isEdgeExit(x, y, exit) || !isEdgeExit(targetX, targetY, back))
+			throw new IllegalArgumentException("A portal must link two cells on the board edges: (" + x + "," + y + ") " + exit
+					+ " -> (" + targetX + "," + targetY + ")");
+
+		int width = _gameDimension.width;
+		int entry = y * width + x, target = targetY * width + targetX;
+
+		// the cells that were linked to the portal cells don't lead anywhere now
+		int[] changed = { entry, target, _neighbours[entry * 4 + directionIndex(exit)], _neighbours[target * 4 + directionIndex(back)] };
+		unlink(entry, exit);
+		unlink(target, back);
+
+		_neighbours[entry * 4 + directionIndex(exit)] = target;
+		_neighbours[target * 4 + directionIndex(back)] = entry;
+
+		// a portal that links the wrapped board's neighbours needs no special handling
+		if (target != wrap(entry, exit)) {
+			int[] portals = new int[_portals.length + 4];
+			System.arraycopy(_portals, 0, portals, 0, _portals.length);
+			portals[_portals.length] = entry;
+			portals[_portals.length + 1] = target;
+			portals[_portals.length + 2] = target;
+			portals[_portals.length + 3] = entry;
+			_portals = portals;
+		}
+
+		// (a portal cell that was unlinked before has no old neighbour)
+		int[] changedCells = Arrays.copyOf(_changedCells, _changedCells.length + changed.length);
+		int changes = _changedCells.length;
+		for (int i = 0; i < changed.length; i++) {
+			if (changed[i] >= 0)
+				changedCells[changes++] = changed[i];
+		}
+		_changedCells = Arrays.copyOf(changedCells, changes);
+
+		updateExits();
+	}
+
+	/**
+	 * Get the number of cells changes- a cell changes when one of its neighbours changes (by a portal), and with it the cell's exits.
+	 * The analyses of the map (i.e. a corridors graph) are updated by the cells that changed since they were built.
+	 * @return changes count, the same cell may change more than once
+	 */
+	public int getChangesCount() {
+		return _changedCells.length;
+	}
+
+	/**
+	 * Get a changed cell
+	 * @param index change index, in the order of the changes
+	 * @return cell index (y * width + x)
+	 */
+	public int getChangedCell(int index) {
+		return _changedCells[index];
+	}
+
+	/**
+	 * Get the neighbour of a cell in the given direction (through the board edges and the portals)
+	 * @param x cell x coordinate
+	 * @param y cell y coordinate
+	 * @param direction direction (NONE for the cell itself)
+	 * @return neighbour cell index (y * width + x), or -1 if there is no neighbour in this direction
+	 */
+	public int getNeighbour(int x, int y, Direction direction) {
+		int cell = y * _gameDimension.width + x;
+		if (direction == Direction.NONE)
+			return cell;
+
+		return _neighbours[cell * 4 + directionIndex(direction)];
+	}
+
+	/**
+	 * Determines if the given object can leave a cell in the given direction (the neighbour cell is passable for the object)
+	 * @param object controllable object
+	 * @param x cell x coordinate
+	 * @param y cell y coordinate
+	 * @param direction direction
+	 * @return true if can move, false if not (or if the direction is NONE)
+	 */
+	public boolean canExit(ControllableObject object, int x, int y, Direction direction) {
+		if (direction == Direction.NONE)
+			return false;
+
+		return (_exits[object.getPassabilityLayer()][y * _gameDimension.width + x] & (1 << directionIndex(direction))) != 0;
+	}
+
+	/**
+	 * Determines if the movers of a passability layer can enter a cell
+	 * @param layer passability layer
+	 * @param cell cell index (y * width + x)
+	 * @return true if the cell is passable
+	 */
+	public boolean isPassable(int layer, int cell) {
+		return (_passable[layer][cell >> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * Get the directions that the movers of a passability layer can leave a cell to
+	 * @param layer passability layer
+	 * @param cell cell index (y * width + x)
+	 * @return exits mask, a bit for every direction (1 &lt;&lt; (direction.ordinal() - 1))
+	 */
+	public int getExits(int layer, int cell) {
+		return _exits[layer][cell];
+	}
+
+	/**
+	 * Compute the exits of every cell in every layer (after the neighbours changed)
+	 */
+	private void updateExits() {
+		int cells = _gameDimension.width * _gameDimension.height;
+		_exits = new byte[LAYERS][cells];
+		for (int layer = 0; layer < LAYERS; layer++) {
+			for (int cell = 0; cell < cells; cell++) {
+				int exits = 0;
+				for (int i = 0; i < 4; i++) {
+					int neighbour = _neighbours[cell * 4 + i];
+					if (neighbour >= 0 && (_passable[layer][neighbour >> 6] & (1L << neighbour)) != 0)
+						exits |= 1 << i;
+				}
+				_exits[layer][cell] = (byte)exits;
+			}
+		}
+	}
+
+	/**
+	 * Get the number of portals that don't follow the wrapped board (every portal counts twice, once for each way)
+	 * @return portals count
+	 */
+	public int getPortalsCount() {
+		return _portals.length / 2;
+	}
+
+	/**
+	 * Get the entry cell of a portal
+	 * @param index portal index
+	 * @return entry cell index (y * width + x)
+	 */
+	public int getPortalEntry(int index) {
+		return _portals[index * 2];
+	}
+
+	/**
+	 * Get the exit cell of a portal
+	 * @param index portal index
+	 * @return exit cell index (y * width + x)
+	 */
+	public int getPortalExit(int index) {
+		return _portals[index * 2 + 1];
+	}
+
+	/**
+	 * Get the opposite direction
+	 * @param direction direction
+	 * @return opposite direction (NONE for NONE)
+	 */
+	public static Direction opposite(Direction direction) {
+		switch (direction) {
+		case UP:
+			return Direction.DOWN;
+		case DOWN:
+			return Direction.UP;
+		case LEFT:
+			return Direction.RIGHT;
+		case RIGHT:
+			return Direction.LEFT;
+		default:
+			return Direction.NONE;
+		}
+	}
+
+	private boolean isEdgeExit(int x, int y, Direction direction) {
+		return (direction == Direction.UP && y == 0) || (direction == Direction.DOWN && y == _gameDimension.height - 1)
+				|| (direction == Direction.LEFT && x == 0) || (direction == Direction.RIGHT && x == _gameDimension.width - 1);
+	}
+
+	/**
+	 * Remove the link that leads back to the given cell from its current neighbour
+	 */
+	private void unlink(int cell, Direction direction) {
+		int neighbour = _neighbours[cell * 4 + directionIndex(direction)];
+		if (neighbour >= 0 && _neighbours[neighbour * 4 + directionIndex(opposite(direction))] == cell)
+			_neighbours[neighbour * 4 + directionIndex(opposite(direction))] = -1;
+	}
+
+	/**
+	 * Get the neighbour of a cell on the wrapped board (without portals)
+	 */
+	private int wrap(int cell, Direction direction) {
+		int width = _gameDimension.width, height = _gameDimension.height;
+		int x = cell % width, y = cell / width;
+		if (direction == Direction.UP)
+			y = (y + height - 1) % height;
+		else if (direction == Direction.DOWN)
+			y = (y + 1) % height;
+		else if (direction == Direction.LEFT)
+			x = (x + width - 1) % width;
+		else if (direction == Direction.RIGHT)
+			x = (x + 1) % width;
+
+		return y * width + x;
+	}
+
+	private static int directionIndex(Direction direction) {
+		return direction.ordinal() - 1;
 	}
 	
+	/**
+	 * Reset the map to its initial state, put back all the stationary objects that were removed (eaten pills)
+	 */
+	public void reset() {
+		for (int i = 0; i < _gameDimension.height; i++) {
+			System.arraycopy(_initialObjectsMap[i], 0, _objectsMap[i], 0, _gameDimension.width);
+		}
+		Arrays.fill(_removedObjects, 0);
+	}
+
 	/**
 	 * Determines if the given object can be moved to the given position
 	 * @param object controllable object
 	 * @param position target position
 	 * @return true if can move, false if not
 	 */
+	public boolean canMove(ControllableObject object, Point position) {
+		return canMove(object, position.x, position.y);
+	}
+	
+	/**
+	 * Determines if the given object can be moved to the given position (a bit of the object's passability layer)
+	 * @param object controllable object
+	 * @param x target x coordinate
+	 * @param y target y coordinate
+	 * @return true if can move, false if not
+	 */
 	public boolean canMove(ControllableObject object, int x, int y) {
 		int height = getGameDimension().height;
 		int width = getGameDimension().width;
@@ -141,11 +542,9 @@ public class Map {
 			x = width - 1;
 		else if (x >= width)
 			x = 0;
-		
-		if (_objectsMap[y][x] != null)
-			return _objectsMap[y][x].isCollidableWith(object);
-		
-		return true;
+
+		int cell = y * width + x;
+		return (_passable[object.getPassabilityLayer()][cell >> 6] & (1L << cell)) != 0;
 	}
 	
 	/**
@@ -191,6 +590,84 @@ public class Map {
 				{ 1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1 },
 				
 		};
-			return new Map(map, new Point(15, 12), new Point(14, 16));
+		Map level = new Map(map, new Point(15, 12), new Point(14, 16));
+		level.addPortal(0, 13, Direction.LEFT, 27, 13);
+		return level;
+	}
+
+	/**
+	 * Get a randomly generated maze (for stress tests), with a pill in every corridor cell.
+	 * The maze is a perfect maze (carved using randomized DFS) with some of its walls removed, so it has loops like a pacman level.
+	 * The cage position is the top left corner, and pacman initial position is the bottom right corner.
+	 * @param width maze width (an even value is rounded down to an odd value)
+	 * @param height maze height (an even value is rounded down to an odd value)
+	 * @param seed random seed, the same seed generates the same maze
+	 * @return generated map
+	 */
+	public static Map getGeneratedMap(int width, int height, long seed) {
+		int[][] map = getGeneratedCodes(width, height, seed);
+		return new Map(map, new Point(1, 1), new Point(map[0].length - 2, map.length - 2));
+	}
+
+	/**
+	 * Get the codes map of a randomly generated maze (see {@link #getGeneratedMap(int, int, long)}), without creating the map objects
+	 * @param width maze width (an even value is rounded down to an odd value)
+	 * @param height maze height (an even value is rounded down to an odd value)
+	 * @param seed random seed, the same seed generates the same maze
+	 * @return codes map
+	 */
+	public static int[][] getGeneratedCodes(int width, int height, long seed) {
+		width -= 1 - width % 2;
+		height -= 1 - height % 2;
+		if (width < 3 || height < 3)
+			throw new IllegalArgumentException("Maze is too small: " + width + "x" + height);
+
+		SplittableRandom random = new SplittableRandom(seed);
+		int[][] map = new int[height][width];
+		for (int[] row : map) {
+			Arrays.fill(row, 1);
+		}
+
+		// carve the corridors between the odd cells (randomized DFS)
+		int cellsX = width / 2, cellsY = height / 2;
+		int[] stack = new int[cellsX * cellsY];
+		int top = 0;
+		stack[top++] = 0;
+		map[1][1] = 2;
+		int[] dx = { 1, -1, 0, 0 }, dy = { 0, 0, 1, -1 };
+		int[] options = new int[4];
+		while (top > 0) {
+			int cell = stack[top - 1];
+			int cx = cell % cellsX, cy = cell / cellsX;
+
+			int count = 0;
+			for (int d = 0; d < 4; d++) {
+				int nx = cx + dx[d], ny = cy + dy[d];
+				if (nx >= 0 && nx < cellsX && ny >= 0 && ny < cellsY && map[ny * 2 + 1][nx * 2 + 1] == 1)
+					options[count++] = d;
+			}
+
+			if (count == 0) {
+				top--;
+				continue;
+			}
+
+			int d = options[random.nextInt(count)];
+			int nx = cx + dx[d], ny = cy + dy[d];
+			map[cy * 2 + 1 + dy[d]][cx * 2 + 1 + dx[d]] = 2;
+			map[ny * 2 + 1][nx * 2 + 1] = 2;
+			stack[top++] = ny * cellsX + nx;
+		}
+
+		// remove some of the inner walls between two corridors, for creating loops
+		for (int i = 1; i < height - 1; i++) {
+			for (int j = 1; j < width - 1; j++) {
+				if (map[i][j] == 1 && random.nextInt(10) == 0
+						&& ((map[i][j - 1] != 1 && map[i][j + 1] != 1) || (map[i - 1][j] != 1 && map[i + 1][j] != 1)))
+					map[i][j] = 2;
+			}
+		}
+
+		return map;
 	}
 }
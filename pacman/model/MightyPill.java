@@ -1,9 +1,7 @@
 package pacman.model;
 
-import javax.swing.ImageIcon;
-
 import pacman.controllers.GameEngine;
-import pacman.views.utils.AssetsManager;
+import pacman.views.utils.ImageUtils;
 
 /**
  *  Mighty Pill
@@ -18,7 +16,7 @@ public class MightyPill extends Pill {
 	 */
 	public MightyPill() {
 		super();
-		setIcon(new ImageIcon(AssetsManager.getResource(MightyPill.class, "img.png")));
+		setIcon(ImageUtils.getIcon(MightyPill.class, "img.png"));
 	}
 	
 	/**
@@ -1,12 +1,10 @@
 package pacman.model;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 
-import javax.imageio.ImageIO;
-
 import pacman.ai.Path;
-import pacman.views.utils.AssetsManager;
+import pacman.views.utils.ImageUtils;
+import pacman.views.utils.SpriteSheet;
 
 /**
  *  A Monster
@@ -15,26 +13,38 @@ import pacman.views.utils.AssetsManager;
  */
 public abstract class Monster extends ControllableObject implements Eatable {
 	private static final long serialVersionUID = -2278066974451795606L;
-	/* monster image chosen randomly */
-	BufferedImage _image;
+	private static final String[] IMAGES = { "1.png", "2.png", "3.png", "4.png" };
+	private static final Direction[] MOVES = { Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT };
+	/* monster image chosen randomly (and its index in IMAGES) */
+	SpriteSheet _image;
+	private int _imageIndex;
 	/* is in fear mode (special stage) */
 	boolean _inFear = false;
-	/* current path */
+	/* current path, and a path object owned by the monster (filled again for every new path) */
 	private Path _path;
+	private Path _pathBuffer = new Path();
 	private int _nextStep;
 	private boolean _requestNewPath;
 	/* probability for getting a randomized path */
 	private float _randomPathProbability = 0.5f;
 	/* is monster trapped in the cage */
 	private boolean _isTrapped = true;
-	private long _releaseTime = System.currentTimeMillis();
+	private long _releaseTime;
+	/* game clock & random numbers generator */
+	private GameClock _clock;
+	private GameRandom _random;
 
 	/**
 	 * Creates a new monster for the given collisions map
 	 * @param map collisions map
+	 * @param clock game clock
+	 * @param random game random numbers generator
 	 */
-	public Monster(Map map) {
+	public Monster(Map map, GameClock clock, GameRandom random) {
 		super(map);
+		_clock = clock;
+		_random = random;
+		_releaseTime = clock.getTicks();
 
 		// set animation speed
 		setFPS(5);
@@ -48,22 +58,34 @@ public abstract class Monster extends ControllableObject implements Eatable {
 	 */
 	public void initializeMonster() {
 		// Choose monster image randomly (for making the game harder!!!)
-		try {
-			_image = ImageIO.read(AssetsManager.getResource(Monster.class, ((int)Math.floor(Math.random() * 4) + 1) + ".png"));
-			setSpriteImage(_image);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		setImage((int)Math.floor(_random.nextDouble() * IMAGES.length));
+		setSpriteImage(_image);
 
 		// set the position to the cage position of the given map
 		setPosition(getCollisionMap().getCagePosition().x, getCollisionMap().getCagePosition().y);
 
-		// set the initial direction
+		// set the initial direction (a monster of a previous game stops, and forgets its path)
+		resetDirection();
 		setDirection(Direction.RIGHT);
 
+		_path = null;
+		_nextStep = 0;
 		_requestNewPath = true;
 	}
 
+	/**
+	 * Load the monster image
+	 * @param index image index in IMAGES
+	 */
+	private void setImage(int index) {
+		try {
+			_image = ImageUtils.getSprite(Monster.class, IMAGES[index]);
+			_imageIndex = index;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * Check if the monster requests a new path (for example finish the current path and reached the target)
 	 * @return true if needs new path, false if not
@@ -89,6 +111,22 @@ public abstract class Monster extends ControllableObject implements Eatable {
 		return _randomPathProbability;
 	}
 
+	/**
+	 * Get the path object of this monster, for filling a new path without allocating one
+	 * @return monster's path buffer
+	 */
+	public Path getPathBuffer() {
+		return _pathBuffer;
+	}
+
+	/**
+	 * Get the path that the monster follows
+	 * @return current path, null if the monster has no path
+	 */
+	public Path getPath() {
+		return _path;
+	}
+
 	/**
 	 * Change monster's path
 	 * @param path
@@ -102,6 +140,28 @@ public abstract class Monster extends ControllableObject implements Eatable {
 			_requestNewPath = true;
 	}
 
+	/**
+	 * Change monster's path to a path that was planned from an earlier position (for example in the background, while the monster moved).
+	 * The monster continues from its current position on the path.
+	 * @param path the new path
+	 * @return true if the monster is on the path, false if not (the path isn't used, and the monster requests a new path)
+	 */
+	public boolean joinPath(Path path) {
+		if (path != null && path.contains(getPosition().x, getPosition().y)) {
+			for (int i = 0; i < path.getLength(); i++) {
+				if (path.getX(i) == getPosition().x && path.getY(i) == getPosition().y) {
+					// a stopped monster starts moving on the next step (the direction changes on a step), so it starts from its own cell
+					setPath(path);
+					_nextStep = getDirection() == Direction.NONE ? i : i + 1;
+					return true;
+				}
+			}
+		}
+
+		setPath(null);
+		return false;
+	}
+
 	/**
 	 * Determine if monster is in fear mode
 	 * @return true if the monster in fear, false if not
@@ -120,11 +180,11 @@ public abstract class Monster extends ControllableObject implements Eatable {
 
 	/**
 	 * Trap the monster in the cage, and release it after the given delay
-	 * @param delay delay value in milliseconds
+	 * @param delay delay value in game ticks
 	 */
 	public void setReleaseTime(int delay) {
 		_isTrapped = true;
-		_releaseTime = System.currentTimeMillis() + delay;
+		_releaseTime = _clock.getTicks() + delay;
 	}
 
 	/**
@@ -141,7 +201,7 @@ public abstract class Monster extends ControllableObject implements Eatable {
 	 */
 	protected void setFearMode() {
 		try {
-			setSpriteImage(ImageIO.read(AssetsManager.getResource(Monster.class, "scatterMode.png")));
+			setSpriteImage(ImageUtils.getSprite(Monster.class, "scatterMode.png"));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -150,26 +210,81 @@ public abstract class Monster extends ControllableObject implements Eatable {
 		_inFear = true;
 	}
 
+	/**
+	 * A free monster can pass through the cage gates, a trapped one can't
+	 */
+	@Override
+	public int getPassabilityLayer() {
+		return _isTrapped ? Map.TRAPPED_MONSTER_LAYER : Map.MONSTER_LAYER;
+	}
+
+	@Override
+	public int getStateSize() {
+		return super.getStateSize() + 8;
+	}
+
+	/**
+	 * Save the monster state: the object state, its image, fear & cage state, and its progress on the path.
+	 * The steps of the path aren't saved- a restored monster with a path follows its path buffer, that is filled by the caller
+	 * (see {@link #getPath()} & {@link #getPathBuffer()})
+	 */
+	@Override
+	public int saveState(int[] state, int offset) {
+		offset = super.saveState(state, offset);
+		state[offset] = _imageIndex;
+		state[offset + 1] = _inFear ? 1 : 0;
+		state[offset + 2] = _path != null ? 1 : 0;
+		state[offset + 3] = _nextStep;
+		state[offset + 4] = _requestNewPath ? 1 : 0;
+		state[offset + 5] = _isTrapped ? 1 : 0;
+		state[offset + 6] = (int)(_releaseTime >>> 32);
+		state[offset + 7] = (int)_releaseTime;
+		return offset + 8;
+	}
+
+	@Override
+	public int restoreState(int[] state, int offset) {
+		offset = super.restoreState(state, offset);
+		if (state[offset] != _imageIndex)
+			setImage(state[offset]);
+		_inFear = state[offset + 1] != 0;
+		try {
+			SpriteSheet image = _inFear ? ImageUtils.getSprite(Monster.class, "scatterMode.png") : _image;
+			if (image != getSpriteImage())
+				setSpriteImage(image, getFrame());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		_path = state[offset + 2] != 0 ? _pathBuffer : null;
+		_nextStep = state[offset + 3];
+		_requestNewPath = state[offset + 4] != 0;
+		_isTrapped = state[offset + 5] != 0;
+		_releaseTime = ((long)state[offset + 6] << 32) | (state[offset + 7] & 0xffffffffL);
+		return offset + 8;
+	}
+
 	public abstract void fearFromSuperPacman();
 	public abstract void fearFromMightyPacman();
 
 	@Override
 	public void move() {
 		// release the monster if release time has come
-		if (System.currentTimeMillis() > _releaseTime)
+		if (_clock.getTicks() > _releaseTime)
 			_isTrapped = false;
 		
 		// set direction based on the next step in the current path
 		if (isStep()) {
 			if (_path != null && _nextStep < _path.getLength()) {
-				if (_path.getStep(_nextStep).y - getPosition().y < 0)
-					setDirection(Direction.UP);
-				else if (_path.getStep(_nextStep).y - getPosition().y > 0)
-					setDirection(Direction.DOWN);
-				else if (_path.getStep(_nextStep).x - getPosition().x < 0)
-					setDirection(Direction.LEFT);
-				else if (_path.getStep(_nextStep).x - getPosition().x > 0)
-					setDirection(Direction.RIGHT);
+				// the path keeps the direction of every step, so a monster on the previous step just follows it.
+				// otherwise- the direction that leads to the next step (the step can be on the other side of the board, through a tunnel),
+				// or towards it if it isn't a neighbour (the monster may have skipped path steps while it was stopped)
+				Direction direction;
+				if (_nextStep > 0 && !_path.isJump(_nextStep) && _path.getX(_nextStep - 1) == getPosition().x && _path.getY(_nextStep - 1) == getPosition().y)
+					direction = _path.getDirection(_nextStep);
+				else
+					direction = stepDirection(_path.getX(_nextStep), _path.getY(_nextStep));
+				if (direction != null)
+					setDirection(direction);
 			} else {
 				_requestNewPath = true;
 			}
@@ -181,4 +296,30 @@ public abstract class Monster extends ControllableObject implements Eatable {
 		if (isStep())
 			_nextStep++;
 	}
+
+	/**
+	 * Get the direction from the monster's position towards the given step
+	 * @param x step x coordinate
+	 * @param y step y coordinate
+	 * @return the direction, or null if the monster is already there
+	 */
+	private Direction stepDirection(int x, int y) {
+		Map map = getCollisionMap();
+		int step = y * map.getGameDimension().width + x;
+		for (int i = 0; i < MOVES.length; i++) {
+			if (map.getNeighbour(getPosition().x, getPosition().y, MOVES[i]) == step)
+				return MOVES[i];
+		}
+
+		if (y - getPosition().y < 0)
+			return Direction.UP;
+		else if (y - getPosition().y > 0)
+			return Direction.DOWN;
+		else if (x - getPosition().x < 0)
+			return Direction.LEFT;
+		else if (x - getPosition().x > 0)
+			return Direction.RIGHT;
+
+		return null;
+	}
 }
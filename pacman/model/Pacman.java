@@ -2,9 +2,7 @@ package pacman.model;
 
 import java.io.IOException;
 
-import javax.imageio.ImageIO;
-
-import pacman.views.utils.AssetsManager;
+import pacman.views.utils.ImageUtils;
 
 /**
  *  Regular Pacman
@@ -13,8 +11,14 @@ import pacman.views.utils.AssetsManager;
  */
 public class Pacman extends ControllableObject implements Eater {
 	private static final long serialVersionUID = 8644963962014952922L;
+	private static final String[] IMAGES = { "pacman-right.png", "pacman-left.png", "pacman-death.png" };
+	private static final int RIGHT_IMAGE = 0;
+	private static final int LEFT_IMAGE = 1;
+	private static final int DEATH_IMAGE = 2;
 	/* Pacman current direction */
 	private Direction _directionX = Direction.RIGHT;
+	/* the current image (index in IMAGES) */
+	private int _image;
 
 	/**
 	 * Creates a new Pacman with a given collisions map
@@ -25,6 +29,19 @@ public class Pacman extends ControllableObject implements Eater {
 		setPosition(map.getPacmanInitialPosition().x, map.getPacmanInitialPosition().y);
 		setDirection(Direction.NONE);
 	}
+
+	/**
+	 * Reset the pacman to the state of a new pacman (initial position, default icon, not moving),
+	 * so the same pacman can be used again in the next match
+	 */
+	public void reset() {
+		resetDirection();
+		_directionX = Direction.RIGHT;
+		setSpriteAngle(0);
+		setDefaultIcon();
+		setPosition(getCollisionMap().getPacmanInitialPosition().x, getCollisionMap().getPacmanInitialPosition().y);
+		setDirection(Direction.NONE);
+	}
 	
 	@Override
 	public void setDirection(Direction direction) {
@@ -38,11 +55,7 @@ public class Pacman extends ControllableObject implements Eater {
 			startAnimation();
 			break;
 		case LEFT:
-			try {
-				setSpriteImage(ImageIO.read(AssetsManager.getResource(this.getClass(), "pacman-left.png")));
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+			setImage(LEFT_IMAGE, 0);
 			_directionX = Direction.LEFT;
 			setSpriteAngle(0);
 			startAnimation();
@@ -54,11 +67,7 @@ public class Pacman extends ControllableObject implements Eater {
 			stopAnimation();
 			break;
 		case RIGHT:
-			try {
-				setSpriteImage(ImageIO.read(AssetsManager.getResource(this.getClass(), "pacman-right.png")));
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+			setImage(RIGHT_IMAGE, 0);
 			_directionX = Direction.RIGHT;
 			setSpriteAngle(0);
 			startAnimation();
@@ -82,25 +91,56 @@ public class Pacman extends ControllableObject implements Eater {
 	 * Pacman die - change the pacman image
 	 */
 	public void die() {
-		try {
-			setSpriteImage(ImageIO.read(AssetsManager.getResource(this.getClass(), "pacman-death.png")));
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		setImage(DEATH_IMAGE, 0);
 	}
 	
 	/**
 	 * set the pacman to its default icon
 	 */
 	public void setDefaultIcon() {
+		// default image
+		setImage(RIGHT_IMAGE, 0);
+	}
+
+	/**
+	 * Change the pacman image
+	 * @param image image index in IMAGES
+	 * @param frame the first frame
+	 */
+	private void setImage(int image, int frame) {
 		try {
-			// default image
-			setSpriteImage(ImageIO.read(AssetsManager.getResource(this.getClass(), "pacman-right.png")));
+			setSpriteImage(ImageUtils.getSprite(this.getClass(), IMAGES[image]), frame);
+			_image = image;
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	@Override
+	public int getStateSize() {
+		return super.getStateSize() + 2;
+	}
+
+	/**
+	 * Save the pacman state: the object state, its image & horizontal direction
+	 */
+	@Override
+	public int saveState(int[] state, int offset) {
+		offset = super.saveState(state, offset);
+		state[offset] = _directionX.ordinal();
+		state[offset + 1] = _image;
+		return offset + 2;
+	}
+
+	@Override
+	public int restoreState(int[] state, int offset) {
+		offset = super.restoreState(state, offset);
+		_directionX = state[offset] == Direction.LEFT.ordinal() ? Direction.LEFT : Direction.RIGHT;
+		if (state[offset + 1] != _image || getSpriteImage() == null)
+			setImage(state[offset + 1], getFrame());
+		return offset + 2;
+	}
+
 	/**
 	 * Determine if pacman can eat the given monster (using Visitor pattern)
 	 * @param monster
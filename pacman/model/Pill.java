@@ -1,9 +1,7 @@
 package pacman.model;
 
-import javax.swing.ImageIcon;
-
 import pacman.controllers.GameEngine;
-import pacman.views.utils.AssetsManager;
+import pacman.views.utils.ImageUtils;
 
 /**
  *  Pacman Regular Pill
@@ -17,7 +15,7 @@ public class Pill extends StationaryObject {
 	 * Creates a new pill
 	 */
 	public Pill() {
-		super(new ImageIcon(AssetsManager.getResource(Pill.class, "img.png")));
+		super(ImageUtils.getIcon(Pill.class, "img.png"));
 	}
 	
 	/**
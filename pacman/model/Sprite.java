@@ -1,15 +1,14 @@
 package pacman.model;
 
 import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.geom.AffineTransform;
-import java.awt.image.BufferedImage;
 
 import javax.swing.JLabel;
 import javax.swing.Timer;
 
+import pacman.views.utils.SpriteSheet;
+
 /**
  *  Sprite represents an object that can be animated using an image contains a sequence of frames
  *  @author     Lidan Hifi
@@ -21,10 +20,13 @@ public class Sprite extends JLabel {
 	/* animation timer & frames per second */
 	private Timer _animationTimer;
 	private int _fps = 25;
-	/* the sprite image */
-	private BufferedImage _sprite = null;
+	private boolean _animated;
+	/* time of the last frame change, for sprites that are animated by a renderer (not displayed as a component) */
+	private long _lastFrameTime;
+	/* the sprite frames (pre-sliced & pre-rotated) */
+	private SpriteSheet _sprite = null;
 	/* the frame index & angle */
-	private int _spriteX;
+	private int _frame;
 	private int _spriteAngle;
 
 	/**
@@ -36,24 +38,40 @@ public class Sprite extends JLabel {
 
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				_spriteX = (_spriteX + BLOCK_SIZE) % _sprite.getWidth();
+				_frame = (_frame + 1) % _sprite.getFrameCount();
 			}
 		});
 	}
 
 	/**
-	 * Start the sprite animation
+	 * Start the sprite animation (the animation timer runs only while the sprite is displayed)
 	 */
 	public void startAnimation() {
-		_animationTimer.start();
+		_animated = true;
+		if (isDisplayable())
+			_animationTimer.start();
 	}
 
 	/**
 	 * Stop the sprite animation
 	 */
 	public void stopAnimation() {
+		_animated = false;
 		_animationTimer.stop();
 	}
+
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		if (_animated)
+			_animationTimer.start();
+	}
+
+	@Override
+	public void removeNotify() {
+		_animationTimer.stop();
+		super.removeNotify();
+	}
 	
 	/**
 	 * Change the animation frames per second
@@ -66,40 +84,114 @@ public class Sprite extends JLabel {
 
 	/**
 	 * Set the sprite image (sequence of frames in one image)
-	 * @param sprite sprite image
+	 * @param sprite sprite frames
+	 */
+	protected void setSpriteImage(SpriteSheet sprite) {
+		setSpriteImage(sprite, 0);
+	}
+
+	/**
+	 * Set the sprite image, starting from the given frame
+	 * @param sprite sprite frames
+	 * @param frame frame index
 	 */
-	protected void setSpriteImage(BufferedImage sprite) {
+	protected void setSpriteImage(SpriteSheet sprite, int frame) {
 		_sprite = sprite;
-		_spriteX = 0;
+		_frame = frame;
+	}
+
+	/**
+	 * Get the current frame index
+	 * @return frame index
+	 */
+	protected int getFrame() {
+		return _frame;
 	}
 	
 	/**
 	 * Get the current sprite image
 	 * @return
 	 */
-	protected BufferedImage getSpriteImage() {
+	protected SpriteSheet getSpriteImage() {
 		return _sprite;
 	}
 
 	@Override
 	protected void paintComponent(Graphics g) {
 		setSize(BLOCK_SIZE, BLOCK_SIZE);
-		
-		// "crop" the current frame
-		BufferedImage currentFrame = _sprite.getSubimage(_spriteX, 0, BLOCK_SIZE, BLOCK_SIZE);
+		drawSprite(g, 0, 0);
+	}
+
+	/**
+	 * Draw the current frame of the sprite, already rotated to the sprite angle
+	 * @param g graphics to draw on
+	 * @param x x coordinate in pixels
+	 * @param y y coordinate in pixels
+	 */
+	public void drawSprite(Graphics g, int x, int y) {
+		if (_sprite != null)
+			g.drawImage(_sprite.getFrame(_frame, _spriteAngle), x, y, null);
+	}
+
+	/**
+	 * Advance the animation to the given time. A sprite that is displayed as a component is animated by its own timer,
+	 * and a renderer that draws the sprite directly calls this method before drawing it.
+	 * @param time current time in milliseconds
+	 */
+	public void animate(long time) {
+		if (!_animated || _sprite == null || _animationTimer.isRunning()) {
+			_lastFrameTime = time;
+			return;
+		}
+
+		if (time - _lastFrameTime >= 1000 / _fps) {
+			_frame = (_frame + 1) % _sprite.getFrameCount();
+			_lastFrameTime = time;
+		}
+	}
+
+	/**
+	 * Get the number of values in the state of this sprite (see {@link #saveState(int[], int)})
+	 * @return state size
+	 */
+	public int getStateSize() {
+		return 3;
+	}
 
-		// change the sprite angle
-		Graphics2D g2d = (Graphics2D)g;
-		AffineTransform trans = new AffineTransform();
-		trans.rotate(Math.toRadians(_spriteAngle), currentFrame.getWidth() / 2, currentFrame.getHeight() / 2);
-		
-		// draw the sprite
-		g2d.drawImage(currentFrame, trans, this);
+	/**
+	 * Save the sprite state into an array (for restoring it later without any allocation)
+	 * @param state state array
+	 * @param offset index of the first value
+	 * @return the index after the last value
+	 */
+	public int saveState(int[] state, int offset) {
+		state[offset] = _frame;
+		state[offset + 1] = _spriteAngle;
+		state[offset + 2] = _animated ? 1 : 0;
+		return offset + 3;
+	}
+
+	/**
+	 * Restore the sprite state that was saved into an array
+	 * @param state state array
+	 * @param offset index of the first value
+	 * @return the index after the last value
+	 */
+	public int restoreState(int[] state, int offset) {
+		_frame = state[offset];
+		_spriteAngle = state[offset + 1];
+		if (state[offset + 2] != 0) {
+			if (!_animated)
+				startAnimation();
+		} else if (_animated) {
+			stopAnimation();
+		}
+		return offset + 3;
 	}
 
 	/**
 	 * Change the sprite angle
-	 * @param spriteAngle
+	 * @param spriteAngle angle in degrees (multiplier of 90)
 	 */
 	protected void setSpriteAngle(int spriteAngle) {
 		_spriteAngle = spriteAngle;
@@ -11,9 +11,11 @@ public class StrongMonster extends Monster {
 	/**
 	 * Creates a new strong monster for the given collision map
 	 * @param map collision map
+	 * @param clock game clock
+	 * @param random game random numbers generator
 	 */
-	public StrongMonster(Map map) {
-		super(map);
+	public StrongMonster(Map map, GameClock clock, GameRandom random) {
+		super(map, clock, random);
 		// low probability to choose a random path for strong monster.
 		// if the value is "0" or very very low- all the strong monster will be get the same path.
 		// you can change this value in order to get easier or harder game
@@ -1,9 +1,7 @@
 package pacman.model;
 
-import javax.swing.ImageIcon;
-
 import pacman.controllers.GameEngine;
-import pacman.views.utils.AssetsManager;
+import pacman.views.utils.ImageUtils;
 
 /**
  *  Super Pill
@@ -18,7 +16,7 @@ public class SuperPill extends Pill {
 	 */
 	public SuperPill() {
 		super();
-		setIcon(new ImageIcon(AssetsManager.getResource(SuperPill.class, "img.png")));
+		setIcon(ImageUtils.getIcon(SuperPill.class, "img.png"));
 	}
 	
 	/**
@@ -11,9 +11,11 @@ public class WeakMonster extends Monster {
 	/**
 	 * Creates a new weak monster for the given collision map
 	 * @param map collision map
+	 * @param clock game clock
+	 * @param random game random numbers generator
 	 */
-	public WeakMonster(Map map) {
-		super(map);
+	public WeakMonster(Map map, GameClock clock, GameRandom random) {
+		super(map, clock, random);
 		// set the random path probability to 1-
 		// which means that in each step, the monster's path chosen randomly
 		setRandomPathProbability(1);
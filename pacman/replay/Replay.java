@@ -0,0 +1,241 @@
+package pacman.replay;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ *  A recorded game (see {@link ReplayRecorder}): the game's seed, map & options, and the keys with the game steps they were handled on.
+ *  A replay that wasn't closed (i.e. the application crashed) has no result, and it ends on the step of its last key.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class Replay {
+	private long _seed;
+	private long _mapHash;
+	private int _weakMonsters;
+	private int _strongMonsters;
+	private int _flags;
+	/* the keys (key codes) and their game steps */
+	private long[] _steps = new long[64];
+	private int[] _keys = new int[64];
+	private int _keysCount;
+	/* the number of game steps, and the game result (if the replay was closed) */
+	private long _endStep;
+	private boolean _complete;
+	private int _points;
+	private int _remainingLives;
+	private int _remainingPills;
+
+	/**
+	 * Read a replay file
+	 * @param file replay file
+	 * @return replay
+	 * @throws IOException if the file can't be read, or it isn't a replay
+	 */
+	public static Replay read(Path file) throws IOException {
+		return read(ByteBuffer.wrap(Files.readAllBytes(file)));
+	}
+
+	/**
+	 * Read a replay from the given buffer (from its position to its limit)
+	 * @param buffer replay bytes
+	 * @return replay
+	 * @throws IOException if it isn't a replay
+	 */
+	public static Replay read(ByteBuffer buffer) throws IOException {
+		Replay replay = new Replay();
+		try {
+			if (buffer.getInt() != ReplayRecorder.MAGIC)
+				throw new IOException("Not a replay");
+			int version = buffer.get();
+			if (version != ReplayRecorder.VERSION)
+				throw new IOException("Unknown replay version: " + version);
+
+			replay._seed = buffer.getLong();
+			replay._mapHash = buffer.getLong();
+			replay._weakMonsters = (int)getVarint(buffer);
+			replay._strongMonsters = (int)getVarint(buffer);
+			replay._flags = buffer.get();
+		} catch (BufferUnderflowException e) {
+			throw new IOException("The replay header is truncated", e);
+		}
+
+		long step = 0;
+		try {
+			while (buffer.hasRemaining()) {
+				long entry = getVarint(buffer);
+				int code = (int)(entry & ((1 << ReplayRecorder.CODE_BITS) - 1));
+				step += entry >>> ReplayRecorder.CODE_BITS;
+
+				if (code == ReplayRecorder.END) {
+					replay._points = (int)getVarint(buffer);
+					replay._remainingLives = (int)getVarint(buffer) - 1;
+					replay._remainingPills = (int)getVarint(buffer);
+					replay._complete = true;
+					break;
+				}
+
+				// any key that isn't recorded by its code only stops the cheat code, like the escape key
+				replay.addKey(step, code == ReplayRecorder.OTHER_KEY ? KeyEvent.VK_ESCAPE : ReplayRecorder.KEYS[code]);
+			}
+		} catch (BufferUnderflowException e) {
+			// a replay that was cut in the middle of an entry ends on its last whole entry
+		}
+
+		// the last key is handled on its step, so an open replay ends after it
+		replay._endStep = replay._complete ? step : (replay._keysCount > 0 ? replay._steps[replay._keysCount - 1] + 1 : 0);
+		return replay;
+	}
+
+	/**
+	 * Read a varint that was written by {@link ReplayRecorder}
+	 * @param buffer the buffer to read from
+	 * @return the value
+	 */
+	static long getVarint(ByteBuffer buffer) {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = buffer.get();
+			value |= (long)(b & 0x7f) << shift;
+			if (b >= 0)
+				return value;
+		}
+	}
+
+	private void addKey(long step, int keyCode) {
+		if (_keysCount == _keys.length) {
+			_steps = Arrays.copyOf(_steps, _keysCount * 2);
+			_keys = Arrays.copyOf(_keys, _keysCount * 2);
+		}
+
+		_steps[_keysCount] = step;
+		_keys[_keysCount++] = keyCode;
+	}
+
+	/**
+	 * Get the seed of the game random numbers generator
+	 * @return seed
+	 */
+	public long getSeed() {
+		return _seed;
+	}
+
+	/**
+	 * Get the layout hash of the game map (see {@link pacman.model.Map#getLayoutHash()})
+	 * @return map hash
+	 */
+	public long getMapHash() {
+		return _mapHash;
+	}
+
+	/**
+	 * Get the number of weak monsters
+	 * @return weak monsters
+	 */
+	public int getWeakMonstersCount() {
+		return _weakMonsters;
+	}
+
+	/**
+	 * Get the number of strong monsters
+	 * @return strong monsters
+	 */
+	public int getStrongMonstersCount() {
+		return _strongMonsters;
+	}
+
+	/**
+	 * Determines if a new game started when the game was over
+	 * @return true if yes, false if not
+	 */
+	public boolean isAutoRestart() {
+		return (_flags & ReplayRecorder.AUTO_RESTART) != 0;
+	}
+
+	/**
+	 * Determines if the game waited before the next match when pacman died
+	 * @return true if yes, false if not
+	 */
+	public boolean hasRespawnDelay() {
+		return (_flags & ReplayRecorder.RESPAWN_DELAY) != 0;
+	}
+
+	/**
+	 * Determines if the monsters paths were planned using a flow field
+	 * @return true if yes, false if not
+	 */
+	public boolean isFlowField() {
+		return (_flags & ReplayRecorder.FLOW_FIELD) != 0;
+	}
+
+	/**
+	 * Get the number of recorded keys
+	 * @return keys count
+	 */
+	public int getKeysCount() {
+		return _keysCount;
+	}
+
+	/**
+	 * Get the game step of a recorded key
+	 * @param index key index
+	 * @return game step
+	 */
+	public long getKeyStep(int index) {
+		return _steps[index];
+	}
+
+	/**
+	 * Get the code of a recorded key
+	 * @param index key index
+	 * @return key code (see {@link KeyEvent})
+	 */
+	public int getKeyCode(int index) {
+		return _keys[index];
+	}
+
+	/**
+	 * Get the number of recorded game steps
+	 * @return game steps
+	 */
+	public long getEndStep() {
+		return _endStep;
+	}
+
+	/**
+	 * Determines if the replay was closed, so it has the game result
+	 * @return true if yes, false if not
+	 */
+	public boolean isComplete() {
+		return _complete;
+	}
+
+	/**
+	 * Get the game points at the end of the replay (if it's complete)
+	 * @return points
+	 */
+	public int getPoints() {
+		return _points;
+	}
+
+	/**
+	 * Get pacman's remaining lives at the end of the replay (if it's complete)
+	 * @return remaining lives
+	 */
+	public int getRemainingLives() {
+		return _remainingLives;
+	}
+
+	/**
+	 * Get the remaining pills at the end of the replay (if it's complete)
+	 * @return remaining pills
+	 */
+	public int getRemainingPills() {
+		return _remainingPills;
+	}
+}
@@ -0,0 +1,204 @@
+package pacman.replay;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.LockSupport;
+
+import pacman.ai.PathPlanner;
+import pacman.ai.PathTable;
+import pacman.controllers.GameEngine;
+import pacman.controllers.GameLoop;
+import pacman.model.Map;
+import pacman.sim.BatchResult;
+
+/**
+ *  Plays recorded games back: a new engine with the replay's seed & options gets the recorded keys on their game steps,
+ *  so it plays exactly the recorded game. The games are played without any display, in real time (for watching them by
+ *  a game listener) or as fast as possible, and many replays can be played in parallel.
+ *  All the engines share the same map template and path planner (a path table, unless the map is too big for it).
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ReplayPlayer {
+	/* replays map & shared path planner */
+	private Map _map;
+	private PathPlanner _ai;
+	/* the number of worker threads */
+	private int _parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Creates a new replay player for the first level map
+	 */
+	public ReplayPlayer() {
+		this(Map.getFirstLevelMap());
+	}
+
+	/**
+	 * Creates a new replay player for the given map
+	 * @param map the map of the replays
+	 */
+	public ReplayPlayer(Map map) {
+		this(map, PathTable.fits(map) ? new PathTable(map) : null);
+	}
+
+	/**
+	 * Creates a new replay player for the given map and path planner
+	 * @param map the map of the replays
+	 * @param ai path planner shared by all the engines (must be thread safe), null for a planner of every engine
+	 */
+	public ReplayPlayer(Map map, PathPlanner ai) {
+		_map = map;
+		_ai = ai;
+	}
+
+	/**
+	 * Set the number of worker threads
+	 * @param parallelism worker threads
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism > 0)
+			_parallelism = parallelism;
+	}
+
+	/**
+	 * Create an engine for playing a replay (a listener can be added to it before it's played)
+	 * @param replay recorded game
+	 * @return game engine, with the replay's seed & options
+	 */
+	public GameEngine createEngine(Replay replay) {
+		if (replay.getMapHash() != _map.getLayoutHash())
+			throw new IllegalArgumentException("The replay was recorded on another map");
+
+		GameEngine engine = new GameEngine(_map, replay.getSeed(), _ai);
+		engine.setMonstersCount(replay.getWeakMonstersCount(), replay.getStrongMonstersCount());
+		engine.setFlowField(replay.isFlowField());
+		engine.setAutoRestart(replay.isAutoRestart());
+		engine.setRespawnDelay(replay.hasRespawnDelay());
+		return engine;
+	}
+
+	/**
+	 * Play a replay on a new engine
+	 * @param replay recorded game
+	 * @param realTime true for playing in the game's speed, false for playing as fast as possible
+	 * @return the engine that played the game
+	 */
+	public GameEngine play(Replay replay, boolean realTime) {
+		GameEngine engine = createEngine(replay);
+		play(replay, engine, realTime);
+		return engine;
+	}
+
+	/**
+	 * Play a replay on the given engine (created by {@link #createEngine(Replay)})
+	 * @param replay recorded game
+	 * @param engine game engine
+	 * @param realTime true for playing in the game's speed, false for playing as fast as possible
+	 */
+	public void play(Replay replay, GameEngine engine, boolean realTime) {
+		engine.start();
+
+		long start = System.nanoTime();
+		int key = 0;
+		for (long step = 0; step < replay.getEndStep(); step++) {
+			// the recorded keys are handled on the same steps
+			while (key < replay.getKeysCount() && replay.getKeyStep(key) == step) {
+				engine.pressKey(replay.getKeyCode(key++));
+			}
+
+			if (realTime) {
+				long wait = start + step * GameLoop.STEP_NANOS - System.nanoTime();
+				if (wait > 0)
+					LockSupport.parkNanos(wait);
+			}
+
+			engine.tick();
+		}
+	}
+
+	/**
+	 * Determines if an engine that played a replay got the recorded result
+	 * @param replay recorded game
+	 * @param engine the engine that played the replay
+	 * @return true if the replay is complete and the results are equal, false if not
+	 */
+	public static boolean matches(Replay replay, GameEngine engine) {
+		return replay.isComplete() && replay.getPoints() == engine.getPoints() && replay.getRemainingLives() == engine.getRemainingLives()
+				&& replay.getRemainingPills() == engine.getRemainingPills();
+	}
+
+	/**
+	 * Play many replays as fast as possible, in parallel
+	 * @param replays recorded games
+	 * @return aggregated results
+	 */
+	public BatchResult playAll(Replay[] replays) {
+		return playAll(replays, null);
+	}
+
+	/**
+	 * Play many replays as fast as possible, in parallel, and check their results (see {@link #matches(Replay, GameEngine)})
+	 * @param replays recorded games
+	 * @param matched filled with the check of every replay (null for not checking)
+	 * @return aggregated results
+	 */
+	public BatchResult playAll(Replay[] replays, boolean[] matched) {
+		if (matched != null && matched.length < replays.length)
+			throw new IllegalArgumentException("No room for the checks of all the replays");
+
+		ForkJoinPool pool = new ForkJoinPool(_parallelism);
+		try {
+			return pool.invoke(new ReplaysTask(replays, matched, 0, replays.length));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 *  Plays a range of replays- splits the range until a single replay is left
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class ReplaysTask extends RecursiveTask<BatchResult> {
+		private static final long serialVersionUID = -4472019315578386047L;
+		private Replay[] _replays;
+		private boolean[] _matched;
+		private int _from;
+		private int _to;
+
+		/**
+		 * Creates a new task for the replays in the given range
+		 * @param replays recorded games
+		 * @param matched the checks of the replays' results (null for not checking)
+		 * @param from first replay (inclusive)
+		 * @param to last replay (exclusive)
+		 */
+		public ReplaysTask(Replay[] replays, boolean[] matched, int from, int to) {
+			_replays = replays;
+			_matched = matched;
+			_from = from;
+			_to = to;
+		}
+
+		@Override
+		protected BatchResult compute() {
+			if (_to - _from <= 1) {
+				BatchResult result = new BatchResult();
+				if (_to > _from) {
+					GameEngine engine = play(_replays[_from], false);
+					result.addGame(engine);
+					if (_matched != null)
+						_matched[_from] = matches(_replays[_from], engine);
+				}
+				return result;
+			}
+
+			int middle = (_from + _to) >>> 1;
+			ReplaysTask left = new ReplaysTask(_replays, _matched, _from, middle);
+			left.fork();
+			BatchResult right = new ReplaysTask(_replays, _matched, middle, _to).compute();
+
+			return right.combine(left.join());
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package pacman.replay;
+
+import java.awt.event.KeyEvent;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import pacman.controllers.GameEngine;
+
+/**
+ *  Records the input of a game into a compact replay: a header with everything the game depends on (the seed, the map's
+ *  layout hash, the monsters & the game options), and then the pressed keys- every key is a varint of the game steps since
+ *  the previous key and a key code (usually a single byte). The replay ends with the number of steps and the game result,
+ *  for checking the playback. The bytes are appended to a buffer that is written to the channel when it fills.
+ *  The recorder is used by the game thread, and may be closed by another thread (i.e. when the application exits).
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ReplayRecorder implements Closeable {
+	/* replay format */
+	static final int MAGIC = 0x504d5250;
+	static final int VERSION = 1;
+	/* header flags */
+	static final int AUTO_RESTART = 1;
+	static final int RESPAWN_DELAY = 2;
+	static final int FLOW_FIELD = 4;
+	/* the recorded keys (by their code), any other key is recorded as OTHER_KEY */
+	static final int[] KEYS = { KeyEvent.VK_UP, KeyEvent.VK_RIGHT, KeyEvent.VK_DOWN, KeyEvent.VK_LEFT, KeyEvent.VK_SPACE, KeyEvent.VK_O, KeyEvent.VK_P };
+	static final int OTHER_KEY = 7;
+	static final int END = 8;
+	static final int CODE_BITS = 4;
+	private static final int BUFFER_SIZE = 4096;
+	/* the longest entry (a varint of a long and a few ints) */
+	private static final int MAX_ENTRY = 32;
+	private WritableByteChannel _channel;
+	private ByteBuffer _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	/* the recorded game, and the step of the last key */
+	private GameEngine _engine;
+	private long _lastStep;
+	/* bytes written to the channel */
+	private long _written;
+	private boolean _closed;
+
+	/**
+	 * Creates a recorder that writes a replay file (an existing file is replaced)
+	 * @param file replay file
+	 * @throws IOException if the file can't be created
+	 */
+	public ReplayRecorder(Path file) throws IOException {
+		this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+	}
+
+	/**
+	 * Creates a recorder that writes the replay to the given channel
+	 * @param channel channel (closed when the recorder is closed)
+	 */
+	public ReplayRecorder(WritableByteChannel channel) {
+		_channel = channel;
+	}
+
+	/**
+	 * Start recording a game- write the header (called by the engine, before its first step)
+	 * @param engine the recorded game
+	 */
+	public synchronized void begin(GameEngine engine) {
+		if (_engine != null)
+			throw new IllegalStateException("The recorder already records a game");
+
+		_engine = engine;
+		int flags = (engine.isAutoRestart() ? AUTO_RESTART : 0) | (engine.hasRespawnDelay() ? RESPAWN_DELAY : 0) | (engine.isFlowField() ? FLOW_FIELD : 0);
+		_buffer.putInt(MAGIC);
+		_buffer.put((byte)VERSION);
+		_buffer.putLong(engine.getSeed());
+		_buffer.putLong(engine.getMap().getLayoutHash());
+		putVarint(_buffer, engine.getWeakMonstersCount());
+		putVarint(_buffer, engine.getStrongMonstersCount());
+		_buffer.put((byte)flags);
+	}
+
+	/**
+	 * Record a key that was handled on the given game step
+	 * @param step game step
+	 * @param keyCode key code (see {@link KeyEvent})
+	 */
+	public synchronized void record(long step, int keyCode) {
+		if (_closed)
+			return;
+
+		int code = OTHER_KEY;
+		for (int i = 0; i < KEYS.length; i++) {
+			if (KEYS[i] == keyCode)
+				code = i;
+		}
+
+		putVarint(_buffer, (step - _lastStep) << CODE_BITS | code);
+		_lastStep = step;
+		flushIfFull();
+	}
+
+	/**
+	 * End the replay with the number of game steps and the game result, and close the channel
+	 * @throws IOException if the replay can't be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (_closed)
+			return;
+
+		_closed = true;
+		try {
+			if (_engine != null) {
+				putVarint(_buffer, (_engine.getSteps() - _lastStep) << CODE_BITS | END);
+				putVarint(_buffer, _engine.getPoints());
+				putVarint(_buffer, _engine.getRemainingLives() + 1);
+				putVarint(_buffer, _engine.getRemainingPills());
+			}
+			flush();
+		} finally {
+			_channel.close();
+		}
+	}
+
+	/**
+	 * Get the size of the replay so far
+	 * @return bytes
+	 */
+	public synchronized long getSize() {
+		return _written + _buffer.position();
+	}
+
+	/**
+	 * Write a varint- 7 bits in every byte, the low bits first, and the high bit of every byte but the last one is set
+	 * (a negative value takes 10 bytes, it's read back by {@link Replay})
+	 * @param buffer the buffer to write to
+	 * @param value the value to write
+	 */
+	static void putVarint(ByteBuffer buffer, long value) {
+		while ((value & ~0x7fL) != 0) {
+			buffer.put((byte)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte)value);
+	}
+
+	private void flushIfFull() {
+		if (_buffer.remaining() >= MAX_ENTRY)
+			return;
+
+		try {
+			flush();
+		} catch (IOException e) {
+			// the game goes on without the recording
+			e.printStackTrace();
+			_closed = true;
+			try {
+				_channel.close();
+			} catch (IOException closeError) {
+				e.addSuppressed(closeError);
+			}
+		}
+	}
+
+	private void flush() throws IOException {
+		_buffer.flip();
+		while (_buffer.hasRemaining()) {
+			_written += _channel.write(_buffer);
+		}
+		_buffer.clear();
+	}
+}
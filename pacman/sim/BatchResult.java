@@ -0,0 +1,138 @@
+package pacman.sim;
+
+import pacman.controllers.GameEngine;
+
+/**
+ *  Aggregated results of a batch of games
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class BatchResult {
+	/* played games */
+	private int _games;
+	private int _clearedGames;
+	/* aggregated values */
+	private long _totalPoints;
+	private int _minPoints = Integer.MAX_VALUE;
+	private int _maxPoints = Integer.MIN_VALUE;
+	private long _totalLivesLost;
+	private long _totalTicks;
+	private long _totalTicksToClear;
+	private long _totalRemainingPills;
+
+	/**
+	 * Add the result of a finished game
+	 * @param engine the game engine that played the game
+	 */
+	public void addGame(GameEngine engine) {
+		_games++;
+		_totalPoints += engine.getPoints();
+		_minPoints = Math.min(_minPoints, engine.getPoints());
+		_maxPoints = Math.max(_maxPoints, engine.getPoints());
+		_totalLivesLost += engine.getLivesLost();
+		_totalTicks += engine.getTicks();
+		_totalRemainingPills += engine.getRemainingPills();
+
+		if (engine.isLevelCleared()) {
+			_clearedGames++;
+			_totalTicksToClear += engine.getTicks();
+		}
+	}
+
+	/**
+	 * Add the results of another batch to this batch
+	 * @param other other batch results
+	 * @return this batch results
+	 */
+	public BatchResult combine(BatchResult other) {
+		_games += other._games;
+		_clearedGames += other._clearedGames;
+		_totalPoints += other._totalPoints;
+		_minPoints = Math.min(_minPoints, other._minPoints);
+		_maxPoints = Math.max(_maxPoints, other._maxPoints);
+		_totalLivesLost += other._totalLivesLost;
+		_totalTicks += other._totalTicks;
+		_totalTicksToClear += other._totalTicksToClear;
+		_totalRemainingPills += other._totalRemainingPills;
+
+		return this;
+	}
+
+	/**
+	 * Get the number of played games
+	 * @return played games
+	 */
+	public int getGames() {
+		return _games;
+	}
+
+	/**
+	 * Get the number of games in which pacman ate all the pills
+	 * @return cleared games
+	 */
+	public int getClearedGames() {
+		return _clearedGames;
+	}
+
+	/**
+	 * Get the average points per game
+	 * @return average points
+	 */
+	public double getAveragePoints() {
+		return _games == 0 ? 0 : (double)_totalPoints / _games;
+	}
+
+	/**
+	 * Get the minimum points in a game
+	 * @return minimum points
+	 */
+	public int getMinPoints() {
+		return _games == 0 ? 0 : _minPoints;
+	}
+
+	/**
+	 * Get the maximum points in a game
+	 * @return maximum points
+	 */
+	public int getMaxPoints() {
+		return _games == 0 ? 0 : _maxPoints;
+	}
+
+	/**
+	 * Get the average lives lost per game
+	 * @return average lives lost
+	 */
+	public double getAverageLivesLost() {
+		return _games == 0 ? 0 : (double)_totalLivesLost / _games;
+	}
+
+	/**
+	 * Get the total played ticks of all the games
+	 * @return total ticks
+	 */
+	public long getTotalTicks() {
+		return _totalTicks;
+	}
+
+	/**
+	 * Get the average ticks until pacman ate all the pills (of the cleared games only)
+	 * @return average ticks to clear, or 0 if no game was cleared
+	 */
+	public double getAverageTicksToClear() {
+		return _clearedGames == 0 ? 0 : (double)_totalTicksToClear / _clearedGames;
+	}
+
+	/**
+	 * Get the average remaining pills at the end of a game
+	 * @return average remaining pills
+	 */
+	public double getAverageRemainingPills() {
+		return _games == 0 ? 0 : (double)_totalRemainingPills / _games;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("games: %d, cleared: %d, points: avg %.1f (min %d, max %d), lives lost: avg %.2f, ticks to clear: avg %.1f, remaining pills: avg %.1f",
+				_games, _clearedGames, getAveragePoints(), getMinPoints(), getMaxPoints(), getAverageLivesLost(), getAverageTicksToClear(), getAverageRemainingPills());
+	}
+}
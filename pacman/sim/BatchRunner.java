@@ -0,0 +1,148 @@
+package pacman.sim;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import pacman.ai.PathPlanner;
+import pacman.ai.PathTable;
+import pacman.controllers.GameEngine;
+import pacman.model.Map;
+
+/**
+ *  Plays many independent headless games in parallel (on a work-stealing fork-join pool),
+ *  and aggregates their results.
+ *  All the engines share the same map template and path planner (a path table, unless the map is too big for it),
+ *  any other game state is owned by a single engine.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class BatchRunner {
+	/* default limit for a single game (one hour of play) */
+	public static final long DEFAULT_MAX_TICKS = GameEngine.FPS * 60 * 60;
+	/* games map & shared path planner */
+	private Map _map;
+	private PathPlanner _ai;
+	/* maximum ticks for a single game */
+	private long _maxTicks = DEFAULT_MAX_TICKS;
+	/* the number of worker threads */
+	private int _parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Creates a new batch runner for the first level map
+	 */
+	public BatchRunner() {
+		this(Map.getFirstLevelMap());
+	}
+
+	/**
+	 * Creates a new batch runner for the given map
+	 * @param map games map
+	 */
+	public BatchRunner(Map map) {
+		this(map, PathTable.fits(map) ? new PathTable(map) : null);
+	}
+
+	/**
+	 * Creates a new batch runner for the given map and path planner
+	 * @param map games map
+	 * @param ai path planner shared by all the engines (must be thread safe), null for a planner of every engine
+	 */
+	public BatchRunner(Map map, PathPlanner ai) {
+		_map = map;
+		_ai = ai;
+	}
+
+	/**
+	 * Set the maximum ticks for a single game (a game that reaches this limit is stopped)
+	 * @param maxTicks maximum ticks
+	 */
+	public void setMaxTicks(long maxTicks) {
+		_maxTicks = maxTicks;
+	}
+
+	/**
+	 * Set the number of worker threads
+	 * @param parallelism worker threads
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism > 0)
+			_parallelism = parallelism;
+	}
+
+	/**
+	 * Play the given number of games. the seed of each game is derived from the given seed,
+	 * so the same batch seed gives the same results (regardless of the number of worker threads)
+	 * @param games number of games
+	 * @param seed batch seed
+	 * @return aggregated results
+	 */
+	public BatchResult run(int games, long seed) {
+		long[] seeds = new long[games];
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < games; i++) {
+			seeds[i] = random.nextLong();
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(_parallelism);
+		try {
+			return pool.invoke(new GamesTask(seeds, 0, games));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Play a single game until it's over (or until it reaches the ticks limit)
+	 * @param seed game seed
+	 * @return the engine that played the game
+	 */
+	protected GameEngine playGame(long seed) {
+		GameEngine engine = new GameEngine(_map, seed, _ai);
+		engine.start();
+		engine.runHeadless(_maxTicks);
+
+		return engine;
+	}
+
+	/**
+	 *  Plays a range of games- splits the range until a single game is left
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class GamesTask extends RecursiveTask<BatchResult> {
+		private static final long serialVersionUID = 3867512396781937841L;
+		private long[] _seeds;
+		private int _from;
+		private int _to;
+
+		/**
+		 * Creates a new task for the games in the given range
+		 * @param seeds games seeds
+		 * @param from first game (inclusive)
+		 * @param to last game (exclusive)
+		 */
+		public GamesTask(long[] seeds, int from, int to) {
+			_seeds = seeds;
+			_from = from;
+			_to = to;
+		}
+
+		@Override
+		protected BatchResult compute() {
+			if (_to - _from <= 1) {
+				BatchResult result = new BatchResult();
+				if (_to > _from)
+					result.addGame(playGame(_seeds[_from]));
+				return result;
+			}
+
+			int middle = (_from + _to) >>> 1;
+			GamesTask left = new GamesTask(_seeds, _from, middle);
+			left.fork();
+			BatchResult right = new GamesTask(_seeds, middle, _to).compute();
+
+			return right.combine(left.join());
+		}
+	}
+}
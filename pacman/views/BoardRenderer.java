@@ -0,0 +1,306 @@
+package pacman.views;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import pacman.model.CageGate;
+import pacman.model.ControllableObject;
+import pacman.model.Map;
+import pacman.model.MightyPill;
+import pacman.model.Monster;
+import pacman.model.Pacman;
+import pacman.model.Pill;
+import pacman.model.StationaryObject;
+import pacman.model.SuperPill;
+import pacman.model.Wall;
+import pacman.views.utils.ImageUtils;
+
+/**
+ *  Board Renderer- draws the whole game board onto one image, without any swing component in the view.
+ *  The walls are drawn once (the static layer), the pills are drawn once per game on top of them (the board layer),
+ *  and every frame only the regions that changed are drawn again: the previous and the current positions of the sprites,
+ *  and the cells of the removed objects. The drawn regions of the last frame are available as dirty regions,
+ *  so the renderer's target can be copied to the screen partially.
+ *  The stationary objects are drawn by their kind (the images & colors of their components), without painting the swing
+ *  components, so the renderer can draw on any thread. Only {@link #repaintAll()} may be called by another thread.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class BoardRenderer {
+	public static final int BLOCK_SIZE = 24;
+	private static final Color BACKGROUND_COLOR = Color.black;
+	/* the look of the stationary objects (as their components are displayed) */
+	private static final Color WALL_COLOR = new Color(87,87,255);
+	private static final Color GATE_COLOR = new Color(255,171,255);
+	private static final int GATE_BORDER = 5;
+	/* board size in pixels */
+	private int _width;
+	private int _height;
+	private Map _map;
+	/* the static layer (walls & gates) and the board layer (static layer & pills) */
+	private BufferedImage _background;
+	private BufferedImage _board;
+	/* cell index of every stationary object of the map */
+	private IdentityHashMap<StationaryObject, Integer> _cells = new IdentityHashMap<StationaryObject, Integer>();
+	/* cells that changed on the board layer since the last frame */
+	private int[] _changedCells;
+	private int _changedCellsCount;
+	/* sprites */
+	private Pacman _pacman;
+	private List<Monster> _monsters;
+	/* sprites positions in the last frame (x, y pairs) */
+	private int[] _drawnPositions = new int[0];
+	private int _drawnSprites;
+	/* dirty regions of the last frame (x, y, width, height) */
+	private int[] _dirtyRegions = new int[0];
+	private int _dirtyCount;
+	/* the whole board is drawn on the next frame (requested by any thread, taken by the rendering thread) */
+	private AtomicBoolean _fullRepaint = new AtomicBoolean(true);
+	/* pills images */
+	private Image _pillImage;
+	private Image _superPillImage;
+	private Image _mightyPillImage;
+
+	/**
+	 * Creates a new renderer for the given map, and draws the static layer
+	 * @param map level map
+	 */
+	public BoardRenderer(Map map) {
+		_map = map;
+		_width = map.getGameDimension().width * BLOCK_SIZE;
+		_height = map.getGameDimension().height * BLOCK_SIZE;
+		_changedCells = new int[map.getGameDimension().width * map.getGameDimension().height];
+		_pillImage = ImageUtils.getIcon(Pill.class, "img.png").getImage();
+		_superPillImage = ImageUtils.getIcon(SuperPill.class, "img.png").getImage();
+		_mightyPillImage = ImageUtils.getIcon(MightyPill.class, "img.png").getImage();
+
+		StationaryObject[][] objectsMap = map.getStationaryObjectsMap();
+		for (int i = 0; i < objectsMap.length; i++) {
+			for (int j = 0; j < objectsMap[i].length; j++) {
+				if (objectsMap[i][j] != null)
+					_cells.put(objectsMap[i][j], i * objectsMap[i].length + j);
+			}
+		}
+
+		// static layer- everything but the pills
+		_background = ImageUtils.createCompatibleImage(_width, _height);
+		Graphics2D g = _background.createGraphics();
+		g.setColor(BACKGROUND_COLOR);
+		g.fillRect(0, 0, _width, _height);
+		for (int i = 0; i < objectsMap.length; i++) {
+			for (int j = 0; j < objectsMap[i].length; j++) {
+				if (objectsMap[i][j] != null && !(objectsMap[i][j] instanceof Pill))
+					drawStationaryObject(g, objectsMap[i][j], j, i);
+			}
+		}
+		g.dispose();
+
+		_board = ImageUtils.createCompatibleImage(_width, _height);
+		newGame(map);
+	}
+
+	/**
+	 * Draw the board layer again for a new game (all the pills are back on the board), or for a restored game state
+	 * @param map level map (with the same layout)
+	 */
+	public void newGame(Map map) {
+		_map = map;
+		Graphics2D g = _board.createGraphics();
+		g.drawImage(_background, 0, 0, null);
+
+		StationaryObject[][] objectsMap = map.getStationaryObjectsMap();
+		for (int i = 0; i < objectsMap.length; i++) {
+			for (int j = 0; j < objectsMap[i].length; j++) {
+				if (objectsMap[i][j] instanceof Pill)
+					drawStationaryObject(g, objectsMap[i][j], j, i);
+			}
+		}
+		g.dispose();
+
+		_changedCellsCount = 0;
+		_fullRepaint.set(true);
+	}
+
+	/**
+	 * Set the current pacman
+	 * @param pacman
+	 */
+	public void setPacman(Pacman pacman) {
+		_pacman = pacman;
+	}
+
+	/**
+	 * Set the game monsters
+	 * @param monsters
+	 */
+	public void setMonsters(List<Monster> monsters) {
+		_monsters = monsters;
+	}
+
+	/**
+	 * Remove a stationary object from the board layer (the cell is drawn again on the next frame)
+	 * @param object removed object
+	 */
+	public void removeStationaryObject(StationaryObject object) {
+		Integer cell = _cells.get(object);
+		if (cell == null)
+			return;
+
+		int x = (cell % _map.getGameDimension().width) * BLOCK_SIZE;
+		int y = (cell / _map.getGameDimension().width) * BLOCK_SIZE;
+		Graphics2D g = _board.createGraphics();
+		g.drawImage(_background, x, y, x + BLOCK_SIZE, y + BLOCK_SIZE, x, y, x + BLOCK_SIZE, y + BLOCK_SIZE, null);
+		g.dispose();
+
+		_changedCells[_changedCellsCount++] = cell;
+	}
+
+	/**
+	 * Draw the whole board on the next frame (for example after the target image was lost)
+	 */
+	public void repaintAll() {
+		_fullRepaint.set(true);
+	}
+
+	/**
+	 * Draw the next frame. Only the dirty regions are drawn, the rest of the target must contain the previous frame.
+	 * @param g target graphics
+	 * @param time current time in milliseconds (for the sprites animation)
+	 */
+	public void render(Graphics g, long time) {
+		render(g, time, 1);
+	}
+
+	/**
+	 * Draw the next frame, with the sprites between their previous positions and their current positions.
+	 * Only the dirty regions are drawn, the rest of the target must contain the previous frame.
+	 * @param g target graphics
+	 * @param time current time in milliseconds (for the sprites animation)
+	 * @param interpolation the fraction of the game step that passed since the last step
+	 */
+	public void render(Graphics g, long time, float interpolation) {
+		_dirtyCount = 0;
+
+		// a request that arrives while the frame is drawn is kept for the next frame
+		if (_fullRepaint.getAndSet(false)) {
+			g.drawImage(_board, 0, 0, null);
+			addDirtyRegion(0, 0, _width, _height);
+		} else {
+			// restore the changed cells and the board under the sprites of the previous frame
+			int mapWidth = _map.getGameDimension().width;
+			for (int i = 0; i < _changedCellsCount; i++) {
+				restoreBoard(g, (_changedCells[i] % mapWidth) * BLOCK_SIZE, (_changedCells[i] / mapWidth) * BLOCK_SIZE);
+			}
+
+			for (int i = 0; i < _drawnSprites; i++) {
+				restoreBoard(g, _drawnPositions[i * 2], _drawnPositions[i * 2 + 1]);
+			}
+		}
+		_changedCellsCount = 0;
+
+		// draw the sprites at their current positions (monsters above pacman, and the first monster above the others, like the components view)
+		int sprites = (_pacman != null ? 1 : 0) + (_monsters != null ? _monsters.size() : 0);
+		if (_drawnPositions.length < sprites * 2)
+			_drawnPositions = new int[sprites * 2];
+		_drawnSprites = 0;
+
+		if (_pacman != null)
+			drawSprite(g, _pacman, time, interpolation);
+
+		if (_monsters != null) {
+			for (int i = _monsters.size() - 1; i >= 0; i--) {
+				drawSprite(g, _monsters.get(i), time, interpolation);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of dirty regions in the last frame
+	 * @return dirty regions count
+	 */
+	public int getDirtyCount() {
+		return _dirtyCount;
+	}
+
+	/**
+	 * Get a dirty region of the last frame
+	 * @param index region index
+	 * @param region rectangle for storing the region
+	 */
+	public void getDirtyRegion(int index, Rectangle region) {
+		region.setBounds(_dirtyRegions[index * 4], _dirtyRegions[index * 4 + 1], _dirtyRegions[index * 4 + 2], _dirtyRegions[index * 4 + 3]);
+	}
+
+	/**
+	 * Get board width
+	 * @return width in pixels
+	 */
+	public int getWidth() {
+		return _width;
+	}
+
+	/**
+	 * Get board height
+	 * @return height in pixels
+	 */
+	public int getHeight() {
+		return _height;
+	}
+
+	private void drawSprite(Graphics g, ControllableObject sprite, long time, float interpolation) {
+		int x = sprite.getInterpolatedX(interpolation), y = sprite.getInterpolatedY(interpolation);
+		sprite.animate(time);
+		sprite.drawSprite(g, x, y);
+
+		_drawnPositions[_drawnSprites * 2] = x;
+		_drawnPositions[_drawnSprites * 2 + 1] = y;
+		_drawnSprites++;
+		addDirtyRegion(x, y, BLOCK_SIZE, BLOCK_SIZE);
+	}
+
+	private void restoreBoard(Graphics g, int x, int y) {
+		g.drawImage(_board, x, y, x + BLOCK_SIZE, y + BLOCK_SIZE, x, y, x + BLOCK_SIZE, y + BLOCK_SIZE, null);
+		addDirtyRegion(x, y, BLOCK_SIZE, BLOCK_SIZE);
+	}
+
+	private void addDirtyRegion(int x, int y, int width, int height) {
+		if (_dirtyRegions.length < (_dirtyCount + 1) * 4) {
+			int[] regions = new int[Math.max(64, _dirtyRegions.length * 2)];
+			System.arraycopy(_dirtyRegions, 0, regions, 0, _dirtyRegions.length);
+			_dirtyRegions = regions;
+		}
+
+		_dirtyRegions[_dirtyCount * 4] = x;
+		_dirtyRegions[_dirtyCount * 4 + 1] = y;
+		_dirtyRegions[_dirtyCount * 4 + 2] = width;
+		_dirtyRegions[_dirtyCount * 4 + 3] = height;
+		_dirtyCount++;
+	}
+
+	/**
+	 * Draw a stationary object at the given cell by its kind, the same way its component is displayed in the components view
+	 * (a wall fills the cell, a gate has a top & bottom border, a pill's image is on the left of the cell, centered vertically)
+	 */
+	private void drawStationaryObject(Graphics g, StationaryObject object, int x, int y) {
+		x *= BLOCK_SIZE;
+		y *= BLOCK_SIZE;
+		if (object instanceof Wall) {
+			g.setColor(WALL_COLOR);
+			g.fillRect(x, y, BLOCK_SIZE, BLOCK_SIZE);
+		} else if (object instanceof CageGate) {
+			g.setColor(GATE_COLOR);
+			g.fillRect(x, y, BLOCK_SIZE, GATE_BORDER);
+			g.fillRect(x, y + BLOCK_SIZE - GATE_BORDER, BLOCK_SIZE, GATE_BORDER);
+		} else if (object instanceof Pill) {
+			Image image = object instanceof MightyPill ? _mightyPillImage : object instanceof SuperPill ? _superPillImage : _pillImage;
+			g.drawImage(image, x, y + (BLOCK_SIZE - image.getHeight(null)) / 2, null);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package pacman.views;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import pacman.model.Map;
+import pacman.model.Monster;
+import pacman.model.Pacman;
+import pacman.model.StationaryObject;
+
+/**
+ *  Game board view- displays the game map, pacman & the monsters.
+ *  The game engine updates the view on every game event, and the view decides how to display it.
+ *  The game runs on the game loop thread, so the game events are passed to the view through {@link #runOnViewThread(Runnable)}.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public abstract class BoardView extends JPanel {
+	private static final long serialVersionUID = 2514787924352104167L;
+
+	/**
+	 * Creates a new game using the given map (or displays the map again after a saved game state was restored)
+	 * @param map level map, the removed stationary objects are null
+	 */
+	public abstract void newGame(Map map);
+
+	/**
+	 * Set the current pacman
+	 * @param pacman
+	 */
+	public abstract void setPacman(Pacman pacman);
+
+	/**
+	 * Set the game monsters
+	 * @param monsters
+	 */
+	public abstract void setMonsters(List<Monster> monsters);
+
+	/**
+	 * Remove a stationary object from the board (for example an eaten pill)
+	 * @param object
+	 */
+	public abstract void removeStationaryObject(StationaryObject object);
+
+	/**
+	 * Display the current positions of pacman & the monsters. Called by the game loop between the game steps.
+	 * @param interpolation the fraction of the game step that passed since the last step
+	 * 			(the objects can be drawn between their previous positions and the current positions)
+	 */
+	public abstract void renderFrame(float interpolation);
+
+	/**
+	 * Run the given update of the view on the thread that owns the view, and wait until it's done.
+	 * Swing components are updated on the event dispatch thread.
+	 * @param update view update
+	 */
+	public void runOnViewThread(Runnable update) {
+		if (SwingUtilities.isEventDispatchThread()) {
+			update.run();
+			return;
+		}
+
+		try {
+			SwingUtilities.invokeAndWait(update);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (InvocationTargetException e) {
+			e.printStackTrace();
+		}
+	}
+}
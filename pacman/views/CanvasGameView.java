@@ -0,0 +1,134 @@
+package pacman.views;
+
+import java.awt.BorderLayout;
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.image.VolatileImage;
+import java.util.List;
+
+import pacman.model.Map;
+import pacman.model.Monster;
+import pacman.model.Pacman;
+import pacman.model.StationaryObject;
+
+/**
+ *  Game view that draws the whole board on a single canvas (active rendering), instead of a swing component for every object.
+ *  Every frame is drawn by the {@link BoardRenderer} into an accelerated back buffer,
+ *  and only the dirty regions of the frame are copied to the screen.
+ *  The view is updated & drawn on the game loop thread, the event dispatch thread only asks for a full frame.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class CanvasGameView extends BoardView {
+	private static final long serialVersionUID = -3946571893232786130L;
+	private BoardRenderer _renderer;
+	private BoardCanvas _canvas;
+	/* the back buffer keeps the previous frame, so the renderer can draw only the dirty regions */
+	private VolatileImage _backBuffer;
+	private Rectangle _region = new Rectangle();
+
+	/**
+	 * Creates a new canvas game view
+	 * @param map game level map
+	 */
+	public CanvasGameView(Map map) {
+		_renderer = new BoardRenderer(map);
+
+		setBackground(Color.black);
+		setLayout(new BorderLayout());
+
+		_canvas = new BoardCanvas();
+		_canvas.setPreferredSize(new Dimension(_renderer.getWidth(), _renderer.getHeight()));
+		_canvas.setBackground(Color.black);
+		// the keyboard focus stays on the view (the game engine listens to the view's key events)
+		_canvas.setFocusable(false);
+		add(_canvas, BorderLayout.CENTER);
+	}
+
+	@Override
+	public void newGame(Map map) {
+		_renderer.newGame(map);
+	}
+
+	@Override
+	public void setPacman(Pacman pacman) {
+		_renderer.setPacman(pacman);
+	}
+
+	@Override
+	public void setMonsters(List<Monster> monsters) {
+		_renderer.setMonsters(monsters);
+	}
+
+	@Override
+	public void removeStationaryObject(StationaryObject object) {
+		_renderer.removeStationaryObject(object);
+	}
+
+	/**
+	 * The renderer is owned by the game loop thread, so the game events are handled immediately
+	 */
+	@Override
+	public void runOnViewThread(Runnable update) {
+		update.run();
+	}
+
+	/**
+	 * Render the next frame and show it
+	 */
+	@Override
+	public void renderFrame(float interpolation) {
+		if (!_canvas.isDisplayable())
+			return;
+
+		// draw the frame into the back buffer. if the buffer was lost (for example on display mode change) draw it again
+		do {
+			int status = _backBuffer == null ? VolatileImage.IMAGE_INCOMPATIBLE : _backBuffer.validate(_canvas.getGraphicsConfiguration());
+			if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+				_backBuffer = _canvas.createVolatileImage(_renderer.getWidth(), _renderer.getHeight());
+				_renderer.repaintAll();
+			} else if (status == VolatileImage.IMAGE_RESTORED) {
+				_renderer.repaintAll();
+			}
+
+			Graphics g = _backBuffer.createGraphics();
+			_renderer.render(g, System.currentTimeMillis(), interpolation);
+			g.dispose();
+		} while (_backBuffer.contentsLost());
+
+		// copy the dirty regions to the screen
+		Graphics g = _canvas.getGraphics();
+		if (g != null) {
+			for (int i = 0; i < _renderer.getDirtyCount(); i++) {
+				_renderer.getDirtyRegion(i, _region);
+				g.drawImage(_backBuffer, _region.x, _region.y, _region.x + _region.width, _region.y + _region.height,
+						_region.x, _region.y, _region.x + _region.width, _region.y + _region.height, null);
+			}
+			g.dispose();
+			Toolkit.getDefaultToolkit().sync();
+		}
+	}
+
+	/**
+	 *  The drawing surface, the next frame shows the whole board when the system asks to paint it (for example when the window is exposed)
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	class BoardCanvas extends Canvas {
+		private static final long serialVersionUID = 6044931452616224374L;
+
+		@Override
+		public void paint(Graphics g) {
+			_renderer.repaintAll();
+		}
+
+		@Override
+		public void update(Graphics g) {
+			paint(g);
+		}
+	}
+}
@@ -3,11 +3,13 @@ package pacman.views;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.GridLayout;
-import java.awt.Point;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.JLayeredPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 import pacman.model.Map;
 import pacman.model.Monster;
@@ -15,11 +17,11 @@ import pacman.model.Pacman;
 import pacman.model.StationaryObject;
 
 /**
- *  Game view panel
+ *  Game view panel, every object on the board is a swing component
  *  @author     Lidan Hifi
  *  @version    1.0
  */
-public class GameView extends JPanel {
+public class GameView extends BoardView {
 	private static final Dimension BLOCK_SIZE = new Dimension(24,24);
 	private Dimension _gameDimensions;
 	private Map _gameMap;
@@ -28,6 +30,22 @@ public class GameView extends JPanel {
 	private JPanel _pacmanPanel;
 	private JPanel _monstersPanel;
 	private List<Monster> _monsters;
+	/* pending frame on the event dispatch thread (frames are coalesced if the EDT is busy) */
+	private AtomicBoolean _framePending = new AtomicBoolean();
+	/* sprite positions, triple buffered: the game thread fills _backFrame, the EDT draws _frontFrame,
+	 * and the latest filled frame is swapped through _readyFrame ({count, x0, y0, x1, y1, ...}) */
+	private int[] _backFrame = new int[1];
+	private AtomicReference<int[]> _readyFrame = new AtomicReference<int[]>(new int[1]);
+	private int[] _frontFrame = new int[1];
+	private Runnable _frameUpdate = new Runnable() {
+		@Override
+		public void run() {
+			_frontFrame = _readyFrame.getAndSet(_frontFrame);
+			// cleared after the swap, so the next posted update always finds a newer frame
+			_framePending.set(false);
+			drawFrame(_frontFrame);
+		}
+	};
 
 	/**
 	 * Creates a new game view panel
@@ -42,6 +60,7 @@ public class GameView extends JPanel {
 	 * Creates a new game using the given map
 	 * @param map
 	 */
+	@Override
 	public void newGame(Map map) {
 		setGameMap(map);
 		initializeMap(map);
@@ -51,20 +70,99 @@ public class GameView extends JPanel {
 	 * set the "logical" pacman to be the "visual" pacman
 	 * @param pacman
 	 */
+	@Override
 	public void setPacman(Pacman pacman) {
-		// set the pacman to its default position
-		Point oldPos = pacman.getPosition();
-		
 		if (_pacman != null) {
-			oldPos = _pacman.getPosition();
-			pacman.setDirection(_pacman.getDirection());
 			_pacmanPanel.remove(_pacman);
 			_pacmanPanel.repaint();
 		}
 		
 		_pacman = pacman;
 		_pacmanPanel.add(pacman);
-		_pacman.setBounds(oldPos.x * BLOCK_SIZE.width, oldPos.y * BLOCK_SIZE.height, BLOCK_SIZE.width, BLOCK_SIZE.height);
+		_pacman.updateBounds();
+	}
+
+	/**
+	 * Remove a stationary object from the board (for example an eaten pill)
+	 * @param object
+	 */
+	@Override
+	public void removeStationaryObject(StationaryObject object) {
+		_stationaryObjectsPanel.remove(object);
+	}
+
+	/**
+	 * Move the visual pacman & monsters to their current positions on the game board
+	 * (on the thread that moves them, for views that are not displayed on the screen)
+	 */
+	public void updateView() {
+		updateView(1);
+	}
+
+	/**
+	 * Move the visual pacman & monsters to their positions between the previous game step and the current one
+	 * (on the thread that moves them, for views that are not displayed on the screen)
+	 * @param interpolation the fraction of the game step
+	 */
+	public void updateView(float interpolation) {
+		if (_pacman != null)
+			_pacman.updateBounds(interpolation);
+
+		if (_monsters != null) {
+			for (Monster m : _monsters) {
+				m.updateBounds(interpolation);
+			}
+		}
+	}
+
+	/**
+	 * Update the components on the event dispatch thread (swing paints them)
+	 * the positions are taken here, on the game thread, so the EDT never reads the moving objects
+	 */
+	@Override
+	public void renderFrame(float interpolation) {
+		int count = (_pacman != null ? 1 : 0) + (_monsters != null ? _monsters.size() : 0);
+		if (_backFrame.length < count * 2 + 1)
+			_backFrame = new int[count * 2 + 1];
+
+		int i = 1;
+		if (_pacman != null) {
+			_backFrame[i++] = _pacman.getInterpolatedX(interpolation);
+			_backFrame[i++] = _pacman.getInterpolatedY(interpolation);
+		}
+		if (_monsters != null) {
+			for (Monster m : _monsters) {
+				_backFrame[i++] = m.getInterpolatedX(interpolation);
+				_backFrame[i++] = m.getInterpolatedY(interpolation);
+			}
+		}
+		_backFrame[0] = count;
+
+		_backFrame = _readyFrame.getAndSet(_backFrame);
+		if (_framePending.compareAndSet(false, true))
+			SwingUtilities.invokeLater(_frameUpdate);
+	}
+
+	/**
+	 * Move the visual pacman & monsters to the positions of a frame (on the event dispatch thread)
+	 * @param frame {count, x0, y0, x1, y1, ...}, pacman first and then the monsters
+	 */
+	private void drawFrame(int[] frame) {
+		int count = frame[0];
+		int sprite = 0;
+		if (_pacman != null && sprite < count) {
+			_pacman.setBounds(frame[1], frame[2], BLOCK_SIZE.width, BLOCK_SIZE.height);
+			sprite++;
+		}
+		if (_monsters != null) {
+			for (Monster m : _monsters) {
+				if (sprite >= count)
+					break;
+
+				m.setBounds(frame[sprite * 2 + 1], frame[sprite * 2 + 2], BLOCK_SIZE.width, BLOCK_SIZE.height);
+				sprite++;
+			}
+		}
 	}
 
 	/**
@@ -77,7 +175,8 @@ public class GameView extends JPanel {
 
 		for (int i = 0; i < objectsMap.length; i++) {
 			for (int j = 0; j < objectsMap[i].length; j++) {
-				_stationaryObjectsPanel.add(objectsMap[i][j]);
+				if (objectsMap[i][j] != null)
+					_stationaryObjectsPanel.add(objectsMap[i][j]);
 			}
 		}
 		
@@ -89,13 +188,14 @@ public class GameView extends JPanel {
 	 * Set the monsters to the view, connect the logic monsters with the visual monsters
 	 * @param monsters
 	 */
+	@Override
 	public void setMonsters(List<Monster> monsters) {
 		_monsters = monsters;
 		
 		_monstersPanel.removeAll();
 		for (Monster m : _monsters) {
 			_monstersPanel.add(m);
-			m.setBounds(m.getPosition().x * BLOCK_SIZE.width, m.getPosition().y * BLOCK_SIZE.height, BLOCK_SIZE.width, BLOCK_SIZE.height);
+			m.updateBounds();
 		}
 		_monstersPanel.validate();
 	}
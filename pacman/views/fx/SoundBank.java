@@ -0,0 +1,145 @@
+package pacman.views.fx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ *  Sound Bank- the game sounds, decoded once into 16 bit signed PCM samples in the mixer's format.
+ *  Every sound file is converted to the bank's channels count and sample rate when it's loaded
+ *  (the sounds have different sample rates), so the mixer only has to sum the samples.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class SoundBank {
+	private AudioFormat _format;
+	/* decoded sounds (interleaved samples), by sound id */
+	private List<short[]> _sounds = new ArrayList<short[]>();
+
+	/**
+	 * Creates a new empty sound bank
+	 * @param format the format of the decoded sounds (16 bit signed PCM)
+	 */
+	public SoundBank(AudioFormat format) {
+		if (format.getSampleSizeInBits() != 16 || !AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()))
+			throw new IllegalArgumentException("Sound bank format must be 16 bit signed PCM");
+
+		_format = format;
+	}
+
+	/**
+	 * Decode a sound file and add it to the bank
+	 * @param soundFile sound file URL
+	 * @return sound id
+	 * @throws IOException if the file can't be read
+	 * @throws UnsupportedAudioFileException if the file isn't a supported audio file
+	 */
+	public int load(URL soundFile) throws IOException, UnsupportedAudioFileException {
+		if (soundFile == null)
+			throw new IOException("Sound file not found");
+
+		AudioInputStream source = AudioSystem.getAudioInputStream(soundFile);
+		try {
+			// convert the file to 16 bit little endian PCM, in its own sample rate & channels
+			AudioFormat sourceFormat = source.getFormat();
+			AudioFormat pcmFormat = new AudioFormat(sourceFormat.getSampleRate(), 16, sourceFormat.getChannels(), true, false);
+			AudioInputStream pcm = AudioSystem.getAudioInputStream(pcmFormat, source);
+
+			ByteArrayOutputStream data = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = pcm.read(buffer)) != -1) {
+				data.write(buffer, 0, read);
+			}
+
+			byte[] bytes = data.toByteArray();
+			short[] samples = new short[bytes.length / 2];
+			for (int i = 0; i < samples.length; i++) {
+				samples[i] = (short)((bytes[i * 2] & 0xff) | (bytes[i * 2 + 1] << 8));
+			}
+
+			_sounds.add(convert(samples, pcmFormat.getChannels(), pcmFormat.getSampleRate()));
+			return _sounds.size() - 1;
+		} finally {
+			source.close();
+		}
+	}
+
+	/**
+	 * Get the decoded samples of a sound
+	 * @param sound sound id
+	 * @return interleaved samples (in the bank's format)
+	 */
+	public short[] getSamples(int sound) {
+		return _sounds.get(sound);
+	}
+
+	/**
+	 * Get the number of sounds in the bank
+	 * @return sounds count
+	 */
+	public int getSoundsCount() {
+		return _sounds.size();
+	}
+
+	/**
+	 * Get the format of the decoded sounds
+	 * @return audio format
+	 */
+	public AudioFormat getFormat() {
+		return _format;
+	}
+
+	/**
+	 * Convert samples to the bank's channels count & sample rate (with linear interpolation between the source frames)
+	 */
+	private short[] convert(short[] samples, int sourceChannels, float sourceRate) {
+		int channels = _format.getChannels();
+		int sourceFrames = samples.length / sourceChannels;
+		if (sourceChannels == channels && sourceRate == _format.getSampleRate())
+			return samples;
+
+		double step = sourceRate / _format.getSampleRate();
+		int frames = (int)(sourceFrames / step);
+		short[] result = new short[frames * channels];
+
+		for (int frame = 0; frame < frames; frame++) {
+			double position = frame * step;
+			int index = (int)position;
+			int next = Math.min(index + 1, sourceFrames - 1);
+			double fraction = position - index;
+
+			for (int c = 0; c < channels; c++) {
+				double sample = sample(samples, sourceChannels, index, c, channels) * (1 - fraction)
+						+ sample(samples, sourceChannels, next, c, channels) * fraction;
+				result[frame * channels + c] = (short)Math.round(sample);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get a sample of the given target channel from a source frame (mono is copied to all the channels, and extra channels are mixed down)
+	 */
+	private static double sample(short[] samples, int sourceChannels, int frame, int channel, int channels) {
+		if (sourceChannels == channels)
+			return samples[frame * sourceChannels + channel];
+
+		if (sourceChannels == 1)
+			return samples[frame];
+
+		double sum = 0;
+		for (int c = 0; c < sourceChannels; c++) {
+			sum += samples[frame * sourceChannels + c];
+		}
+		return sum / sourceChannels;
+	}
+}
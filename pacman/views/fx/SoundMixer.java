@@ -0,0 +1,223 @@
+package pacman.views.fx;
+
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ *  Sound Mixer- plays the sounds of a {@link SoundBank} through one audio line that stays open for the whole game.
+ *  The mixer has a fixed number of voices, and a single thread sums the playing voices into blocks of samples
+ *  and writes them to the line. Playing a sound only assigns it to a voice (a free voice, or the oldest one if all
+ *  the voices are playing), so it doesn't allocate, open anything or start a thread.
+ *  Without a line (the silent mode, for example when there's no audio device) the mixer thread still mixes the voices
+ *  in real time, and the mixed blocks are dropped.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class SoundMixer implements Runnable {
+	/* frames mixed at once */
+	public static final int BLOCK_FRAMES = 512;
+	/* blocks buffered by the audio line */
+	private static final int LINE_BLOCKS = 4;
+	private SoundBank _bank;
+	private SourceDataLine _line;
+	private int _channels;
+	private long _blockNanos;
+	private Thread _thread;
+	private volatile boolean _running;
+	/* voices- the samples of the playing sound, the next sample and when it started (for stealing the oldest voice) */
+	private short[][] _voiceSamples;
+	private int[] _voicePositions;
+	private long[] _voiceStarts;
+	private long _triggers;
+	/* mix buffers */
+	private int[] _mix;
+	private byte[] _block;
+
+	/**
+	 * Creates a new mixer
+	 * @param bank the sounds to be played
+	 * @param voices maximum number of sounds that play at once
+	 * @param line audio line for the mixed sound, in the bank's format (null for the silent mode)
+	 */
+	public SoundMixer(SoundBank bank, int voices, SourceDataLine line) {
+		_bank = bank;
+		_line = line;
+		_channels = bank.getFormat().getChannels();
+		_blockNanos = (long)(BLOCK_FRAMES * 1000000000.0 / bank.getFormat().getSampleRate());
+
+		_voiceSamples = new short[voices][];
+		_voicePositions = new int[voices];
+		_voiceStarts = new long[voices];
+		_mix = new int[BLOCK_FRAMES * _channels];
+		_block = new byte[BLOCK_FRAMES * _channels * 2];
+	}
+
+	/**
+	 * Open the default audio line for the bank's format
+	 * @param format audio format
+	 * @return open audio line, or null if there's no audio device that supports the format
+	 */
+	public static SourceDataLine openLine(AudioFormat format) {
+		try {
+			SourceDataLine line = AudioSystem.getSourceDataLine(format);
+			line.open(format, BLOCK_FRAMES * LINE_BLOCKS * format.getFrameSize());
+			return line;
+		} catch (LineUnavailableException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			return null;	// no line for this format
+		} catch (SecurityException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Start the mixer thread
+	 */
+	public synchronized void start() {
+		if (_thread != null)
+			return;
+
+		_running = true;
+		if (_line != null)
+			_line.start();
+
+		_thread = new Thread(this, "Sound Mixer");
+		_thread.setDaemon(true);
+		_thread.start();
+	}
+
+	/**
+	 * Stop the mixer thread (and wait until it ends), and close the audio line
+	 */
+	public void stop() {
+		Thread thread;
+		synchronized (this) {
+			thread = _thread;
+			_running = false;
+			_thread = null;
+		}
+
+		if (thread != null && thread != Thread.currentThread()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (_line != null)
+			_line.close();
+	}
+
+	/**
+	 * Play a sound
+	 * @param sound sound id in the bank
+	 */
+	public synchronized void play(int sound) {
+		int voice = 0;
+		for (int i = 0; i < _voiceSamples.length; i++) {
+			if (_voiceSamples[i] == null) {
+				voice = i;
+				break;
+			}
+			if (_voiceStarts[i] < _voiceStarts[voice])
+				voice = i;
+		}
+
+		_voiceSamples[voice] = _bank.getSamples(sound);
+		_voicePositions[voice] = 0;
+		_voiceStarts[voice] = ++_triggers;
+	}
+
+	/**
+	 * Stop all the playing sounds
+	 */
+	public synchronized void stopAll() {
+		for (int i = 0; i < _voiceSamples.length; i++) {
+			_voiceSamples[i] = null;
+		}
+	}
+
+	/**
+	 * Get the number of voices that are playing
+	 * @return playing voices
+	 */
+	public synchronized int getPlayingVoices() {
+		int playing = 0;
+		for (int i = 0; i < _voiceSamples.length; i++) {
+			if (_voiceSamples[i] != null)
+				playing++;
+		}
+
+		return playing;
+	}
+
+	/**
+	 * Determines if the mixer plays through an audio line
+	 * @return false in the silent mode
+	 */
+	public boolean hasLine() {
+		return _line != null;
+	}
+
+	@Override
+	public void run() {
+		long nextBlock = System.nanoTime();
+
+		while (_running) {
+			mix(_block);
+
+			if (_line != null) {
+				_line.write(_block, 0, _block.length);	// blocks until the line has room for the block
+			} else {
+				// silent mode- keep the real time pace of the voices
+				nextBlock += _blockNanos;
+				long wait = nextBlock - System.nanoTime();
+				if (wait > 0)
+					LockSupport.parkNanos(wait);
+				else
+					nextBlock = System.nanoTime();
+			}
+		}
+	}
+
+	/**
+	 * Mix the next block of the playing voices (and advance them)
+	 * @param block target for the mixed block (16 bit signed little endian samples, {@link #BLOCK_FRAMES} frames)
+	 */
+	public void mix(byte[] block) {
+		int samples = _mix.length;
+		for (int i = 0; i < samples; i++) {
+			_mix[i] = 0;
+		}
+
+		synchronized (this) {
+			for (int v = 0; v < _voiceSamples.length; v++) {
+				short[] sound = _voiceSamples[v];
+				if (sound == null)
+					continue;
+
+				int position = _voicePositions[v];
+				int count = Math.min(samples, sound.length - position);
+				for (int i = 0; i < count; i++) {
+					_mix[i] += sound[position + i];
+				}
+
+				_voicePositions[v] = position + count;
+				if (_voicePositions[v] >= sound.length)
+					_voiceSamples[v] = null;
+			}
+		}
+
+		for (int i = 0; i < samples; i++) {
+			int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, _mix[i]));
+			block[i * 2] = (byte)sample;
+			block[i * 2 + 1] = (byte)(sample >> 8);
+		}
+	}
+}
@@ -7,7 +7,6 @@ import java.awt.GraphicsEnvironment;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.net.URLClassLoader;
 
 /**
  *  Assets Manager- for accessing App's resources from a central object
@@ -44,7 +43,7 @@ public class AssetsManager {
 	 * @return asset URL
 	 */
 	public static URL getResource(String assetName) {
-		return URLClassLoader.class.getResource(ASSETS_PATH + assetName);
+		return AssetsManager.class.getResource(ASSETS_PATH + assetName);
 	}
 	
 	/**
@@ -53,7 +52,7 @@ public class AssetsManager {
 	 * @return asset InputStream
 	 */
 	public static InputStream getResourceAsStream(String fullPath) {
-		return URLClassLoader.class.getResourceAsStream(ASSETS_PATH + fullPath);
+		return AssetsManager.class.getResourceAsStream(ASSETS_PATH + fullPath);
 	}
 	
 	/**
@@ -1,6 +1,114 @@
 package pacman.views.utils;
 
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
 
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+/**
+ *  Image Utils- decodes every image asset only once, and keeps the decoded sprites & icons for the rest of the application.
+ *  The assets are ordered by the class name (like {@link AssetsManager}), so the cache is ordered the same way.
+ *  The cache is thread safe, games that run in parallel share the same images.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
 public class ImageUtils {
+	/* sprite frame size */
+	public static final int FRAME_SIZE = 24;
+	/* cached sprites & icons: class -> asset name -> image */
+	private static ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, SpriteSheet>> _sprites = new ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, SpriteSheet>>();
+	private static ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, ImageIcon>> _icons = new ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, ImageIcon>>();
+	/* the screen configuration, for images that are fast to draw (null if there is no display) */
+	private static GraphicsConfiguration _graphicsConfiguration;
+	private static boolean _graphicsConfigurationLoaded;
+
+	/**
+	 * Get the sprite sheet of the given asset (the image is decoded and sliced on the first call only)
+	 * @param classObj class object for accessing class asset's folder
+	 * @param assetName image asset name
+	 * @return sprite sheet
+	 * @throws IOException if the image cannot be read
+	 */
+	public static SpriteSheet getSprite(Class<?> classObj, String assetName) throws IOException {
+		ConcurrentHashMap<String, SpriteSheet> classSprites = getClassMap(_sprites, classObj);
+		SpriteSheet sprite = classSprites.get(assetName);
+		if (sprite == null) {
+			URL resource = AssetsManager.getResource(classObj, assetName);
+			if (resource == null)
+				throw new IOException("Missing image asset: " + classObj.getSimpleName() + "/" + assetName);
+
+			// concurrent first calls may decode the same image, only one of them is kept
+			sprite = new SpriteSheet(ImageIO.read(resource), FRAME_SIZE);
+			SpriteSheet existing = classSprites.putIfAbsent(assetName, sprite);
+			if (existing != null)
+				sprite = existing;
+		}
+
+		return sprite;
+	}
+
+	/**
+	 * Get a shared icon of the given asset (for stationary objects, the icon is loaded on the first call only)
+	 * @param classObj class object for accessing class asset's folder
+	 * @param assetName image asset name
+	 * @return icon
+	 */
+	public static ImageIcon getIcon(Class<?> classObj, String assetName) {
+		ConcurrentHashMap<String, ImageIcon> classIcons = getClassMap(_icons, classObj);
+		ImageIcon icon = classIcons.get(assetName);
+		if (icon == null) {
+			icon = new ImageIcon(AssetsManager.getResource(classObj, assetName));
+			ImageIcon existing = classIcons.putIfAbsent(assetName, icon);
+			if (existing != null)
+				icon = existing;
+		}
+
+		return icon;
+	}
+
+	/**
+	 * Create a translucent image that matches the screen format (or a regular ARGB image if there is no display)
+	 * @param width image width
+	 * @param height image height
+	 * @return new image
+	 */
+	public static BufferedImage createCompatibleImage(int width, int height) {
+		GraphicsConfiguration configuration = getGraphicsConfiguration();
+		if (configuration != null)
+			return configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+	}
+
+	/**
+	 * Get the default screen configuration
+	 * @return graphics configuration, or null if the application runs without display
+	 */
+	private static synchronized GraphicsConfiguration getGraphicsConfiguration() {
+		if (!_graphicsConfigurationLoaded) {
+			if (!GraphicsEnvironment.isHeadless())
+				_graphicsConfiguration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+			_graphicsConfigurationLoaded = true;
+		}
+
+		return _graphicsConfiguration;
+	}
+
+	private static <T> ConcurrentHashMap<String, T> getClassMap(ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, T>> cache, Class<?> classObj) {
+		ConcurrentHashMap<String, T> classMap = cache.get(classObj);
+		if (classMap == null) {
+			classMap = new ConcurrentHashMap<String, T>();
+			ConcurrentHashMap<String, T> existing = cache.putIfAbsent(classObj, classMap);
+			if (existing != null)
+				classMap = existing;
+		}
 
+		return classMap;
+	}
 }
@@ -0,0 +1,68 @@
+package pacman.views.utils;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+
+/**
+ *  Sprite sheet- the frames of a sprite image (a sequence of frames in one image), sliced to separate images
+ *  and rotated in advance to every sprite angle (0, 90, 180, 270), so drawing a frame doesn't create any object.
+ *  Sprite sheets are immutable and shared between all the sprites that use the same asset (see {@link ImageUtils}).
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class SpriteSheet {
+	/* supported angles (in degrees) */
+	public static final int ANGLES = 4;
+	/* frames, by angle index and then by frame index */
+	private Image[][] _frames;
+	private int _frameSize;
+
+	/**
+	 * Creates a new sprite sheet from the given sprite image
+	 * @param sprite sprite image, a sequence of square frames ordered from left to right
+	 * @param frameSize frame width & height in pixels
+	 */
+	public SpriteSheet(BufferedImage sprite, int frameSize) {
+		_frameSize = frameSize;
+		int frames = Math.max(1, sprite.getWidth() / frameSize);
+		_frames = new Image[ANGLES][frames];
+
+		for (int angle = 0; angle < ANGLES; angle++) {
+			for (int i = 0; i < frames; i++) {
+				BufferedImage frame = ImageUtils.createCompatibleImage(frameSize, frameSize);
+				Graphics2D g = frame.createGraphics();
+				g.rotate(Math.toRadians(angle * 90), frameSize / 2, frameSize / 2);
+				g.drawImage(sprite, 0, 0, frameSize, frameSize, i * frameSize, 0, (i + 1) * frameSize, frameSize, null);
+				g.dispose();
+				_frames[angle][i] = frame;
+			}
+		}
+	}
+
+	/**
+	 * Get the number of frames in this sprite
+	 * @return frames count
+	 */
+	public int getFrameCount() {
+		return _frames[0].length;
+	}
+
+	/**
+	 * Get frame's width & height
+	 * @return frame size in pixels
+	 */
+	public int getFrameSize() {
+		return _frameSize;
+	}
+
+	/**
+	 * Get a frame of the sprite
+	 * @param index frame index
+	 * @param angle the sprite angle in degrees (multiplier of 90)
+	 * @return frame image
+	 */
+	public Image getFrame(int index, int angle) {
+		return _frames[((angle / 90) % ANGLES + ANGLES) % ANGLES][index];
+	}
+}
@@ -0,0 +1,168 @@
+package pacman.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.model.GameClock;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+import pacman.model.StrongMonster;
+
+/**
+ *  Checks the AI scheduler on a generated maze- the expansions of every game step keep to the budget, a suspended search
+ *  gives its best path so far once, and a request for another target drops the running search.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class AISchedulerTest {
+	private static final int BUDGET = 50;
+	private static final int MAX_STEPS = 100000;
+	private final Map _map = Map.getGeneratedMap(61, 61, 42);
+	private final PathFinder _oracle = new PathFinder(_map, Integer.MAX_VALUE);
+
+	@Test
+	public void expansionsKeepToTheBudget() {
+		PathFinder finder = new PathFinder(_map, Integer.MAX_VALUE);
+		AIScheduler scheduler = new AIScheduler(finder, BUDGET, 0);
+		SplittableRandom random = new SplittableRandom(1);
+		StrongMonster[] monsters = new StrongMonster[8];
+		int[][] queries = new int[monsters.length][];
+		for (int i = 0; i < monsters.length; i++) {
+			monsters[i] = newMonster();
+			queries[i] = farQuery(monsters[i], random);
+			scheduler.request(monsters[i], queries[i][0], queries[i][1], queries[i][2], queries[i][3]);
+		}
+
+		boolean fullStep = false;
+		int steps = 0, done = 0;
+		while (done < monsters.length) {
+			assertTrue(++steps < MAX_STEPS, "the requests weren't planned");
+			long before = finder.getExpandedNodes();
+			scheduler.update(0, 0);
+			long expanded = finder.getExpandedNodes() - before;
+			assertTrue(expanded <= BUDGET, "expanded " + expanded + " nodes on a step");
+			fullStep |= expanded == BUDGET;
+
+			for (int i = 0; i < monsters.length; i++) {
+				if (scheduler.hasResult(monsters[i])) {
+					Path path = scheduler.takeResult(monsters[i]);
+					if (!scheduler.isPending(monsters[i])) {
+						checkPath(monsters[i], path, queries[i]);
+						done++;
+					}
+				}
+			}
+		}
+
+		assertTrue(fullStep);
+		assertEquals(monsters.length, scheduler.getSearchesCount());
+	}
+
+	@Test
+	public void partialPathIsGivenOnce() {
+		AIScheduler scheduler = new AIScheduler(new PathFinder(_map, Integer.MAX_VALUE), 8, 0);
+		StrongMonster monster = newMonster();
+		int[] query = farQuery(monster, new SplittableRandom(2));
+		scheduler.request(monster, query[0], query[1], query[2], query[3]);
+
+		scheduler.update(0, 0);
+		assertTrue(scheduler.hasResult(monster));
+		Path partial = scheduler.takeResult(monster);
+		assertNotNull(partial);
+		assertEquals(query[0], partial.getX(0));
+		assertEquals(query[1], partial.getY(0));
+		assertTrue(partial.getLength() > 1);
+		assertFalse(partial.getX(partial.getLength() - 1) == query[2] && partial.getY(partial.getLength() - 1) == query[3]);
+		assertTrue(scheduler.isPending(monster));
+
+		// no other path until the search is done
+		int steps = 1;
+		do {
+			assertFalse(scheduler.hasResult(monster));
+			assertTrue(++steps < MAX_STEPS, "the request wasn't planned");
+			scheduler.update(0, 0);
+		} while (scheduler.getSearchesCount() == 0);
+
+		assertTrue(steps > 2);
+		assertTrue(scheduler.hasResult(monster));
+		checkPath(monster, scheduler.takeResult(monster), query);
+		assertFalse(scheduler.isPending(monster));
+		assertFalse(scheduler.hasResult(monster));
+	}
+
+	@Test
+	public void newTargetDropsTheRunningSearch() {
+		AIScheduler scheduler = new AIScheduler(new PathFinder(_map, Integer.MAX_VALUE), 8, 0);
+		StrongMonster monster = newMonster();
+		SplittableRandom random = new SplittableRandom(3);
+		int[] first = farQuery(monster, random);
+		int[] second;
+		do {
+			second = farQuery(monster, random);
+		} while (second[2] == first[2] && second[3] == first[3]);
+
+		scheduler.request(monster, first[0], first[1], first[2], first[3]);
+		scheduler.update(0, 0);
+		scheduler.update(0, 0);
+		assertTrue(scheduler.isPending(monster));
+
+		// the best path of the old search isn't given anymore
+		scheduler.request(monster, second[0], second[1], second[2], second[3]);
+		assertFalse(scheduler.hasResult(monster));
+
+		// the partial path and the whole path are planned for the new request only
+		int steps = 0;
+		Path path = null;
+		while (path == null || scheduler.isPending(monster)) {
+			assertTrue(++steps < MAX_STEPS, "the request wasn't planned");
+			scheduler.update(0, 0);
+			if (scheduler.hasResult(monster)) {
+				path = scheduler.takeResult(monster);
+				assertEquals(second[0], path.getX(0));
+				assertEquals(second[1], path.getY(0));
+			}
+		}
+
+		checkPath(monster, path, second);
+		assertEquals(1, scheduler.getSearchesCount());
+	}
+
+	private StrongMonster newMonster() {
+		return new StrongMonster(_map, new GameClock(), new GameRandom(1));
+	}
+
+	/**
+	 * A random query between two cells that are far from each other
+	 * @return {sx, sy, tx, ty}
+	 */
+	private int[] farQuery(StrongMonster monster, SplittableRandom random) {
+		int width = _map.getGameDimension().width, height = _map.getGameDimension().height;
+		Path path = new Path();
+		while (true) {
+			int sx = random.nextInt(width), sy = random.nextInt(height), tx = random.nextInt(width), ty = random.nextInt(height);
+			if (_map.canMove(monster, sx, sy) && _map.canMove(monster, tx, ty) && _oracle.findPath(monster, sx, sy, tx, ty, path)
+					&& path.getLength() > 40)
+				return new int[] { sx, sy, tx, ty };
+		}
+	}
+
+	/**
+	 * Check that a path goes from the source to the target, and it's as short as the path finder's path
+	 */
+	private void checkPath(StrongMonster monster, Path path, int[] query) {
+		assertNotNull(path);
+		Path shortest = new Path();
+		assertTrue(_oracle.findPath(monster, query[0], query[1], query[2], query[3], shortest));
+		assertEquals(shortest.getLength(), path.getLength());
+		assertEquals(query[0], path.getX(0));
+		assertEquals(query[1], path.getY(0));
+		assertEquals(query[2], path.getX(path.getLength() - 1));
+		assertEquals(query[3], path.getY(path.getLength() - 1));
+	}
+}
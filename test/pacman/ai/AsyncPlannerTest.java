@@ -0,0 +1,126 @@
+package pacman.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Point;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.model.ControllableObject;
+import pacman.model.Map;
+
+/**
+ *  Checks that the async planner's workers plan for the passability layer that the object had when it requested the path,
+ *  even if the object changes its layer during the search.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class AsyncPlannerTest {
+	private static final long TIMEOUT_MILLIS = 5000;
+
+	@Test
+	public void plansForTheRequestedLayer() throws InterruptedException {
+		BlockingPlanner planner = new BlockingPlanner();
+		AsyncPlanner async = new AsyncPlanner(planner);
+		try {
+			Mover mover = new Mover(Map.MONSTER_LAYER);
+			async.request(mover, 1, 1, 5, 1);
+			assertTrue(planner._started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+			// the monster is trapped during the search
+			mover._layer = Map.TRAPPED_MONSTER_LAYER;
+			planner._release.countDown();
+			waitForResult(async, mover);
+
+			assertEquals(Map.MONSTER_LAYER, planner._layer);
+			assertNotSame(mover, planner._object);
+			Path path = async.takeResult(mover);
+			assertEquals(5, path.getX(path.getLength() - 1));
+
+			// the next request is planned for the new layer
+			async.request(mover, 5, 1, 1, 1);
+			waitForResult(async, mover);
+			assertEquals(Map.TRAPPED_MONSTER_LAYER, planner._layer);
+			path = async.takeResult(mover);
+			assertEquals(1, path.getX(path.getLength() - 1));
+		} finally {
+			planner._release.countDown();
+			async.stop();
+		}
+	}
+
+	private static void waitForResult(AsyncPlanner async, ControllableObject object) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!async.hasResult(object)) {
+			assertTrue(System.currentTimeMillis() < deadline, "no result");
+			Thread.sleep(1);
+		}
+	}
+
+	/**
+	 *  Mover- an object whose passability layer changes
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class Mover extends ControllableObject {
+		private static final long serialVersionUID = 1L;
+		private volatile int _layer;
+
+		public Mover(int layer) {
+			super(null);
+			_layer = layer;
+		}
+
+		@Override
+		public int getPassabilityLayer() {
+			return _layer;
+		}
+	}
+
+	/**
+	 *  Blocking Planner- waits for the test before it reads the object's layer, and plans a straight path
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class BlockingPlanner implements PathPlanner {
+		private CountDownLatch _started = new CountDownLatch(1);
+		private CountDownLatch _release = new CountDownLatch(1);
+		private volatile ControllableObject _object;
+		private volatile int _layer = -1;
+
+		@Override
+		public Path findPath(ControllableObject object, Point source, Point target) {
+			Path path = new Path();
+			return findPath(object, source.x, source.y, target.x, target.y, path) ? path : null;
+		}
+
+		@Override
+		public boolean findPath(ControllableObject object, int sx, int sy, int tx, int ty, Path path) {
+			_started.countDown();
+			try {
+				_release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+
+			_object = object;
+			_layer = object.getPassabilityLayer();
+			path.clear();
+			for (int x = sx; x != tx; x += Integer.signum(tx - sx)) {
+				path.appendStep(x, sy);
+			}
+			path.appendStep(tx, ty);
+			return true;
+		}
+
+		@Override
+		public PathPlanner copyFor(Map map) {
+			return new BlockingPlanner();
+		}
+	}
+}
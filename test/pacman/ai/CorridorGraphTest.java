@@ -0,0 +1,86 @@
+package pacman.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.model.ControllableObject;
+import pacman.model.Direction;
+import pacman.model.GameClock;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+import pacman.model.Pacman;
+import pacman.model.StrongMonster;
+
+/**
+ *  Checks the corridor graph against the BFS oracle- its paths are chains of neighbours as short as the BFS paths, and its
+ *  distances are the BFS distances, on the first level, a generated maze and a maze with an extra portal (also a portal
+ *  that is added after the graph was built, so only its segments are traced again).
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class CorridorGraphTest {
+
+	@Test
+	public void firstLevel() {
+		checkGraph(Map.getFirstLevelMap());
+	}
+
+	@Test
+	public void generatedMaze() {
+		checkGraph(Map.getGeneratedMap(41, 41, 42));
+	}
+
+	@Test
+	public void extraPortal() {
+		checkGraph(PathOracleTest.getPortalMap(true));
+	}
+
+	@Test
+	public void portalAfterTheGraphWasBuilt() {
+		Map map = PathOracleTest.getPortalMap(false);
+		Pacman pacman = new Pacman(map);
+		CorridorGraph graph = new CorridorGraph(map);
+		int height = map.getGameDimension().height;
+		assertEquals(PathOracleTest.bfs(map, pacman, 5, 0)[(height - 1) * map.getGameDimension().width + 25],
+				graph.getDistance(pacman, 5, 0, 25, height - 1));
+
+		map.addPortal(5, 0, Direction.UP, 25, height - 1);
+		assertEquals(1, graph.getDistance(pacman, 5, 0, 25, height - 1));
+		checkGraph(map, graph);
+	}
+
+	private static void checkGraph(Map map) {
+		checkGraph(map, new CorridorGraph(map));
+	}
+
+	/**
+	 * Compare random paths of the graph, and the distances from a few sources to every cell, with the BFS distances
+	 */
+	private static void checkGraph(Map map, CorridorGraph graph) {
+		int width = map.getGameDimension().width, height = map.getGameDimension().height;
+		ControllableObject[] objects = { new Pacman(map), new StrongMonster(map, new GameClock(), new GameRandom(1)) };
+		for (ControllableObject object : objects) {
+			PathOracleTest.checkPlanner(map, object, graph, new SplittableRandom(5));
+
+			SplittableRandom random = new SplittableRandom(6);
+			for (int i = 0; i < 10; i++) {
+				int sx, sy;
+				do {
+					sx = random.nextInt(width);
+					sy = random.nextInt(height);
+				} while (!map.canMove(object, sx, sy));
+
+				int[] distances = PathOracleTest.bfs(map, object, sx, sy);
+				for (int cell = 0; cell < width * height; cell++) {
+					int tx = cell % width, ty = cell / width;
+					if (map.canMove(object, tx, ty) && (tx != sx || ty != sy))
+						assertEquals(distances[cell], graph.getDistance(object, sx, sy, tx, ty),
+								"distance (" + sx + "," + sy + ") -> (" + tx + "," + ty + ")");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package pacman.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.model.ControllableObject;
+import pacman.model.Direction;
+import pacman.model.GameClock;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+import pacman.model.Pacman;
+import pacman.model.StrongMonster;
+
+/**
+ *  Checks the hierarchical planner against the BFS oracle- it finds a path whenever BFS does, every path is a chain of
+ *  passable neighbours from the source to the target, and a path is longer than the shortest one by a bounded factor only
+ *  (a route passes through the clusters' transitions), on the first level, a generated maze and a maze with an extra portal.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class HierarchicalPlannerTest {
+	private static final int QUERIES = 500;
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT };
+	/* a path may be longer than the shortest path by this factor, plus a cluster size (a detour through a transition) */
+	private static final double MAX_STRETCH = 1.2;
+
+	@Test
+	public void firstLevel() {
+		checkPlanner(Map.getFirstLevelMap());
+	}
+
+	@Test
+	public void generatedMaze() {
+		checkPlanner(Map.getGeneratedMap(81, 81, 42));
+	}
+
+	@Test
+	public void extraPortal() {
+		checkPlanner(PathOracleTest.getPortalMap(true));
+	}
+
+	@Test
+	public void portalAfterTheGraphWasBuilt() {
+		Map map = PathOracleTest.getPortalMap(false);
+		HierarchicalPlanner planner = new HierarchicalPlanner(map, 8);
+		checkQueries(map, new Pacman(map), planner, new SplittableRandom(1));
+
+		map.addPortal(5, 0, Direction.UP, 25, map.getGameDimension().height - 1);
+		checkQueries(map, new Pacman(map), planner, new SplittableRandom(2));
+	}
+
+	private static void checkPlanner(Map map) {
+		ControllableObject[] objects = { new Pacman(map), new StrongMonster(map, new GameClock(), new GameRandom(1)) };
+		for (int clusterSize : new int[] { 4, 8, 16 }) {
+			HierarchicalPlanner planner = new HierarchicalPlanner(map, clusterSize);
+			for (ControllableObject object : objects) {
+				checkQueries(map, object, planner, new SplittableRandom(clusterSize));
+			}
+		}
+	}
+
+	/**
+	 * Compare random queries of the planner with the BFS distances
+	 */
+	private static void checkQueries(Map map, ControllableObject object, HierarchicalPlanner planner, SplittableRandom random) {
+		int width = map.getGameDimension().width, height = map.getGameDimension().height;
+		int clusterSize = planner.getClusterSize();
+		Path path = new Path();
+		long length = 0, shortest = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			int sx = random.nextInt(width), sy = random.nextInt(height), tx = random.nextInt(width), ty = random.nextInt(height);
+			if (!map.canMove(object, sx, sy) || !map.canMove(object, tx, ty) || (sx == tx && sy == ty))
+				continue;
+
+			String query = "(" + sx + "," + sy + ") -> (" + tx + "," + ty + "), clusters of " + clusterSize;
+			int distance = PathOracleTest.bfs(map, object, sx, sy)[ty * width + tx];
+			boolean found = planner.findPath(object, sx, sy, tx, ty, path);
+			assertEquals(distance >= 0, found, "path found " + query);
+			if (!found)
+				continue;
+
+			checkSteps(map, object, path, sx, sy, tx, ty, query);
+			int steps = path.getLength() - 1;
+			assertTrue(steps >= distance, "shorter than BFS " + query);
+			assertTrue(steps <= distance * MAX_STRETCH + clusterSize, steps + " steps instead of " + distance + " " + query);
+			length += steps;
+			shortest += distance;
+		}
+
+		// on average, the paths are close to the shortest paths
+		assertTrue(length <= shortest * 1.05, length + " steps instead of " + shortest);
+	}
+
+	/**
+	 * Check that a path goes from the source to the target through passable neighbours
+	 */
+	private static void checkSteps(Map map, ControllableObject object, Path path, int sx, int sy, int tx, int ty, String query) {
+		assertEquals(sx, path.getX(0), query);
+		assertEquals(sy, path.getY(0), query);
+		assertEquals(tx, path.getX(path.getLength() - 1), query);
+		assertEquals(ty, path.getY(path.getLength() - 1), query);
+
+		int width = map.getGameDimension().width;
+		for (int i = 1; i < path.getLength(); i++) {
+			assertTrue(map.canMove(object, path.getX(i), path.getY(i)), "step " + i + " is blocked " + query);
+			int next = path.getY(i) * width + path.getX(i);
+			boolean neighbour = false;
+			for (Direction direction : DIRECTIONS) {
+				neighbour |= map.getNeighbour(path.getX(i - 1), path.getY(i - 1), direction) == next;
+			}
+			assertTrue(neighbour, "step " + i + " isn't a neighbour of the previous step " + query);
+		}
+	}
+}
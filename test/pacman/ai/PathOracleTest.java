@@ -0,0 +1,231 @@
+package pacman.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.model.ControllableObject;
+import pacman.model.Direction;
+import pacman.model.GameClock;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+import pacman.model.Pacman;
+import pacman.model.StrongMonster;
+
+/**
+ *  Checks the path planners against a BFS oracle (through the board edges & portals), on the first level,
+ *  a generated maze and a maze with an extra portal- every path is a chain of neighbours and is as short as the BFS path.
+ *  The A* heuristic (the distance on the wrapped board or through a portal) must also expand fewer nodes than the old heuristic,
+ *  which was the same for all the nodes of a search- so the old search expanded at least every node closer than the target.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class PathOracleTest {
+	private static final int QUERIES = 500;
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT };
+
+	@Test
+	public void firstLevel() {
+		checkPlanners(Map.getFirstLevelMap());
+	}
+
+	@Test
+	public void generatedMaze() {
+		checkPlanners(Map.getGeneratedMap(41, 41, 42));
+	}
+
+	@Test
+	public void extraPortal() {
+		checkPlanners(getPortalMap(true));
+	}
+
+	@Test
+	public void heuristicExpandsFewerNodes() {
+		checkExpansions(Map.getFirstLevelMap());
+		checkExpansions(Map.getGeneratedMap(61, 61, 42));
+		checkExpansions(getPortalMap(true));
+	}
+
+	@Test
+	public void pathTableFollowsNewPortals() {
+		Map map = getPortalMap(false);
+		Pacman pacman = new Pacman(map);
+		PathTable table = new PathTable(map);
+		int width = map.getGameDimension().width, height = map.getGameDimension().height;
+		int before = table.getDistance(pacman, 5, 0, 25, height - 1);
+		assertEquals(bfs(map, pacman, 5, 0)[(height - 1) * width + 25], before);
+
+		// the table was built before the portal, its layers are built again after it
+		map.addPortal(5, 0, Direction.UP, 25, height - 1);
+		assertEquals(1, table.getDistance(pacman, 5, 0, 25, height - 1));
+		checkPlanner(map, pacman, table, new SplittableRandom(1));
+	}
+
+	/**
+	 * A generated maze with two openings on its edges (and a portal between them)
+	 */
+	static Map getPortalMap(boolean portal) {
+		int[][] codes = Map.getGeneratedCodes(31, 31, 3);
+		codes[0][5] = 0;
+		codes[1][5] = 2;
+		codes[30][25] = 0;
+		codes[29][25] = 2;
+		Map map = new Map(codes, new Point(1, 1), new Point(29, 29));
+		if (portal)
+			map.addPortal(5, 0, Direction.UP, 25, 30);
+
+		return map;
+	}
+
+	private static void checkPlanners(Map map) {
+		ControllableObject[] objects = { new Pacman(map), new StrongMonster(map, new GameClock(), new GameRandom(1)) };
+		for (ControllableObject object : objects) {
+			checkPlanner(map, object, new PathTable(map), new SplittableRandom(1));
+			checkPlanner(map, object, new PathFinder(map, Integer.MAX_VALUE), new SplittableRandom(2));
+			checkFlowField(map, object, new SplittableRandom(3));
+		}
+	}
+
+	/**
+	 * Compare the nodes that random queries of a path finder expand with the nodes that the old heuristic expanded at least
+	 */
+	private static void checkExpansions(Map map) {
+		int width = map.getGameDimension().width, height = map.getGameDimension().height;
+		StrongMonster monster = new StrongMonster(map, new GameClock(), new GameRandom(1));
+		PathFinder finder = new PathFinder(map, Integer.MAX_VALUE);
+		SplittableRandom random = new SplittableRandom(4);
+		Path path = new Path();
+		long expanded = 0, oldExpanded = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			int sx = random.nextInt(width), sy = random.nextInt(height), tx = random.nextInt(width), ty = random.nextInt(height);
+			if (!map.canMove(monster, sx, sy) || !map.canMove(monster, tx, ty) || (sx == tx && sy == ty))
+				continue;
+
+			int[] distances = bfs(map, monster, sx, sy);
+			int distance = distances[ty * width + tx];
+			if (distance < 0)
+				continue;
+
+			long before = finder.getExpandedNodes();
+			assertTrue(finder.findPath(monster, sx, sy, tx, ty, path));
+			assertEquals(distance, path.getLength() - 1);
+			long nodes = finder.getExpandedNodes() - before;
+
+			// a consistent heuristic expands only nodes that aren't farther than the target, and the old search expanded
+			// all the nodes that are closer than the target
+			int closer = 0, notFarther = 0;
+			for (int d : distances) {
+				if (d >= 0 && d < distance)
+					closer++;
+				if (d >= 0 && d <= distance)
+					notFarther++;
+			}
+			assertTrue(nodes <= notFarther, "expanded " + nodes + " nodes, only " + notFarther + " aren't farther than the target");
+			expanded += nodes;
+			oldExpanded += closer;
+		}
+
+		assertTrue(expanded * 4 < oldExpanded * 3, "expanded " + expanded + " nodes, the old heuristic expanded at least " + oldExpanded);
+	}
+
+	/**
+	 * Compare random queries of a planner with the BFS distances
+	 */
+	static void checkPlanner(Map map, ControllableObject object, PathPlanner planner, SplittableRandom random) {
+		int width = map.getGameDimension().width, height = map.getGameDimension().height;
+		Path path = new Path();
+		for (int i = 0; i < QUERIES; i++) {
+			int sx = random.nextInt(width), sy = random.nextInt(height), tx = random.nextInt(width), ty = random.nextInt(height);
+			if (!map.canMove(object, sx, sy) || !map.canMove(object, tx, ty) || (sx == tx && sy == ty))
+				continue;
+
+			int distance = bfs(map, object, sx, sy)[ty * width + tx];
+			boolean found = planner.findPath(object, sx, sy, tx, ty, path);
+			assertEquals(distance >= 0, found, "path found (" + sx + "," + sy + ") -> (" + tx + "," + ty + ")");
+			if (found)
+				checkPath(map, path, sx, sy, tx, ty, distance);
+		}
+	}
+
+	/**
+	 * Compare the paths of a flow field to a few targets with the BFS distances from every cell
+	 */
+	private static void checkFlowField(Map map, ControllableObject object, SplittableRandom random) {
+		int width = map.getGameDimension().width, height = map.getGameDimension().height;
+		FlowField field = new FlowField(map, new PathFinder(map, Integer.MAX_VALUE));
+		Path path = new Path();
+		for (int i = 0; i < 5; i++) {
+			int tx, ty;
+			do {
+				tx = random.nextInt(width);
+				ty = random.nextInt(height);
+			} while (!map.canMove(object, tx, ty));
+
+			field.setTarget(tx, ty);
+			for (int cell = 0; cell < width * height; cell++) {
+				int sx = cell % width, sy = cell / width;
+				if (!map.canMove(object, sx, sy) || (sx == tx && sy == ty))
+					continue;
+
+				int distance = bfs(map, object, sx, sy)[ty * width + tx];
+				boolean found = field.findPath(object, sx, sy, tx, ty, path);
+				assertEquals(distance >= 0, found);
+				if (found)
+					checkPath(map, path, sx, sy, tx, ty, distance);
+			}
+		}
+	}
+
+	/**
+	 * Check that a path goes from the source to the target through neighbours, in the shortest distance
+	 */
+	static void checkPath(Map map, Path path, int sx, int sy, int tx, int ty, int distance) {
+		assertEquals(distance, path.getLength() - 1, "path length (" + sx + "," + sy + ") -> (" + tx + "," + ty + ")");
+		assertEquals(sx, path.getX(0));
+		assertEquals(sy, path.getY(0));
+		assertEquals(tx, path.getX(path.getLength() - 1));
+		assertEquals(ty, path.getY(path.getLength() - 1));
+
+		int width = map.getGameDimension().width;
+		for (int i = 1; i < path.getLength(); i++) {
+			int next = path.getY(i) * width + path.getX(i);
+			boolean neighbour = false;
+			for (Direction direction : DIRECTIONS) {
+				neighbour |= map.getNeighbour(path.getX(i - 1), path.getY(i - 1), direction) == next;
+			}
+			assertTrue(neighbour, "step " + i + " isn't a neighbour of the previous step");
+		}
+	}
+
+	/**
+	 * BFS distances from a source cell to every cell (-1 for the unreachable cells)
+	 */
+	static int[] bfs(Map map, ControllableObject object, int sx, int sy) {
+		int width = map.getGameDimension().width, height = map.getGameDimension().height;
+		int[] distances = new int[width * height];
+		Arrays.fill(distances, -1);
+		int[] queue = new int[width * height];
+		int head = 0, tail = 0;
+		queue[tail++] = sy * width + sx;
+		distances[sy * width + sx] = 0;
+
+		while (head < tail) {
+			int cell = queue[head++];
+			for (Direction direction : DIRECTIONS) {
+				int next = map.getNeighbour(cell % width, cell / width, direction);
+				if (next < 0 || distances[next] >= 0 || !map.canMove(object, next % width, next / width))
+					continue;
+
+				distances[next] = distances[cell] + 1;
+				queue[tail++] = next;
+			}
+		}
+
+		return distances;
+	}
+}
@@ -0,0 +1,152 @@
+package pacman.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.model.Direction;
+
+/**
+ *  Checks the packed path- the steps, directions and jumps that it decodes, through the board's edges and portals,
+ *  for paths that are filled from both ends.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class PathTest {
+	private static final int SIZE = 20;
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT };
+	private static final int[] DX = { 0, 1, 0, -1 };
+	private static final int[] DY = { -1, 0, 1, 0 };
+
+	@Test
+	public void stepsThroughTheEdges() {
+		// left and up through the edges of a 10x10 board, and through a portal on the right edge
+		int[][] steps = { { 1, 0 }, { 0, 0 }, { 9, 0 }, { 9, 9 }, { 0, 3 }, { 1, 3 } };
+		Direction[] directions = { null, Direction.LEFT, Direction.LEFT, Direction.UP, Direction.RIGHT, Direction.RIGHT };
+		boolean[] jumps = { false, false, true, true, true, false };
+
+		Path appended = new Path();
+		Path prepended = new Path();
+		for (int i = 0; i < steps.length; i++) {
+			appended.appendStep(steps[i][0], steps[i][1]);
+			prepended.prependStep(steps[steps.length - 1 - i][0], steps[steps.length - 1 - i][1]);
+		}
+
+		for (Path path : new Path[] { appended, prepended }) {
+			assertEquals(steps.length, path.getLength());
+			for (int i = 0; i < steps.length; i++) {
+				assertEquals(steps[i][0], path.getX(i));
+				assertEquals(steps[i][1], path.getY(i));
+				assertEquals(jumps[i], path.isJump(i));
+				if (i > 0)
+					assertEquals(directions[i], path.getDirection(i));
+			}
+
+			try {
+				path.getDirection(0);
+				fail("the first step has no direction");
+			} catch (IndexOutOfBoundsException e) {
+			}
+			try {
+				path.getX(steps.length);
+				fail("a step after the end of the path");
+			} catch (IndexOutOfBoundsException e) {
+			}
+			assertTrue(path.contains(9, 0));
+			assertTrue(path.contains(0, 3));
+			// the cells between the two sides of a jump aren't on the path
+			assertFalse(path.contains(5, 0));
+			assertFalse(path.contains(9, 5));
+			assertFalse(path.contains(5, 5));
+			assertFalse(path.contains(-1, 0));
+		}
+	}
+
+	@Test
+	public void longWalkFromBothEnds() {
+		Random random = new Random(7);
+		for (int walk = 0; walk < 20; walk++) {
+			int length = 1 + random.nextInt(300);
+			int[] xs = new int[length], ys = new int[length], directions = new int[length];
+			boolean[] jumps = new boolean[length], portals = new boolean[length];
+			xs[0] = random.nextInt(SIZE);
+			ys[0] = random.nextInt(SIZE);
+			for (int i = 1; i < length; i++) {
+				if (random.nextInt(20) == 0) {
+					// a portal to a cell that isn't next to the step
+					do {
+						xs[i] = random.nextInt(SIZE);
+						ys[i] = random.nextInt(SIZE);
+					} while (Math.abs(xs[i] - xs[i - 1]) + Math.abs(ys[i] - ys[i - 1]) <= 1);
+					jumps[i] = portals[i] = true;
+				} else {
+					// mostly along the edges, so the walk wraps around the board often
+					int direction = random.nextInt(4);
+					int x = xs[i - 1] + DX[direction], y = ys[i - 1] + DY[direction];
+					jumps[i] = x < 0 || x >= SIZE || y < 0 || y >= SIZE;
+					xs[i] = (x + SIZE) % SIZE;
+					ys[i] = (y + SIZE) % SIZE;
+					directions[i] = direction;
+				}
+			}
+
+			Path appended = new Path();
+			Path prepended = new Path();
+			for (int i = 0; i < length; i++) {
+				appended.appendStep(xs[i], ys[i]);
+				prepended.prependStep(xs[length - 1 - i], ys[length - 1 - i]);
+			}
+
+			boolean[][] cells = new boolean[SIZE][SIZE];
+			for (int i = 0; i < length; i++) {
+				cells[xs[i]][ys[i]] = true;
+			}
+
+			for (Path path : new Path[] { appended, prepended }) {
+				assertEquals(length, path.getLength());
+				// random access, then sequential access (decoded from the previous step)
+				for (int i = length - 1; i >= 0; i -= 7) {
+					assertEquals(xs[i], path.getX(i));
+					assertEquals(ys[i], path.getY(i));
+				}
+				for (int i = 0; i < length; i++) {
+					assertEquals(xs[i], path.getX(i), "x of step " + i);
+					assertEquals(ys[i], path.getY(i), "y of step " + i);
+					assertEquals(jumps[i], path.isJump(i), "jump of step " + i);
+					if (i > 0 && !portals[i])
+						assertEquals(DIRECTIONS[directions[i]], path.getDirection(i), "direction of step " + i);
+				}
+				for (int x = -1; x <= SIZE; x++) {
+					for (int y = -1; y <= SIZE; y++) {
+						boolean expected = x >= 0 && x < SIZE && y >= 0 && y < SIZE && cells[x][y];
+						assertEquals(expected, path.contains(x, y));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void prependAfterClear() {
+		Path path = new Path();
+		for (int i = 0; i < 100; i++) {
+			path.prependStep(i % SIZE, 0);
+		}
+		path.clear();
+		assertFalse(path.contains(3, 0));
+
+		path.prependStep(0, 5);
+		path.prependStep(SIZE - 1, 5);
+		assertEquals(2, path.getLength());
+		assertTrue(path.isJump(1));
+		assertEquals(Direction.RIGHT, path.getDirection(1));
+		assertEquals(0, path.getX(1));
+		assertTrue(path.contains(SIZE - 1, 5));
+		assertFalse(path.contains(3, 0));
+	}
+}
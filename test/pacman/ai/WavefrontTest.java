@@ -0,0 +1,87 @@
+package pacman.ai;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.model.ControllableObject;
+import pacman.model.Direction;
+import pacman.model.GameClock;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+import pacman.model.Pacman;
+import pacman.model.StrongMonster;
+
+/**
+ *  Checks the wavefront against the BFS oracle- the distances from every cell are the same as the BFS distances,
+ *  through the board edges & portals, on the first level, a generated maze (wider than a long) and a maze with an extra portal.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class WavefrontTest {
+
+	@Test
+	public void firstLevel() {
+		checkWavefront(Map.getFirstLevelMap());
+	}
+
+	@Test
+	public void generatedMaze() {
+		checkWavefront(Map.getGeneratedMap(81, 41, 42));
+	}
+
+	@Test
+	public void extraPortal() {
+		checkWavefront(PathOracleTest.getPortalMap(true));
+	}
+
+	@Test
+	public void portalJoinsTheLayers() {
+		Map map = PathOracleTest.getPortalMap(false);
+		int width = map.getGameDimension().width, height = map.getGameDimension().height;
+		Wavefront wavefront = new Wavefront(map, Map.PACMAN_LAYER);
+		int[] distances = new int[width * height];
+		wavefront.fillDistances(5, 0, distances);
+		assertTrue(distances[(height - 1) * width + 25] > 1);
+
+		// the wavefront reads the portals from the map, so it sees the new portal
+		map.addPortal(5, 0, Direction.UP, 25, height - 1);
+		wavefront.fillDistances(5, 0, distances);
+		assertEquals(1, distances[(height - 1) * width + 25]);
+	}
+
+	/**
+	 * Compare the distances from every passable cell with the BFS distances, for pacman's and the monsters' layers
+	 */
+	private static void checkWavefront(Map map) {
+		int width = map.getGameDimension().width, height = map.getGameDimension().height;
+		ControllableObject[] objects = { new Pacman(map), new StrongMonster(map, new GameClock(), new GameRandom(1)) };
+		for (ControllableObject object : objects) {
+			Wavefront wavefront = new Wavefront(map, object.getPassabilityLayer());
+			int[] distances = new int[width * height];
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					if (!map.canMove(object, x, y)) {
+						assertEquals(0, wavefront.fillDistances(x, y, distances));
+						assertFalse(wavefront.start(x, y));
+						continue;
+					}
+
+					int[] expected = PathOracleTest.bfs(map, object, x, y);
+					int reachable = 0;
+					for (int d : expected) {
+						if (d >= 0)
+							reachable++;
+					}
+
+					assertEquals(reachable, wavefront.fillDistances(x, y, distances));
+					assertArrayEquals(expected, distances, "distances from (" + x + "," + y + ")");
+					assertEquals(reachable, wavefront.countReachable(x, y));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package pacman.bots;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.ai.Path;
+import pacman.controllers.GameEngine;
+import pacman.model.Direction;
+import pacman.model.Map;
+import pacman.model.Monster;
+import pacman.model.Pacman;
+
+/**
+ *  Checks the MCTS bot- with one thread and a seed, its searches (limited by their simulations) decide the same game the same way,
+ *  and it doesn't go into a monster that is next to pacman.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class MctsBotTest {
+	private static final long SEARCH_NANOS = TimeUnit.SECONDS.toNanos(10);
+	private static final int ROLLOUTS = 200;
+	private static final int TICKS = 400;
+	private static final int MAX_TICKS = 10000;
+
+	@Test
+	public void sameSeedDecidesTheSame() {
+		long[] first = play(9);
+		assertArrayEquals(first, play(9));
+	}
+
+	@Test
+	public void avoidsANearMonster() {
+		// pacman stands on its first cell, in a corridor from left to right
+		for (Direction side : new Direction[] { Direction.LEFT, Direction.RIGHT }) {
+			GameEngine engine = new GameEngine(Map.getFirstLevelMap(), 3);
+			engine.setMonstersCount(0, 1);
+			engine.start();
+			Monster monster = engine.getMonsters().get(0);
+			for (int t = 0; monster.isTrapped(); t++) {
+				assertTrue(t < MAX_TICKS, "the monster wasn't released");
+				engine.tick();
+			}
+
+			// the monster is on the next cell, and its path goes through pacman's cell
+			Map map = engine.getMap();
+			int width = map.getGameDimension().width;
+			Pacman pacman = engine.getPacman();
+			int x = pacman.getPosition().x, y = pacman.getPosition().y;
+			int cell = map.getNeighbour(x, y, side);
+			int behind = map.getNeighbour(x, y, side == Direction.LEFT ? Direction.RIGHT : Direction.LEFT);
+			monster.setPosition(cell % width, cell / width);
+			Path path = monster.getPathBuffer();
+			path.clear();
+			path.appendStep(cell % width, cell / width);
+			path.appendStep(x, y);
+			path.appendStep(behind % width, behind / width);
+			monster.setPath(path);
+
+			MctsBot bot = new MctsBot(1, SEARCH_NANOS, 5);
+			bot.setMaxRollouts(ROLLOUTS);
+			Direction decision = bot.decide(engine.getGameInfo(), Long.MAX_VALUE);
+			assertNotNull(decision);
+			assertNotEquals(side, decision, "pacman goes into the monster");
+			bot.stop();
+		}
+	}
+
+	/**
+	 * Play a game driven by a bot with the given seed, and trace the game after every tick
+	 */
+	private static long[] play(long seed) {
+		GameEngine engine = new GameEngine(Map.getFirstLevelMap(), 1);
+		MctsBot bot = new MctsBot(1, SEARCH_NANOS, seed);
+		bot.setMaxRollouts(ROLLOUTS);
+		engine.setPacmanController(bot, 0);
+		engine.start();
+
+		long[] trace = new long[TICKS];
+		for (int t = 0; t < TICKS; t++) {
+			engine.tick();
+			Pacman pacman = engine.getPacman();
+			trace[t] = ((long)engine.getPoints() << 32) + pacman.getPosition().x * 1000 + pacman.getPosition().y * 10
+					+ pacman.getDirection().ordinal();
+		}
+
+		assertTrue(engine.getPoints() > 0);
+		bot.stop();
+		return trace;
+	}
+}
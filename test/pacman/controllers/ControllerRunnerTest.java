@@ -0,0 +1,122 @@
+package pacman.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.model.Direction;
+import pacman.model.Map;
+
+/**
+ *  Checks the fallback of the controller runner- a decision that overruns the budget, and a decision that can't be made
+ *  since the game can't be copied, are dropped (pacman keeps the previous decision) without stopping the game thread.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ControllerRunnerTest {
+	private static final long BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+	private static final long TIMEOUT_MILLIS = 5000;
+
+	@Test
+	public void overrunKeepsThePreviousDecision() throws InterruptedException {
+		GameEngine engine = new GameEngine(Map.getFirstLevelMap(), 1);
+		engine.start();
+		final CountDownLatch release = new CountDownLatch(1);
+		ControllerRunner runner = new ControllerRunner(new PacmanController() {
+			private int _calls;
+
+			@Override
+			public Direction decide(GameInfo game, long nanos) {
+				// the first decision is in time, the next one waits for the test
+				if (_calls++ == 0)
+					return Direction.UP;
+
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return Direction.DOWN;
+			}
+		}, engine.getGameInfo(), BUDGET_NANOS);
+
+		try {
+			assertEquals(Direction.UP, runner.decide());
+			assertEquals(0, runner.getOverrunsCount());
+
+			// the slow decision overruns the budget, and the next decision is dropped while it's still running
+			long start = System.nanoTime();
+			assertEquals(Direction.UP, runner.decide());
+			assertTrue(System.nanoTime() - start >= BUDGET_NANOS);
+			assertEquals(1, runner.getOverrunsCount());
+			assertEquals(Direction.UP, runner.decide());
+			assertEquals(2, runner.getOverrunsCount());
+
+			// when the slow decision ends, the controller decides in time again
+			release.countDown();
+			long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+			Direction direction;
+			while ((direction = runner.decide()) != Direction.DOWN) {
+				assertEquals(Direction.UP, direction);
+				assertTrue(System.currentTimeMillis() < deadline, "no decision after the slow one");
+				Thread.sleep(1);
+			}
+			assertEquals(runner.getDecisionsCount() - 2, runner.getOverrunsCount());
+		} finally {
+			release.countDown();
+			runner.stop();
+		}
+	}
+
+	@Test
+	public void failedCopyKeepsThePreviousDecision() {
+		GameEngine engine = new GameEngine(Map.getFirstLevelMap(), 2);
+		engine.start();
+		final GameInfo game = engine.getGameInfo();
+		final boolean[] copyFails = { true };
+		GameInfo failingGame = (GameInfo)Proxy.newProxyInstance(GameInfo.class.getClassLoader(), new Class<?>[] { GameInfo.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (copyFails[0] && method.getName().equals("createSimulation"))
+							throw new IllegalStateException("The game can't be copied");
+
+						try {
+							return method.invoke(game, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+
+		ControllerRunner runner = new ControllerRunner(new PacmanController() {
+			@Override
+			public Direction decide(GameInfo game, long nanos) {
+				return Direction.LEFT;
+			}
+		}, failingGame, TimeUnit.SECONDS.toNanos(5));
+
+		try {
+			assertNull(runner.decide());
+			assertNull(runner.decide());
+			assertEquals(2, runner.getOverrunsCount());
+
+			// the copy is created again by the next decision
+			copyFails[0] = false;
+			assertEquals(Direction.LEFT, runner.decide());
+			assertEquals(2, runner.getOverrunsCount());
+			assertEquals(3, runner.getDecisionsCount());
+		} finally {
+			runner.stop();
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package pacman.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.ai.CorridorGraph;
+import pacman.ai.HierarchicalPlanner;
+import pacman.ai.PathFinder;
+import pacman.ai.PathPlanner;
+import pacman.model.Direction;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+import pacman.model.Monster;
+import pacman.model.Pacman;
+
+/**
+ *  Checks the game state round trip- an engine that is restored to a snapshot plays the same game as it played after the snapshot.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GameStateTest {
+	private static final int TICKS = 3000;
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT };
+
+	@Test
+	public void restoredGamePlaysTheSame() {
+		GameEngine engine = new GameEngine(Map.getFirstLevelMap(), 7);
+		engine.start();
+		play(engine, new GameRandom(1), 500, null);
+
+		GameState state = engine.snapshot(engine.createState());
+		ByteBuffer saved = write(state);
+		long[] first = new long[TICKS];
+		play(engine, new GameRandom(2), TICKS, first);
+		ByteBuffer end = write(engine.snapshot(engine.createState()));
+
+		engine.restore(state);
+		assertEquals(saved, write(engine.snapshot(engine.createState())));
+		long[] second = new long[TICKS];
+		play(engine, new GameRandom(2), TICKS, second);
+
+		assertArrayEquals(first, second);
+		assertEquals(end, write(engine.snapshot(engine.createState())));
+	}
+
+	@Test
+	public void stateSurvivesSerialization() {
+		GameEngine engine = new GameEngine(Map.getFirstLevelMap(), 11);
+		engine.start();
+		play(engine, new GameRandom(3), 800, null);
+
+		ByteBuffer saved = write(engine.snapshot(engine.createState()));
+		GameState read = engine.createState();
+		read.read(saved.duplicate());
+		assertEquals(saved, write(read));
+	}
+
+	@Test
+	public void simulationPlaysTheSame() {
+		Map map = Map.getFirstLevelMap();
+		PathPlanner[] planners = { null, new PathFinder(map, Integer.MAX_VALUE), new CorridorGraph(map), new HierarchicalPlanner(map, 8) };
+		for (PathPlanner planner : planners) {
+			GameEngine engine = new GameEngine(map, 13, planner);
+			engine.start();
+			play(engine, new GameRandom(4), 500, null);
+
+			// the simulation has its own copy of the planner, and it continues like the game
+			GameState state = engine.snapshot(engine.createState());
+			GameEngine simulation = engine.getGameInfo().createSimulation();
+			simulation.restore(state);
+			long[] first = new long[TICKS];
+			long[] second = new long[TICKS];
+			play(engine, new GameRandom(5), TICKS, first);
+			play(simulation, new GameRandom(5), TICKS, second);
+			assertArrayEquals(first, second);
+		}
+	}
+
+	@Test
+	public void simulationCopiesThePlannerService() {
+		Map map = Map.getFirstLevelMap();
+		GameEngine budgeted = new GameEngine(map, 17);
+		budgeted.setAIBudget(new PathFinder(map, Integer.MAX_VALUE), 200, 0);
+		GameEngine async = new GameEngine(map, 17);
+		async.setAsyncPlanning(new CorridorGraph(map), new PathFinder(map, Integer.MAX_VALUE));
+		for (GameEngine engine : new GameEngine[] { budgeted, async }) {
+			engine.start();
+			play(engine, new GameRandom(6), 300, null);
+
+			GameEngine simulation = engine.getGameInfo().createSimulation();
+			simulation.restore(engine.snapshot(engine.createState()));
+			play(simulation, new GameRandom(7), 300, null);
+		}
+	}
+
+	/**
+	 * Play ticks, turning pacman to a random direction every few ticks, and trace the game after every tick
+	 */
+	private static void play(GameEngine engine, GameRandom random, int ticks, long[] trace) {
+		for (int t = 0; t < ticks; t++) {
+			if (t % 20 == 0)
+				engine.getPacman().setDirection(DIRECTIONS[(int)(random.nextDouble() * DIRECTIONS.length)]);
+			engine.tick();
+
+			if (trace != null)
+				trace[t] = hash(engine);
+		}
+	}
+
+	private static long hash(GameEngine engine) {
+		Pacman pacman = engine.getPacman();
+		long hash = engine.getTicks() * 31 + engine.getPoints();
+		hash = hash * 31 + engine.getRemainingLives();
+		hash = hash * 31 + engine.getRemainingPills();
+		hash = hash * 31 + pacman.getPosition().x * 1000 + pacman.getPosition().y;
+		hash = hash * 31 + pacman.getDirection().ordinal();
+		for (Monster monster : engine.getMonsters()) {
+			hash = hash * 31 + monster.getPosition().x * 1000 + monster.getPosition().y;
+			hash = hash * 31 + (monster.isInFear() ? 1 : 0);
+		}
+
+		return hash;
+	}
+
+	private static ByteBuffer write(GameState state) {
+		ByteBuffer buffer = ByteBuffer.allocate(state.getSize());
+		state.write(buffer);
+		buffer.flip();
+		return buffer;
+	}
+}
@@ -0,0 +1,54 @@
+package pacman.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.model.Direction;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+
+/**
+ *  Checks that a game tick doesn't allocate (once the game warmed up)- the bytes that the thread allocated during
+ *  many ticks are measured by the JVM.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class TickAllocationTest {
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT };
+
+	@Test
+	public void tickDoesntAllocate() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		assertTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		GameEngine engine = new GameEngine(Map.getFirstLevelMap(), 3);
+		engine.setAutoRestart(true);
+		engine.start();
+		GameRandom input = new GameRandom(5);
+
+		// warm up (the paths grow to their longest, and the code is compiled)
+		play(engine, input, 100000);
+
+		long id = Thread.currentThread().getId();
+		long empty = threads.getThreadAllocatedBytes(id);
+		empty = threads.getThreadAllocatedBytes(id) - empty;
+
+		long before = threads.getThreadAllocatedBytes(id);
+		play(engine, input, 20000);
+		long allocated = threads.getThreadAllocatedBytes(id) - before - empty;
+		assertEquals(0, allocated, "bytes allocated by 20000 ticks");
+	}
+
+	private static void play(GameEngine engine, GameRandom input, int ticks) {
+		for (int t = 0; t < ticks; t++) {
+			if (t % 20 == 0)
+				engine.getPacman().setDirection(DIRECTIONS[(int)(input.nextDouble() * DIRECTIONS.length)]);
+			engine.tick();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package pacman.gym;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.model.GameRandom;
+import pacman.model.Map;
+
+/**
+ *  Checks that an episode depends only on its seed & actions- a reused environment plays it like a new one.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GymEnvironmentTest {
+	private static final int STEPS = 400;
+
+	@Test
+	public void resetIsDeterministic() {
+		Map map = Map.getFirstLevelMap();
+		GymEnvironment fresh = new GymEnvironment(map, null, Long.MAX_VALUE);
+		fresh.reset(5);
+		long[] expected = play(fresh, new GameRandom(9));
+
+		// an environment that played other episodes before
+		GymEnvironment reused = new GymEnvironment(map, null, Long.MAX_VALUE);
+		for (int seed = 1; seed <= 3; seed++) {
+			reused.reset(seed);
+			play(reused, new GameRandom(seed * 31));
+		}
+		reused.reset(5);
+		assertArrayEquals(expected, play(reused, new GameRandom(9)));
+
+		// and the same episode again
+		reused.reset(5);
+		assertArrayEquals(expected, play(reused, new GameRandom(9)));
+	}
+
+	@Test
+	public void resetWritesTheWholeObservation() {
+		Map map = Map.getFirstLevelMap();
+		GymEnvironment fresh = new GymEnvironment(map, null, Long.MAX_VALUE);
+		fresh.reset(7);
+
+		GymEnvironment reused = new GymEnvironment(map, null, Long.MAX_VALUE);
+		reused.reset(2);
+		play(reused, new GameRandom(4));
+		reused.reset(7);
+		assertEquals(fresh.getObservation().duplicate().clear(), reused.getObservation().duplicate().clear());
+	}
+
+	/**
+	 * Play random actions, and trace the reward, the end & the observation of every step
+	 */
+	private static long[] play(GymEnvironment environment, GameRandom random) {
+		long[] trace = new long[STEPS];
+		for (int i = 0; i < STEPS; i++) {
+			int reward = environment.step((int)(random.nextDouble() * GymEnvironment.ACTIONS));
+			trace[i] = (reward * 31L + (environment.isDone() ? 1 : 0)) * 31 + hash(environment.getObservation());
+		}
+
+		return trace;
+	}
+
+	private static long hash(ByteBuffer observation) {
+		long hash = 0;
+		for (int i = 0; i < observation.capacity(); i++) {
+			hash = hash * 31 + observation.get(i);
+		}
+
+		return hash;
+	}
+}
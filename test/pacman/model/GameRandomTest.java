@@ -0,0 +1,81 @@
+package pacman.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.controllers.GameEngine;
+
+/**
+ *  Checks the seeded randomness of the game- the generator's sequence and state, and that a seed (with the same input)
+ *  plays the same game.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GameRandomTest {
+	private static final int TICKS = 5000;
+	private static final Direction[] DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT };
+
+	@Test
+	public void sequenceOfSplittableRandom() {
+		for (long seed = -2; seed <= 2; seed++) {
+			GameRandom random = new GameRandom(seed);
+			SplittableRandom expected = new SplittableRandom(seed);
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(expected.nextLong(), random.nextLong());
+			}
+		}
+	}
+
+	@Test
+	public void stateContinuesTheSequence() {
+		GameRandom random = new GameRandom(17);
+		random.nextLong();
+		long state = random.getState();
+		double[] first = { random.nextDouble(), random.nextDouble(), random.nextDouble() };
+
+		random.setState(state);
+		double[] second = { random.nextDouble(), random.nextDouble(), random.nextDouble() };
+		assertArrayEquals(first, second);
+		for (double value : first) {
+			assertEquals(true, value >= 0 && value < 1);
+		}
+	}
+
+	@Test
+	public void sameSeedPlaysTheSameGame() {
+		long[] first = trace(42);
+		assertArrayEquals(first, trace(42));
+		assertFalse(Arrays.equals(first, trace(43)));
+	}
+
+	/**
+	 * Play a game with a seed (and the same input for every seed), and trace the game after every tick
+	 */
+	private static long[] trace(long seed) {
+		GameEngine engine = new GameEngine(Map.getFirstLevelMap(), seed);
+		engine.start();
+		GameRandom input = new GameRandom(1);
+		long[] trace = new long[TICKS];
+		for (int t = 0; t < TICKS; t++) {
+			if (t % 20 == 0)
+				engine.getPacman().setDirection(DIRECTIONS[(int)(input.nextDouble() * DIRECTIONS.length)]);
+			engine.tick();
+
+			long hash = engine.getTicks() * 31 + engine.getPoints();
+			hash = hash * 31 + engine.getRemainingLives();
+			hash = hash * 31 + engine.getPacman().getPosition().x * 1000 + engine.getPacman().getPosition().y;
+			for (Monster monster : engine.getMonsters()) {
+				hash = hash * 31 + monster.getPosition().x * 1000 + monster.getPosition().y;
+			}
+			trace[t] = hash;
+		}
+
+		return trace;
+	}
+}
@@ -0,0 +1,136 @@
+package pacman.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.event.KeyEvent;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.controllers.GameEngine;
+import pacman.controllers.GameState;
+import pacman.model.GameRandom;
+import pacman.model.Map;
+
+/**
+ *  Checks the replay round trip- a recorded game is read back and played on a new engine to the same final state and result,
+ *  and the varints of the replay format keep their values (and sizes) on the boundaries of their bytes.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ReplayTest {
+	private static final int TICKS = 4000;
+	/* the direction keys, and a key that is recorded as another key */
+	private static final int[] KEYS = { KeyEvent.VK_UP, KeyEvent.VK_RIGHT, KeyEvent.VK_DOWN, KeyEvent.VK_LEFT, KeyEvent.VK_A };
+
+	@Test
+	public void recordedGamePlaysTheSame() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ReplayRecorder recorder = new ReplayRecorder(Channels.newChannel(bytes));
+		GameEngine recorded = new GameEngine(Map.getFirstLevelMap(), 21);
+		recorded.setMonstersCount(2, 3);
+		recorded.setAutoRestart(true);
+		recorded.setReplayRecorder(recorder);
+		recorded.start();
+
+		GameRandom random = new GameRandom(5);
+		int pressed = 0;
+		for (int t = 0; t < TICKS; t++) {
+			if (t % 15 == 0) {
+				recorded.pressKey(KEYS[(int)(random.nextDouble() * KEYS.length)]);
+				pressed++;
+			}
+			recorded.tick();
+		}
+		recorder.close();
+		assertTrue(recorded.getPoints() > 0);
+
+		Replay replay = Replay.read(ByteBuffer.wrap(bytes.toByteArray()));
+		assertTrue(replay.isComplete());
+		assertEquals(21, replay.getSeed());
+		assertEquals(2, replay.getWeakMonstersCount());
+		assertEquals(3, replay.getStrongMonstersCount());
+		assertTrue(replay.isAutoRestart());
+		assertEquals(pressed, replay.getKeysCount());
+		assertTrue(indexOf(replay, KeyEvent.VK_ESCAPE) >= 0, "the other keys are played as the escape key");
+		assertEquals(recorded.getSteps(), replay.getEndStep());
+		assertEquals(recorded.getPoints(), replay.getPoints());
+		assertEquals(recorded.getRemainingLives(), replay.getRemainingLives());
+		assertEquals(recorded.getRemainingPills(), replay.getRemainingPills());
+
+		GameEngine played = new ReplayPlayer(Map.getFirstLevelMap()).play(replay, false);
+		assertTrue(ReplayPlayer.matches(replay, played));
+		assertEquals(recorded.getSteps(), played.getSteps());
+		assertEquals(write(recorded), write(played));
+	}
+
+	@Test
+	public void cutReplayEndsAfterItsLastKey() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ReplayRecorder recorder = new ReplayRecorder(Channels.newChannel(bytes));
+		GameEngine engine = new GameEngine(Map.getFirstLevelMap(), 3);
+		engine.setReplayRecorder(recorder);
+		engine.start();
+		for (int t = 0; t < 300; t++) {
+			if (t == 100 || t == 200)
+				engine.pressKey(KeyEvent.VK_LEFT);
+			engine.tick();
+		}
+
+		// the replay is cut in the middle of its end (i.e. the application crashed while it was written)
+		recorder.close();
+		byte[] replayBytes = bytes.toByteArray();
+		Replay replay = Replay.read(ByteBuffer.wrap(replayBytes, 0, replayBytes.length - 1));
+		assertFalse(replay.isComplete());
+		assertEquals(2, replay.getKeysCount());
+		assertEquals(200, replay.getKeyStep(1));
+		assertEquals(201, replay.getEndStep());
+	}
+
+	@Test
+	public void varintBoundaries() {
+		long[] values = { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Integer.MIN_VALUE, -1, -128, Long.MAX_VALUE, Long.MIN_VALUE };
+		int[] sizes = { 1, 1, 1, 2, 2, 3, 5, 10, 10, 10, 9, 10 };
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		for (int i = 0; i < values.length; i++) {
+			buffer.clear();
+			ReplayRecorder.putVarint(buffer, values[i]);
+			assertEquals(sizes[i], buffer.position(), "size of " + values[i]);
+			buffer.flip();
+			assertEquals(values[i], Replay.getVarint(buffer));
+			assertFalse(buffer.hasRemaining());
+		}
+
+		// a sequence of varints is read back in order
+		buffer.clear();
+		for (long value : values) {
+			ReplayRecorder.putVarint(buffer, value);
+		}
+		buffer.flip();
+		for (long value : values) {
+			assertEquals(value, Replay.getVarint(buffer));
+		}
+	}
+
+	private static int indexOf(Replay replay, int keyCode) {
+		for (int i = 0; i < replay.getKeysCount(); i++) {
+			if (replay.getKeyCode(i) == keyCode)
+				return i;
+		}
+
+		return -1;
+	}
+
+	private static ByteBuffer write(GameEngine engine) {
+		GameState state = engine.snapshot(engine.createState());
+		ByteBuffer buffer = ByteBuffer.allocate(state.getSize());
+		state.write(buffer);
+		buffer.flip();
+		return buffer;
+	}
+}
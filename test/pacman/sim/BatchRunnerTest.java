@@ -0,0 +1,54 @@
+package pacman.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.bots.GreedyBot;
+import pacman.controllers.GameEngine;
+import pacman.model.Map;
+
+/**
+ *  Checks that a batch seed gives the same results regardless of the number of worker threads.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class BatchRunnerTest {
+	private static final int GAMES = 24;
+
+	@Test
+	public void parallelismDoesntChangeTheResults() {
+		BatchResult serial = run(1, 7);
+		BatchResult parallel = run(4, 7);
+
+		assertEquals(GAMES, serial.getGames());
+		assertEquals(serial.toString(), parallel.toString());
+		assertEquals(serial.getTotalTicks(), parallel.getTotalTicks());
+		assertEquals(serial.getClearedGames(), parallel.getClearedGames());
+		assertEquals(serial.getMinPoints(), parallel.getMinPoints());
+		assertEquals(serial.getMaxPoints(), parallel.getMaxPoints());
+		assertEquals(serial.getAveragePoints(), parallel.getAveragePoints());
+		assertEquals(serial.getAverageLivesLost(), parallel.getAverageLivesLost());
+		assertEquals(serial.getAverageRemainingPills(), parallel.getAverageRemainingPills());
+
+		// another batch seed plays other games
+		assertNotEquals(serial.toString(), run(4, 8).toString());
+	}
+
+	private static BatchResult run(int parallelism, long seed) {
+		BatchRunner runner = new BatchRunner() {
+			@Override
+			protected GameEngine playGame(long seed) {
+				// a bot drives pacman (nobody presses the keys), so the games score points and lose lives
+				GameEngine engine = new GameEngine(Map.getFirstLevelMap(), seed);
+				engine.setPacmanController(new GreedyBot(), 0);
+				engine.start();
+				engine.runHeadless(3000);
+				return engine;
+			}
+		};
+		runner.setParallelism(parallelism);
+		return runner.run(GAMES, seed);
+	}
+}
@@ -0,0 +1,79 @@
+package pacman.views.fx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import javax.sound.sampled.AudioFormat;
+
+import org.junit.jupiter.api.Test;
+
+import pacman.views.utils.AssetsManager;
+
+/**
+ *  Checks the sound mixer in the silent mode (without an audio line)- the voices are mixed, stolen and finished.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class SoundMixerTest {
+	private static final AudioFormat FORMAT = new AudioFormat(44100, 16, 2, true, false);
+
+	@Test
+	public void silentMixerPlaysTheVoices() throws Exception {
+		SoundBank bank = new SoundBank(FORMAT);
+		int pill = bank.load(AssetsManager.getResource("sounds/eatPill.wav"));
+		SoundMixer mixer = new SoundMixer(bank, 2, null);
+		assertFalse(mixer.hasLine());
+
+		byte[] block = new byte[SoundMixer.BLOCK_FRAMES * FORMAT.getChannels() * 2];
+		mixer.mix(block);
+		assertEquals(0, countNonZero(block));
+
+		// the third sound steals the oldest voice
+		mixer.play(pill);
+		mixer.play(pill);
+		mixer.play(pill);
+		assertEquals(2, mixer.getPlayingVoices());
+
+		// the voices finish after the whole sound was mixed
+		int blocks = 0;
+		boolean sound = false;
+		while (mixer.getPlayingVoices() > 0) {
+			mixer.mix(block);
+			sound |= countNonZero(block) > 0;
+			blocks++;
+		}
+		assertNotEquals(0, blocks);
+		assertEquals((bank.getSamples(pill).length + block.length / 2 - 1) / (block.length / 2), blocks);
+		assertEquals(true, sound);
+	}
+
+	@Test
+	public void silentMixerRunsInRealTime() throws Exception {
+		SoundBank bank = new SoundBank(FORMAT);
+		int pill = bank.load(AssetsManager.getResource("sounds/eatPill.wav"));
+		SoundMixer mixer = new SoundMixer(bank, 4, null);
+		mixer.start();
+		try {
+			mixer.play(pill);
+			long duration = bank.getSamples(pill).length * 1000L / FORMAT.getChannels() / (long)FORMAT.getSampleRate();
+			long deadline = System.currentTimeMillis() + duration + 5000;
+			while (mixer.getPlayingVoices() > 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(0, mixer.getPlayingVoices());
+		} finally {
+			mixer.stop();
+		}
+	}
+
+	private static int countNonZero(byte[] block) {
+		int count = 0;
+		for (byte b : block) {
+			if (b != 0)
+				count++;
+		}
+
+		return count;
+	}
+}